@@ -25,9 +25,12 @@ import com.arthurivanets.adapster.model.markers.Header;
 import com.arthurivanets.adapster.model.markers.Trackable;
 import com.arthurivanets.adapster.util.Preconditions;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -113,6 +116,89 @@ public abstract class TrackableRecyclerViewAdapter<KT, IT extends BaseItem, VH e
 
 
 
+    /**
+     * Adds the specified items at a specified position to the underlying dataset,
+     * notifying the Adapter about the insertion of the whole range at once
+     * (the items that are already present within the dataset are skipped).
+     * The items must be neither Headers, nor Footers.
+     *
+     * @param position to add the items at
+     * @param items to be added
+     * @return the number of the added items
+     */
+    public int addItems(int position, @NonNull List<IT> items) {
+        Preconditions.withinBoundsInclusive(position, getItems());
+        Preconditions.nonNull(items);
+
+        final List<IT> newItems = new ArrayList<>(items.size());
+        final Set<KT> newTrackKeys = new HashSet<>();
+
+        for(IT item : items) {
+            Preconditions.nonNull(item);
+            Preconditions.isTrue("The Header and Footer Items cannot be added as a range", !((item instanceof Header) || (item instanceof Footer)));
+
+            // skipping the items that are already present (both within the dataset and the range itself)
+            if(isNewRangeItem(item, newItems, newTrackKeys)) {
+                newItems.add(item);
+            }
+        }
+
+        if(newItems.isEmpty()) {
+            return 0;
+        }
+
+        trackIfNecessary(newItems);
+
+        // keeping the Header and the Footer at the edges of the dataset
+        final int itemCount = getItemCount();
+        final boolean isFirstItemHeaderView = ((itemCount > 0) && (getItem(0) instanceof Header));
+        final boolean isLastItemFooterView = ((itemCount > 0) && (getItem(itemCount - 1) instanceof Footer));
+
+        if((position == 0) && isFirstItemHeaderView) {
+            position++;
+        } else if((position == itemCount) && isLastItemFooterView) {
+            position--;
+        }
+
+        getItems().addAll(position, newItems);
+
+        // notifying about the change
+        notifyItemRangeInserted(position, newItems.size());
+
+        for(IT item : newItems) {
+            notifyItemAdded(item);
+        }
+
+        notifyDatasetSizeChanged(itemCount, getItemCount());
+
+        return newItems.size();
+    }
+
+
+
+
+    /**
+     * Checks whether the item of a range being added is present neither within the dataset,
+     * nor among the preceding items of the range. The track keys of the range's {@link Trackable}
+     * items are collected locally, as the dataset is not modified until the whole range is checked
+     * (and the subclasses may look the items up within the dataset instead of tracking them).
+     */
+    @SuppressWarnings("unchecked")
+    private boolean isNewRangeItem(IT item, List<IT> newItems, Set<KT> newTrackKeys) {
+        if(contains(item)) {
+            return false;
+        }
+
+        if(item instanceof Trackable) {
+            return newTrackKeys.add(((Trackable<KT>) item).getTrackKey());
+        } else {
+            return !newItems.contains(item);
+        }
+    }
+
+
+
+
     @Override
     public void addOrUpdateItem(int position, @NonNull IT item, boolean notifyAboutTheChange) {
         Preconditions.withinBoundsInclusive(position, getItems());
@@ -389,7 +475,10 @@ public abstract class TrackableRecyclerViewAdapter<KT, IT extends BaseItem, VH e
         Preconditions.nonNull(items);
 
         mKeyTrackableMap.clear();
-        trackIfNecessary(items);
+
+        if(shouldTrackItems(items)) {
+            trackIfNecessary(items);
+        }
 
         super.setItems(items, notifyAboutTheChange);
     }
@@ -397,6 +486,22 @@ public abstract class TrackableRecyclerViewAdapter<KT, IT extends BaseItem, VH e
 
 
 
+    /**
+     * Determines whether the items of the specified dataset should be eagerly added to the Map of {@link Trackable} items
+     * when the dataset is being set. Can be overridden by the subclasses whose datasets are able to perform
+     * the lookups on their own (in which case the {@link #contains(BaseItem)} and {@link #indexOf(BaseItem)}
+     * methods should be overridden as well).
+     *
+     * @param items the dataset that is being set
+     * @return <strong>true</strong> if the items should be tracked, <strong>false</strong> otherwise
+     */
+    protected boolean shouldTrackItems(@NonNull List<IT> items) {
+        return true;
+    }
+
+
+
+
     @Override
     public void clear() {
         final int itemCount = getItemCount();
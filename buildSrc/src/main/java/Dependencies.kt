@@ -50,6 +50,8 @@ object publishingConfig {
     const val hostRepoUrl = "https://s01.oss.sonatype.org/service/local/staging/deploy/maven2/"
 
     const val artifactName = "persistentsearchview"
+    const val ktxArtifactName = "persistentsearchview-ktx"
+    const val artifactNameProperty = "publishing.artifactName"
     const val artifactVersion = "1.1.5"
     const val artifactDescription = "An android library designed to simplify the process of implementing search-related functionality."
 }
@@ -66,10 +68,17 @@ object versions {
     const val browser = "1.8.0"
     const val recyclerView = "1.3.2"
     const val annotations = "1.8.1"
+    const val tracing = "1.2.0"
+    const val coroutines = "1.8.1"
+    const val lifecycle = "2.8.3"
     const val coreKtx = "1.13.1"
     const val commonsKtx = "1.0.4"
     const val jUnit = "4.13.2"
     const val testRunner = "1.6.1"
+    const val testCore = "1.6.1"
+    const val robolectric = "4.12.2"
+    const val mockWebServer = "4.12.0"
+    const val jmh = "1.37"
 }
 
 
@@ -88,6 +97,8 @@ object deps {
 
         const val adapster = ":adapster"
         const val persistentSearchView = ":persistentsearchview"
+        const val persistentSearchViewEngine = ":persistentsearchview-engine"
+        const val persistentSearchViewKtx = ":persistentsearchview-ktx"
     }
 
     const val appCompat = "androidx.appcompat:appcompat:${versions.appCompat}"
@@ -95,8 +106,16 @@ object deps {
     const val browser = "androidx.browser:browser:${versions.browser}"
     const val recyclerView = "androidx.recyclerview:recyclerview:${versions.recyclerView}"
     const val annotations = "androidx.annotation:annotation:${versions.annotations}"
+    const val tracing = "androidx.tracing:tracing:${versions.tracing}"
+    const val coroutinesAndroid = "org.jetbrains.kotlinx:kotlinx-coroutines-android:${versions.coroutines}"
+    const val lifecycleRuntimeKtx = "androidx.lifecycle:lifecycle-runtime-ktx:${versions.lifecycle}"
     const val coreKtx = "androidx.core:core-ktx:${versions.coreKtx}"
     const val commonsKtx = "com.paulrybitskyi.commons:commons-ktx:${versions.commonsKtx}"
     const val jUnit = "junit:junit:${versions.jUnit}"
     const val testRunner = "androidx.test:runner:${versions.testRunner}"
+    const val testCore = "androidx.test:core:${versions.testCore}"
+    const val robolectric = "org.robolectric:robolectric:${versions.robolectric}"
+    const val mockWebServer = "com.squareup.okhttp3:mockwebserver:${versions.mockWebServer}"
+    const val jmhCore = "org.openjdk.jmh:jmh-core:${versions.jmh}"
+    const val jmhAnnotationProcessor = "org.openjdk.jmh:jmh-generator-annprocess:${versions.jmh}"
 }
\ No newline at end of file
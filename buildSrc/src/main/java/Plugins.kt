@@ -21,6 +21,7 @@ import org.gradle.plugin.use.PluginDependencySpec
 
 const val PLUGIN_ANDROID_APPLICATION = "com.android.application"
 const val PLUGIN_ANDROID_LIBRARY = "com.android.library"
+const val PLUGIN_JAVA_LIBRARY = "java-library"
 const val PLUGIN_KOTLIN_ANDROID = "kotlin-android"
 const val PLUGIN_FAT_AAR = "com.kezong.fat-aar"
 const val PLUGIN_GRADLE_VERSIONS = "com.github.ben-manes.versions"
@@ -38,6 +39,11 @@ fun PluginDependenciesSpec.androidLibrary(): PluginDependencySpec {
 }
 
 
+fun PluginDependenciesSpec.javaLibrary(): PluginDependencySpec {
+    return id(PLUGIN_JAVA_LIBRARY)
+}
+
+
 fun PluginDependenciesSpec.kotlinAndroid(): PluginDependencySpec {
     return id(PLUGIN_KOTLIN_ANDROID)
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2021 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+plugins {
+    javaLibrary()
+}
+
+java {
+    sourceCompatibility = appConfig.javaCompatibilityVersion
+    targetCompatibility = appConfig.javaCompatibilityVersion
+}
+
+val jmh by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations {
+    named(jmh.implementationConfigurationName) {
+        extendsFrom(configurations.implementation.get())
+    }
+}
+
+dependencies {
+    jmh.implementationConfigurationName(deps.jmhCore)
+    jmh.annotationProcessorConfigurationName(deps.jmhAnnotationProcessor)
+
+    testImplementation(deps.jUnit)
+}
+
+// Runs the benchmarks, e.g. "./gradlew :persistentsearchview-engine:jmh -Pjmh.include=FuzzyMatcher".
+// The GC profiler reports the allocation rate (gc.alloc.rate.norm being bytes per operation)
+// and the sample time mode reports the latency percentiles (p0.99 among them).
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks of the engine."
+
+    val resultsFile = layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+    val include = project.property("jmh.include", "")
+    val extraArgs = project.property("jmh.args", "").split(" ").filter(String::isNotBlank)
+
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args = (listOf(include, "-prof", "gc", "-rf", "json", "-rff", resultsFile.absolutePath) + extraArgs)
+        .filter(String::isNotEmpty)
+
+    doFirst {
+        resultsFile.parentFile.mkdirs()
+    }
+}
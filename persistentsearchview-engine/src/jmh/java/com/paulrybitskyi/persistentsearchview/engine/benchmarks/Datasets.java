@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine.benchmarks;
+
+import java.util.Random;
+
+/**
+ * A utility class responsible for generating the reproducible
+ * datasets and queries used by the benchmarks.
+ */
+final class Datasets {
+
+
+    private static final long SEED = 885L;
+
+    private static final String[] SYLLABLES = {
+        "ka", "lo", "mi", "ne", "ru", "sa", "to", "vi", "be", "da",
+        "fo", "gu", "hi", "ja", "ke", "li", "mo", "nu", "pa", "re",
+        "si", "tu", "wa", "yo", "zen", "mar", "tor", "lin", "das", "ber"
+    };
+
+
+    private Datasets() {}
+
+
+    /**
+     * Generates the texts consisting of one to four pseudo words each.
+     *
+     * @param size The amount of the texts
+     *
+     * @return The generated texts
+     */
+    static String[] createTexts(int size) {
+        final Random random = new Random(SEED);
+        final String[] texts = new String[size];
+        final StringBuilder builder = new StringBuilder();
+
+        for(int i = 0; i < size; i++) {
+            builder.setLength(0);
+
+            for(int j = 0, wordCount = (1 + random.nextInt(4)); j < wordCount; j++) {
+                if(j > 0) {
+                    builder.append(' ');
+                }
+
+                appendWord(builder, random);
+            }
+
+            texts[i] = builder.toString();
+        }
+
+        return texts;
+    }
+
+
+    private static void appendWord(StringBuilder builder, Random random) {
+        for(int i = 0, syllableCount = (2 + random.nextInt(3)); i < syllableCount; i++) {
+            builder.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+    }
+
+
+    /**
+     * Generates the queries being the prefixes (3 to 8 characters long)
+     * of the random texts, the way they are typed by the users.
+     *
+     * @param texts The texts to take the prefixes of
+     * @param count The amount of the queries
+     *
+     * @return The generated queries
+     */
+    static String[] createPrefixQueries(String[] texts, int count) {
+        final Random random = new Random(SEED + 1);
+        final String[] queries = new String[count];
+
+        for(int i = 0; i < count; i++) {
+            final String text = texts[random.nextInt(texts.length)];
+            queries[i] = text.substring(0, Math.min(text.length(), (3 + random.nextInt(6))));
+        }
+
+        return queries;
+    }
+
+
+    /**
+     * Generates the queries being the prefixes of the random texts with
+     * a single character replaced, to exercise the typo tolerance.
+     *
+     * @param texts The texts to take the prefixes of
+     * @param count The amount of the queries
+     *
+     * @return The generated queries
+     */
+    static String[] createTypoQueries(String[] texts, int count) {
+        final Random random = new Random(SEED + 2);
+        final String[] queries = createPrefixQueries(texts, count);
+
+        for(int i = 0; i < count; i++) {
+            final char[] chars = queries[i].toCharArray();
+            chars[random.nextInt(chars.length)] = (char) ('a' + random.nextInt(26));
+            queries[i] = new String(chars);
+        }
+
+        return queries;
+    }
+
+
+    /**
+     * Generates the multi word queries consisting of the words of the random
+     * texts in the reversed order, the last one being partially typed.
+     *
+     * @param texts The texts to take the words of
+     * @param count The amount of the queries
+     *
+     * @return The generated queries
+     */
+    static String[] createMultiWordQueries(String[] texts, int count) {
+        final Random random = new Random(SEED + 3);
+        final String[] queries = new String[count];
+
+        for(int i = 0; i < count; i++) {
+            final String[] words = texts[random.nextInt(texts.length)].split(" ");
+            final StringBuilder builder = new StringBuilder();
+
+            for(int j = (words.length - 1); j >= 0; j--) {
+                if(builder.length() > 0) {
+                    builder.append(' ');
+                }
+
+                builder.append((j == 0) ? words[j].substring(0, Math.min(words[j].length(), 3)) : words[j]);
+            }
+
+            queries[i] = builder.toString();
+        }
+
+        return queries;
+    }
+
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine.benchmarks;
+
+import com.paulrybitskyi.persistentsearchview.engine.SuggestionIndex;
+import com.paulrybitskyi.persistentsearchview.engine.TokenIndex;
+import com.paulrybitskyi.persistentsearchview.engine.TrigramIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The building of the indices of the datasets of different sizes, which
+ * happens every time the suggestions or the search history change.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class IndexBenchmark {
+
+
+    private static final int SEARCH_HISTORY_CAPACITY = 1000;
+
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int datasetSize;
+
+    private String[] texts;
+
+    private SuggestionIndex suggestionIndex;
+
+    private SearchHistory searchHistory;
+
+
+    @Setup
+    public void setUp() {
+        texts = Datasets.createTexts(datasetSize);
+        suggestionIndex = SuggestionIndex.of(texts);
+        searchHistory = new SearchHistory(SEARCH_HISTORY_CAPACITY);
+        searchHistory.addAll(Arrays.asList(texts).subList(0, Math.min(texts.length, SEARCH_HISTORY_CAPACITY)));
+    }
+
+
+    @Benchmark
+    public SuggestionIndex buildSuggestionIndex() {
+        return SuggestionIndex.of(texts);
+    }
+
+
+    @Benchmark
+    public TrigramIndex buildTrigramIndex() {
+        return TrigramIndex.of(suggestionIndex);
+    }
+
+
+    @Benchmark
+    public TokenIndex buildTokenIndex() {
+        return TokenIndex.of(suggestionIndex);
+    }
+
+
+    @Benchmark
+    public SuggestionIndex addToSearchHistory() {
+        // Re-adding the least recent query moves it to the top and invalidates the index
+        searchHistory.add(searchHistory.get(searchHistory.size() - 1));
+        return searchHistory.getIndex();
+    }
+
+
+}
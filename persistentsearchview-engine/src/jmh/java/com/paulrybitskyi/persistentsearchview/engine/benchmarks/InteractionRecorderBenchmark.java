@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine.benchmarks;
+
+import com.paulrybitskyi.persistentsearchview.engine.InteractionRecorder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of recording an interaction with the {@link InteractionRecorder}, both
+ * on its own and while another thread keeps taking snapshots of the recorder
+ * (run with -prof gc to verify that recording does not allocate).
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class InteractionRecorderBenchmark {
+
+
+    @Param({"1024", "16384"})
+    public int capacity;
+
+    private int argument;
+
+    private InteractionRecorder interactionRecorder;
+
+
+    @Setup
+    public void setUp() {
+        interactionRecorder = new InteractionRecorder(capacity);
+    }
+
+
+    @Benchmark
+    @Group("recordOnly")
+    public void record() {
+        interactionRecorder.record(InteractionRecorder.EVENT_SUGGESTION_BOUND, argument++);
+    }
+
+
+    @Benchmark
+    @Group("recordWhileSnapshotting")
+    public void recordWithReader() {
+        interactionRecorder.record(InteractionRecorder.EVENT_SUGGESTION_BOUND, argument++);
+    }
+
+
+    @Benchmark
+    @Group("recordWhileSnapshotting")
+    public int snapshot() {
+        return interactionRecorder.snapshot().size();
+    }
+
+
+}
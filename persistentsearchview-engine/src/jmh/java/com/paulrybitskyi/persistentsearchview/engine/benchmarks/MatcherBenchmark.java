@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine.benchmarks;
+
+import com.paulrybitskyi.persistentsearchview.engine.FuzzyMatcher;
+import com.paulrybitskyi.persistentsearchview.engine.InfixMatcher;
+import com.paulrybitskyi.persistentsearchview.engine.MatchResults;
+import com.paulrybitskyi.persistentsearchview.engine.SuggestionIndex;
+import com.paulrybitskyi.persistentsearchview.engine.TokenIndex;
+import com.paulrybitskyi.persistentsearchview.engine.TokenMatcher;
+import com.paulrybitskyi.persistentsearchview.engine.TrigramIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The lookups of the matchers against the datasets of different sizes. The benchmark modes
+ * are specified by the subclasses: {@link MatcherThroughputBenchmark} measures the queries
+ * per second and {@link MatcherLatencyBenchmark} the latency distribution (p99 included).
+ * Each invocation runs the next query of a pregenerated set, so that the results
+ * are not skewed by the same query hitting the same branches over and over again.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public abstract class MatcherBenchmark {
+
+
+    private static final int QUERY_COUNT = 1024;
+    private static final int MAX_RESULT_COUNT = 10;
+
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int datasetSize;
+
+    private int queryPosition;
+
+    private String[] prefixQueries;
+    private String[] typoQueries;
+    private String[] multiWordQueries;
+
+    private SuggestionIndex suggestionIndex;
+    private TrigramIndex trigramIndex;
+    private TokenIndex tokenIndex;
+
+    private FuzzyMatcher fuzzyMatcher;
+    private InfixMatcher infixMatcher;
+    private TokenMatcher tokenMatcher;
+
+    private MatchResults matchResults;
+
+
+    @Setup
+    public void setUp() {
+        final String[] texts = Datasets.createTexts(datasetSize);
+
+        prefixQueries = Datasets.createPrefixQueries(texts, QUERY_COUNT);
+        typoQueries = Datasets.createTypoQueries(texts, QUERY_COUNT);
+        multiWordQueries = Datasets.createMultiWordQueries(texts, QUERY_COUNT);
+
+        suggestionIndex = SuggestionIndex.of(texts);
+        trigramIndex = TrigramIndex.of(suggestionIndex);
+        tokenIndex = TokenIndex.of(suggestionIndex);
+
+        fuzzyMatcher = new FuzzyMatcher();
+        infixMatcher = new InfixMatcher();
+        tokenMatcher = new TokenMatcher();
+
+        matchResults = new MatchResults(MAX_RESULT_COUNT);
+    }
+
+
+    private int nextQueryPosition() {
+        return (queryPosition = ((queryPosition + 1) & (QUERY_COUNT - 1)));
+    }
+
+
+    @Benchmark
+    public MatchResults fuzzyMatchPrefix() {
+        fuzzyMatcher.match(prefixQueries[nextQueryPosition()], suggestionIndex, matchResults);
+        return matchResults;
+    }
+
+
+    @Benchmark
+    public MatchResults fuzzyMatchTypo() {
+        fuzzyMatcher.match(typoQueries[nextQueryPosition()], suggestionIndex, matchResults);
+        return matchResults;
+    }
+
+
+    @Benchmark
+    public MatchResults infixMatch() {
+        infixMatcher.match(prefixQueries[nextQueryPosition()], trigramIndex, matchResults);
+        return matchResults;
+    }
+
+
+    @Benchmark
+    public MatchResults tokenMatch() {
+        tokenMatcher.match(multiWordQueries[nextQueryPosition()], tokenIndex, matchResults);
+        return matchResults;
+    }
+
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine.benchmarks;
+
+import com.paulrybitskyi.persistentsearchview.engine.SearchController;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A burst of keystrokes, each followed by a suggestion update, driven through the
+ * {@link SearchController} with a renderer that does nothing. Reports the time
+ * taken by the burst along with the amount of the renders it produces (the
+ * "renders" counter) when the keystrokes arrive within a single frame (i.e.,
+ * the render scheduled by the first keystroke runs after the last one)
+ * and when every keystroke gets its own frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SearchControllerBenchmark {
+
+
+    private static final int KEYSTROKE_COUNT = 50;
+    private static final int SUGGESTION_COUNT = 10;
+
+
+    @Param({"true", "false"})
+    public boolean isSingleFrameBurst;
+
+    private String[] queries;
+
+    private List<List<String>> suggestionUpdates;
+
+    private final List<Runnable> pendingRenderActions = new ArrayList<>();
+
+
+    /**
+     * The counters reported along with the timings.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RenderCounters {
+
+        public long renders;
+
+    }
+
+
+    @Setup
+    public void setUp() {
+        final String[] texts = Datasets.createTexts(KEYSTROKE_COUNT * SUGGESTION_COUNT);
+        final StringBuilder queryBuilder = new StringBuilder();
+
+        queries = new String[KEYSTROKE_COUNT];
+        suggestionUpdates = new ArrayList<>(KEYSTROKE_COUNT);
+
+        for(int i = 0; i < KEYSTROKE_COUNT; i++) {
+            queries[i] = queryBuilder.append((char) ('a' + (i % 26))).toString();
+
+            final List<String> suggestions = new ArrayList<>(SUGGESTION_COUNT);
+            for(int j = 0; j < SUGGESTION_COUNT; j++) {
+                suggestions.add(texts[(i * SUGGESTION_COUNT) + j]);
+            }
+
+            suggestionUpdates.add(suggestions);
+        }
+    }
+
+
+    @Benchmark
+    public long typeBurst(RenderCounters counters) {
+        final SearchController<String> searchController = new SearchController<>(new NoOpRenderer(), pendingRenderActions::add);
+        searchController.expand(false);
+
+        final long initialRenderCount = searchController.getRenderCount();
+
+        for(int i = 0; i < KEYSTROKE_COUNT; i++) {
+            searchController.setQuery(queries[i]);
+            searchController.setSuggestions(suggestionUpdates.get(i), true);
+
+            if(!isSingleFrameBurst) {
+                runPendingRenderActions();
+            }
+        }
+
+        runPendingRenderActions();
+
+        final long renderCount = (searchController.getRenderCount() - initialRenderCount);
+        counters.renders += renderCount;
+
+        return renderCount;
+    }
+
+
+    private void runPendingRenderActions() {
+        for(int i = 0; i < pendingRenderActions.size(); i++) {
+            pendingRenderActions.get(i).run();
+        }
+
+        pendingRenderActions.clear();
+    }
+
+
+    private static final class NoOpRenderer implements SearchController.Renderer<String> {
+
+        @Override
+        public void renderState(SearchController.State state, boolean animate) {}
+
+        @Override
+        public void renderQuery(String query) {}
+
+        @Override
+        public void renderSuggestions(List<String> suggestions) {}
+
+        @Override
+        public void renderSuggestionsInsertion(int position, List<String> suggestions) {}
+
+        @Override
+        public void renderSuggestionRemoval(String suggestion) {}
+
+    }
+
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine.benchmarks;
+
+import com.paulrybitskyi.persistentsearchview.engine.SuggestionIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A bounded list of the recent search queries, ordered from the most
+ * recent to the least recent one, along with a lazily built index of
+ * them that can be passed to the matchers. Used by the benchmarks to
+ * measure the rebuilding of the index on every change of the history.
+ * <br>
+ * As the matchers break the ties by the position of the text within
+ * the index, the equally ranked queries are returned in the order
+ * of their recency. Not thread-safe.
+ */
+final class SearchHistory {
+
+
+    private final int capacity;
+
+    private final ArrayList<String> queries;
+
+    private SuggestionIndex index;
+
+
+    /**
+     * Creates a history holding the specified maximum amount of queries.
+     *
+     * @param capacity The maximum amount of queries
+     */
+    public SearchHistory(int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive.");
+        }
+
+        this.capacity = capacity;
+        this.queries = new ArrayList<>();
+    }
+
+
+    /**
+     * Adds the query to the top of the history. If the history already contains
+     * the query, it is moved to the top, otherwise the least recent query is
+     * evicted if the history is full.
+     *
+     * @param query The query to add
+     */
+    public void add(String query) {
+        Objects.requireNonNull(query);
+
+        queries.remove(query);
+        queries.add(0, query);
+
+        if(queries.size() > capacity) {
+            queries.remove(queries.size() - 1);
+        }
+
+        index = null;
+    }
+
+
+    /**
+     * Adds the queries, the first of which becomes the most recent one.
+     *
+     * @param queries The queries to add
+     */
+    public void addAll(Collection<String> queries) {
+        Objects.requireNonNull(queries);
+
+        final List<String> queryList = new ArrayList<>(queries);
+
+        for(int i = (queryList.size() - 1); i >= 0; i--) {
+            add(queryList.get(i));
+        }
+    }
+
+
+    /**
+     * Removes the query from the history.
+     *
+     * @param query The query to remove
+     *
+     * @return true if the history contained the query; false otherwise
+     */
+    public boolean remove(String query) {
+        Objects.requireNonNull(query);
+
+        if(!queries.remove(query)) {
+            return false;
+        }
+
+        index = null;
+
+        return true;
+    }
+
+
+    /**
+     * Removes all the queries from the history.
+     */
+    public void clear() {
+        queries.clear();
+        index = null;
+    }
+
+
+    /**
+     * Gets the amount of the queries.
+     *
+     * @return The amount of the queries
+     */
+    public int size() {
+        return queries.size();
+    }
+
+
+    /**
+     * Gets the maximum amount of the queries.
+     *
+     * @return The maximum amount of the queries
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+
+    /**
+     * Gets the query at the specified position (0 being the most recent one).
+     *
+     * @param position The position of the query
+     *
+     * @return The query
+     */
+    public String get(int position) {
+        return queries.get(position);
+    }
+
+
+    /**
+     * Gets the queries ordered from the most recent to the least recent one.
+     *
+     * @return The unmodifiable list of the queries
+     */
+    public List<String> getQueries() {
+        return Collections.unmodifiableList(queries);
+    }
+
+
+    /**
+     * Gets the index of the queries. The index is built on the first call
+     * and reused until the history is modified. Its text positions
+     * correspond to the positions of the queries within the history.
+     *
+     * @return The index of the queries
+     */
+    public SuggestionIndex getIndex() {
+        if(index == null) {
+            index = SuggestionIndex.of(queries);
+        }
+
+        return index;
+    }
+
+
+}
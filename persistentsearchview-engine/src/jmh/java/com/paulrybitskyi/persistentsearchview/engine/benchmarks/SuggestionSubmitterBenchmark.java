@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.engine.benchmarks;
+
+import com.paulrybitskyi.persistentsearchview.engine.SuggestionSubmitter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The cost of submitting the suggestions to the {@link SuggestionSubmitter} from
+ * several threads at once while another thread (standing in for the main one)
+ * keeps delivering them.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SuggestionSubmitterBenchmark {
+
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicReference<Runnable> scheduledDelivery = new AtomicReference<>();
+
+    private List<String> suggestions;
+
+    private SuggestionSubmitter<String> suggestionSubmitter;
+
+
+    @Setup
+    public void setUp() {
+        suggestions = new ArrayList<>();
+
+        for(int i = 0; i < 10; i++) {
+            suggestions.add("suggestion " + i);
+        }
+
+        suggestionSubmitter = new SuggestionSubmitter<>(
+            (submittedSuggestions, expandIfNecessary) -> {},
+            scheduledDelivery::set
+        );
+    }
+
+
+    @Benchmark
+    @Group("submitWhileDelivering")
+    @GroupThreads(3)
+    public boolean submit() {
+        return suggestionSubmitter.submit(suggestions, generation.incrementAndGet(), true);
+    }
+
+
+    @Benchmark
+    @Group("submitWhileDelivering")
+    public void deliver(Blackhole blackhole) {
+        final Runnable deliveryAction = scheduledDelivery.getAndSet(null);
+
+        if(deliveryAction != null) {
+            deliveryAction.run();
+        }
+
+        blackhole.consume(deliveryAction);
+    }
+
+
+}
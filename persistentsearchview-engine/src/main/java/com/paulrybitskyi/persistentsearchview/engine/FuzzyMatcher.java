@@ -0,0 +1,389 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine;
+
+/**
+ * A typo tolerant matcher that finds the texts of a {@link SuggestionIndex}
+ * containing the query with at most {@link #MAX_DISTANCE} edits (insertions,
+ * deletions or substitutions of characters).
+ * <br>
+ * The edit distances are computed with the bit-parallel algorithm of Myers,
+ * which processes a whole column of the dynamic programming matrix per text
+ * character using a handful of bitwise operations on a long, hence the query
+ * is limited to {@link #MAX_QUERY_LENGTH} characters (the longer ones are
+ * truncated). The candidates are ranked by their edit distance, then by
+ * how close to the start of the text the match ends, then by the length
+ * of the text.
+ * <br>
+ * Before being scanned, every text is checked against the character and bigram
+ * masks of the {@link SuggestionIndex}: every edit leaves at most one character
+ * and at most two bigrams of the query without a counterpart within the text,
+ * which yields a lower bound of the text's edit distance and hence of its rank.
+ * The texts that could not make it into the results even with that rank
+ * (e.g., the ones missing too many characters or the longer ones, once the
+ * results are filled with the exact matches) are skipped without being scanned.
+ * <br>
+ * The matcher reuses its buffers between the calls and does not allocate
+ * anything while matching, hence it is not thread-safe: use an instance per thread.
+ */
+public final class FuzzyMatcher {
+
+
+    /**
+     * The maximum supported edit distance.
+     */
+    public static final int MAX_DISTANCE = 2;
+
+    /**
+     * The maximum supported length of the query.
+     */
+    public static final int MAX_QUERY_LENGTH = Long.SIZE;
+
+
+    private static final int ASCII_SIZE = 128;
+
+
+    private int patternLength;
+
+    private long patternCharMask;
+    private long patternBigramMask;
+
+    private final char[] pattern;
+
+    private final long[] asciiMasks;
+
+    private int otherCharCount;
+
+    private final char[] otherChars;
+
+    private final long[] otherMasks;
+
+    private int bestEnd;
+
+    private final int[] alignmentMatrix;
+
+
+    public FuzzyMatcher() {
+        pattern = new char[MAX_QUERY_LENGTH];
+        asciiMasks = new long[ASCII_SIZE];
+        otherChars = new char[MAX_QUERY_LENGTH];
+        otherMasks = new long[MAX_QUERY_LENGTH];
+        alignmentMatrix = new int[(MAX_QUERY_LENGTH + 1) * (MAX_QUERY_LENGTH + MAX_DISTANCE + 1)];
+    }
+
+
+    /**
+     * Gets the default edit distance for the query of the specified length.
+     * The shorter the query the fewer typos are tolerated, since otherwise
+     * short queries would match almost everything.
+     *
+     * @param queryLength The length of the query
+     *
+     * @return The default maximum edit distance
+     */
+    public static int getDefaultMaxDistance(int queryLength) {
+        if(queryLength <= 2) {
+            return 0;
+        } else if(queryLength <= 5) {
+            return 1;
+        } else {
+            return MAX_DISTANCE;
+        }
+    }
+
+
+    /**
+     * Finds the best matches of the query within the index using the default
+     * maximum edit distance (see {@link #getDefaultMaxDistance(int)}).
+     *
+     * @param query The query
+     * @param index The index to search
+     * @param results The results to store the best matches into
+     */
+    public void match(CharSequence query, SuggestionIndex index, MatchResults results) {
+        Preconditions.nonNull(query);
+
+        match(query, getDefaultMaxDistance(query.length()), index, results);
+    }
+
+
+    /**
+     * Finds the best matches of the query within the index.
+     *
+     * @param query The query
+     * @param maxDistance The maximum edit distance, within [0, {@link #MAX_DISTANCE}]
+     * @param index The index to search
+     * @param results The results to store the best matches into
+     */
+    public void match(CharSequence query, int maxDistance, SuggestionIndex index, MatchResults results) {
+        Preconditions.nonNull(query);
+        Preconditions.nonNull(index);
+        Preconditions.nonNull(results);
+        Preconditions.isTrue(
+            "The max distance must lie within [0, " + MAX_DISTANCE + "]",
+            ((maxDistance >= 0) && (maxDistance <= MAX_DISTANCE))
+        );
+
+        results.clear();
+
+        if(query.length() == 0) {
+            return;
+        }
+
+        compilePattern(query);
+
+        // A query shorter than the allowed amount of edits would match any text
+        final int distanceLimit = Math.min(maxDistance, (patternLength - 1));
+        final char[] chars = index.getChars();
+
+        for(int i = 0, size = index.size(); i < size; i++) {
+            final int start = index.getStart(i);
+            final int end = index.getEnd(i);
+
+            if((end - start) < (patternLength - distanceLimit)) {
+                continue;
+            }
+
+            final int minDistance = estimateMinDistance(index, i);
+
+            // A match with d edits ends at least (patternLength - d - 1) characters into the text
+            if((minDistance > distanceLimit) || !results.isAcceptable(
+                MatchResults.createRank(minDistance, (patternLength - minDistance - 1), (end - start), i)
+            )) {
+                continue;
+            }
+
+            final int distance = computeDistance(chars, start, end, distanceLimit);
+
+            if(distance > distanceLimit) {
+                continue;
+            }
+
+            final long rank = MatchResults.createRank(distance, (bestEnd - start), (end - start), i);
+
+            if(results.isAcceptable(rank)) {
+                results.offer(rank);
+            }
+        }
+
+        results.finish();
+
+        for(int position = 0, size = results.size(); position < size; position++) {
+            final int candidateIndex = results.getIndex(position);
+            final int start = index.getStart(candidateIndex);
+            final int distance = computeDistance(chars, start, index.getEnd(candidateIndex), distanceLimit);
+
+            results.setDistance(position, distance);
+            highlight(chars, start, bestEnd, distance, results, position);
+        }
+    }
+
+
+    private void compilePattern(CharSequence query) {
+        // Resetting only the masks of the previous pattern
+        for(int i = 0; i < patternLength; i++) {
+            if(pattern[i] < ASCII_SIZE) {
+                asciiMasks[pattern[i]] = 0L;
+            }
+        }
+
+        otherCharCount = 0;
+        patternLength = Math.min(query.length(), MAX_QUERY_LENGTH);
+        patternCharMask = 0L;
+        patternBigramMask = 0L;
+
+        for(int i = 0; i < patternLength; i++) {
+            final char c = Character.toLowerCase(query.charAt(i));
+            final long bit = (1L << i);
+
+            pattern[i] = c;
+            patternCharMask |= SuggestionIndex.getCharBit(c);
+
+            if(i > 0) {
+                patternBigramMask |= SuggestionIndex.getBigramBit(pattern[i - 1], c);
+            }
+
+            if(c < ASCII_SIZE) {
+                asciiMasks[c] |= bit;
+            } else {
+                addOtherCharBit(c, bit);
+            }
+        }
+    }
+
+
+    /**
+     * Estimates the lower bound of the edit distance between the pattern and the text
+     * at the specified index. A substitution or a deletion leaves a character of the
+     * pattern unmatched and breaks up to two of its bigrams, while an insertion breaks
+     * a single bigram, hence every character (or every two bigrams) of the pattern
+     * missing from the text takes an edit. The hash collisions within the masks
+     * can only lower the estimate.
+     */
+    private int estimateMinDistance(SuggestionIndex index, int textIndex) {
+        final int missingCharCount = Long.bitCount(patternCharMask & ~index.getCharMask(textIndex));
+        final int missingBigramCount = Long.bitCount(patternBigramMask & ~index.getBigramMask(textIndex));
+
+        return Math.max(missingCharCount, ((missingBigramCount + 1) / 2));
+    }
+
+
+    private void addOtherCharBit(char c, long bit) {
+        for(int i = 0; i < otherCharCount; i++) {
+            if(otherChars[i] == c) {
+                otherMasks[i] |= bit;
+                return;
+            }
+        }
+
+        otherChars[otherCharCount] = c;
+        otherMasks[otherCharCount] = bit;
+        otherCharCount++;
+    }
+
+
+    private long getOtherMask(char c) {
+        for(int i = 0; i < otherCharCount; i++) {
+            if(otherChars[i] == c) {
+                return otherMasks[i];
+            }
+        }
+
+        return 0L;
+    }
+
+
+    /**
+     * Computes the minimum edit distance between the pattern and any substring
+     * of the text (Myers' bit-vector algorithm, the search variant, where the
+     * match is allowed to start anywhere in the text). Stores the position of
+     * the first character ending a best match into {@link #bestEnd}.
+     */
+    private int computeDistance(char[] chars, int start, int end, int maxDistance) {
+        final long highBit = (1L << (patternLength - 1));
+        long positiveVector = -1L;
+        long negativeVector = 0L;
+        int score = patternLength;
+        int bestScore = (maxDistance + 1);
+
+        bestEnd = -1;
+
+        for(int j = start; j < end; j++) {
+            final char c = chars[j];
+            final long equalityMask = ((c < ASCII_SIZE) ? asciiMasks[c] : getOtherMask(c));
+            final long verticalChanges = (equalityMask | negativeVector);
+            final long horizontalChanges = ((((equalityMask & positiveVector) + positiveVector) ^ positiveVector) | equalityMask);
+            long positiveHorizontal = (negativeVector | ~(horizontalChanges | positiveVector));
+            long negativeHorizontal = (positiveVector & horizontalChanges);
+
+            if((positiveHorizontal & highBit) != 0L) {
+                score++;
+            } else if((negativeHorizontal & highBit) != 0L) {
+                score--;
+            }
+
+            positiveHorizontal <<= 1;
+            negativeHorizontal <<= 1;
+            positiveVector = (negativeHorizontal | ~(verticalChanges | positiveHorizontal));
+            negativeVector = (positiveHorizontal & verticalChanges);
+
+            if(score < bestScore) {
+                bestScore = score;
+                bestEnd = j;
+
+                if(score == 0) {
+                    break;
+                }
+            }
+
+            // The score drops by at most one per character, hence the rest
+            // of the text cannot produce a better match
+            if((score - (end - 1 - j)) >= bestScore) {
+                break;
+            }
+        }
+
+        return bestScore;
+    }
+
+
+    /**
+     * Aligns the pattern with the text part ending at the specified position
+     * using the classic dynamic programming matrix (small, since the part is
+     * at most patternLength + distance characters long) and backtracks it
+     * to find out which characters of the text matched the pattern.
+     */
+    private void highlight(
+        char[] chars,
+        int textStart,
+        int matchEnd,
+        int distance,
+        MatchResults results,
+        int position
+    ) {
+        final int windowStart = Math.max(textStart, (matchEnd - patternLength - distance + 1));
+        final int windowLength = (matchEnd - windowStart + 1);
+        final int rowLength = (windowLength + 1);
+        final int[] matrix = alignmentMatrix;
+
+        for(int j = 0; j <= windowLength; j++) {
+            matrix[j] = 0;
+        }
+
+        for(int i = 1; i <= patternLength; i++) {
+            final int rowOffset = (i * rowLength);
+            final int previousRowOffset = (rowOffset - rowLength);
+
+            matrix[rowOffset] = i;
+
+            for(int j = 1; j <= windowLength; j++) {
+                final int substitutionCost = ((pattern[i - 1] == chars[windowStart + j - 1]) ? 0 : 1);
+
+                matrix[rowOffset + j] = Math.min(
+                    (matrix[previousRowOffset + j - 1] + substitutionCost),
+                    (Math.min(matrix[previousRowOffset + j], matrix[rowOffset + j - 1]) + 1)
+                );
+            }
+        }
+
+        int i = patternLength;
+        int j = windowLength;
+
+        while((i > 0) && (j > 0)) {
+            final int current = matrix[(i * rowLength) + j];
+            final boolean isMatch = (pattern[i - 1] == chars[windowStart + j - 1]);
+            final int diagonal = matrix[((i - 1) * rowLength) + j - 1];
+
+            if(current == (diagonal + (isMatch ? 0 : 1))) {
+                if(isMatch) {
+                    results.addHighlightedCharDescending(position, (windowStart + j - 1 - textStart));
+                }
+
+                i--;
+                j--;
+            } else if(current == (matrix[((i - 1) * rowLength) + j] + 1)) {
+                i--;
+            } else {
+                j--;
+            }
+        }
+
+        results.finishHighlights(position);
+    }
+
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine;
+
+/**
+ * A matcher that finds the texts containing the query as a substring
+ * (case insensitively) with the help of a {@link TrigramIndex}.
+ * <br>
+ * The candidates are retrieved by intersecting the posting lists of the
+ * query's trigrams, starting from the shortest one, and then verified
+ * against the actual texts (sharing all the trigrams does not guarantee
+ * that the trigrams are adjacent). The queries shorter than a trigram
+ * fall back to scanning all the texts. The matches are ranked by their
+ * position within the text, then by the length of the text.
+ * <br>
+ * The matcher reuses its buffers between the calls, hence it is not
+ * thread-safe: use an instance per thread.
+ */
+public final class InfixMatcher {
+
+
+    private int patternLength;
+
+    private char[] pattern;
+
+    private int[] queryTrigramIds;
+
+    private int[] candidates;
+
+
+    public InfixMatcher() {
+        pattern = new char[16];
+        queryTrigramIds = new int[16];
+        candidates = new int[0];
+    }
+
+
+    /**
+     * Finds the best matches of the query within the index.
+     *
+     * @param query The query
+     * @param index The index to search
+     * @param results The results to store the best matches into
+     */
+    public void match(CharSequence query, TrigramIndex index, MatchResults results) {
+        Preconditions.nonNull(query);
+        Preconditions.nonNull(index);
+        Preconditions.nonNull(results);
+
+        results.clear();
+
+        if(query.length() == 0) {
+            return;
+        }
+
+        compilePattern(query);
+
+        final SuggestionIndex suggestionIndex = index.getSuggestionIndex();
+
+        if(patternLength < TrigramIndex.GRAM_LENGTH) {
+            for(int i = 0, size = suggestionIndex.size(); i < size; i++) {
+                verify(suggestionIndex, i, results);
+            }
+        } else {
+            final int candidateCount = retrieveCandidates(index);
+
+            for(int i = 0; i < candidateCount; i++) {
+                verify(suggestionIndex, candidates[i], results);
+            }
+        }
+
+        results.finish();
+
+        for(int position = 0, size = results.size(); position < size; position++) {
+            final int matchStart = findMatch(suggestionIndex, results.getIndex(position));
+
+            results.addHighlightRange(position, matchStart, (matchStart + patternLength));
+        }
+    }
+
+
+    private void compilePattern(CharSequence query) {
+        patternLength = query.length();
+
+        if(pattern.length < patternLength) {
+            pattern = new char[patternLength];
+        }
+
+        for(int i = 0; i < patternLength; i++) {
+            pattern[i] = Character.toLowerCase(query.charAt(i));
+        }
+    }
+
+
+    private int retrieveCandidates(TrigramIndex index) {
+        final int trigramCount = (patternLength - TrigramIndex.GRAM_LENGTH + 1);
+
+        if(queryTrigramIds.length < trigramCount) {
+            queryTrigramIds = new int[trigramCount];
+        }
+
+        for(int i = 0; i < trigramCount; i++) {
+            final long trigram = TrigramIndex.createTrigram(pattern[i], pattern[i + 1], pattern[i + 2]);
+            final int trigramId = index.findTrigramId(trigram);
+
+            if(trigramId == -1) {
+                // No text contains one of the trigrams
+                return 0;
+            }
+
+            queryTrigramIds[i] = trigramId;
+        }
+
+        sortByPostingCount(index, trigramCount);
+
+        if(candidates.length < index.getMaxPostingCount()) {
+            candidates = new int[index.getMaxPostingCount()];
+        }
+
+        int candidateCount = index.decodePostings(queryTrigramIds[0], candidates);
+
+        for(int i = 1; (i < trigramCount) && (candidateCount > 0); i++) {
+            if(queryTrigramIds[i] != queryTrigramIds[i - 1]) {
+                candidateCount = index.intersectPostings(queryTrigramIds[i], candidates, candidateCount);
+            }
+        }
+
+        return candidateCount;
+    }
+
+
+    /**
+     * Sorts the trigram ids by the lengths of their posting lists (insertion sort,
+     * as there are only a few of them), so that the intersection starts from
+     * the most selective one and the equal ids end up adjacent.
+     */
+    private void sortByPostingCount(TrigramIndex index, int trigramCount) {
+        for(int i = 1; i < trigramCount; i++) {
+            final int trigramId = queryTrigramIds[i];
+            final int postingCount = index.getPostingCount(trigramId);
+            int j = (i - 1);
+
+            while((j >= 0) && (
+                (index.getPostingCount(queryTrigramIds[j]) > postingCount) ||
+                ((index.getPostingCount(queryTrigramIds[j]) == postingCount) && (queryTrigramIds[j] > trigramId))
+            )) {
+                queryTrigramIds[j + 1] = queryTrigramIds[j];
+                j--;
+            }
+
+            queryTrigramIds[j + 1] = trigramId;
+        }
+    }
+
+
+    private void verify(SuggestionIndex suggestionIndex, int textIndex, MatchResults results) {
+        final int matchStart = findMatch(suggestionIndex, textIndex);
+
+        if(matchStart == -1) {
+            return;
+        }
+
+        final long rank = MatchResults.createRank(0, matchStart, suggestionIndex.getTextLength(textIndex), textIndex);
+
+        if(results.isAcceptable(rank)) {
+            results.offer(rank);
+        }
+    }
+
+
+    private int findMatch(SuggestionIndex suggestionIndex, int textIndex) {
+        final char[] chars = suggestionIndex.getChars();
+        final int start = suggestionIndex.getStart(textIndex);
+        final int lastStart = (suggestionIndex.getEnd(textIndex) - patternLength);
+        final char firstChar = pattern[0];
+
+        for(int i = start; i <= lastStart; i++) {
+            if(chars[i] != firstChar) {
+                continue;
+            }
+
+            int j = 1;
+
+            while((j < patternLength) && (chars[i + j] == pattern[j])) {
+                j++;
+            }
+
+            if(j == patternLength) {
+                return (i - start);
+            }
+        }
+
+        return -1;
+    }
+
+
+}
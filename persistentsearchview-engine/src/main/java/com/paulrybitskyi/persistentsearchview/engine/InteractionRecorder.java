@@ -0,0 +1,336 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size ring buffer of the search interactions (see the EVENT_* constants)
+ * along with their nanosecond timestamps, meant for reconstructing the latency
+ * distributions offline (e.g., from a bug report).
+ * <br>
+ * Recording an event neither allocates nor locks, but the recorder supports
+ * only a single writer thread (normally, the main one). The events can be read
+ * from any thread by taking a {@link #snapshot()}, which never blocks the writer:
+ * the events overwritten while the snapshot was being taken are simply dropped
+ * from it. When the buffer is full, the oldest events are overwritten.
+ */
+public final class InteractionRecorder {
+
+
+    /**
+     * A constant representing a keystroke (the argument being the length of the query).
+     */
+    public static final int EVENT_KEYSTROKE = 0;
+
+    /**
+     * A constant representing a query dispatched to the listener (the argument being the length of the query).
+     */
+    public static final int EVENT_QUERY_DISPATCHED = 1;
+
+    /**
+     * A constant representing the suggestions delivered to the search view (the argument being their amount).
+     */
+    public static final int EVENT_SUGGESTIONS_DELIVERED = 2;
+
+    /**
+     * A constant representing a suggestion bound to a row (the argument being its position).
+     */
+    public static final int EVENT_SUGGESTION_BOUND = 3;
+
+    /**
+     * A constant representing a suggestion picked by the user (the argument being its position).
+     */
+    public static final int EVENT_SUGGESTION_PICKED = 4;
+
+    /**
+     * A constant representing a suggestion removed by the user (the argument being its position).
+     */
+    public static final int EVENT_SUGGESTION_REMOVED = 5;
+
+    /**
+     * A constant representing the search view being expanded (the argument being 1 if animated, 0 otherwise).
+     */
+    public static final int EVENT_EXPAND = 6;
+
+    /**
+     * A constant representing the search view being collapsed (the argument being 1 if animated, 0 otherwise).
+     */
+    public static final int EVENT_COLLAPSE = 7;
+
+    private static final String[] EVENT_NAMES = {
+        "KEYSTROKE",
+        "QUERY_DISPATCHED",
+        "SUGGESTIONS_DELIVERED",
+        "SUGGESTION_BOUND",
+        "SUGGESTION_PICKED",
+        "SUGGESTION_REMOVED",
+        "EXPAND",
+        "COLLAPSE"
+    };
+
+
+    private final int capacity;
+    private final int indexMask;
+
+    // The sequence of the next event to record. Accessed by the writer only.
+    private long nextSequence;
+
+    // The amount of the recorded events, published after every event is written
+    private final AtomicLong publishedSequence;
+
+    private final AtomicLongArray timestamps;
+
+    // The types of the events in the upper half and their arguments in the lower one
+    private final AtomicLongArray payloads;
+
+
+    /**
+     * Creates a recorder holding the specified maximum amount of events,
+     * rounded up to the nearest power of two.
+     *
+     * @param capacity The maximum amount of events
+     */
+    public InteractionRecorder(int capacity) {
+        Preconditions.isTrue("The capacity must be positive", (capacity > 0));
+        Preconditions.isTrue("The capacity is too large", (capacity <= (1 << 30)));
+
+        this.capacity = ((capacity == 1) ? 1 : (Integer.highestOneBit(capacity - 1) << 1));
+        this.indexMask = (this.capacity - 1);
+        this.publishedSequence = new AtomicLong();
+        this.timestamps = new AtomicLongArray(this.capacity);
+        this.payloads = new AtomicLongArray(this.capacity);
+    }
+
+
+    /**
+     * Records the event, timestamped with {@link System#nanoTime()}.
+     * Must be called from the writer thread only.
+     *
+     * @param eventType The type of the event (see the EVENT_* constants)
+     * @param argument The argument of the event
+     */
+    public void record(int eventType, int argument) {
+        record(eventType, argument, System.nanoTime());
+    }
+
+
+    /**
+     * Records the event. Must be called from the writer thread only.
+     *
+     * @param eventType The type of the event (see the EVENT_* constants)
+     * @param argument The argument of the event
+     * @param timestampNanos The timestamp of the event
+     */
+    public void record(int eventType, int argument, long timestampNanos) {
+        final long sequence = nextSequence;
+        final int index = (int) (sequence & indexMask);
+
+        timestamps.lazySet(index, timestampNanos);
+        payloads.lazySet(index, ((((long) eventType) << 32) | (argument & 0xFFFFFFFFL)));
+
+        nextSequence = (sequence + 1);
+        publishedSequence.lazySet(nextSequence);
+    }
+
+
+    /**
+     * Takes a snapshot of the currently held events. Can be called from any thread.
+     *
+     * @return The snapshot of the events
+     */
+    public Snapshot snapshot() {
+        final long endSequence = publishedSequence.get();
+        final long startSequence = Math.max(0L, (endSequence - capacity));
+        final int count = (int) (endSequence - startSequence);
+        final long[] copiedTimestamps = new long[count];
+        final long[] copiedPayloads = new long[count];
+
+        for(int i = 0; i < count; i++) {
+            final int index = (int) ((startSequence + i) & indexMask);
+
+            copiedTimestamps[i] = timestamps.get(index);
+            copiedPayloads[i] = payloads.get(index);
+        }
+
+        // The events, whose slots the writer might have reused while
+        // they were being copied, can no longer be trusted
+        final long overwrittenEndSequence = (publishedSequence.get() - capacity + 1);
+        final int skippedCount = (int) Math.min(count, Math.max(0L, (overwrittenEndSequence - startSequence)));
+
+        return new Snapshot(
+            copiedTimestamps,
+            copiedPayloads,
+            skippedCount,
+            (count - skippedCount),
+            (startSequence + skippedCount)
+        );
+    }
+
+
+    /**
+     * Gets the total amount of the events recorded so far.
+     *
+     * @return The amount of the recorded events
+     */
+    public long getRecordedEventCount() {
+        return publishedSequence.get();
+    }
+
+
+    /**
+     * Gets the maximum amount of events held by this recorder.
+     *
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+
+    /**
+     * Gets the name of the specified event type.
+     *
+     * @param eventType The type of the event
+     *
+     * @return The name of the event type
+     */
+    public static String getEventName(int eventType) {
+        return (((eventType >= 0) && (eventType < EVENT_NAMES.length)) ? EVENT_NAMES[eventType] : ("UNKNOWN_" + eventType));
+    }
+
+
+    /**
+     * An immutable snapshot of the events held by the recorder,
+     * ordered from the oldest to the most recent one.
+     */
+    public static final class Snapshot {
+
+        private final int offset;
+        private final int size;
+
+        private final long droppedEventCount;
+
+        private final long[] timestamps;
+        private final long[] payloads;
+
+        private Snapshot(long[] timestamps, long[] payloads, int offset, int size, long droppedEventCount) {
+            this.timestamps = timestamps;
+            this.payloads = payloads;
+            this.offset = offset;
+            this.size = size;
+            this.droppedEventCount = droppedEventCount;
+        }
+
+        /**
+         * Gets the amount of the events in the snapshot.
+         *
+         * @return The amount of the events
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Gets the amount of the events that have been recorded before the
+         * oldest event of the snapshot, but that are no longer held by the recorder.
+         *
+         * @return The amount of the dropped events
+         */
+        public long getDroppedEventCount() {
+            return droppedEventCount;
+        }
+
+        /**
+         * Gets the type of the event at the specified position.
+         *
+         * @param index The position of the event
+         *
+         * @return The type of the event
+         */
+        public int getEventType(int index) {
+            return (int) (payloads[checkIndex(index)] >>> 32);
+        }
+
+        /**
+         * Gets the argument of the event at the specified position.
+         *
+         * @param index The position of the event
+         *
+         * @return The argument of the event
+         */
+        public int getArgument(int index) {
+            return (int) payloads[checkIndex(index)];
+        }
+
+        /**
+         * Gets the timestamp of the event at the specified position.
+         *
+         * @param index The position of the event
+         *
+         * @return The timestamp of the event in nanoseconds
+         */
+        public long getTimestampNanos(int index) {
+            return timestamps[checkIndex(index)];
+        }
+
+        /**
+         * Writes the events to the specified appendable, one per line, in the
+         * "timestamp (nanoseconds since the first event) event argument" format.
+         *
+         * @param appendable The appendable to write to
+         *
+         * @throws IOException If the appendable throws it
+         */
+        public void dump(Appendable appendable) throws IOException {
+            Preconditions.nonNull(appendable);
+
+            appendable.append(String.format(
+                Locale.US,
+                "%d events (%d dropped)%n",
+                size,
+                droppedEventCount
+            ));
+
+            final long firstTimestamp = ((size > 0) ? getTimestampNanos(0) : 0L);
+
+            for(int i = 0; i < size; i++) {
+                appendable.append(String.format(
+                    Locale.US,
+                    "%d %s %d%n",
+                    (getTimestampNanos(i) - firstTimestamp),
+                    getEventName(getEventType(i)),
+                    getArgument(i)
+                ));
+            }
+        }
+
+        private int checkIndex(int index) {
+            if((index < 0) || (index >= size)) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+
+            return (offset + index);
+        }
+
+    }
+
+
+}
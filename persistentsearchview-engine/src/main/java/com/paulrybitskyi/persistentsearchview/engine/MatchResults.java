@@ -0,0 +1,417 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine;
+
+/**
+ * A reusable container of the best matches produced by a matcher, ordered
+ * from the best to the worst one. Besides the index of the matched text
+ * within the {@link SuggestionIndex}, every match holds its edit distance
+ * and the ranges of the text's characters that matched the query, which
+ * can be used for highlighting.
+ * <br>
+ * All the buffers are allocated upfront, so collecting the matches
+ * does not allocate anything. Not thread-safe.
+ */
+public final class MatchResults {
+
+
+    private static final int MAX_HIGHLIGHT_RANGE_COUNT = FuzzyMatcher.MAX_QUERY_LENGTH;
+
+    private static final int INDEX_MASK = 0x7FFFFFFF;
+
+    private static final int RANK_DISTANCE_SHIFT = 58;
+    private static final int RANK_MATCH_POSITION_SHIFT = 45;
+    private static final int RANK_LENGTH_SHIFT = 32;
+    private static final int RANK_FIELD_MAX_VALUE = ((1 << 13) - 1);
+
+
+    private final int capacity;
+
+    private int size;
+
+    private final long[] ranks;
+
+    private final int[] indices;
+    private final int[] distances;
+
+    private final int[] highlightRangeCounts;
+    private final int[] highlightRanges;
+
+
+    /**
+     * Creates a container able to hold the specified amount of the best matches.
+     *
+     * @param capacity The maximum amount of matches
+     */
+    public MatchResults(int capacity) {
+        Preconditions.isTrue("The capacity must be positive", (capacity > 0));
+
+        this.capacity = capacity;
+        this.ranks = new long[capacity];
+        this.indices = new int[capacity];
+        this.distances = new int[capacity];
+        this.highlightRangeCounts = new int[capacity];
+        this.highlightRanges = new int[capacity * MAX_HIGHLIGHT_RANGE_COUNT * 2];
+    }
+
+
+    /**
+     * Gets the amount of the matches.
+     *
+     * @return The amount of the matches
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Gets the maximum amount of the matches.
+     *
+     * @return The maximum amount of the matches
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+
+    /**
+     * Gets the index of the matched text within the {@link SuggestionIndex}.
+     *
+     * @param position The position of the match
+     *
+     * @return The index of the matched text
+     */
+    public int getIndex(int position) {
+        checkPosition(position);
+        return indices[position];
+    }
+
+
+    /**
+     * Gets the edit distance between the query and the best matching
+     * part of the text.
+     *
+     * @param position The position of the match
+     *
+     * @return The edit distance
+     */
+    public int getDistance(int position) {
+        checkPosition(position);
+        return distances[position];
+    }
+
+
+    /**
+     * Gets the amount of the ranges of the matched characters.
+     *
+     * @param position The position of the match
+     *
+     * @return The amount of the highlight ranges
+     */
+    public int getHighlightRangeCount(int position) {
+        checkPosition(position);
+        return highlightRangeCounts[position];
+    }
+
+
+    /**
+     * Gets the start (inclusive) of the range of the matched characters.
+     *
+     * @param position The position of the match
+     * @param rangeIndex The index of the range
+     *
+     * @return The start of the range
+     */
+    public int getHighlightStart(int position, int rangeIndex) {
+        return highlightRanges[getHighlightRangeOffset(position, rangeIndex)];
+    }
+
+
+    /**
+     * Gets the end (exclusive) of the range of the matched characters.
+     *
+     * @param position The position of the match
+     * @param rangeIndex The index of the range
+     *
+     * @return The end of the range
+     */
+    public int getHighlightEnd(int position, int rangeIndex) {
+        return highlightRanges[getHighlightRangeOffset(position, rangeIndex) + 1];
+    }
+
+
+    /**
+     * Copies the ranges of the matched characters into a new array of the start
+     * (inclusive) and end (exclusive) pairs, which can be passed to the
+     * {@code Suggestion#setHighlightRanges(int[])} method.
+     *
+     * @param position The position of the match
+     *
+     * @return The highlight ranges
+     */
+    public int[] copyHighlightRanges(int position) {
+        checkPosition(position);
+
+        final int rangeCount = highlightRangeCounts[position];
+        final int[] ranges = new int[rangeCount * 2];
+
+        System.arraycopy(highlightRanges, (position * MAX_HIGHLIGHT_RANGE_COUNT * 2), ranges, 0, ranges.length);
+
+        return ranges;
+    }
+
+
+    private int getHighlightRangeOffset(int position, int rangeIndex) {
+        checkPosition(position);
+
+        if((rangeIndex < 0) || (rangeIndex >= highlightRangeCounts[position])) {
+            throw new IndexOutOfBoundsException("Range index: " + rangeIndex + ", Range count: " + highlightRangeCounts[position]);
+        }
+
+        return (((position * MAX_HIGHLIGHT_RANGE_COUNT) + rangeIndex) * 2);
+    }
+
+
+    private void checkPosition(int position) {
+        if((position < 0) || (position >= size)) {
+            throw new IndexOutOfBoundsException("Position: " + position + ", Size: " + size);
+        }
+    }
+
+
+    /**
+     * Creates a rank of a candidate. The candidates are ordered by their edit distance,
+     * then by the position of the match within the text (the closer to the start
+     * the better), then by the length of the text and then by their index.
+     *
+     * @param distance The edit distance of the match
+     * @param matchPosition The position of the match within the text
+     * @param length The length of the text
+     * @param index The index of the text
+     *
+     * @return The rank of the candidate
+     */
+    static long createRank(int distance, int matchPosition, int length, int index) {
+        return (
+            (((long) distance) << RANK_DISTANCE_SHIFT) |
+            (((long) Math.min(matchPosition, RANK_FIELD_MAX_VALUE)) << RANK_MATCH_POSITION_SHIFT) |
+            (((long) Math.min(length, RANK_FIELD_MAX_VALUE)) << RANK_LENGTH_SHIFT) |
+            index
+        );
+    }
+
+
+    /**
+     * Removes all the matches.
+     */
+    void clear() {
+        size = 0;
+    }
+
+
+    /**
+     * Offers a candidate with the specified rank. The lower the rank the better
+     * the candidate is and the lowest 31 bits of the rank must hold the index
+     * of the candidate. Keeps only the {@link #capacity} best candidates
+     * (in a max-heap, so that the worst one can be evicted in O(log(capacity))).
+     *
+     * @param rank The rank of the candidate
+     */
+    void offer(long rank) {
+        if(size < capacity) {
+            ranks[size] = rank;
+            siftUp(size++);
+        } else if(rank < ranks[0]) {
+            ranks[0] = rank;
+            siftDown(0, size);
+        }
+    }
+
+
+    /**
+     * Checks whether a candidate with the specified rank would be
+     * accepted by {@link #offer(long)}.
+     *
+     * @param rank The rank of the candidate
+     *
+     * @return true if accepted; false otherwise
+     */
+    boolean isAcceptable(long rank) {
+        return ((size < capacity) || (rank < ranks[0]));
+    }
+
+
+    /**
+     * Sorts the collected candidates from the best to the worst one
+     * and decodes their indices. Must be called once all the candidates
+     * have been offered.
+     */
+    void finish() {
+        // In-place heap sort, the max-heap yields an ascending order
+        for(int end = (size - 1); end > 0; end--) {
+            final long max = ranks[0];
+
+            ranks[0] = ranks[end];
+            ranks[end] = max;
+
+            siftDown(0, end);
+        }
+
+        for(int i = 0; i < size; i++) {
+            indices[i] = (int) (ranks[i] & INDEX_MASK);
+            distances[i] = 0;
+            highlightRangeCounts[i] = 0;
+        }
+    }
+
+
+    /**
+     * Sets the edit distance of the match.
+     *
+     * @param position The position of the match
+     * @param distance The edit distance
+     */
+    void setDistance(int position, int distance) {
+        distances[position] = distance;
+    }
+
+
+    /**
+     * Adds a matched character to the highlight ranges of the match.
+     * The characters must be added in the descending order of their positions
+     * (as produced by the alignment backtracking), adjacent ones are merged.
+     *
+     * @param position The position of the match
+     * @param charIndex The index of the matched character within the text
+     */
+    void addHighlightedCharDescending(int position, int charIndex) {
+        final int rangeCount = highlightRangeCounts[position];
+        final int baseOffset = (position * MAX_HIGHLIGHT_RANGE_COUNT * 2);
+
+        if(rangeCount > 0) {
+            final int lastRangeOffset = (baseOffset + ((rangeCount - 1) * 2));
+
+            if(highlightRanges[lastRangeOffset] == (charIndex + 1)) {
+                highlightRanges[lastRangeOffset] = charIndex;
+                return;
+            }
+        }
+
+        if(rangeCount == MAX_HIGHLIGHT_RANGE_COUNT) {
+            return;
+        }
+
+        final int rangeOffset = (baseOffset + (rangeCount * 2));
+
+        highlightRanges[rangeOffset] = charIndex;
+        highlightRanges[rangeOffset + 1] = (charIndex + 1);
+        highlightRangeCounts[position] = (rangeCount + 1);
+    }
+
+
+    /**
+     * Adds a range of the matched characters to the highlight ranges of the match.
+     * The ranges must be added in the ascending order and must not overlap.
+     *
+     * @param position The position of the match
+     * @param start The start (inclusive) of the range within the text
+     * @param end The end (exclusive) of the range within the text
+     */
+    void addHighlightRange(int position, int start, int end) {
+        final int rangeCount = highlightRangeCounts[position];
+
+        if(rangeCount == MAX_HIGHLIGHT_RANGE_COUNT) {
+            return;
+        }
+
+        final int rangeOffset = (((position * MAX_HIGHLIGHT_RANGE_COUNT) + rangeCount) * 2);
+
+        highlightRanges[rangeOffset] = start;
+        highlightRanges[rangeOffset + 1] = end;
+        highlightRangeCounts[position] = (rangeCount + 1);
+    }
+
+
+    /**
+     * Reverses the highlight ranges of the match, so that they
+     * go in the ascending order.
+     *
+     * @param position The position of the match
+     */
+    void finishHighlights(int position) {
+        final int baseOffset = (position * MAX_HIGHLIGHT_RANGE_COUNT * 2);
+
+        for(int i = 0, j = (highlightRangeCounts[position] - 1); i < j; i++, j--) {
+            final int leftOffset = (baseOffset + (i * 2));
+            final int rightOffset = (baseOffset + (j * 2));
+            final int start = highlightRanges[leftOffset];
+            final int end = highlightRanges[leftOffset + 1];
+
+            highlightRanges[leftOffset] = highlightRanges[rightOffset];
+            highlightRanges[leftOffset + 1] = highlightRanges[rightOffset + 1];
+            highlightRanges[rightOffset] = start;
+            highlightRanges[rightOffset + 1] = end;
+        }
+    }
+
+
+    private void siftUp(int index) {
+        final long rank = ranks[index];
+
+        while(index > 0) {
+            final int parentIndex = ((index - 1) >>> 1);
+
+            if(ranks[parentIndex] >= rank) {
+                break;
+            }
+
+            ranks[index] = ranks[parentIndex];
+            index = parentIndex;
+        }
+
+        ranks[index] = rank;
+    }
+
+
+    private void siftDown(int index, int heapSize) {
+        final long rank = ranks[index];
+
+        while(true) {
+            int childIndex = ((index * 2) + 1);
+
+            if(childIndex >= heapSize) {
+                break;
+            }
+
+            if(((childIndex + 1) < heapSize) && (ranks[childIndex + 1] > ranks[childIndex])) {
+                childIndex++;
+            }
+
+            if(ranks[childIndex] <= rank) {
+                break;
+            }
+
+            ranks[index] = ranks[childIndex];
+            index = childIndex;
+        }
+
+        ranks[index] = rank;
+    }
+
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine;
+
+import java.util.Locale;
+
+/**
+ * A utility class responsible for performing precondition checks
+ * on arguments of the engine's classes. Unlike its counterpart from
+ * the utils package, it does not depend on the Android framework.
+ */
+final class Preconditions {
+
+
+    private Preconditions() {}
+
+
+    /**
+     * Checks whether the condition is true. If not, throws {@link IllegalStateException}.
+     *
+     * @param info The info to attach to the message of the exception
+     * @param condition The condition to check
+     */
+    static void isTrue(String info, boolean condition) {
+        nonNull(info);
+
+        if(!condition) {
+            throw new IllegalStateException(String.format(
+                Locale.US,
+                "%s - the condition is not met. The Condition must be positive.",
+                info
+            ));
+        }
+    }
+
+
+    /**
+     * Checks whether the object is not null. If null, throws {@link NullPointerException}.
+     *
+     * @param object The object to check
+     */
+    static void nonNull(Object object) {
+        if(object == null) {
+            throw new NullPointerException("The argument must be non-null!");
+        }
+    }
+
+
+}
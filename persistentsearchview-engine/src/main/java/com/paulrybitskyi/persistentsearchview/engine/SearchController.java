@@ -0,0 +1,406 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A headless state machine of a search view, which owns its state (expanded or
+ * collapsed), query and suggestions, leaving the view only with rendering them
+ * through a {@link Renderer}. Being free of the Android framework, it can be
+ * exercised and benchmarked on a plain JVM.
+ * <br>
+ * The changes of the state, as well as the insertions and the removals of the suggestions, are rendered
+ * immediately. The changes of the query and the suggestions, on the other hand,
+ * are coalesced: they only mark the corresponding parts as dirty and schedule
+ * a render with the {@link RenderScheduler} (e.g., on the next frame), so that
+ * a burst of keystrokes and suggestion updates arriving within a single
+ * frame produces a single render of the query and the suggestions. The
+ * pending changes are always flushed before the state changes, hence the
+ * renderer observes them in the same order they were made in.
+ * <br>
+ * Not thread-safe: must be used from a single (e.g., the main) thread.
+ *
+ * @param <S> The type of the suggestions
+ */
+public final class SearchController<S> {
+
+
+    /**
+     * A scheduler rendering the changes synchronously, i.e. without coalescing them.
+     */
+    public static final RenderScheduler IMMEDIATE_RENDER_SCHEDULER = Runnable::run;
+
+    private static final int DIRTY_FLAG_QUERY = 1;
+    private static final int DIRTY_FLAG_SUGGESTIONS = 1 << 1;
+
+
+    private boolean isRenderScheduled;
+
+    private boolean areSuggestionsDisabled;
+
+    private int dirtyFlags;
+
+    private long renderCount;
+
+    private State state;
+
+    private String query;
+
+    private List<S> suggestions;
+
+    private final Renderer<S> renderer;
+
+    private final RenderScheduler renderScheduler;
+
+    private final Runnable renderAction = this::flushRender;
+
+
+    /**
+     * The state of a search view.
+     */
+    public enum State {
+
+        EXPANDED,
+        COLLAPSED
+
+    }
+
+
+    /**
+     * Creates a controller in the collapsed state with an empty query and no suggestions.
+     *
+     * @param renderer The renderer of the controller's state
+     * @param renderScheduler The scheduler of the coalesced renders
+     */
+    public SearchController(Renderer<S> renderer, RenderScheduler renderScheduler) {
+        Preconditions.nonNull(renderer);
+        Preconditions.nonNull(renderScheduler);
+
+        this.renderer = renderer;
+        this.renderScheduler = renderScheduler;
+        this.state = State.COLLAPSED;
+        this.query = "";
+        this.suggestions = new ArrayList<>();
+    }
+
+
+    /**
+     * Expands the search view, flushing the pending changes first.
+     *
+     * @param animate Whether to animate the expansion or not
+     *
+     * @return true if the state has changed; false otherwise
+     */
+    public boolean expand(boolean animate) {
+        return changeState(State.EXPANDED, animate);
+    }
+
+
+    /**
+     * Collapses the search view, flushing the pending changes first.
+     *
+     * @param animate Whether to animate the collapse or not
+     *
+     * @return true if the state has changed; false otherwise
+     */
+    public boolean collapse(boolean animate) {
+        return changeState(State.COLLAPSED, animate);
+    }
+
+
+    private boolean changeState(State state, boolean animate) {
+        if(this.state == state) {
+            return false;
+        }
+
+        flushRender();
+
+        this.state = state;
+
+        renderCount++;
+        renderer.renderState(state, animate);
+
+        return true;
+    }
+
+
+    /**
+     * Sets the current query (e.g., when the user types). The query
+     * is rendered along with the other coalesced changes.
+     *
+     * @param query The query to set
+     */
+    public void setQuery(String query) {
+        Preconditions.nonNull(query);
+
+        if(this.query.equals(query)) {
+            return;
+        }
+
+        this.query = query;
+
+        markDirty(DIRTY_FLAG_QUERY);
+    }
+
+
+    /**
+     * Sets the suggestions. The suggestions are rendered along with the other
+     * coalesced changes, unless they cause the search view to expand,
+     * in which case they are rendered right before it.
+     *
+     * @param suggestions The suggestions to set
+     * @param expandIfNecessary Whether to expand the search view if it is collapsed
+     */
+    public void setSuggestions(List<S> suggestions, boolean expandIfNecessary) {
+        Preconditions.nonNull(suggestions);
+
+        this.suggestions = suggestions;
+
+        markDirty(DIRTY_FLAG_SUGGESTIONS);
+
+        if(expandIfNecessary && !isExpanded()) {
+            expand(true);
+        }
+    }
+
+
+    /**
+     * Inserts the suggestions at the specified position (e.g., when a slower source
+     * of the suggestions delivers its results), flushing the pending changes first.
+     * The insertion is rendered immediately and the renderer is responsible for
+     * inserting the suggestions into the list of the suggestions it has been given.
+     *
+     * @param position The position to insert the suggestions at
+     * @param suggestions The suggestions to insert
+     */
+    public void insertSuggestions(int position, List<S> suggestions) {
+        Preconditions.nonNull(suggestions);
+
+        flushRender();
+
+        Preconditions.isTrue(
+            "The position must lie within the bounds of the suggestions",
+            ((position >= 0) && (position <= this.suggestions.size()))
+        );
+
+        if(suggestions.isEmpty()) {
+            return;
+        }
+
+        renderCount++;
+        renderer.renderSuggestionsInsertion(position, suggestions);
+    }
+
+
+    /**
+     * Removes the suggestion (e.g., when the user clicks its remove button),
+     * flushing the pending changes first. The removal is rendered immediately
+     * and the renderer is responsible for removing the suggestion from the
+     * list of the suggestions it has been given.
+     *
+     * @param suggestion The suggestion to remove
+     */
+    public void removeSuggestion(S suggestion) {
+        Preconditions.nonNull(suggestion);
+
+        flushRender();
+
+        renderCount++;
+        renderer.renderSuggestionRemoval(suggestion);
+    }
+
+
+    private void markDirty(int flag) {
+        dirtyFlags |= flag;
+
+        if(!isRenderScheduled) {
+            isRenderScheduled = true;
+            renderScheduler.scheduleRender(renderAction);
+        }
+    }
+
+
+    /**
+     * Renders the pending (coalesced) changes right away, if there are any.
+     */
+    public void flushRender() {
+        final int flags = dirtyFlags;
+
+        dirtyFlags = 0;
+        isRenderScheduled = false;
+
+        if((flags & DIRTY_FLAG_QUERY) != 0) {
+            renderCount++;
+            renderer.renderQuery(query);
+        }
+
+        if((flags & DIRTY_FLAG_SUGGESTIONS) != 0) {
+            renderCount++;
+            renderer.renderSuggestions(suggestions);
+        }
+    }
+
+
+    /**
+     * Checks whether there are changes that have not been rendered yet.
+     *
+     * @return true if there are; false otherwise
+     */
+    public boolean hasPendingRender() {
+        return (dirtyFlags != 0);
+    }
+
+
+    /**
+     * Sets whether it is possible to show suggestions or not.
+     *
+     * @param areSuggestionsDisabled Whether it is possible to show suggestions or not
+     */
+    public void setSuggestionsDisabled(boolean areSuggestionsDisabled) {
+        this.areSuggestionsDisabled = areSuggestionsDisabled;
+    }
+
+
+    /**
+     * Checks whether it is possible to show suggestions or not.
+     *
+     * @return true if possible; false otherwise
+     */
+    public boolean areSuggestionsDisabled() {
+        return areSuggestionsDisabled;
+    }
+
+
+    /**
+     * Gets the current state.
+     *
+     * @return The current state
+     */
+    public State getState() {
+        return state;
+    }
+
+
+    /**
+     * Checks whether the search view is expanded.
+     *
+     * @return true if expanded; false otherwise
+     */
+    public boolean isExpanded() {
+        return (state == State.EXPANDED);
+    }
+
+
+    /**
+     * Gets the current query.
+     *
+     * @return The current query
+     */
+    public String getQuery() {
+        return query;
+    }
+
+
+    /**
+     * Gets the current suggestions.
+     *
+     * @return The current suggestions
+     */
+    public List<S> getSuggestions() {
+        return suggestions;
+    }
+
+
+    /**
+     * Gets the total amount of the renders, i.e. the invocations of the renderer's
+     * methods, performed so far. Useful for measuring how many renders
+     * a sequence of changes produces.
+     *
+     * @return The amount of the renders
+     */
+    public long getRenderCount() {
+        return renderCount;
+    }
+
+
+    /**
+     * A renderer of the controller's state, e.g. the search view itself.
+     *
+     * @param <S> The type of the suggestions
+     */
+    public interface Renderer<S> {
+
+        /**
+         * Renders the new state of the search view.
+         *
+         * @param state The new state
+         * @param animate Whether to animate the change
+         */
+        void renderState(State state, boolean animate);
+
+        /**
+         * Renders the query, e.g. by highlighting it within the suggestions.
+         *
+         * @param query The current query
+         */
+        void renderQuery(String query);
+
+        /**
+         * Renders the suggestions.
+         *
+         * @param suggestions The current suggestions
+         */
+        void renderSuggestions(List<S> suggestions);
+
+        /**
+         * Renders the insertion of the suggestions, inserting them into
+         * the list of the suggestions.
+         *
+         * @param position The position the suggestions are inserted at
+         * @param suggestions The suggestions being inserted
+         */
+        void renderSuggestionsInsertion(int position, List<S> suggestions);
+
+        /**
+         * Renders the removal of the suggestion, removing it from
+         * the list of the suggestions.
+         *
+         * @param suggestion The suggestion being removed
+         */
+        void renderSuggestionRemoval(S suggestion);
+
+    }
+
+
+    /**
+     * A scheduler of the coalesced renders.
+     */
+    public interface RenderScheduler {
+
+        /**
+         * Schedules the render action to be run, e.g. on the next frame.
+         *
+         * @param renderAction The action to run
+         */
+        void scheduleRender(Runnable renderAction);
+
+    }
+
+
+}
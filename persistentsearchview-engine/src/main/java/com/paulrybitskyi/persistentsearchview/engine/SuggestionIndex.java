@@ -0,0 +1,247 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine;
+
+import java.util.Collection;
+
+/**
+ * An immutable index of suggestion texts used by the matchers. The lowercased
+ * characters of all the texts are packed into a single char array (the text
+ * at index i occupies the [offsets[i], offsets[i + 1]) range of it), so that
+ * scanning the candidates does not involve chasing any object references.
+ * <br>
+ * The lowercasing is performed per character, hence the positions within
+ * the packed texts always correspond to the positions within the original ones.
+ * <br>
+ * Every text is also summarized by two 64 bit masks: the one of the characters
+ * and the one of the bigrams (pairs of the adjacent characters) it contains,
+ * each hashed into one of the 64 bits. The masks let the matchers rule out
+ * most of the texts that cannot match a query without scanning them.
+ */
+public final class SuggestionIndex {
+
+
+    private final String[] texts;
+
+    private final char[] chars;
+
+    private final int[] offsets;
+
+    private final long[] charMasks;
+    private final long[] bigramMasks;
+
+
+    /**
+     * Creates an index of the specified texts.
+     *
+     * @param texts The texts to index
+     *
+     * @return The created index
+     */
+    public static SuggestionIndex of(Collection<String> texts) {
+        Preconditions.nonNull(texts);
+
+        return of(texts.toArray(new String[0]));
+    }
+
+
+    /**
+     * Creates an index of the specified texts.
+     *
+     * @param texts The texts to index
+     *
+     * @return The created index
+     */
+    public static SuggestionIndex of(String[] texts) {
+        Preconditions.nonNull(texts);
+
+        final String[] textsCopy = texts.clone();
+        final int[] offsets = new int[textsCopy.length + 1];
+        int totalLength = 0;
+
+        for(int i = 0; i < textsCopy.length; i++) {
+            Preconditions.nonNull(textsCopy[i]);
+
+            offsets[i] = totalLength;
+            totalLength += textsCopy[i].length();
+        }
+
+        offsets[textsCopy.length] = totalLength;
+
+        final char[] chars = new char[totalLength];
+        final long[] charMasks = new long[textsCopy.length];
+        final long[] bigramMasks = new long[textsCopy.length];
+
+        for(int i = 0; i < textsCopy.length; i++) {
+            final String text = textsCopy[i];
+            final int offset = offsets[i];
+            long charMask = 0L;
+            long bigramMask = 0L;
+
+            text.getChars(0, text.length(), chars, offset);
+
+            for(int j = offset, end = (offset + text.length()); j < end; j++) {
+                chars[j] = Character.toLowerCase(chars[j]);
+                charMask |= getCharBit(chars[j]);
+
+                if(j > offset) {
+                    bigramMask |= getBigramBit(chars[j - 1], chars[j]);
+                }
+            }
+
+            charMasks[i] = charMask;
+            bigramMasks[i] = bigramMask;
+        }
+
+        return new SuggestionIndex(textsCopy, chars, offsets, charMasks, bigramMasks);
+    }
+
+
+    private SuggestionIndex(String[] texts, char[] chars, int[] offsets, long[] charMasks, long[] bigramMasks) {
+        this.texts = texts;
+        this.chars = chars;
+        this.offsets = offsets;
+        this.charMasks = charMasks;
+        this.bigramMasks = bigramMasks;
+    }
+
+
+    /**
+     * Gets the bit of the character within the character masks.
+     *
+     * @param c The lowercased character
+     *
+     * @return The bit of the character
+     */
+    static long getCharBit(char c) {
+        // The shift distance is taken modulo 64
+        return (1L << c);
+    }
+
+
+    /**
+     * Gets the bit of the bigram within the bigram masks.
+     *
+     * @param first The first lowercased character of the bigram
+     * @param second The second lowercased character of the bigram
+     *
+     * @return The bit of the bigram
+     */
+    static long getBigramBit(char first, char second) {
+        // Spreading the pairs of the similar characters across the whole mask
+        return (1L << (((((long) first << 16) | second) * 0x9E3779B97F4A7C15L) >>> 58));
+    }
+
+
+    /**
+     * Gets the amount of the indexed texts.
+     *
+     * @return The amount of the texts
+     */
+    public int size() {
+        return texts.length;
+    }
+
+
+    /**
+     * Gets the original (not lowercased) text at the specified index.
+     *
+     * @param index The index of the text
+     *
+     * @return The text
+     */
+    public String getText(int index) {
+        return texts[index];
+    }
+
+
+    /**
+     * Gets the length of the text at the specified index.
+     *
+     * @param index The index of the text
+     *
+     * @return The length of the text
+     */
+    public int getTextLength(int index) {
+        return (offsets[index + 1] - offsets[index]);
+    }
+
+
+    /**
+     * Gets the packed lowercased characters of all the texts.
+     * Must not be modified.
+     *
+     * @return The packed characters
+     */
+    char[] getChars() {
+        return chars;
+    }
+
+
+    /**
+     * Gets the position of the first character of the text
+     * at the specified index within the packed characters.
+     *
+     * @param index The index of the text
+     *
+     * @return The start of the text
+     */
+    int getStart(int index) {
+        return offsets[index];
+    }
+
+
+    /**
+     * Gets the position following the last character of the text
+     * at the specified index within the packed characters.
+     *
+     * @param index The index of the text
+     *
+     * @return The end of the text
+     */
+    int getEnd(int index) {
+        return offsets[index + 1];
+    }
+
+
+    /**
+     * Gets the mask of the characters of the text at the specified index
+     * (see {@link #getCharBit(char)}).
+     *
+     * @param index The index of the text
+     *
+     * @return The mask of the characters
+     */
+    long getCharMask(int index) {
+        return charMasks[index];
+    }
+
+
+    /**
+     * Gets the mask of the bigrams of the text at the specified index
+     * (see {@link #getBigramBit(char, char)}).
+     *
+     * @param index The index of the text
+     *
+     * @return The mask of the bigrams
+     */
+    long getBigramMask(int index) {
+        return bigramMasks[index];
+    }
+
+
+}
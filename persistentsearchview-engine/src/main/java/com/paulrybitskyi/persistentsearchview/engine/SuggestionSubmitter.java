@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.engine;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A thread-safe entry point for the suggestions produced on the background
+ * threads (e.g., by several suggestion sources at once).
+ * <br>
+ * The suggestions can be submitted from any thread, but are delivered to
+ * the {@link Consumer} on the thread the {@link SearchController.RenderScheduler}
+ * runs its actions on (e.g., the main thread on the next frame), at most once
+ * per scheduled action: the submissions arriving before the action runs
+ * replace each other, so only the latest one gets delivered.
+ * <br>
+ * Each submission is tagged with a generation (e.g., the sequence number of
+ * the query the suggestions have been produced for). The submissions older than
+ * the pending or the last delivered one are dropped, hence the suggestions
+ * of a superseded query never overwrite the ones of a more recent query,
+ * regardless of the order they arrive in. The submissions of the same
+ * generation replace each other (the last writer wins).
+ *
+ * @param <S> The type of the suggestions
+ */
+public final class SuggestionSubmitter<S> {
+
+
+    private volatile long deliveredGeneration = Long.MIN_VALUE;
+
+    private final AtomicLong droppedSubmissionCount = new AtomicLong();
+
+    private final AtomicReference<Submission<S>> pendingSubmission = new AtomicReference<>();
+
+    private final Consumer<S> consumer;
+
+    private final SearchController.RenderScheduler deliveryScheduler;
+
+    private final Runnable deliveryAction = this::deliver;
+
+
+    /**
+     * Creates a submitter.
+     *
+     * @param consumer The consumer of the submitted suggestions
+     * @param deliveryScheduler The thread-safe scheduler of the deliveries
+     */
+    public SuggestionSubmitter(Consumer<S> consumer, SearchController.RenderScheduler deliveryScheduler) {
+        Preconditions.nonNull(consumer);
+        Preconditions.nonNull(deliveryScheduler);
+
+        this.consumer = consumer;
+        this.deliveryScheduler = deliveryScheduler;
+    }
+
+
+    /**
+     * Submits the suggestions. Can be called from any thread.
+     *
+     * @param suggestions The suggestions to submit
+     * @param generation The generation of the suggestions
+     * @param expandIfNecessary Whether to expand the search view if it is collapsed
+     *
+     * @return true if the suggestions have been accepted; false if they have
+     * been dropped as older than the pending or the delivered ones
+     */
+    public boolean submit(List<S> suggestions, long generation, boolean expandIfNecessary) {
+        Preconditions.nonNull(suggestions);
+
+        final Submission<S> submission = new Submission<>(suggestions, generation, expandIfNecessary);
+
+        while(true) {
+            final Submission<S> currentSubmission = pendingSubmission.get();
+            final long latestGeneration = ((currentSubmission != null) ? currentSubmission.generation : deliveredGeneration);
+
+            if(generation < latestGeneration) {
+                droppedSubmissionCount.incrementAndGet();
+                return false;
+            }
+
+            if(pendingSubmission.compareAndSet(currentSubmission, submission)) {
+                if(currentSubmission == null) {
+                    deliveryScheduler.scheduleRender(deliveryAction);
+                } else {
+                    droppedSubmissionCount.incrementAndGet();
+                }
+
+                return true;
+            }
+        }
+    }
+
+
+    private void deliver() {
+        final Submission<S> submission = pendingSubmission.getAndSet(null);
+
+        if(submission == null) {
+            return;
+        }
+
+        // A stale submission could have slipped in while the previous
+        // one was being delivered, hence checking it once again
+        if(submission.generation < deliveredGeneration) {
+            droppedSubmissionCount.incrementAndGet();
+            return;
+        }
+
+        deliveredGeneration = submission.generation;
+
+        consumer.onSuggestionsSubmitted(submission.suggestions, submission.expandIfNecessary);
+    }
+
+
+    /**
+     * Checks whether there is a submission waiting to be delivered.
+     *
+     * @return true if there is; false otherwise
+     */
+    public boolean hasPendingSubmission() {
+        return (pendingSubmission.get() != null);
+    }
+
+
+    /**
+     * Gets the generation of the last delivered suggestions.
+     *
+     * @return The generation or {@link Long#MIN_VALUE} if nothing has been delivered yet
+     */
+    public long getDeliveredGeneration() {
+        return deliveredGeneration;
+    }
+
+
+    /**
+     * Gets the amount of the submissions that have been dropped, either as stale
+     * ones or as the ones replaced before being delivered.
+     *
+     * @return The amount of the dropped submissions
+     */
+    public long getDroppedSubmissionCount() {
+        return droppedSubmissionCount.get();
+    }
+
+
+    private static final class Submission<S> {
+
+        private final List<S> suggestions;
+
+        private final long generation;
+
+        private final boolean expandIfNecessary;
+
+        private Submission(List<S> suggestions, long generation, boolean expandIfNecessary) {
+            this.suggestions = suggestions;
+            this.generation = generation;
+            this.expandIfNecessary = expandIfNecessary;
+        }
+
+    }
+
+
+    /**
+     * A consumer of the delivered suggestions.
+     *
+     * @param <S> The type of the suggestions
+     */
+    public interface Consumer<S> {
+
+        /**
+         * Called on the delivery thread with the latest submitted suggestions.
+         *
+         * @param suggestions The submitted suggestions
+         * @param expandIfNecessary Whether to expand the search view if it is collapsed
+         */
+        void onSuggestionsSubmitted(List<S> suggestions, boolean expandIfNecessary);
+
+    }
+
+
+}
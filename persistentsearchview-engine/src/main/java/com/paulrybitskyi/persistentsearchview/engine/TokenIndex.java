@@ -0,0 +1,355 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable inverted index mapping every token (a maximal sequence of
+ * lowercased letters and digits) of the texts of a {@link SuggestionIndex}
+ * to the sorted list of the texts containing it.
+ * <br>
+ * The tokens are kept in a sorted dictionary, so that an exact token can be
+ * found with a binary search and all the tokens sharing a prefix form a
+ * contiguous range of it. The posting lists are stored as sorted int arrays
+ * packed into a single array, which allows the {@link TokenMatcher} to
+ * intersect them with a galloping (exponential) search.
+ */
+public final class TokenIndex {
+
+
+    private final SuggestionIndex suggestionIndex;
+
+    private final String[] tokens;
+
+    private final int[] postingOffsets;
+
+    private final int[] postings;
+
+
+    /**
+     * Creates a token index of the texts of the specified suggestion index.
+     *
+     * @param suggestionIndex The index holding the texts
+     *
+     * @return The created index
+     */
+    public static TokenIndex of(SuggestionIndex suggestionIndex) {
+        Preconditions.nonNull(suggestionIndex);
+
+        final char[] chars = suggestionIndex.getChars();
+        final Map<String, PostingListBuilder> postingListBuilders = new HashMap<>();
+        int postingCount = 0;
+
+        for(int i = 0, size = suggestionIndex.size(); i < size; i++) {
+            final int end = suggestionIndex.getEnd(i);
+            int tokenStart = findTokenStart(chars, suggestionIndex.getStart(i), end);
+
+            while(tokenStart < end) {
+                final int tokenEnd = findTokenEnd(chars, tokenStart, end);
+                final String token = new String(chars, tokenStart, (tokenEnd - tokenStart));
+
+                PostingListBuilder builder = postingListBuilders.get(token);
+
+                if(builder == null) {
+                    builder = new PostingListBuilder();
+                    postingListBuilders.put(token, builder);
+                }
+
+                if(builder.add(i)) {
+                    postingCount++;
+                }
+
+                tokenStart = findTokenStart(chars, tokenEnd, end);
+            }
+        }
+
+        final String[] tokens = postingListBuilders.keySet().toArray(new String[0]);
+        Arrays.sort(tokens);
+
+        final int[] postingOffsets = new int[tokens.length + 1];
+        final int[] postings = new int[postingCount];
+
+        for(int tokenId = 0; tokenId < tokens.length; tokenId++) {
+            final PostingListBuilder builder = postingListBuilders.get(tokens[tokenId]);
+
+            System.arraycopy(builder.values, 0, postings, postingOffsets[tokenId], builder.size);
+            postingOffsets[tokenId + 1] = (postingOffsets[tokenId] + builder.size);
+        }
+
+        return new TokenIndex(suggestionIndex, tokens, postingOffsets, postings);
+    }
+
+
+    private TokenIndex(SuggestionIndex suggestionIndex, String[] tokens, int[] postingOffsets, int[] postings) {
+        this.suggestionIndex = suggestionIndex;
+        this.tokens = tokens;
+        this.postingOffsets = postingOffsets;
+        this.postings = postings;
+    }
+
+
+    /**
+     * Checks whether the character is a part of a token.
+     *
+     * @param c The character to check
+     *
+     * @return true if a part of a token; false otherwise
+     */
+    static boolean isTokenChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+
+    /**
+     * Finds the start of the next token within the specified range.
+     *
+     * @return The start of the token or the end of the range if there is none
+     */
+    static int findTokenStart(char[] chars, int start, int end) {
+        while((start < end) && !isTokenChar(chars[start])) {
+            start++;
+        }
+
+        return start;
+    }
+
+
+    /**
+     * Finds the end (exclusive) of the token starting at the specified position.
+     *
+     * @return The end of the token
+     */
+    static int findTokenEnd(char[] chars, int tokenStart, int end) {
+        while((tokenStart < end) && isTokenChar(chars[tokenStart])) {
+            tokenStart++;
+        }
+
+        return tokenStart;
+    }
+
+
+    /**
+     * Gets the suggestion index this index was built from.
+     *
+     * @return The suggestion index
+     */
+    public SuggestionIndex getSuggestionIndex() {
+        return suggestionIndex;
+    }
+
+
+    /**
+     * Gets the amount of the distinct indexed tokens.
+     *
+     * @return The amount of the tokens
+     */
+    public int getTokenCount() {
+        return tokens.length;
+    }
+
+
+    /**
+     * Gets the token with the specified id (i.e., its position within the sorted dictionary).
+     *
+     * @param tokenId The id of the token
+     *
+     * @return The token
+     */
+    public String getToken(int tokenId) {
+        return tokens[tokenId];
+    }
+
+
+    /**
+     * Gets the amount of the texts containing the specified token.
+     *
+     * @param tokenId The id of the token
+     *
+     * @return The amount of the texts
+     */
+    public int getPostingCount(int tokenId) {
+        return (postingOffsets[tokenId + 1] - postingOffsets[tokenId]);
+    }
+
+
+    /**
+     * Finds the id of the specified token.
+     *
+     * @param token The buffer holding the lowercased token
+     * @param offset The offset of the token within the buffer
+     * @param length The length of the token
+     *
+     * @return The id of the token or -1 if it is not indexed
+     */
+    int findToken(char[] token, int offset, int length) {
+        final int tokenId = findLowerBound(token, offset, length);
+
+        if((tokenId < tokens.length) && (compare(tokens[tokenId], token, offset, length, false) == 0)) {
+            return tokenId;
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Finds the first token having the specified prefix.
+     *
+     * @param prefix The buffer holding the lowercased prefix
+     * @param offset The offset of the prefix within the buffer
+     * @param length The length of the prefix
+     *
+     * @return The id of the first token having the prefix or, if there is
+     * no such token, the id of the first token following the prefix
+     */
+    int findPrefixRangeStart(char[] prefix, int offset, int length) {
+        return findLowerBound(prefix, offset, length);
+    }
+
+
+    /**
+     * Finds the end (exclusive) of the range of the tokens having the specified prefix.
+     *
+     * @param prefix The buffer holding the lowercased prefix
+     * @param offset The offset of the prefix within the buffer
+     * @param length The length of the prefix
+     *
+     * @return The id following the last token having the prefix
+     */
+    int findPrefixRangeEnd(char[] prefix, int offset, int length) {
+        int low = 0;
+        int high = tokens.length;
+
+        while(low < high) {
+            final int middle = ((low + high) >>> 1);
+
+            if(compare(tokens[middle], prefix, offset, length, true) <= 0) {
+                low = (middle + 1);
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+
+    private int findLowerBound(char[] key, int offset, int length) {
+        int low = 0;
+        int high = tokens.length;
+
+        while(low < high) {
+            final int middle = ((low + high) >>> 1);
+
+            if(compare(tokens[middle], key, offset, length, false) < 0) {
+                low = (middle + 1);
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+
+    /**
+     * Compares the token with the key (like {@link String#compareTo(String)} does)
+     * without creating any objects. When the prefix mode is on, a token starting
+     * with the key is considered to be equal to it.
+     */
+    private static int compare(String token, char[] key, int offset, int length, boolean isPrefixMode) {
+        final int tokenLength = token.length();
+        final int commonLength = Math.min(tokenLength, length);
+
+        for(int i = 0; i < commonLength; i++) {
+            final int difference = (token.charAt(i) - key[offset + i]);
+
+            if(difference != 0) {
+                return difference;
+            }
+        }
+
+        if(isPrefixMode && (tokenLength >= length)) {
+            return 0;
+        }
+
+        return (tokenLength - length);
+    }
+
+
+    /**
+     * Gets the packed posting lists of all the tokens. Must not be modified.
+     *
+     * @return The packed posting lists
+     */
+    int[] getPostings() {
+        return postings;
+    }
+
+
+    /**
+     * Gets the position of the first posting of the token within the packed posting lists.
+     *
+     * @param tokenId The id of the token
+     *
+     * @return The start of the posting list
+     */
+    int getPostingStart(int tokenId) {
+        return postingOffsets[tokenId];
+    }
+
+
+    /**
+     * Gets the position following the last posting of the token within the packed posting lists.
+     *
+     * @param tokenId The id of the token
+     *
+     * @return The end of the posting list
+     */
+    int getPostingEnd(int tokenId) {
+        return postingOffsets[tokenId + 1];
+    }
+
+
+    private static final class PostingListBuilder {
+
+        private int[] values = new int[4];
+
+        private int size;
+
+        private boolean add(int value) {
+            // The texts are visited in the ascending order, so a duplicate can only be the last value
+            if((size > 0) && (values[size - 1] == value)) {
+                return false;
+            }
+
+            if(size == values.length) {
+                values = Arrays.copyOf(values, (size * 2));
+            }
+
+            values[size++] = value;
+
+            return true;
+        }
+
+    }
+
+
+}
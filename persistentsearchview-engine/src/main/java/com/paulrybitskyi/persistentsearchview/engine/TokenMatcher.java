@@ -0,0 +1,420 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine;
+
+import java.util.Arrays;
+
+/**
+ * A matcher that finds the texts containing all the tokens of the query,
+ * in any order (e.g., "red shoes men" matches "Men's red running shoes"),
+ * with the help of a {@link TokenIndex}.
+ * <br>
+ * Every token of the query has to match a token of the text exactly, except for
+ * the last one, which, unless followed by a separator, is considered to be still
+ * being typed and has to match only a prefix of a token. The candidates are
+ * retrieved by intersecting the posting lists of the complete tokens, starting
+ * from the shortest one, with a galloping search, which skips over the long
+ * lists in the logarithmic time. The last token is resolved against a range of
+ * the sorted token dictionary: when it is the only token, the posting lists of
+ * the range are merged, otherwise the few remaining candidates are verified
+ * against it directly. The matches are ranked by the position of the first
+ * matched token within the text, then by the length of the text, and every
+ * matched token of the text is highlighted.
+ * <br>
+ * The matcher reuses its buffers between the calls, hence it is not
+ * thread-safe: use an instance per thread.
+ */
+public final class TokenMatcher {
+
+
+    private static final int MAX_QUERY_TOKEN_COUNT = 16;
+
+
+    private int queryTokenCount;
+
+    private boolean isLastTokenPrefix;
+
+    private char[] queryChars;
+
+    private final int[] queryTokenStarts;
+    private final int[] queryTokenLengths;
+    private final int[] queryTokenIds;
+
+    private int[] candidates;
+
+    private long[] candidateBits;
+
+
+    public TokenMatcher() {
+        queryChars = new char[16];
+        queryTokenStarts = new int[MAX_QUERY_TOKEN_COUNT];
+        queryTokenLengths = new int[MAX_QUERY_TOKEN_COUNT];
+        queryTokenIds = new int[MAX_QUERY_TOKEN_COUNT];
+        candidates = new int[0];
+        candidateBits = new long[0];
+    }
+
+
+    /**
+     * Finds the best matches of the query within the index. The tokens
+     * of the query exceeding the maximum amount of 16 are ignored.
+     *
+     * @param query The query
+     * @param index The index to search
+     * @param results The results to store the best matches into
+     */
+    public void match(CharSequence query, TokenIndex index, MatchResults results) {
+        Preconditions.nonNull(query);
+        Preconditions.nonNull(index);
+        Preconditions.nonNull(results);
+
+        results.clear();
+
+        tokenizeQuery(query);
+
+        if(queryTokenCount == 0) {
+            return;
+        }
+
+        final SuggestionIndex suggestionIndex = index.getSuggestionIndex();
+        final int candidateCount = retrieveCandidates(index);
+
+        for(int i = 0; i < candidateCount; i++) {
+            verify(suggestionIndex, candidates[i], results);
+        }
+
+        results.finish();
+
+        for(int position = 0, size = results.size(); position < size; position++) {
+            highlight(suggestionIndex, position, results);
+        }
+    }
+
+
+    private void tokenizeQuery(CharSequence query) {
+        final int queryLength = query.length();
+
+        if(queryChars.length < queryLength) {
+            queryChars = new char[queryLength];
+        }
+
+        for(int i = 0; i < queryLength; i++) {
+            queryChars[i] = Character.toLowerCase(query.charAt(i));
+        }
+
+        queryTokenCount = 0;
+
+        int tokenStart = TokenIndex.findTokenStart(queryChars, 0, queryLength);
+        int tokenEnd = tokenStart;
+
+        while((tokenStart < queryLength) && (queryTokenCount < MAX_QUERY_TOKEN_COUNT)) {
+            tokenEnd = TokenIndex.findTokenEnd(queryChars, tokenStart, queryLength);
+
+            queryTokenStarts[queryTokenCount] = tokenStart;
+            queryTokenLengths[queryTokenCount] = (tokenEnd - tokenStart);
+            queryTokenCount++;
+
+            tokenStart = TokenIndex.findTokenStart(queryChars, tokenEnd, queryLength);
+        }
+
+        isLastTokenPrefix = ((queryTokenCount > 0) && (tokenEnd == queryLength));
+    }
+
+
+    private int retrieveCandidates(TokenIndex index) {
+        final int completeTokenCount = (isLastTokenPrefix ? (queryTokenCount - 1) : queryTokenCount);
+
+        for(int i = 0; i < completeTokenCount; i++) {
+            final int tokenId = index.findToken(queryChars, queryTokenStarts[i], queryTokenLengths[i]);
+
+            if(tokenId == -1) {
+                // No text contains one of the tokens
+                return 0;
+            }
+
+            queryTokenIds[i] = tokenId;
+        }
+
+        if(completeTokenCount == 0) {
+            return mergePrefixPostings(index);
+        }
+
+        sortByPostingCount(index, completeTokenCount);
+
+        final int[] postings = index.getPostings();
+        final int firstTokenId = queryTokenIds[0];
+        int candidateCount = index.getPostingCount(firstTokenId);
+
+        if(candidates.length < candidateCount) {
+            candidates = new int[candidateCount];
+        }
+
+        System.arraycopy(postings, index.getPostingStart(firstTokenId), candidates, 0, candidateCount);
+
+        for(int i = 1; (i < completeTokenCount) && (candidateCount > 0); i++) {
+            final int tokenId = queryTokenIds[i];
+
+            if(tokenId != queryTokenIds[i - 1]) {
+                candidateCount = intersect(
+                    candidateCount,
+                    postings,
+                    index.getPostingStart(tokenId),
+                    index.getPostingEnd(tokenId)
+                );
+            }
+        }
+
+        return candidateCount;
+    }
+
+
+    /**
+     * Merges the posting lists of all the tokens starting with the last
+     * (prefix) token of the query into the sorted list of the candidates.
+     */
+    private int mergePrefixPostings(TokenIndex index) {
+        final int prefixStart = queryTokenStarts[0];
+        final int prefixLength = queryTokenLengths[0];
+        final int rangeStart = index.findPrefixRangeStart(queryChars, prefixStart, prefixLength);
+        final int rangeEnd = index.findPrefixRangeEnd(queryChars, prefixStart, prefixLength);
+
+        if(rangeStart >= rangeEnd) {
+            return 0;
+        }
+
+        final int[] postings = index.getPostings();
+
+        if((rangeEnd - rangeStart) == 1) {
+            final int candidateCount = index.getPostingCount(rangeStart);
+
+            if(candidates.length < candidateCount) {
+                candidates = new int[candidateCount];
+            }
+
+            System.arraycopy(postings, index.getPostingStart(rangeStart), candidates, 0, candidateCount);
+
+            return candidateCount;
+        }
+
+        // Marking the candidates in a bitset and then enumerating it produces
+        // the sorted union of the lists without sorting or deduplicating them
+        final int textCount = index.getSuggestionIndex().size();
+        final int wordCount = ((textCount + 63) >>> 6);
+
+        if(candidateBits.length < wordCount) {
+            candidateBits = new long[wordCount];
+        } else {
+            Arrays.fill(candidateBits, 0, wordCount, 0L);
+        }
+
+        for(int i = index.getPostingStart(rangeStart), end = index.getPostingEnd(rangeEnd - 1); i < end; i++) {
+            candidateBits[postings[i] >>> 6] |= (1L << postings[i]);
+        }
+
+        if(candidates.length < textCount) {
+            candidates = new int[textCount];
+        }
+
+        int candidateCount = 0;
+
+        for(int wordIndex = 0; wordIndex < wordCount; wordIndex++) {
+            long word = candidateBits[wordIndex];
+
+            while(word != 0L) {
+                candidates[candidateCount++] = ((wordIndex << 6) + Long.numberOfTrailingZeros(word));
+                word &= (word - 1);
+            }
+        }
+
+        return candidateCount;
+    }
+
+
+    /**
+     * Sorts the token ids by the lengths of their posting lists (insertion sort,
+     * as there are only a few of them), so that the intersection starts from
+     * the most selective one and the equal ids end up adjacent.
+     */
+    private void sortByPostingCount(TokenIndex index, int tokenCount) {
+        for(int i = 1; i < tokenCount; i++) {
+            final int tokenId = queryTokenIds[i];
+            final int postingCount = index.getPostingCount(tokenId);
+            int j = (i - 1);
+
+            while((j >= 0) && (
+                (index.getPostingCount(queryTokenIds[j]) > postingCount) ||
+                ((index.getPostingCount(queryTokenIds[j]) == postingCount) && (queryTokenIds[j] > tokenId))
+            )) {
+                queryTokenIds[j + 1] = queryTokenIds[j];
+                j--;
+            }
+
+            queryTokenIds[j + 1] = tokenId;
+        }
+    }
+
+
+    /**
+     * Intersects the candidates with the specified posting list in place. Every candidate
+     * is looked up with a galloping search starting from the position of the previous one:
+     * the step is doubled until it overshoots the candidate, and then the last step
+     * is binary searched.
+     *
+     * @return The amount of the remaining candidates
+     */
+    private int intersect(int candidateCount, int[] postings, int start, int end) {
+        int newCandidateCount = 0;
+        int position = start;
+
+        for(int i = 0; (i < candidateCount) && (position < end); i++) {
+            final int candidate = candidates[i];
+
+            if(postings[position] < candidate) {
+                int low = position;
+                int step = 1;
+
+                while(((low + step) < end) && (postings[low + step] < candidate)) {
+                    low += step;
+                    step <<= 1;
+                }
+
+                // postings[low] < candidate <= postings[high] (or high is the end)
+                int high = Math.min((low + step), end);
+
+                while((high - low) > 1) {
+                    final int middle = ((low + high) >>> 1);
+
+                    if(postings[middle] < candidate) {
+                        low = middle;
+                    } else {
+                        high = middle;
+                    }
+                }
+
+                position = high;
+            }
+
+            if((position < end) && (postings[position] == candidate)) {
+                candidates[newCandidateCount++] = candidate;
+                position++;
+            }
+        }
+
+        return newCandidateCount;
+    }
+
+
+    private void verify(SuggestionIndex suggestionIndex, int textIndex, MatchResults results) {
+        final char[] chars = suggestionIndex.getChars();
+        final int start = suggestionIndex.getStart(textIndex);
+        final int end = suggestionIndex.getEnd(textIndex);
+        int firstMatchPosition = -1;
+        boolean hasPrefixMatch = !isLastTokenPrefix;
+        int tokenStart = TokenIndex.findTokenStart(chars, start, end);
+
+        while(tokenStart < end) {
+            final int tokenEnd = TokenIndex.findTokenEnd(chars, tokenStart, end);
+            final int matchLength = getMatchLength(chars, tokenStart, (tokenEnd - tokenStart));
+
+            if(matchLength > 0) {
+                if(firstMatchPosition == -1) {
+                    firstMatchPosition = (tokenStart - start);
+                }
+
+                if(isLastTokenPrefix && !hasPrefixMatch) {
+                    hasPrefixMatch = startsWith(chars, tokenStart, (tokenEnd - tokenStart), (queryTokenCount - 1));
+                }
+            }
+
+            tokenStart = TokenIndex.findTokenStart(chars, tokenEnd, end);
+        }
+
+        if(!hasPrefixMatch) {
+            return;
+        }
+
+        final long rank = MatchResults.createRank(0, firstMatchPosition, (end - start), textIndex);
+
+        if(results.isAcceptable(rank)) {
+            results.offer(rank);
+        }
+    }
+
+
+    private void highlight(SuggestionIndex suggestionIndex, int position, MatchResults results) {
+        final int textIndex = results.getIndex(position);
+        final char[] chars = suggestionIndex.getChars();
+        final int start = suggestionIndex.getStart(textIndex);
+        final int end = suggestionIndex.getEnd(textIndex);
+        int tokenStart = TokenIndex.findTokenStart(chars, start, end);
+
+        while(tokenStart < end) {
+            final int tokenEnd = TokenIndex.findTokenEnd(chars, tokenStart, end);
+            final int matchLength = getMatchLength(chars, tokenStart, (tokenEnd - tokenStart));
+
+            if(matchLength > 0) {
+                results.addHighlightRange(position, (tokenStart - start), (tokenStart - start + matchLength));
+            }
+
+            tokenStart = TokenIndex.findTokenStart(chars, tokenEnd, end);
+        }
+    }
+
+
+    /**
+     * Gets the length of the longest part of the text's token
+     * matched by any of the query's tokens.
+     *
+     * @return The length of the matched part or 0 if the token does not match
+     */
+    private int getMatchLength(char[] chars, int tokenStart, int tokenLength) {
+        int matchLength = 0;
+
+        for(int i = 0; i < queryTokenCount; i++) {
+            final int queryTokenLength = queryTokenLengths[i];
+            final boolean isPrefix = (isLastTokenPrefix && (i == (queryTokenCount - 1)));
+
+            if((queryTokenLength > matchLength) &&
+                (isPrefix ? (queryTokenLength <= tokenLength) : (queryTokenLength == tokenLength)) &&
+                startsWith(chars, tokenStart, tokenLength, i)) {
+                matchLength = queryTokenLength;
+            }
+        }
+
+        return matchLength;
+    }
+
+
+    private boolean startsWith(char[] chars, int tokenStart, int tokenLength, int queryTokenIndex) {
+        final int queryTokenStart = queryTokenStarts[queryTokenIndex];
+        final int queryTokenLength = queryTokenLengths[queryTokenIndex];
+
+        if(queryTokenLength > tokenLength) {
+            return false;
+        }
+
+        for(int i = 0; i < queryTokenLength; i++) {
+            if(chars[tokenStart + i] != queryChars[queryTokenStart + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine;
+
+import java.util.Arrays;
+
+/**
+ * An immutable inverted index mapping every trigram (a sequence of three
+ * consecutive lowercased characters) of the texts of a {@link SuggestionIndex}
+ * to the sorted list of the texts containing it.
+ * <br>
+ * The trigrams are stored in a sorted long array (three 16-bit characters
+ * per key) and looked up with a binary search. The posting lists are delta
+ * encoded and packed into a single byte array using variable-length integers
+ * (7 bits per byte), which usually takes 1 byte per posting.
+ * <br>
+ * Used by the {@link InfixMatcher} to retrieve the candidates for a substring
+ * query without scanning all the texts.
+ */
+public final class TrigramIndex {
+
+
+    /**
+     * The length of the indexed n-grams.
+     */
+    public static final int GRAM_LENGTH = 3;
+
+
+    private final SuggestionIndex suggestionIndex;
+
+    private final long[] trigrams;
+
+    private final int[] postingOffsets;
+    private final int[] postingCounts;
+
+    private final byte[] postings;
+
+    private final int maxPostingCount;
+
+
+    /**
+     * Creates a trigram index of the texts of the specified suggestion index.
+     *
+     * @param suggestionIndex The index holding the texts
+     *
+     * @return The created index
+     */
+    public static TrigramIndex of(SuggestionIndex suggestionIndex) {
+        Preconditions.nonNull(suggestionIndex);
+
+        final char[] chars = suggestionIndex.getChars();
+        final int textCount = suggestionIndex.size();
+
+        // Collecting the trigram occurrences
+        int occurrenceCount = 0;
+
+        for(int i = 0; i < textCount; i++) {
+            occurrenceCount += Math.max(0, (suggestionIndex.getTextLength(i) - GRAM_LENGTH + 1));
+        }
+
+        final long[] occurrences = new long[occurrenceCount];
+        int occurrenceIndex = 0;
+
+        for(int i = 0; i < textCount; i++) {
+            for(int j = suggestionIndex.getStart(i), end = (suggestionIndex.getEnd(i) - GRAM_LENGTH + 1); j < end; j++) {
+                occurrences[occurrenceIndex++] = createTrigram(chars[j], chars[j + 1], chars[j + 2]);
+            }
+        }
+
+        // Building the sorted dictionary of the distinct trigrams
+        final long[] sortedOccurrences = occurrences.clone();
+        Arrays.sort(sortedOccurrences);
+
+        int trigramCount = 0;
+
+        for(int i = 0; i < sortedOccurrences.length; i++) {
+            if((i == 0) || (sortedOccurrences[i] != sortedOccurrences[i - 1])) {
+                sortedOccurrences[trigramCount++] = sortedOccurrences[i];
+            }
+        }
+
+        final long[] trigrams = Arrays.copyOf(sortedOccurrences, trigramCount);
+
+        // Grouping the texts by the trigrams (the texts are visited in the ascending
+        // order, hence the resulting posting lists are sorted)
+        final int[] postingCounts = new int[trigramCount];
+        final int[] lastTexts = new int[trigramCount];
+        final int[] occurrenceTrigramIds = new int[occurrenceCount];
+        byte[] postings = null;
+
+        Arrays.fill(lastTexts, -1);
+        occurrenceIndex = 0;
+
+        for(int i = 0; i < textCount; i++) {
+            for(int j = 0, count = Math.max(0, (suggestionIndex.getTextLength(i) - GRAM_LENGTH + 1)); j < count; j++) {
+                final int trigramId = Arrays.binarySearch(trigrams, occurrences[occurrenceIndex]);
+
+                if(lastTexts[trigramId] == i) {
+                    // Not indexing the same text twice for a single trigram
+                    occurrenceTrigramIds[occurrenceIndex++] = -1;
+                } else {
+                    lastTexts[trigramId] = i;
+                    postingCounts[trigramId]++;
+                    occurrenceTrigramIds[occurrenceIndex++] = trigramId;
+                }
+            }
+        }
+
+        // Encoding the posting lists, the first pass computes their sizes
+        // and the second one writes them right into their final places
+        final int[] postingOffsets = new int[trigramCount + 1];
+        final int[] writeOffsets = new int[trigramCount];
+        int maxPostingCount = 0;
+
+        for(int pass = 0; pass < 2; pass++) {
+            Arrays.fill(lastTexts, 0);
+            occurrenceIndex = 0;
+
+            for(int i = 0; i < textCount; i++) {
+                for(int j = 0, count = Math.max(0, (suggestionIndex.getTextLength(i) - GRAM_LENGTH + 1)); j < count; j++) {
+                    final int trigramId = occurrenceTrigramIds[occurrenceIndex++];
+
+                    if(trigramId == -1) {
+                        continue;
+                    }
+
+                    final int delta = (i - lastTexts[trigramId]);
+
+                    if(pass == 0) {
+                        postingOffsets[trigramId + 1] += getVarIntSize(delta);
+                    } else {
+                        writeOffsets[trigramId] = writeVarInt(postings, writeOffsets[trigramId], delta);
+                    }
+
+                    lastTexts[trigramId] = i;
+                }
+            }
+
+            if(pass == 0) {
+                for(int trigramId = 0; trigramId < trigramCount; trigramId++) {
+                    postingOffsets[trigramId + 1] += postingOffsets[trigramId];
+                    writeOffsets[trigramId] = postingOffsets[trigramId];
+                    maxPostingCount = Math.max(maxPostingCount, postingCounts[trigramId]);
+                }
+
+                postings = new byte[postingOffsets[trigramCount]];
+            }
+        }
+
+        return new TrigramIndex(
+            suggestionIndex,
+            trigrams,
+            Arrays.copyOf(postingOffsets, trigramCount),
+            postingCounts,
+            postings,
+            maxPostingCount
+        );
+    }
+
+
+    private TrigramIndex(
+        SuggestionIndex suggestionIndex,
+        long[] trigrams,
+        int[] postingOffsets,
+        int[] postingCounts,
+        byte[] postings,
+        int maxPostingCount
+    ) {
+        this.suggestionIndex = suggestionIndex;
+        this.trigrams = trigrams;
+        this.postingOffsets = postingOffsets;
+        this.postingCounts = postingCounts;
+        this.postings = postings;
+        this.maxPostingCount = maxPostingCount;
+    }
+
+
+    static long createTrigram(char first, char second, char third) {
+        return ((((long) first) << 32) | (((long) second) << 16) | third);
+    }
+
+
+    private static int getVarIntSize(int value) {
+        int size = 1;
+
+        while((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+
+        return size;
+    }
+
+
+    private static int writeVarInt(byte[] buffer, int offset, int value) {
+        while((value & ~0x7F) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        buffer[offset++] = (byte) value;
+
+        return offset;
+    }
+
+
+    /**
+     * Gets the suggestion index this index was built from.
+     *
+     * @return The suggestion index
+     */
+    public SuggestionIndex getSuggestionIndex() {
+        return suggestionIndex;
+    }
+
+
+    /**
+     * Gets the amount of the distinct indexed trigrams.
+     *
+     * @return The amount of the trigrams
+     */
+    public int getTrigramCount() {
+        return trigrams.length;
+    }
+
+
+    /**
+     * Gets the size of the encoded posting lists.
+     *
+     * @return The size in bytes
+     */
+    public int getPostingsSizeInBytes() {
+        return postings.length;
+    }
+
+
+    /**
+     * Gets the length of the longest posting list.
+     *
+     * @return The maximum amount of postings
+     */
+    int getMaxPostingCount() {
+        return maxPostingCount;
+    }
+
+
+    /**
+     * Finds the id of the specified trigram.
+     *
+     * @param trigram The trigram (see {@link #createTrigram(char, char, char)})
+     *
+     * @return The id of the trigram or -1 if it is not indexed
+     */
+    int findTrigramId(long trigram) {
+        final int trigramId = Arrays.binarySearch(trigrams, trigram);
+        return ((trigramId >= 0) ? trigramId : -1);
+    }
+
+
+    /**
+     * Gets the length of the posting list of the specified trigram.
+     *
+     * @param trigramId The id of the trigram
+     *
+     * @return The amount of postings
+     */
+    int getPostingCount(int trigramId) {
+        return postingCounts[trigramId];
+    }
+
+
+    /**
+     * Decodes the posting list of the specified trigram into the buffer.
+     *
+     * @param trigramId The id of the trigram
+     * @param buffer The buffer to decode into (must fit {@link #getPostingCount(int)} values)
+     *
+     * @return The amount of the decoded postings
+     */
+    int decodePostings(int trigramId, int[] buffer) {
+        final int count = postingCounts[trigramId];
+        int offset = postingOffsets[trigramId];
+        int value = 0;
+
+        for(int i = 0; i < count; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+
+            do {
+                b = postings[offset++];
+                delta |= ((b & 0x7F) << shift);
+                shift += 7;
+            } while(b < 0);
+
+            value += delta;
+            buffer[i] = value;
+        }
+
+        return count;
+    }
+
+
+    /**
+     * Intersects the sorted candidates with the posting list of the specified
+     * trigram in place, decoding the list lazily as the merge progresses.
+     *
+     * @param trigramId The id of the trigram
+     * @param candidates The sorted candidates
+     * @param candidateCount The amount of the candidates
+     *
+     * @return The amount of the remaining candidates
+     */
+    int intersectPostings(int trigramId, int[] candidates, int candidateCount) {
+        final int count = postingCounts[trigramId];
+        int offset = postingOffsets[trigramId];
+        int value = 0;
+        int decodedCount = 0;
+        int resultCount = 0;
+        int candidateIndex = 0;
+
+        while((candidateIndex < candidateCount) && (decodedCount < count)) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+
+            do {
+                b = postings[offset++];
+                delta |= ((b & 0x7F) << shift);
+                shift += 7;
+            } while(b < 0);
+
+            value += delta;
+            decodedCount++;
+
+            while((candidateIndex < candidateCount) && (candidates[candidateIndex] < value)) {
+                candidateIndex++;
+            }
+
+            if((candidateIndex < candidateCount) && (candidates[candidateIndex] == value)) {
+                candidates[resultCount++] = value;
+                candidateIndex++;
+            }
+        }
+
+        return resultCount;
+    }
+
+
+}
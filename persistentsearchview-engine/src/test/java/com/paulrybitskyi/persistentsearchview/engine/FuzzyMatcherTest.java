@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FuzzyMatcherTest {
+
+
+    private static final long SEED = 31L;
+
+    private static final String ALPHABET = "abcdé";
+
+
+    @Test
+    public void matchesLikeTheDynamicProgrammingReference() {
+        final RandomTexts random = new RandomTexts(SEED);
+        final FuzzyMatcher matcher = new FuzzyMatcher();
+
+        for(int iteration = 0; iteration < 50; iteration++) {
+            final String[] texts = random.nextStrings(200, ALPHABET, 0, 16);
+            final SuggestionIndex index = SuggestionIndex.of(texts);
+            final MatchResults results = new MatchResults(texts.length);
+
+            for(int queryIndex = 0; queryIndex < 20; queryIndex++) {
+                final String query = random.nextString(ALPHABET, 1, 8);
+                final int maxDistance = random.nextInt(FuzzyMatcher.MAX_DISTANCE + 1);
+
+                matcher.match(query, maxDistance, index, results);
+
+                assertMatches(texts, query, maxDistance, results, results.size());
+            }
+        }
+    }
+
+
+    @Test
+    public void keepsTheBestMatchesWhenOverCapacity() {
+        final RandomTexts random = new RandomTexts(SEED);
+        final FuzzyMatcher matcher = new FuzzyMatcher();
+        final String[] texts = random.nextStrings(500, ALPHABET, 2, 12);
+        final SuggestionIndex index = SuggestionIndex.of(texts);
+        final MatchResults results = new MatchResults(10);
+
+        for(int queryIndex = 0; queryIndex < 100; queryIndex++) {
+            final String query = random.nextString(ALPHABET, 3, 6);
+
+            matcher.match(query, FuzzyMatcher.MAX_DISTANCE, index, results);
+
+            assertMatches(texts, query, FuzzyMatcher.MAX_DISTANCE, results, results.getCapacity());
+        }
+    }
+
+
+    @Test
+    public void ignoresTheCaseOfTheQueryAndTexts() {
+        final FuzzyMatcher matcher = new FuzzyMatcher();
+        final SuggestionIndex index = SuggestionIndex.of(new String[] { "Hello World", "other" });
+        final MatchResults results = new MatchResults(2);
+
+        matcher.match("WORLD", 0, index, results);
+
+        assertEquals(1, results.size());
+        assertEquals(0, results.getIndex(0));
+        assertEquals(6, results.getHighlightStart(0, 0));
+        assertEquals(11, results.getHighlightEnd(0, 0));
+    }
+
+
+    @Test
+    public void usesTheDefaultDistanceForTheQueryLength() {
+        assertEquals(0, FuzzyMatcher.getDefaultMaxDistance(2));
+        assertEquals(1, FuzzyMatcher.getDefaultMaxDistance(5));
+        assertEquals(FuzzyMatcher.MAX_DISTANCE, FuzzyMatcher.getDefaultMaxDistance(6));
+    }
+
+
+    private static void assertMatches(
+        String[] texts,
+        String query,
+        int maxDistance,
+        MatchResults results,
+        int capacity
+    ) {
+        final String pattern = query.toLowerCase(Locale.US);
+        final int distanceLimit = Math.min(maxDistance, (pattern.length() - 1));
+        final List<long[]> expectedMatches = new ArrayList<>();
+
+        for(int i = 0; i < texts.length; i++) {
+            final String text = texts[i].toLowerCase(Locale.US);
+            final int[] lastRow = computeLastRow(pattern, text);
+            int distance = Integer.MAX_VALUE;
+            int bestEnd = -1;
+
+            for(int j = 1; j < lastRow.length; j++) {
+                if(lastRow[j] < distance) {
+                    distance = lastRow[j];
+                    bestEnd = (j - 1);
+                }
+            }
+
+            if(distance <= distanceLimit) {
+                expectedMatches.add(new long[] { MatchResults.createRank(distance, bestEnd, text.length(), i), distance });
+            }
+        }
+
+        Collections.sort(expectedMatches, (match1, match2) -> Long.compare(match1[0], match2[0]));
+
+        final int expectedSize = Math.min(capacity, expectedMatches.size());
+        final String message = ("Query: " + query + ", max distance: " + maxDistance);
+
+        assertEquals(message, expectedSize, results.size());
+
+        for(int position = 0; position < expectedSize; position++) {
+            final long[] expectedMatch = expectedMatches.get(position);
+            final int textIndex = results.getIndex(position);
+
+            assertEquals(message, (int) (expectedMatch[0] & 0x7FFFFFFF), textIndex);
+            assertEquals(message, expectedMatch[1], results.getDistance(position));
+            assertHighlights(texts[textIndex].toLowerCase(Locale.US), pattern, results, position, message);
+        }
+    }
+
+
+    /**
+     * Computes the last row of the edit distance matrix of the pattern against
+     * the text, where the first row is all zeros, so that the match may start
+     * anywhere within the text.
+     */
+    private static int[] computeLastRow(String pattern, String text) {
+        int[] previousRow = new int[text.length() + 1];
+        int[] row = new int[text.length() + 1];
+
+        for(int i = 1; i <= pattern.length(); i++) {
+            row[0] = i;
+
+            for(int j = 1; j <= text.length(); j++) {
+                final int substitutionCost = ((pattern.charAt(i - 1) == text.charAt(j - 1)) ? 0 : 1);
+
+                row[j] = Math.min(
+                    (previousRow[j - 1] + substitutionCost),
+                    (Math.min(previousRow[j], row[j - 1]) + 1)
+                );
+            }
+
+            final int[] swappedRow = previousRow;
+            previousRow = row;
+            row = swappedRow;
+        }
+
+        return previousRow;
+    }
+
+
+    private static void assertHighlights(
+        String text,
+        String pattern,
+        MatchResults results,
+        int position,
+        String message
+    ) {
+        int highlightedCharCount = 0;
+        int previousEnd = -1;
+
+        for(int rangeIndex = 0; rangeIndex < results.getHighlightRangeCount(position); rangeIndex++) {
+            final int start = results.getHighlightStart(position, rangeIndex);
+            final int end = results.getHighlightEnd(position, rangeIndex);
+
+            // The ranges are ascending, disjoint and not adjacent
+            assertTrue(message, (start > previousEnd));
+            assertTrue(message, ((start < end) && (end <= text.length())));
+
+            for(int i = start; i < end; i++) {
+                assertTrue(message, (pattern.indexOf(text.charAt(i)) != -1));
+            }
+
+            highlightedCharCount += (end - start);
+            previousEnd = end;
+        }
+
+        // An alignment with d edits matches at least the rest of the pattern's characters
+        assertTrue(message, (highlightedCharCount >= (pattern.length() - results.getDistance(position))));
+        assertTrue(message, (highlightedCharCount <= pattern.length()));
+    }
+
+
+}
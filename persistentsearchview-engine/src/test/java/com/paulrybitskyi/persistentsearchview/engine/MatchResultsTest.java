@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MatchResultsTest {
+
+
+    private static final long SEED = 26L;
+
+
+    @Test
+    public void keepsTheBestCandidatesInOrder() {
+        final RandomTexts random = new RandomTexts(SEED);
+
+        for(int iteration = 0; iteration < 200; iteration++) {
+            final int capacity = (1 + random.nextInt(20));
+            final int candidateCount = random.nextInt(100);
+            final MatchResults results = new MatchResults(capacity);
+            final List<Long> ranks = new ArrayList<>();
+
+            results.clear();
+
+            for(int index = 0; index < candidateCount; index++) {
+                final long rank = MatchResults.createRank(
+                    random.nextInt(3),
+                    random.nextInt(20),
+                    random.nextInt(40),
+                    index
+                );
+
+                ranks.add(rank);
+
+                if(results.isAcceptable(rank)) {
+                    results.offer(rank);
+                }
+            }
+
+            results.finish();
+
+            // The reference: sorting all the ranks and taking the best ones
+            Collections.sort(ranks);
+
+            final int expectedSize = Math.min(capacity, candidateCount);
+
+            assertEquals(expectedSize, results.size());
+
+            for(int position = 0; position < expectedSize; position++) {
+                assertEquals((int) (ranks.get(position) & 0x7FFFFFFF), results.getIndex(position));
+                assertEquals(0, results.getDistance(position));
+                assertEquals(0, results.getHighlightRangeCount(position));
+            }
+        }
+    }
+
+
+    @Test
+    public void rejectsOnlyTheCandidatesWorseThanTheWorstKeptOne() {
+        final MatchResults results = new MatchResults(2);
+
+        results.clear();
+        results.offer(MatchResults.createRank(0, 5, 10, 0));
+        results.offer(MatchResults.createRank(1, 0, 10, 1));
+
+        assertFalse(results.isAcceptable(MatchResults.createRank(1, 0, 10, 2)));
+        assertTrue(results.isAcceptable(MatchResults.createRank(0, 6, 10, 2)));
+    }
+
+
+    @Test
+    public void ranksByDistanceThenPositionThenLengthThenIndex() {
+        final long[] ranks = {
+            MatchResults.createRank(0, 0, 5, 3),
+            MatchResults.createRank(0, 0, 5, 4),
+            MatchResults.createRank(0, 0, 6, 0),
+            MatchResults.createRank(0, 1, 1, 0),
+            MatchResults.createRank(1, 0, 1, 0),
+            MatchResults.createRank(2, 0, 0, 0)
+        };
+
+        for(int i = 1; i < ranks.length; i++) {
+            assertTrue(ranks[i - 1] < ranks[i]);
+        }
+    }
+
+
+    @Test
+    public void clampsTheOverflowingRankFields() {
+        final long clampedRank = MatchResults.createRank(0, 100_000, 100_000, 7);
+
+        assertEquals(7, (int) (clampedRank & 0x7FFFFFFF));
+        assertTrue(clampedRank < MatchResults.createRank(1, 0, 0, 0));
+        assertEquals(clampedRank, MatchResults.createRank(0, 8191, 8191, 7));
+    }
+
+
+    @Test
+    public void mergesTheAdjacentHighlightedChars() {
+        final RandomTexts random = new RandomTexts(SEED);
+        final MatchResults results = new MatchResults(1);
+
+        for(int iteration = 0; iteration < 200; iteration++) {
+            final boolean[] isHighlighted = new boolean[1 + random.nextInt(60)];
+
+            for(int i = 0; i < isHighlighted.length; i++) {
+                isHighlighted[i] = (random.nextInt(3) != 0);
+            }
+
+            results.clear();
+            results.offer(MatchResults.createRank(0, 0, isHighlighted.length, 0));
+            results.finish();
+
+            for(int i = (isHighlighted.length - 1); i >= 0; i--) {
+                if(isHighlighted[i]) {
+                    results.addHighlightedCharDescending(0, i);
+                }
+            }
+
+            results.finishHighlights(0);
+
+            final int[] expectedRanges = createRanges(isHighlighted);
+
+            assertArrayEquals(expectedRanges, results.copyHighlightRanges(0));
+            assertEquals((expectedRanges.length / 2), results.getHighlightRangeCount(0));
+
+            for(int rangeIndex = 0; rangeIndex < results.getHighlightRangeCount(0); rangeIndex++) {
+                assertEquals(expectedRanges[rangeIndex * 2], results.getHighlightStart(0, rangeIndex));
+                assertEquals(expectedRanges[(rangeIndex * 2) + 1], results.getHighlightEnd(0, rangeIndex));
+            }
+        }
+    }
+
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void throwsForPositionBeyondSize() {
+        final MatchResults results = new MatchResults(4);
+
+        results.clear();
+        results.offer(MatchResults.createRank(0, 0, 1, 0));
+        results.finish();
+
+        results.getIndex(1);
+    }
+
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void throwsForRangeIndexBeyondRangeCount() {
+        final MatchResults results = new MatchResults(1);
+
+        results.clear();
+        results.offer(MatchResults.createRank(0, 0, 1, 0));
+        results.finish();
+        results.addHighlightRange(0, 0, 1);
+
+        results.getHighlightStart(0, 1);
+    }
+
+
+    private static int[] createRanges(boolean[] isHighlighted) {
+        final int[] ranges = new int[isHighlighted.length * 2];
+        int rangeCount = 0;
+
+        for(int i = 0; i < isHighlighted.length; i++) {
+            if(!isHighlighted[i]) {
+                continue;
+            }
+
+            if((rangeCount > 0) && (ranges[(rangeCount * 2) - 1] == i)) {
+                ranges[(rangeCount * 2) - 1] = (i + 1);
+            } else {
+                ranges[rangeCount * 2] = i;
+                ranges[(rangeCount * 2) + 1] = (i + 1);
+                rangeCount++;
+            }
+        }
+
+        return Arrays.copyOf(ranges, (rangeCount * 2));
+    }
+
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine;
+
+import java.util.Random;
+
+/**
+ * Generates the texts for the tests comparing the engine's classes
+ * against their brute-force references. The alphabets are kept small,
+ * so that the random queries actually match a fair amount of the texts.
+ */
+final class RandomTexts {
+
+
+    private final Random random;
+
+
+    RandomTexts(long seed) {
+        random = new Random(seed);
+    }
+
+
+    int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+
+    String nextString(String alphabet, int minLength, int maxLength) {
+        final int length = (minLength + random.nextInt(maxLength - minLength + 1));
+        final StringBuilder builder = new StringBuilder(length);
+
+        for(int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+
+        return builder.toString();
+    }
+
+
+    String[] nextStrings(int count, String alphabet, int minLength, int maxLength) {
+        final String[] strings = new String[count];
+
+        for(int i = 0; i < count; i++) {
+            strings[i] = nextString(alphabet, minLength, maxLength);
+        }
+
+        return strings;
+    }
+
+
+    /**
+     * Creates the texts made of the words of the specified vocabulary. The words
+     * are picked with a skewed distribution, so that the posting lists of the
+     * frequent ones are long and the ones of the rare ones are short.
+     */
+    String[] nextSentences(int count, String[] vocabulary, int maxWordCount) {
+        final String[] sentences = new String[count];
+
+        for(int i = 0; i < count; i++) {
+            final int wordCount = (1 + random.nextInt(maxWordCount));
+            final StringBuilder builder = new StringBuilder();
+
+            for(int j = 0; j < wordCount; j++) {
+                if(j > 0) {
+                    builder.append(random.nextBoolean() ? " " : ", ");
+                }
+
+                builder.append(nextWord(vocabulary));
+            }
+
+            sentences[i] = builder.toString();
+        }
+
+        return sentences;
+    }
+
+
+    String nextWord(String[] vocabulary) {
+        final int index = (int) (vocabulary.length * Math.pow(random.nextDouble(), 3));
+        final String word = vocabulary[index];
+
+        return (random.nextInt(8) == 0 ? word.toUpperCase() : word);
+    }
+
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TokenMatcherTest {
+
+
+    private static final long SEED = 33L;
+
+    private static final String[] VOCABULARY = {
+        "the", "a", "of", "search", "view", "android", "persistent", "suggestion",
+        "query", "material", "card", "toolbar", "recycler", "adapter", "theme",
+        "animation", "keyboard", "voice", "input", "history", "recent", "remove",
+        "layout", "drawable", "state", "thread", "index", "token", "trigram",
+        "fuzzy", "matcher", "kotlin", "java", "gradle", "robolectric", "2021", "v2"
+    };
+
+
+    @Test
+    public void matchesLikeTheTokenizingReference() {
+        final RandomTexts random = new RandomTexts(SEED);
+        final String[] texts = random.nextSentences(3000, VOCABULARY, 6);
+        final TokenIndex index = TokenIndex.of(SuggestionIndex.of(texts));
+        final TokenMatcher matcher = new TokenMatcher();
+        final MatchResults results = new MatchResults(texts.length);
+
+        for(int iteration = 0; iteration < 500; iteration++) {
+            final String query = createQuery(random);
+
+            matcher.match(query, index, results);
+
+            assertMatches(texts, query, results, results.getCapacity());
+        }
+    }
+
+
+    @Test
+    public void keepsTheBestMatchesWhenOverCapacity() {
+        final RandomTexts random = new RandomTexts(SEED);
+        final String[] texts = random.nextSentences(1000, VOCABULARY, 4);
+        final TokenIndex index = TokenIndex.of(SuggestionIndex.of(texts));
+        final TokenMatcher matcher = new TokenMatcher();
+        final MatchResults results = new MatchResults(8);
+
+        for(int iteration = 0; iteration < 200; iteration++) {
+            final String query = createQuery(random);
+
+            matcher.match(query, index, results);
+
+            assertMatches(texts, query, results, results.getCapacity());
+        }
+    }
+
+
+    @Test
+    public void matchesNothingForQueryWithoutTokens() {
+        final TokenIndex index = TokenIndex.of(SuggestionIndex.of(new String[] { "search view" }));
+        final MatchResults results = new MatchResults(1);
+
+        new TokenMatcher().match(" ,- ", index, results);
+
+        assertEquals(0, results.size());
+    }
+
+
+    private static String createQuery(RandomTexts random) {
+        final int tokenCount = (1 + random.nextInt(4));
+        final StringBuilder builder = new StringBuilder();
+
+        for(int i = 0; i < tokenCount; i++) {
+            if(i > 0) {
+                builder.append(' ');
+            }
+
+            final String word = random.nextWord(VOCABULARY);
+
+            // Some of the tokens are absent, some are typed partially
+            if(random.nextInt(10) == 0) {
+                builder.append(word).append('x');
+            } else {
+                builder.append(word, 0, (1 + random.nextInt(word.length())));
+            }
+        }
+
+        if(random.nextInt(3) == 0) {
+            builder.append(' ');
+        }
+
+        return builder.toString();
+    }
+
+
+    private static void assertMatches(String[] texts, String query, MatchResults results, int capacity) {
+        final List<String> queryTokens = new ArrayList<>();
+        final boolean isLastTokenPrefix = TokenIndex.isTokenChar(query.charAt(query.length() - 1));
+        final List<long[]> expectedMatches = new ArrayList<>();
+
+        tokenize(query.toLowerCase(Locale.US), new ArrayList<>(), queryTokens);
+
+        for(int i = 0; i < texts.length; i++) {
+            final String text = texts[i].toLowerCase(Locale.US);
+            final int[] matchedRanges = findMatchedRanges(text, queryTokens, isLastTokenPrefix);
+
+            if(matchedRanges != null) {
+                expectedMatches.add(new long[] { MatchResults.createRank(0, matchedRanges[0], text.length(), i) });
+            }
+        }
+
+        Collections.sort(expectedMatches, (match1, match2) -> Long.compare(match1[0], match2[0]));
+
+        final int expectedSize = Math.min(capacity, expectedMatches.size());
+
+        assertEquals(("Query: " + query), expectedSize, results.size());
+
+        for(int position = 0; position < expectedSize; position++) {
+            final int textIndex = results.getIndex(position);
+            final String text = texts[textIndex].toLowerCase(Locale.US);
+
+            assertEquals(("Query: " + query), (int) (expectedMatches.get(position)[0] & 0x7FFFFFFF), textIndex);
+            assertArrayEquals(
+                ("Query: " + query),
+                findMatchedRanges(text, queryTokens, isLastTokenPrefix),
+                results.copyHighlightRanges(position)
+            );
+        }
+    }
+
+
+    /**
+     * Checks whether every complete token of the query equals a token of the text
+     * and the last (prefix) one starts a token of the text, and if so, finds
+     * the longest matched part of every matched token of the text.
+     *
+     * @return The matched ranges or null if the text does not match
+     */
+    private static int[] findMatchedRanges(String text, List<String> queryTokens, boolean isLastTokenPrefix) {
+        final List<Integer> tokenStarts = new ArrayList<>();
+        final List<String> textTokens = new ArrayList<>();
+
+        tokenize(text, tokenStarts, textTokens);
+
+        for(int i = 0; i < queryTokens.size(); i++) {
+            final boolean isPrefix = (isLastTokenPrefix && (i == (queryTokens.size() - 1)));
+            boolean isFound = false;
+
+            for(String textToken : textTokens) {
+                isFound |= (isPrefix ? textToken.startsWith(queryTokens.get(i)) : textToken.equals(queryTokens.get(i)));
+            }
+
+            if(!isFound) {
+                return null;
+            }
+        }
+
+        final List<Integer> ranges = new ArrayList<>();
+
+        for(int tokenIndex = 0; tokenIndex < textTokens.size(); tokenIndex++) {
+            final String textToken = textTokens.get(tokenIndex);
+            int matchLength = 0;
+
+            for(int i = 0; i < queryTokens.size(); i++) {
+                final String queryToken = queryTokens.get(i);
+                final boolean isPrefix = (isLastTokenPrefix && (i == (queryTokens.size() - 1)));
+
+                if(isPrefix ? textToken.startsWith(queryToken) : textToken.equals(queryToken)) {
+                    matchLength = Math.max(matchLength, queryToken.length());
+                }
+            }
+
+            if(matchLength > 0) {
+                ranges.add(tokenStarts.get(tokenIndex));
+                ranges.add(tokenStarts.get(tokenIndex) + matchLength);
+            }
+        }
+
+        final int[] rangeArray = new int[ranges.size()];
+
+        for(int i = 0; i < rangeArray.length; i++) {
+            rangeArray[i] = ranges.get(i);
+        }
+
+        return rangeArray;
+    }
+
+
+    private static void tokenize(String text, List<Integer> tokenStarts, List<String> tokens) {
+        for(int i = 0; i < text.length(); i++) {
+            if(TokenIndex.isTokenChar(text.charAt(i)) && ((i == 0) || !TokenIndex.isTokenChar(text.charAt(i - 1)))) {
+                int end = i;
+
+                while((end < text.length()) && TokenIndex.isTokenChar(text.charAt(end))) {
+                    end++;
+                }
+
+                tokenStarts.add(i);
+                tokens.add(text.substring(i, end));
+            }
+        }
+    }
+
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TrigramIndexTest {
+
+
+    private static final long SEED = 32L;
+
+    private static final String ALPHABET = "abcdef";
+
+
+    @Test
+    public void storesThePostingsOfEveryTrigram() {
+        final RandomTexts random = new RandomTexts(SEED);
+
+        for(int iteration = 0; iteration < 20; iteration++) {
+            final String[] texts = random.nextStrings(300, ALPHABET, 0, 12);
+
+            assertPostings(texts, TrigramIndex.of(SuggestionIndex.of(texts)));
+        }
+    }
+
+
+    @Test
+    public void encodesTheLargeGapsBetweenPostings() {
+        // A rare trigram spread across many texts produces gaps not
+        // fitting into a single byte (and even two bytes) of a varint
+        final String[] texts = new String[40_000];
+
+        for(int i = 0; i < texts.length; i++) {
+            texts[i] = ((((i % 20_011) == 0) || (i == 129) || (i == 16_513)) ? "xyz" : "abc");
+        }
+
+        final TrigramIndex index = TrigramIndex.of(SuggestionIndex.of(texts));
+
+        assertPostings(texts, index);
+        assertArrayEquals(
+            new int[] { 0, 129, 16_513, 20_011 },
+            decodePostings(index, index.findTrigramId(TrigramIndex.createTrigram('x', 'y', 'z')))
+        );
+    }
+
+
+    @Test
+    public void intersectsThePostingsLikeTheSetReference() {
+        final RandomTexts random = new RandomTexts(SEED);
+        final String[] texts = random.nextStrings(2000, ALPHABET, 3, 12);
+        final TrigramIndex index = TrigramIndex.of(SuggestionIndex.of(texts));
+
+        for(int iteration = 0; iteration < 500; iteration++) {
+            final int trigramId = random.nextInt(index.getTrigramCount());
+            final TreeSet<Integer> candidateSet = new TreeSet<>();
+
+            for(int i = 0, count = random.nextInt(texts.length); i < count; i++) {
+                candidateSet.add(random.nextInt(texts.length));
+            }
+
+            final int[] candidates = toArray(candidateSet);
+            final TreeSet<Integer> expected = new TreeSet<>(candidateSet);
+
+            expected.retainAll(toList(decodePostings(index, trigramId)));
+
+            final int resultCount = index.intersectPostings(trigramId, candidates, candidates.length);
+
+            assertArrayEquals(toArray(expected), Arrays.copyOf(candidates, resultCount));
+        }
+    }
+
+
+    @Test
+    public void doesNotFindTheAbsentTrigrams() {
+        final TrigramIndex index = TrigramIndex.of(SuggestionIndex.of(new String[] { "Hello", "he", "" }));
+
+        assertEquals(3, index.getTrigramCount());
+        assertEquals(-1, index.findTrigramId(TrigramIndex.createTrigram('h', 'e', 'x')));
+        assertEquals(-1, index.findTrigramId(TrigramIndex.createTrigram('H', 'e', 'l')));
+    }
+
+
+    private static void assertPostings(String[] texts, TrigramIndex index) {
+        final Map<Long, TreeSet<Integer>> expectedPostings = new TreeMap<>();
+
+        for(int i = 0; i < texts.length; i++) {
+            final String text = texts[i].toLowerCase(Locale.US);
+
+            for(int j = 0; (j + TrigramIndex.GRAM_LENGTH) <= text.length(); j++) {
+                final long trigram = TrigramIndex.createTrigram(text.charAt(j), text.charAt(j + 1), text.charAt(j + 2));
+
+                TreeSet<Integer> postings = expectedPostings.get(trigram);
+
+                if(postings == null) {
+                    postings = new TreeSet<>();
+                    expectedPostings.put(trigram, postings);
+                }
+
+                postings.add(i);
+            }
+        }
+
+        int maxPostingCount = 0;
+
+        assertEquals(expectedPostings.size(), index.getTrigramCount());
+
+        for(Map.Entry<Long, TreeSet<Integer>> entry : expectedPostings.entrySet()) {
+            final int trigramId = index.findTrigramId(entry.getKey());
+
+            assertEquals(entry.getValue().size(), index.getPostingCount(trigramId));
+            assertArrayEquals(toArray(entry.getValue()), decodePostings(index, trigramId));
+
+            maxPostingCount = Math.max(maxPostingCount, entry.getValue().size());
+        }
+
+        assertEquals(maxPostingCount, index.getMaxPostingCount());
+    }
+
+
+    private static int[] decodePostings(TrigramIndex index, int trigramId) {
+        final int[] postings = new int[index.getPostingCount(trigramId)];
+
+        assertEquals(postings.length, index.decodePostings(trigramId, postings));
+
+        return postings;
+    }
+
+
+    private static int[] toArray(TreeSet<Integer> set) {
+        final int[] array = new int[set.size()];
+        int i = 0;
+
+        for(int value : set) {
+            array[i++] = value;
+        }
+
+        return array;
+    }
+
+
+    private static List<Integer> toList(int[] array) {
+        final List<Integer> list = new ArrayList<>(array.length);
+
+        for(int value : array) {
+            list.add(value);
+        }
+
+        return list;
+    }
+
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2021 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+plugins {
+    androidLibrary()
+    kotlinAndroid()
+}
+
+android {
+    namespace = "com.paulrybitskyi.persistentsearchview.ktx"
+    compileSdk = appConfig.compileSdkVersion
+
+    defaultConfig {
+        minSdk = appConfig.minSdkVersion
+    }
+
+    buildTypes {
+        release {
+            isMinifyEnabled = false
+            proguardFiles(getDefaultProguardFile("proguard-android-optimize.txt"), "proguard-rules.pro")
+        }
+    }
+
+    compileOptions {
+        sourceCompatibility = appConfig.javaCompatibilityVersion
+        targetCompatibility = appConfig.javaCompatibilityVersion
+    }
+
+    kotlinOptions {
+        jvmTarget = appConfig.kotlinCompatibilityVersion.toString()
+    }
+
+    publishing {
+        singleVariant(publishingConfig.mavenPublicationName) {
+            withJavadocJar()
+            withSourcesJar()
+        }
+    }
+}
+
+dependencies {
+    api(project(deps.local.persistentSearchView))
+    api(deps.coroutinesAndroid)
+}
+
+extra[publishingConfig.artifactNameProperty] = publishingConfig.ktxArtifactName
+
+apply(from = "../publishing.gradle.kts")
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@file:JvmName("PersistentSearchViewFlows")
+
+package com.paulrybitskyi.persistentsearchview.ktx
+
+import com.paulrybitskyi.persistentsearchview.PersistentSearchView
+import com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionItem
+import com.paulrybitskyi.persistentsearchview.listeners.OnSuggestionChangeListener
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.callbackFlow
+import kotlinx.coroutines.flow.conflate
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.filterIsInstance
+import kotlinx.coroutines.flow.filterNotNull
+import kotlinx.coroutines.flow.launchIn
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.mapLatest
+import kotlinx.coroutines.flow.onEach
+import kotlinx.coroutines.plus
+import kotlinx.coroutines.withContext
+
+
+/**
+ * A change of a suggestion performed by the user.
+ */
+sealed class SuggestionChange {
+
+    abstract val suggestion: SuggestionItem
+
+    data class Picked(override val suggestion: SuggestionItem) : SuggestionChange()
+
+    data class Removed(override val suggestion: SuggestionItem) : SuggestionChange()
+
+}
+
+
+/**
+ * Emits the query of the search view whenever it changes. The flow is conflated,
+ * so a slow collector receives only the latest query, and the consecutive
+ * duplicates are skipped.
+ *
+ * The flow occupies the search view's [PersistentSearchView.setOnSearchQueryChangeListener]
+ * while being collected, hence it has to be collected on the main thread and by
+ * a single collector at a time.
+ */
+fun PersistentSearchView.queryChanges(): Flow<String> {
+    val queries = callbackFlow<String> {
+        setOnSearchQueryChangeListener { _, _, newQuery -> trySend(newQuery) }
+        awaitClose { setOnSearchQueryChangeListener(null) }
+    }
+
+    return queries
+        .conflate()
+        .distinctUntilChanged()
+}
+
+
+/**
+ * Emits the confirmed search queries. The flow is conflated, but, unlike [queryChanges],
+ * does not skip the duplicates, as confirming the same query again is a meaningful event
+ * (e.g., to refresh the search results).
+ *
+ * The flow occupies the search view's [PersistentSearchView.setOnSearchConfirmedListener]
+ * while being collected, hence it has to be collected on the main thread and by
+ * a single collector at a time.
+ */
+fun PersistentSearchView.searchConfirmations(): Flow<String> {
+    val confirmations = callbackFlow<String> {
+        setOnSearchConfirmedListener { _, query -> trySend(query) }
+        awaitClose { setOnSearchConfirmedListener(null) }
+    }
+
+    return confirmations.conflate()
+}
+
+
+/**
+ * Emits the suggestions picked or removed by the user. The flow is conflated
+ * and does not skip the duplicates for the same reason as [searchConfirmations].
+ *
+ * The flow occupies the search view's [PersistentSearchView.setOnSuggestionChangeListener]
+ * while being collected, hence it has to be collected on the main thread and by
+ * a single collector at a time (see [suggestionPicks]).
+ */
+fun PersistentSearchView.suggestionChanges(): Flow<SuggestionChange> {
+    val changes = callbackFlow<SuggestionChange> {
+        setOnSuggestionChangeListener(object : OnSuggestionChangeListener {
+
+            override fun onSuggestionPicked(suggestion: SuggestionItem) {
+                trySend(SuggestionChange.Picked(suggestion))
+            }
+
+            override fun onSuggestionRemoved(suggestion: SuggestionItem) {
+                trySend(SuggestionChange.Removed(suggestion))
+            }
+
+        })
+        awaitClose { setOnSuggestionChangeListener(null) }
+    }
+
+    return changes.conflate()
+}
+
+
+/**
+ * Emits the suggestions picked by the user. A shorthand for filtering [suggestionChanges],
+ * hence it cannot be collected at the same time as the latter.
+ */
+fun PersistentSearchView.suggestionPicks(): Flow<SuggestionItem> {
+    return suggestionChanges()
+        .filterIsInstance<SuggestionChange.Picked>()
+        .map { it.suggestion }
+}
+
+
+/**
+ * Loads the suggestions for every query emitted by the [queries] flow and sets them
+ * to the search view.
+ *
+ * The loading is performed with [mapLatest], so the loading of the suggestions for
+ * an outdated query is cancelled as soon as a new query arrives, and runs on the
+ * [loadingDispatcher]. The loaded suggestions are conflated and applied on the main
+ * thread, where the ones set within a single frame are rendered at once
+ * (see [PersistentSearchView.getSearchController]).
+ *
+ * A failure of [loadSuggestions] affects only the query it was thrown for: the
+ * suggestions currently shown are kept, the exception is passed to [onError]
+ * on the main thread and the binding goes on with the next query. Only the
+ * cancellation of the [scope] (or of the returned job) stops the binding.
+ *
+ * @param scope The scope to launch the binding in (e.g., the lifecycle scope)
+ * @param queries The queries to load the suggestions for
+ * @param expandIfNecessary Whether to expand the search view when the suggestions are set
+ * @param loadingDispatcher The dispatcher to load the suggestions on
+ * @param onError The function handling a failure to load the suggestions for a query
+ * @param loadSuggestions The function loading the suggestions for a query
+ *
+ * @return The job of the binding, which can be cancelled to stop it
+ */
+@OptIn(ExperimentalCoroutinesApi::class)
+fun PersistentSearchView.bindSuggestions(
+    scope: CoroutineScope,
+    queries: Flow<String> = queryChanges(),
+    expandIfNecessary: Boolean = true,
+    loadingDispatcher: CoroutineDispatcher = Dispatchers.Default,
+    onError: (query: String, error: Exception) -> Unit = { _, _ -> },
+    loadSuggestions: suspend (query: String) -> List<SuggestionItem>
+): Job {
+    return queries
+        .mapLatest { query ->
+            try {
+                withContext(loadingDispatcher) { loadSuggestions(query) }
+            } catch(error: CancellationException) {
+                throw error
+            } catch(error: Exception) {
+                onError(query, error)
+                null
+            }
+        }
+        .filterNotNull()
+        .conflate()
+        .onEach { suggestions -> setSuggestions(suggestions, expandIfNecessary) }
+        .launchIn(scope + Dispatchers.Main.immediate)
+}
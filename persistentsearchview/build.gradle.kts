@@ -41,6 +41,18 @@ android {
         targetCompatibility = appConfig.javaCompatibilityVersion
     }
 
+    testOptions {
+        unitTests {
+            isIncludeAndroidResources = true
+
+            // "./gradlew :persistentsearchview:testDebugUnitTest -Pbudgets.record=true" records
+            // the measured metrics of the budget tests instead of enforcing the budgets
+            all {
+                systemProperty("budgets.record", project.property("budgets.record", "false"))
+            }
+        }
+    }
+
     publishing {
         singleVariant(publishingConfig.mavenPublicationName) {
             withJavadocJar()
@@ -51,13 +63,18 @@ android {
 
 dependencies {
     embed(project(deps.local.adapster))
+    embed(project(deps.local.persistentSearchViewEngine))
 
     implementation(deps.appCompat)
     implementation(deps.cardView)
     implementation(deps.recyclerView)
     implementation(deps.annotations)
+    implementation(deps.tracing)
 
     testImplementation(deps.jUnit)
+    testImplementation(deps.testCore)
+    testImplementation(deps.robolectric)
+    testImplementation(deps.mockWebServer)
     androidTestImplementation(deps.testRunner)
 }
 
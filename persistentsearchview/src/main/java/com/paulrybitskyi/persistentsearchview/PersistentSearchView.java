@@ -26,13 +26,18 @@ import android.graphics.Color;
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
+import android.os.Looper;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.view.Display;
 import android.view.KeyEvent;
+import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.animation.DecelerateInterpolator;
 import android.view.animation.Interpolator;
 import android.view.inputmethod.EditorInfo;
@@ -43,24 +48,39 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import com.arthurivanets.adapster.listeners.OnItemClickListener;
+import com.paulrybitskyi.persistentsearchview.adapters.SuggestionsDiffCallback;
 import com.paulrybitskyi.persistentsearchview.adapters.SuggestionsRecyclerViewAdapter;
 import com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionItem;
 import com.paulrybitskyi.persistentsearchview.adapters.resources.SuggestionItemResources;
 import com.paulrybitskyi.persistentsearchview.animations.BackgroundDimmingAnimation;
+import com.paulrybitskyi.persistentsearchview.engine.InteractionRecorder;
+import com.paulrybitskyi.persistentsearchview.engine.SearchController;
+import com.paulrybitskyi.persistentsearchview.engine.SearchController.State;
+import com.paulrybitskyi.persistentsearchview.engine.SuggestionSubmitter;
 import com.paulrybitskyi.persistentsearchview.listeners.AnimatorListenerAdapter;
 import com.paulrybitskyi.persistentsearchview.listeners.AnimatorListenerDecorator;
 import com.paulrybitskyi.persistentsearchview.listeners.OnSearchConfirmedListener;
 import com.paulrybitskyi.persistentsearchview.listeners.OnSearchQueryChangeListener;
+import com.paulrybitskyi.persistentsearchview.listeners.OnSpeculativeSearchListener;
 import com.paulrybitskyi.persistentsearchview.listeners.OnSuggestionChangeListener;
 import com.paulrybitskyi.persistentsearchview.listeners.QueryListener;
+import com.paulrybitskyi.persistentsearchview.listeners.SearchMetricsListener;
+import com.paulrybitskyi.persistentsearchview.model.SuggestionType;
+import com.paulrybitskyi.persistentsearchview.model.SuggestionTypeRegistry;
+import com.paulrybitskyi.persistentsearchview.providers.SuggestionSink;
+import com.paulrybitskyi.persistentsearchview.utils.AnimationFrameTracker;
 import com.paulrybitskyi.persistentsearchview.utils.AnimationType;
 import com.paulrybitskyi.persistentsearchview.utils.KeyboardManagingUtil;
 import com.paulrybitskyi.persistentsearchview.utils.Preconditions;
 import com.paulrybitskyi.persistentsearchview.utils.StateUtils;
+import com.paulrybitskyi.persistentsearchview.utils.SuggestionTextPrecomputer;
+import com.paulrybitskyi.persistentsearchview.utils.TraceSections;
 import com.paulrybitskyi.persistentsearchview.utils.Utils;
 import com.paulrybitskyi.persistentsearchview.utils.ViewUtils;
 import com.paulrybitskyi.persistentsearchview.utils.VoiceRecognitionDelegate;
 import com.paulrybitskyi.persistentsearchview.widgets.AdvancedEditText;
+import com.paulrybitskyi.persistentsearchview.widgets.DebugOverlayDrawable;
+import com.paulrybitskyi.persistentsearchview.widgets.QueryInputBarLayout;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -72,8 +92,10 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.cardview.widget.CardView;
 import androidx.core.content.ContextCompat;
+import androidx.core.widget.TextViewCompat;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import androidx.tracing.Trace;
 
 import static com.paulrybitskyi.persistentsearchview.utils.Utils.TOOLBAR_TITLE_TYPEFACE;
 import static com.paulrybitskyi.persistentsearchview.utils.Utils.adjustColorAlpha;
@@ -100,6 +122,10 @@ public class PersistentSearchView extends FrameLayout {
     private static final int BACKGROUND_ANIMATION_MIN_DURATION = 150;
     private static final int BACKGROUND_ANIMATION_MAX_DURATION = 250;
 
+    private static final int MAX_DIFFED_SUGGESTION_COUNT = 500;
+
+    private static final long DEFAULT_SPECULATIVE_SEARCH_DELAY = 500L;
+
     private static final float DEFAULT_DIM_AMOUNT = 0.5f;
 
     private static final Interpolator BUTTON_ANIMATION_INTERPOLATOR = new DecelerateInterpolator();
@@ -110,10 +136,13 @@ public class PersistentSearchView extends FrameLayout {
     private boolean isProgressBarEnabled;
     private boolean isVoiceInputButtonEnabled;
     private boolean isClearInputButtonEnabled;
-    private boolean areSuggestionsDisabled;
+    private boolean areSuggestionRowsFlattened;
     private boolean isSpeechRecognitionAvailable;
     private boolean shouldDimBehind;
     private boolean shouldNotifyAboutQueryChange;
+    private boolean isSuggestionsRenderTracked;
+    private boolean isQueryTraced;
+    private boolean shouldDiffSuggestions;
 
     private int queryInputHintColor;
     private int queryInputTextColor;
@@ -135,6 +164,13 @@ public class PersistentSearchView extends FrameLayout {
 
     private float dimAmount;
 
+    private long queryChangeTimeNanos;
+    private long suggestionsSetTimeNanos;
+    private long suggestionsRenderBoundItemCount;
+    private long speculativeSearchDelay;
+
+    private int queryTraceCookie;
+
     private Drawable leftButtonDrawable;
     private Drawable rightButtonDrawable;
     private Drawable clearInputButtonDrawable;
@@ -142,18 +178,34 @@ public class PersistentSearchView extends FrameLayout {
     private Drawable queryInputCursorDrawable;
 
     private String queryInputHint;
+    private String speculativeSearchQuery;
+    private String adapterItemsQuery;
 
     private Typeface queryTextTypeface;
     private Typeface suggestionTextTypeface;
 
-    private State state;
+    private SearchController<SuggestionItem> searchController;
 
-    private VoiceRecognitionDelegate voiceRecognitionDelegate;
+    private SuggestionSubmitter<SuggestionItem> suggestionSubmitter;
 
-    private List<SuggestionItem> suggestionItems;
+    private VoiceRecognitionDelegate voiceRecognitionDelegate;
 
     private SuggestionsRecyclerViewAdapter adapter;
 
+    private SuggestionTextPrecomputer suggestionTextPrecomputer;
+
+    private AnimationFrameTracker stateAnimationFrameTracker;
+
+    private DebugOverlayDrawable debugOverlayDrawable;
+
+    private InteractionRecorder interactionRecorder;
+
+    private StreamingSuggestionSink suggestionSink;
+
+    private SparseArray<TextView> suggestionTextTemplates;
+
+    private int templatedSuggestionTypeCount;
+
     private View dividerView;
     private ImageView leftBtnIv;
     private ImageView rightBtnIv;
@@ -162,12 +214,12 @@ public class PersistentSearchView extends FrameLayout {
     private ProgressBar progressBar;
     private AdvancedEditText inputEt;
     private CardView cardView;
-    private FrameLayout leftContainerFl;
-    private FrameLayout inputButtonsContainerFl;
-    private FrameLayout rightButtonContainerFl;
+    private QueryInputBarLayout inputBarLayout;
     private LinearLayout suggestionsContainerLL;
     private RecyclerView suggestionsRecyclerView;
 
+    private int suggestionsContainerTargetHeight;
+
     private ValueAnimator suggestionsContainerAnimator;
     private BackgroundDimmingAnimation backgroundEnterAnimation;
     private BackgroundDimmingAnimation backgroundExitAnimation;
@@ -175,20 +227,14 @@ public class PersistentSearchView extends FrameLayout {
     private OnSearchQueryChangeListener onSearchQueryChangeListener;
     private OnSuggestionChangeListener onSuggestionChangeListener;
     private OnSearchConfirmedListener onSearchConfirmedListener;
+    private SearchMetricsListener searchMetricsListener;
+    private OnSpeculativeSearchListener onSpeculativeSearchListener;
     private OnClickListener onLeftBtnClickListener;
     private OnClickListener onClearInputBtnClickListener;
 
     private Runnable exitAnimationEndAction;
 
 
-    private enum State {
-
-        EXPANDED,
-        COLLAPSED
-
-    }
-
-
     public PersistentSearchView(Context context) {
         super(context);
         init(null);
@@ -231,7 +277,10 @@ public class PersistentSearchView extends FrameLayout {
 
     private void initDefaults() {
         dimAmount = DEFAULT_DIM_AMOUNT;
-        suggestionItems = new ArrayList<>();
+        speculativeSearchDelay = DEFAULT_SPECULATIVE_SEARCH_DELAY;
+        searchController = new SearchController<>(mSearchRenderer, this::postOnAnimation);
+        suggestionSubmitter = new SuggestionSubmitter<>(mSuggestionSubmissionConsumer, this::postOnAnimation);
+        stateAnimationFrameTracker = new AnimationFrameTracker(mStateAnimationTrackerCallback);
 
         initDefaultColors();
         initDefaultDimensions();
@@ -315,7 +364,8 @@ public class PersistentSearchView extends FrameLayout {
         isVoiceInputButtonEnabled = true;
         isClearInputButtonEnabled = true;
         isDismissibleOnTouchOutside = true;
-        areSuggestionsDisabled = false;
+        searchController.setSuggestionsDisabled(false);
+        areSuggestionRowsFlattened = false;
         shouldDimBehind = true;
         shouldNotifyAboutQueryChange = true;
     }
@@ -343,7 +393,8 @@ public class PersistentSearchView extends FrameLayout {
         isProgressBarEnabled = attributes.getBoolean(R.styleable.PersistentSearchView_isProgressBarEnabled, isProgressBarEnabled);
         isVoiceInputButtonEnabled = attributes.getBoolean(R.styleable.PersistentSearchView_isVoiceInputButtonEnabled, isVoiceInputButtonEnabled);
         isClearInputButtonEnabled = attributes.getBoolean(R.styleable.PersistentSearchView_isClearInputButtonEnabled, isClearInputButtonEnabled);
-        areSuggestionsDisabled = attributes.getBoolean(R.styleable.PersistentSearchView_areSuggestionsDisabled, areSuggestionsDisabled);
+        searchController.setSuggestionsDisabled(attributes.getBoolean(R.styleable.PersistentSearchView_areSuggestionsDisabled, areSuggestionsDisabled()));
+        areSuggestionRowsFlattened = attributes.getBoolean(R.styleable.PersistentSearchView_areSuggestionRowsFlattened, areSuggestionRowsFlattened);
         shouldDimBehind = attributes.getBoolean(R.styleable.PersistentSearchView_shouldDimBehind, shouldDimBehind);
     }
 
@@ -416,6 +467,8 @@ public class PersistentSearchView extends FrameLayout {
 
 
     private void initQueryInputBar() {
+        inputBarLayout = findViewById(R.id.inputBarLayout);
+
         initQueryInputEditText();
         initQueryInputBarProgressBar();
         initQueryInputBarLeftButton();
@@ -445,8 +498,6 @@ public class PersistentSearchView extends FrameLayout {
 
 
     private void initQueryInputBarLeftButton() {
-        leftContainerFl = findViewById(R.id.leftContainerFl);
-
         leftBtnIv = findViewById(R.id.leftBtnIv);
         setLeftButtonDrawable(leftButtonDrawable);
         leftBtnIv.setOnClickListener(mOnLeftButtonClickListener);
@@ -454,8 +505,6 @@ public class PersistentSearchView extends FrameLayout {
 
 
     private void iniQueryInputBarButtonsContainers() {
-        inputButtonsContainerFl = findViewById(R.id.inputBtnsContainerFl);
-
         initQueryInputBarRightButton();
         initQueryInputBarClearInputButton();
         initQueryInputBarVoiceInputButton();
@@ -463,8 +512,6 @@ public class PersistentSearchView extends FrameLayout {
 
 
     private void initQueryInputBarRightButton() {
-        rightButtonContainerFl = findViewById(R.id.rightBtnContainerFl);
-
         rightBtnIv = findViewById(R.id.rightBtnIv);
         setRightButtonDrawable(rightButtonDrawable);
     }
@@ -507,9 +554,12 @@ public class PersistentSearchView extends FrameLayout {
 
 
     private void initSuggestionsAdapter() {
+        suggestionTextPrecomputer = new SuggestionTextPrecomputer();
+        suggestionTextTemplates = new SparseArray<>();
+
         adapter = new SuggestionsRecyclerViewAdapter(
             getContext(),
-            suggestionItems,
+            searchController.getSuggestions(),
             new SuggestionItemResources()
         );
         setRecentSearchIconColor(recentSearchIconColor);
@@ -518,6 +568,7 @@ public class PersistentSearchView extends FrameLayout {
         setSuggestionTextColor(suggestionTextColor);
         setSuggestionSelectedTextColor(suggestionSelectedTextColor);
         setSuggestionTextTypeface(suggestionTextTypeface);
+        adapter.setResources(getAdapterResources().setRowsFlattened(areSuggestionRowsFlattened));
         setAdapterQuery(getInputQuery());
         adapter.setOnItemClickListener(mOnSuggestionClickListener);
         adapter.setOnItemRemoveButtonClickListener(mOnRemoveButtonClickListener);
@@ -532,11 +583,7 @@ public class PersistentSearchView extends FrameLayout {
 
 
     private void updateLeftContainerVisibility() {
-        if(ViewUtils.isVisible(leftBtnIv) || isProgressBarEnabled) {
-            ViewUtils.makeVisible(leftContainerFl);
-        } else {
-            ViewUtils.makeGone(leftContainerFl);
-        }
+        inputBarLayout.setLeftSlotVisible(ViewUtils.isVisible(leftBtnIv) || isProgressBarEnabled);
     }
 
 
@@ -569,11 +616,7 @@ public class PersistentSearchView extends FrameLayout {
 
 
     private void updateInputButtonsContainerVisibility() {
-        if(isVoiceInputEnabled() || isClearInputButtonEnabled) {
-            ViewUtils.makeVisible(inputButtonsContainerFl);
-        } else {
-            ViewUtils.makeGone(inputButtonsContainerFl);
-        }
+        inputBarLayout.setInputButtonsSlotVisible(isVoiceInputEnabled() || isClearInputButtonEnabled);
     }
 
 
@@ -1016,7 +1059,8 @@ public class PersistentSearchView extends FrameLayout {
      * Shows the right button (i.e., change its visibility flags to {@link View#VISIBLE}.
      */
     public final void showRightButton() {
-        makeVisible(rightButtonContainerFl);
+        makeVisible(rightBtnIv);
+        inputBarLayout.setRightSlotVisible(true);
     }
 
 
@@ -1024,7 +1068,8 @@ public class PersistentSearchView extends FrameLayout {
      * Hides the right button (i.e., change its visibility flags to {@link View#GONE}.
      */
     public final void hideRightButton() {
-        makeGone(rightButtonContainerFl);
+        makeGone(rightBtnIv);
+        inputBarLayout.setRightSlotVisible(false);
     }
 
 
@@ -1300,19 +1345,28 @@ public class PersistentSearchView extends FrameLayout {
      * @param animate Whether to animate the expansion or not
      */
     public final void expand(boolean animate) {
-        if(isExpanded()) {
-            return;
+        Trace.beginSection(TraceSections.EXPAND);
+
+        try {
+            searchController.expand(animate);
+        } finally {
+            Trace.endSection();
         }
+    }
+
+
+    private void renderExpandedState(boolean animate) {
+        final State state = searchController.getState();
 
         setEnabled(true);
         setClickable(true);
-        setState(State.EXPANDED);
 
         inputEt.setEnabled(true);
         inputEt.setSelection(inputEt.length());
 
         showKeyboard();
         cancelExitAnimationEndActionEvent();
+        trackStateAnimation(animate, BACKGROUND_ANIMATION_MAX_DURATION);
         updateBackground(state, animate);
 
         if(!areSuggestionsDisabled()) {
@@ -1350,21 +1404,35 @@ public class PersistentSearchView extends FrameLayout {
      * @param animate Whether to animate the collapse or not
      */
     public final void collapse(boolean animate) {
-        if(!isExpanded() || (animate && isExitAnimationRunning())) {
-            return;
+        Trace.beginSection(TraceSections.COLLAPSE);
+
+        try {
+            if(animate && isExitAnimationRunning()) {
+                return;
+            }
+
+            searchController.collapse(animate);
+        } finally {
+            Trace.endSection();
         }
+    }
+
+
+    private void renderCollapsedState(boolean animate) {
+        final State state = searchController.getState();
 
         setEnabled(false);
         setClickable(false);
-        setState(State.COLLAPSED);
 
         inputEt.setEnabled(false);
 
         hideKeyboard();
         cancelExitAnimationEndActionEvent();
+        cancelSpeculativeSearch();
 
         final long duration = getSuggestionsContainerAnimationDuration(suggestionsContainerLL.getMeasuredHeight(), 0);
 
+        trackStateAnimation(animate, duration);
         updateBackgroundWithAnimation(state, duration);
 
         if(!areSuggestionsDisabled()) {
@@ -1385,6 +1453,18 @@ public class PersistentSearchView extends FrameLayout {
     }
 
 
+    private void trackStateAnimation(boolean animate, long durationMillis) {
+        if(!animate || !isMetricsTrackingEnabled()) {
+            stateAnimationFrameTracker.cancel();
+            return;
+        }
+
+        final Display display = getDisplay();
+
+        stateAnimationFrameTracker.start(durationMillis, ((display != null) ? display.getRefreshRate() : 0f));
+    }
+
+
     private void updateBackgroundWithAnimation(State state) {
         updateBackgroundWithAnimation(state, BACKGROUND_ANIMATION_MAX_DURATION);
     }
@@ -1466,6 +1546,8 @@ public class PersistentSearchView extends FrameLayout {
         cancelSuggestionsContainerAnimation();
         updateDividerVisibility();
 
+        suggestionsContainerTargetHeight = toHeight;
+
         if(animate && (fromHeight != toHeight)) {
             suggestionsContainerAnimator = ValueAnimator.ofInt(fromHeight, toHeight);
             suggestionsContainerAnimator.addUpdateListener(animation -> {
@@ -1493,6 +1575,35 @@ public class PersistentSearchView extends FrameLayout {
     }
 
 
+    private void extendSuggestionsContainerHeightWithAnimation(final State state, final int toHeight) {
+        final boolean isAnimationRunning = ((suggestionsContainerAnimator != null) && suggestionsContainerAnimator.isRunning());
+        final int currentHeight = (isAnimationRunning ? ((Integer) suggestionsContainerAnimator.getAnimatedValue()) : suggestionsContainerLL.getHeight());
+        final long duration = getSuggestionsContainerAnimationDuration(currentHeight, toHeight);
+        final int remainingHeight = (suggestionsContainerTargetHeight - currentHeight);
+
+        // Continuing the running growth (e.g., of the expansion or of the previous
+        // extension) instead of restarting it, the new animation starting from the
+        // current height with the current velocity, so that there is no visible jolt
+        if(!isAnimationRunning || (remainingHeight <= 0) || (toHeight < suggestionsContainerTargetHeight)) {
+            updateSuggestionsContainerHeightWithAnimation(state, currentHeight, toHeight, duration);
+            return;
+        }
+
+        final long remainingDuration = (suggestionsContainerAnimator.getDuration() - suggestionsContainerAnimator.getCurrentPlayTime());
+
+        // With the decelerate interpolator, the velocity is proportional to the remaining
+        // height divided by the remaining duration, hence the duration matching it
+        final long velocityMatchingDuration = (long) (remainingDuration * ((toHeight - currentHeight) * 1f / remainingHeight));
+
+        updateSuggestionsContainerHeightWithAnimation(
+            state,
+            currentHeight,
+            toHeight,
+            Math.max(remainingDuration, Math.min(velocityMatchingDuration, duration))
+        );
+    }
+
+
     private void cancelSuggestionsContainerAnimation() {
         if(suggestionsContainerAnimator != null) {
             suggestionsContainerAnimator.cancel();
@@ -1501,7 +1612,7 @@ public class PersistentSearchView extends FrameLayout {
 
 
     private void updateDividerVisibility() {
-        if(suggestionItems.isEmpty()) {
+        if(adapter.getItemCount() == 0) {
             makeGone(dividerView);
         } else {
             makeVisible(dividerView);
@@ -1524,6 +1635,10 @@ public class PersistentSearchView extends FrameLayout {
 
         cancelExitAnimationEndActionEvent();
         cancelAllAnimations();
+        cancelMetricsTracking();
+        cancelSpeculativeSearch();
+        cancelSuggestionSink();
+        endQueryTrace();
         recycleListeners();
     }
 
@@ -1535,22 +1650,30 @@ public class PersistentSearchView extends FrameLayout {
         onLeftBtnClickListener = null;
         onClearInputBtnClickListener = null;
         onSearchConfirmedListener = null;
+        searchMetricsListener = null;
+        onSpeculativeSearchListener = null;
     }
 
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        measureChildren(widthMeasureSpec, heightMeasureSpec);
+        Trace.beginSection(TraceSections.MEASURE);
 
-        final int[] measuredSize;
+        try {
+            measureChildren(widthMeasureSpec, heightMeasureSpec);
 
-        if(isExpanded() || isExitAnimationRunning()) {
-            measuredSize = Utils.getScreenSize(getContext());
-        } else {
-            measuredSize = calculateTheUsedSpace(widthMeasureSpec);
-        }
+            final int[] measuredSize;
+
+            if(isExpanded() || isExitAnimationRunning()) {
+                measuredSize = Utils.getScreenSize(getContext());
+            } else {
+                measuredSize = calculateTheUsedSpace(widthMeasureSpec);
+            }
 
-        setMeasuredDimension(measuredSize[0], measuredSize[1]);
+            setMeasuredDimension(measuredSize[0], measuredSize[1]);
+        } finally {
+            Trace.endSection();
+        }
     }
 
 
@@ -1562,13 +1685,14 @@ public class PersistentSearchView extends FrameLayout {
     }
 
 
-    private void setState(State state) {
-        this.state = state;
-    }
-
-
     private void setAdapterQuery(String query) {
-        adapter.setResources(getAdapterResources().setCurrentQuery(query));
+        Trace.beginSection(TraceSections.SET_ADAPTER_QUERY);
+
+        try {
+            adapter.setResources(getAdapterResources().setCurrentQuery(query));
+        } finally {
+            Trace.endSection();
+        }
     }
 
 
@@ -1578,7 +1702,8 @@ public class PersistentSearchView extends FrameLayout {
 
 
     /**
-     * Sets the suggestions items for this search view.
+     * Sets the suggestions items for this search view, expanding the search view
+     * if it's in a collapsed state (see {@link #setSuggestions(List, boolean)}).
      *
      * @param suggestions The suggestions to set
      */
@@ -1589,247 +1714,673 @@ public class PersistentSearchView extends FrameLayout {
 
     /**
      * Sets the suggestion items for this search view.
+     * <br>
+     * The suggestions are rendered right away (along with the pending change
+     * of the query, if any), hence the adapter reflects them as soon as this
+     * method returns. To coalesce a burst of the suggestions (e.g., the ones
+     * delivered by several sources within a single frame) into a single render,
+     * use {@link #submitSuggestions(List, long, boolean)} instead.
      *
      * @param suggestions The suggestions to set
      * @param expandIfNecessary Whether to expand the search view if it's in a collapsed state
      */
-    @SuppressWarnings("unchecked")
     public final void setSuggestions(@NonNull List<? extends SuggestionItem> suggestions, boolean expandIfNecessary) {
-        Preconditions.nonNull(suggestions);
+        // The suggestions replace the ones being streamed
+        cancelSuggestionSink();
+        setSuggestionsInternal(suggestions, expandIfNecessary);
 
-        if(isExpanded()) {
-            final int currentHeight = suggestionsContainerLL.getMeasuredHeight();
+        searchController.flushRender();
+    }
 
-            adapter.setItems(suggestionItems = (List<SuggestionItem>) suggestions);
 
-            remeasureSuggestionsContainer();
-            updateSuggestionsContainerHeightWithAnimation(
-                state,
-                currentHeight,
-                suggestionsContainerLL.getMeasuredHeight(),
-                getSuggestionsContainerAnimationDuration(currentHeight, suggestionsContainerLL.getMeasuredHeight())
-            );
-        } else {
-            adapter.setItems(suggestionItems = (List<SuggestionItem>) suggestions);
+    @SuppressWarnings("unchecked")
+    private void setSuggestionsInternal(List<? extends SuggestionItem> suggestions, boolean expandIfNecessary) {
+        Trace.beginSection(TraceSections.SET_SUGGESTIONS);
 
-            if(expandIfNecessary) {
-                expand();
+        try {
+            Preconditions.nonNull(suggestions);
+
+            if(isMetricsTrackingEnabled()) {
+                trackSuggestionsSet();
             }
-        }
-    }
 
+            recordInteraction(InteractionRecorder.EVENT_SUGGESTIONS_DELIVERED, suggestions.size());
 
-    private void remeasureSuggestionsContainer() {
-        suggestionsContainerLL.measure(
-            MeasureSpec.makeMeasureSpec(getMeasuredWidth(), MeasureSpec.EXACTLY),
-            MeasureSpec.makeMeasureSpec(getSuggestionsContainerMaxHeight(), MeasureSpec.AT_MOST)
-        );
+            shouldDiffSuggestions = false;
+            searchController.setSuggestions((List<SuggestionItem>) suggestions, expandIfNecessary);
+        } finally {
+            Trace.endSection();
+        }
     }
 
 
     /**
-     * Sets the color of the query input hint.
+     * Swaps the current suggestion items of this search view for the specified ones
+     * (see {@link #swapSuggestions(List, boolean)}), expanding the search view
+     * if it's in a collapsed state.
      *
-     * @param color The color to set
+     * @param suggestions The suggestions to swap the current ones for
      */
-    public final void setQueryInputHintColor(@ColorInt int color) {
-        queryInputHintColor = color;
-
-        inputEt.setHintTextColor(color);
+    public final void swapSuggestions(@NonNull List<? extends SuggestionItem> suggestions) {
+        swapSuggestions(suggestions, true);
     }
 
 
     /**
-     * Sets the color of the query input text.
+     * Swaps the current suggestion items of this search view for the specified ones
+     * (e.g., the fresh suggestions for the stale ones). Unlike {@link #setSuggestions(List, boolean)},
+     * dispatches only the differences between the current and the new suggestions to the
+     * suggestions' list, hence only the changed rows are rebound.
      *
-     * @param textColor The color to set
+     * @param suggestions The suggestions to swap the current ones for
+     * @param expandIfNecessary Whether to expand the search view if it's in a collapsed state
      */
-    public final void setQueryInputTextColor(@ColorInt int textColor) {
-        queryInputTextColor = textColor;
+    public final void swapSuggestions(@NonNull List<? extends SuggestionItem> suggestions, boolean expandIfNecessary) {
+        cancelSuggestionSink();
+        setSuggestionsInternal(suggestions, expandIfNecessary);
 
-        inputEt.setTextColor(textColor);
+        // Set after the suggestions, as setting them resets it
+        shouldDiffSuggestions = true;
+
+        searchController.flushRender();
     }
 
 
     /**
-     * Sets the gravity of the query input view.
+     * Inserts the suggestion items at the specified position of the current suggestions
+     * (e.g., when a slower source of the suggestions delivers its results). Unlike
+     * {@link #setSuggestions(List)}, does not rebind the already shown suggestions.
+     * The suggestions that are already present are skipped.
      *
-     * @param gravity The gravity to set
+     * @param position The position to insert the suggestions at
+     * @param suggestions The suggestions to insert
      */
-    public final void setQueryInputGravity(int gravity) {
-        inputEt.setGravity(gravity);
+    @SuppressWarnings("unchecked")
+    public final void addSuggestions(int position, @NonNull List<? extends SuggestionItem> suggestions) {
+        Preconditions.nonNull(suggestions);
+
+        recordInteraction(InteractionRecorder.EVENT_SUGGESTIONS_DELIVERED, suggestions.size());
+
+        searchController.insertSuggestions(position, (List<SuggestionItem>) suggestions);
     }
 
 
     /**
-     * Sets the color of the query input cursor.
+     * Opens a sink for the suggestions produced progressively, batch by batch, expanding
+     * the search view (if it's in a collapsed state) when the first batch is rendered.
      *
-     * @param color The color to set
+     * @return The opened sink
      */
-    public final void setQueryInputCursorColor(@ColorInt int color) {
-        setQueryInputCursorDrawable(queryInputCursorDrawable, color);
+    @NonNull
+    public final SuggestionSink openSuggestionSink() {
+        return openSuggestionSink(true);
     }
 
 
     /**
-     * Sets the cursor drawable and its color of the query input.
+     * Opens a sink for the suggestions produced progressively, batch by batch.
+     * The first batch replaces the current suggestions and the following ones
+     * are appended to them (see {@link #addSuggestions(int, List)}), the height
+     * of the suggestions container extending from its current height. The batches
+     * can be appended from any thread and the ones appended within a single frame
+     * are rendered at once.
+     * <br>
+     * The sink is cancelled when another sink is opened, when the suggestions
+     * are replaced in any other way (e.g., {@link #setSuggestions(List)}),
+     * when the query changes or when the search view is detached from
+     * the window, so the late batches of an old query never end up
+     * among the suggestions of a new one.
      *
-     * @param drawable The drawable to set
-     * @param color The color of the drawable
+     * @param expandIfNecessary Whether to expand the search view if it's in a collapsed state
+     *
+     * @return The opened sink
      */
-    public final void setQueryInputCursorDrawable(Drawable drawable, @ColorInt int color) {
-        queryInputCursorColor = color;
+    @NonNull
+    public final SuggestionSink openSuggestionSink(boolean expandIfNecessary) {
+        cancelSuggestionSink();
 
-        setQueryInputCursorDrawable(Utils.getColoredDrawable(drawable, color));
+        suggestionSink = new StreamingSuggestionSink(expandIfNecessary);
+
+        return suggestionSink;
     }
 
 
-    /**
-     * Sets the cursor drawable of the query input.
-     *
-     * @param drawable The drawable to set
-     */
-    public final void setQueryInputCursorDrawable(Drawable drawable) {
-        queryInputCursorDrawable = drawable;
-        
-        Utils.setCursorDrawable(inputEt, drawable);
+    private void cancelSuggestionSink() {
+        if(suggestionSink != null) {
+            suggestionSink.isCancelled = true;
+            suggestionSink = null;
+        }
     }
 
 
     /**
-     * Sets the color of the query input bar icons.
+     * Submits the suggestion items for this search view. Unlike {@link #setSuggestions(List)},
+     * can be called from any thread (see {@link #submitSuggestions(List, long, boolean)}).
      *
-     * @param color The color to set
+     * @param suggestions The suggestions to submit
+     * @param generation The generation of the suggestions (e.g., the sequence number of the query)
+     *
+     * @return true if the suggestions have been accepted; false if they have
+     * been dropped as older than the already submitted ones
      */
-    public final void setQueryInputBarIconColor(@ColorInt int color) {
-        inputBarIconColor = color;
-
-        setLeftButtonDrawable(Utils.getColoredDrawable(leftButtonDrawable, color));
-        setRightButtonDrawable(Utils.getColoredDrawable(rightButtonDrawable, color));
-        setClearInputButtonDrawable(Utils.getColoredDrawable(clearInputButtonDrawable, color));
-        setVoiceInputButtonDrawable(Utils.getColoredDrawable(voiceInputButtonDrawable, color));
+    public final boolean submitSuggestions(@NonNull List<? extends SuggestionItem> suggestions, long generation) {
+        return submitSuggestions(suggestions, generation, true);
     }
 
 
     /**
-     * Sets the color of the divider.
+     * Submits the suggestion items for this search view. Can be called from any thread.
+     * <br>
+     * The submitted suggestions are set on the main thread on the next frame and
+     * the submissions arriving within a single frame are coalesced: only the one
+     * with the highest generation (or the last one of the same generation) is set,
+     * hence a burst of submissions results in a single remeasure and a single height
+     * animation. The submissions older than the already set ones are dropped as well,
+     * so the suggestions of a superseded query never replace the ones of a more recent query.
      *
-     * @param color The color to set
+     * @param suggestions The suggestions to submit
+     * @param generation The generation of the suggestions (e.g., the sequence number of the query)
+     * @param expandIfNecessary Whether to expand the search view if it's in a collapsed state
+     *
+     * @return true if the suggestions have been accepted; false if they have
+     * been dropped as older than the already submitted ones
      */
-    public final void setDividerColor(@ColorInt int color) {
-        dividerColor = color;
+    @SuppressWarnings("unchecked")
+    public final boolean submitSuggestions(@NonNull List<? extends SuggestionItem> suggestions,
+                                           long generation,
+                                           boolean expandIfNecessary) {
+        Preconditions.nonNull(suggestions);
 
-        dividerView.setBackgroundColor(color);
+        return suggestionSubmitter.submit((List<SuggestionItem>) suggestions, generation, expandIfNecessary);
     }
 
 
-    /**
-     * Sets the color of the progress bar.
-     *
-     * @param color The color to set
-     */
-    public final void setProgressBarColor(@ColorInt int color) {
-        progressBarColor = color;
+    private void trackSuggestionsSet() {
+        final long currentTimeNanos = System.nanoTime();
 
-        Utils.setProgressBarColor(progressBar, color);
+        if(queryChangeTimeNanos != 0L) {
+            mSearchMetricsDispatcher.onQueryToSuggestionsLatency(currentTimeNanos - queryChangeTimeNanos);
+            queryChangeTimeNanos = 0L;
+        }
+
+        // Keeping the earliest one, as the suggestions set within
+        // a single frame are rendered at once
+        if(suggestionsSetTimeNanos == 0L) {
+            suggestionsSetTimeNanos = currentTimeNanos;
+        }
     }
 
 
-    /**
-     * Sets the color of the suggestion icon.
-     *
-     * @param color The color to set
-     */
-    public final void setSuggestionIconColor(@ColorInt int color) {
-        suggestionIconColor = color;
+    private void trackSuggestionsRender() {
+        if(!isMetricsTrackingEnabled() || (suggestionsSetTimeNanos == 0L) || isSuggestionsRenderTracked) {
+            return;
+        }
 
-        adapter.setResources(getAdapterResources().setIconColor(color));
+        isSuggestionsRenderTracked = true;
+        suggestionsRenderBoundItemCount = adapter.getBoundItemCount();
+
+        getViewTreeObserver().addOnPreDrawListener(mSuggestionsRenderPreDrawListener);
     }
 
 
-    /**
-     * Sets the color of the recent search icon.
-     *
-     * @param color The color to set
-     */
-    public final void setRecentSearchIconColor(@ColorInt int color) {
-        recentSearchIconColor = color;
+    private void recordInteraction(int eventType, int argument) {
+        if(interactionRecorder != null) {
+            interactionRecorder.record(eventType, argument);
+        }
+    }
 
-        adapter.setResources(getAdapterResources().setRecentSearchIconColor(color));
+
+    private boolean isMetricsTrackingEnabled() {
+        return ((searchMetricsListener != null) || (debugOverlayDrawable != null));
     }
 
 
-    /**
-     * Sets the color of the search suggestion icon.
-     *
-     * @param color The color to set
-     */
-    public final void setSearchSuggestionIconColor(@ColorInt int color) {
-        searchSuggestionIconColor = color;
+    private void cancelMetricsTracking() {
+        stateAnimationFrameTracker.cancel();
 
-        adapter.setResources(getAdapterResources().setSearchSuggestionIconColor(color));
+        if(isSuggestionsRenderTracked) {
+            getViewTreeObserver().removeOnPreDrawListener(mSuggestionsRenderPreDrawListener);
+            isSuggestionsRenderTracked = false;
+        }
+
+        queryChangeTimeNanos = 0L;
+        suggestionsSetTimeNanos = 0L;
     }
 
 
-    /**
-     * Sets the color of the suggestion text.
-     *
-     * @param color The color to set
-     */
-    public final void setSuggestionTextColor(@ColorInt int color) {
-        suggestionTextColor = color;
+    private void onQueryChangedForSpeculativeSearch(String query) {
+        removeCallbacks(mSpeculativeSearchIdleAction);
 
-        adapter.setResources(getAdapterResources().setTextColor(color));
-    }
+        // The user has typed past the speculated query
+        if((speculativeSearchQuery != null) && !speculativeSearchQuery.regionMatches(true, 0, query, 0, query.length())) {
+            cancelSpeculativeSearch();
+        }
 
+        if(!TextUtils.isEmpty(query)) {
+            postDelayed(mSpeculativeSearchIdleAction, speculativeSearchDelay);
+        }
+    }
 
-    /**
-     * Sets the color of the selected suggestion text.
-     *
-     * @param color The color to set
-     */
-    public final void setSuggestionSelectedTextColor(@ColorInt int color) {
-        suggestionSelectedTextColor = color;
 
-        adapter.setResources(getAdapterResources().setSelectedTextColor(color));
+    private void startSpeculativeSearchIfDominant(List<SuggestionItem> suggestions) {
+        // A single suggestion left for the entered query dominates
+        // the others, so there's no point in waiting for the idle input
+        if(isExpanded() && !isInputQueryEmpty() && (suggestions.size() == 1)) {
+            startSpeculativeSearch(suggestions.get(0).getItemModel().getText());
+        }
     }
 
 
-    /**
-     * Sets the color of the card background.
-     *
-     * @param color The color to set
-     */
-    public final void setCardBackgroundColor(@ColorInt int color) {
-        cardBackgroundColor = color;
+    private void startSpeculativeSearch(String query) {
+        if(query.equals(speculativeSearchQuery)) {
+            return;
+        }
 
-        cardView.setCardBackgroundColor(color);
+        cancelSpeculativeSearch();
+
+        speculativeSearchQuery = query;
+
+        if(onSpeculativeSearchListener != null) {
+            onSpeculativeSearchListener.onSpeculativeSearchStarted(this, query);
+        }
     }
 
 
-    /**
-     * Sets the color of the background dim.
-     *
-     * @param color The color to set
-     */
-    public final void setBackgroundDimColor(@ColorInt int color) {
-        backgroundDimColor = color;
+    private void resolveSpeculativeSearch(String committedQuery) {
+        if(committedQuery.equals(speculativeSearchQuery)) {
+            removeCallbacks(mSpeculativeSearchIdleAction);
+            speculativeSearchQuery = null;
 
-        backgroundEnterAnimation.setDimColor(color);
-        backgroundExitAnimation.setDimColor(color);
+            if(onSpeculativeSearchListener != null) {
+                onSpeculativeSearchListener.onSpeculativeSearchConfirmed(this, committedQuery);
+            }
+        } else {
+            cancelSpeculativeSearch();
+        }
     }
 
 
-    /**
-     * Sets the radius of the card corner.
-     *
-     * @param cornerRadius The corner radius to set
-     */
-    public final void setCardCornerRadius(int cornerRadius) {
-        cardCornerRadius = cornerRadius;
+    private void cancelSpeculativeSearch() {
+        removeCallbacks(mSpeculativeSearchIdleAction);
 
-        cardView.setRadius(cardCornerRadius);
-    }
+        if(speculativeSearchQuery == null) {
+            return;
+        }
+
+        final String query = speculativeSearchQuery;
+
+        speculativeSearchQuery = null;
+
+        if(onSpeculativeSearchListener != null) {
+            onSpeculativeSearchListener.onSpeculativeSearchCancelled(this, query);
+        }
+    }
+
+
+    private void renderSuggestions(List<SuggestionItem> suggestions) {
+        Trace.beginSection(TraceSections.RENDER_SUGGESTIONS);
+
+        try {
+            trackSuggestionsRender();
+            endQueryTrace();
+
+            if(isExpanded()) {
+                final int currentHeight = suggestionsContainerLL.getMeasuredHeight();
+
+                setAdapterItems(suggestions);
+
+                remeasureSuggestionsContainer();
+                updateSuggestionsContainerHeightWithAnimation(
+                    searchController.getState(),
+                    currentHeight,
+                    suggestionsContainerLL.getMeasuredHeight(),
+                    getSuggestionsContainerAnimationDuration(currentHeight, suggestionsContainerLL.getMeasuredHeight())
+                );
+            } else {
+                setAdapterItems(suggestions);
+            }
+
+            if(onSpeculativeSearchListener != null) {
+                startSpeculativeSearchIfDominant(suggestions);
+            }
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+
+    private void setAdapterItems(List<SuggestionItem> suggestions) {
+        final List<SuggestionItem> currentSuggestions = adapter.getItems();
+        final boolean shouldDiff = (
+            shouldDiffSuggestions &&
+            (currentSuggestions != suggestions) &&
+            (currentSuggestions.size() <= MAX_DIFFED_SUGGESTION_COUNT) &&
+            (suggestions.size() <= MAX_DIFFED_SUGGESTION_COUNT)
+        );
+
+        shouldDiffSuggestions = false;
+
+        // Diffing large lists on the main thread would cost more
+        // than rebinding the few rows that are actually visible
+        if(shouldDiff) {
+            final String currentQuery = getAdapterResources().getCurrentQuery();
+            final boolean isQueryChanged = !currentQuery.equals(adapterItemsQuery);
+
+            adapter.setItems(suggestions, new SuggestionsDiffCallback(currentSuggestions, suggestions, isQueryChanged));
+        } else {
+            adapter.setItems(suggestions);
+        }
+
+        // Changing the query does not rebind the rows, hence remembering
+        // the one the rows have been bound for to rebind them when diffing
+        adapterItemsQuery = getAdapterResources().getCurrentQuery();
+    }
+
+
+    private void beginQueryTrace() {
+        // A query superseded before its suggestions got rendered
+        // is ended right away, as it is never going to be rendered
+        endQueryTrace();
+
+        queryTraceCookie++;
+        isQueryTraced = true;
+
+        Trace.beginAsyncSection(TraceSections.QUERY_TO_SUGGESTIONS, queryTraceCookie);
+    }
+
+
+    private void endQueryTrace() {
+        if(!isQueryTraced) {
+            return;
+        }
+
+        isQueryTraced = false;
+
+        Trace.endAsyncSection(TraceSections.QUERY_TO_SUGGESTIONS, queryTraceCookie);
+    }
+
+
+    private void renderSuggestionsInsertion(int position, List<SuggestionItem> suggestions) {
+        adapter.addItems(position, suggestions);
+
+        if(isExpanded()) {
+            remeasureSuggestionsContainer();
+            extendSuggestionsContainerHeightWithAnimation(
+                searchController.getState(),
+                suggestionsContainerLL.getMeasuredHeight()
+            );
+        }
+
+        updateDebugOverlayAdapterStats();
+    }
+
+
+    private void renderSuggestionRemoval(SuggestionItem suggestion) {
+        final int currentHeight = suggestionsContainerLL.getMeasuredHeight();
+
+        adapter.deleteItem(suggestion);
+
+        remeasureSuggestionsContainer();
+        updateSuggestionsContainerHeightWithAnimation(
+            searchController.getState(),
+            currentHeight,
+            suggestionsContainerLL.getMeasuredHeight(),
+            getSuggestionsContainerAnimationDuration(
+                currentHeight,
+                suggestionsContainerLL.getMeasuredHeight()
+            )
+        );
+
+        updateDebugOverlayAdapterStats();
+    }
+
+
+    /**
+     * Gets the headless controller owning the state, the query and the suggestions
+     * of this search view, which this view renders. The changes of the query arriving
+     * within a single frame are coalesced into a single render (see {@link SearchController#getRenderCount()}),
+     * as are the submitted suggestions (see {@link #submitSuggestions(List, long, boolean)}).
+     *
+     * @return The controller of this search view
+     */
+    @NonNull
+    public final SearchController<SuggestionItem> getSearchController() {
+        return searchController;
+    }
+
+
+    /**
+     * Gets the precomputer of the suggestions' texts. The precomputer can be used
+     * from a background thread to measure the texts of the suggestions before
+     * passing them to {@link #setSuggestions(List)}, so that binding them
+     * does not have to measure the texts on the main thread.
+     *
+     * @return The precomputer of the suggestions' texts
+     */
+    @NonNull
+    public final SuggestionTextPrecomputer getSuggestionTextPrecomputer() {
+        // Picking up the types registered since the last update
+        if((Looper.myLooper() == Looper.getMainLooper()) &&
+            (SuggestionTypeRegistry.getTypeCount() != templatedSuggestionTypeCount)) {
+            updateSuggestionTextMetricsParams();
+        }
+
+        return suggestionTextPrecomputer;
+    }
+
+
+    private void remeasureSuggestionsContainer() {
+        suggestionsContainerLL.measure(
+            MeasureSpec.makeMeasureSpec(getMeasuredWidth(), MeasureSpec.EXACTLY),
+            MeasureSpec.makeMeasureSpec(getSuggestionsContainerMaxHeight(), MeasureSpec.AT_MOST)
+        );
+    }
+
+
+    /**
+     * Sets the color of the query input hint.
+     *
+     * @param color The color to set
+     */
+    public final void setQueryInputHintColor(@ColorInt int color) {
+        queryInputHintColor = color;
+
+        inputEt.setHintTextColor(color);
+    }
+
+
+    /**
+     * Sets the color of the query input text.
+     *
+     * @param textColor The color to set
+     */
+    public final void setQueryInputTextColor(@ColorInt int textColor) {
+        queryInputTextColor = textColor;
+
+        inputEt.setTextColor(textColor);
+    }
+
+
+    /**
+     * Sets the gravity of the query input view.
+     *
+     * @param gravity The gravity to set
+     */
+    public final void setQueryInputGravity(int gravity) {
+        inputEt.setGravity(gravity);
+    }
+
+
+    /**
+     * Sets the color of the query input cursor.
+     *
+     * @param color The color to set
+     */
+    public final void setQueryInputCursorColor(@ColorInt int color) {
+        setQueryInputCursorDrawable(queryInputCursorDrawable, color);
+    }
+
+
+    /**
+     * Sets the cursor drawable and its color of the query input.
+     *
+     * @param drawable The drawable to set
+     * @param color The color of the drawable
+     */
+    public final void setQueryInputCursorDrawable(Drawable drawable, @ColorInt int color) {
+        queryInputCursorColor = color;
+
+        setQueryInputCursorDrawable(Utils.getColoredDrawable(drawable, color));
+    }
+
+
+    /**
+     * Sets the cursor drawable of the query input.
+     *
+     * @param drawable The drawable to set
+     */
+    public final void setQueryInputCursorDrawable(Drawable drawable) {
+        queryInputCursorDrawable = drawable;
+        
+        Utils.setCursorDrawable(inputEt, drawable);
+    }
+
+
+    /**
+     * Sets the color of the query input bar icons.
+     *
+     * @param color The color to set
+     */
+    public final void setQueryInputBarIconColor(@ColorInt int color) {
+        inputBarIconColor = color;
+
+        setLeftButtonDrawable(Utils.getColoredDrawable(leftButtonDrawable, color));
+        setRightButtonDrawable(Utils.getColoredDrawable(rightButtonDrawable, color));
+        setClearInputButtonDrawable(Utils.getColoredDrawable(clearInputButtonDrawable, color));
+        setVoiceInputButtonDrawable(Utils.getColoredDrawable(voiceInputButtonDrawable, color));
+    }
+
+
+    /**
+     * Sets the color of the divider.
+     *
+     * @param color The color to set
+     */
+    public final void setDividerColor(@ColorInt int color) {
+        dividerColor = color;
+
+        dividerView.setBackgroundColor(color);
+    }
+
+
+    /**
+     * Sets the color of the progress bar.
+     *
+     * @param color The color to set
+     */
+    public final void setProgressBarColor(@ColorInt int color) {
+        progressBarColor = color;
+
+        Utils.setProgressBarColor(progressBar, color);
+    }
+
+
+    /**
+     * Sets the color of the suggestion icon.
+     *
+     * @param color The color to set
+     */
+    public final void setSuggestionIconColor(@ColorInt int color) {
+        suggestionIconColor = color;
+
+        adapter.setResources(getAdapterResources().setIconColor(color));
+    }
+
+
+    /**
+     * Sets the color of the recent search icon.
+     *
+     * @param color The color to set
+     */
+    public final void setRecentSearchIconColor(@ColorInt int color) {
+        recentSearchIconColor = color;
+
+        adapter.setResources(getAdapterResources().setRecentSearchIconColor(color));
+    }
+
+
+    /**
+     * Sets the color of the search suggestion icon.
+     *
+     * @param color The color to set
+     */
+    public final void setSearchSuggestionIconColor(@ColorInt int color) {
+        searchSuggestionIconColor = color;
+
+        adapter.setResources(getAdapterResources().setSearchSuggestionIconColor(color));
+    }
+
+
+    /**
+     * Sets the color of the suggestion text.
+     *
+     * @param color The color to set
+     */
+    public final void setSuggestionTextColor(@ColorInt int color) {
+        suggestionTextColor = color;
+
+        adapter.setResources(getAdapterResources().setTextColor(color));
+    }
+
+
+    /**
+     * Sets the color of the selected suggestion text.
+     *
+     * @param color The color to set
+     */
+    public final void setSuggestionSelectedTextColor(@ColorInt int color) {
+        suggestionSelectedTextColor = color;
+
+        adapter.setResources(getAdapterResources().setSelectedTextColor(color));
+        suggestionTextPrecomputer.setSelectedTextColor(color);
+    }
+
+
+    /**
+     * Sets the color of the card background.
+     *
+     * @param color The color to set
+     */
+    public final void setCardBackgroundColor(@ColorInt int color) {
+        cardBackgroundColor = color;
+
+        cardView.setCardBackgroundColor(color);
+    }
+
+
+    /**
+     * Sets the color of the background dim.
+     *
+     * @param color The color to set
+     */
+    public final void setBackgroundDimColor(@ColorInt int color) {
+        backgroundDimColor = color;
+
+        backgroundEnterAnimation.setDimColor(color);
+        backgroundExitAnimation.setDimColor(color);
+    }
+
+
+    /**
+     * Sets the radius of the card corner.
+     *
+     * @param cornerRadius The corner radius to set
+     */
+    public final void setCardCornerRadius(int cornerRadius) {
+        cardCornerRadius = cornerRadius;
+
+        cardView.setRadius(cardCornerRadius);
+    }
 
 
     /**
@@ -2031,6 +2582,38 @@ public class PersistentSearchView extends FrameLayout {
         suggestionTextTypeface = typeface;
 
         adapter.setResources(getAdapterResources().setTypeface(typeface));
+        updateSuggestionTextMetricsParams();
+    }
+
+
+    private void updateSuggestionTextMetricsParams() {
+        final List<SuggestionType> types = SuggestionTypeRegistry.getAll();
+
+        // Every type may come with its own layout, the text view
+        // of which the texts of its suggestions have to be measured with
+        for(SuggestionType type : types) {
+            final TextView templateTv = getSuggestionTextTemplate(type.getLayoutId());
+
+            if(templateTv != null) {
+                templateTv.setTypeface(suggestionTextTypeface);
+                suggestionTextPrecomputer.setTextMetricsParams(type.getLayoutId(), TextViewCompat.getTextMetricsParams(templateTv));
+            }
+        }
+
+        templatedSuggestionTypeCount = types.size();
+    }
+
+
+    private TextView getSuggestionTextTemplate(int layoutId) {
+        if(suggestionTextTemplates.indexOfKey(layoutId) < 0) {
+            final TextView templateTv = LayoutInflater.from(getContext())
+                .inflate(layoutId, suggestionsRecyclerView, false)
+                .findViewById(R.id.textTv);
+
+            suggestionTextTemplates.put(layoutId, templateTv);
+        }
+
+        return suggestionTextTemplates.get(layoutId);
     }
 
 
@@ -2054,6 +2637,46 @@ public class PersistentSearchView extends FrameLayout {
     }
 
 
+    /**
+     * Sets the listener to notify about the speculative searches, letting the app
+     * start loading the results before the search is confirmed (see {@link OnSpeculativeSearchListener}).
+     * The searches are speculated on only while the listener is set.
+     *
+     * @param onSpeculativeSearchListener The listener to set
+     */
+    public final void setOnSpeculativeSearchListener(OnSpeculativeSearchListener onSpeculativeSearchListener) {
+        // Not leaving the search started by the previous listener unresolved
+        if(this.onSpeculativeSearchListener != onSpeculativeSearchListener) {
+            cancelSpeculativeSearch();
+        }
+
+        this.onSpeculativeSearchListener = onSpeculativeSearchListener;
+    }
+
+
+    /**
+     * Sets the time the input has to stay unchanged for before a search
+     * is speculated on (see {@link #setOnSpeculativeSearchListener(OnSpeculativeSearchListener)}).
+     *
+     * @param speculativeSearchDelay The delay in milliseconds
+     */
+    public final void setSpeculativeSearchDelay(long speculativeSearchDelay) {
+        Preconditions.isTrue("The delay cannot be negative.", (speculativeSearchDelay >= 0L));
+
+        this.speculativeSearchDelay = speculativeSearchDelay;
+    }
+
+
+    /**
+     * Gets the time the input has to stay unchanged for before a search is speculated on.
+     *
+     * @return The delay in milliseconds
+     */
+    public final long getSpeculativeSearchDelay() {
+        return speculativeSearchDelay;
+    }
+
+
     /**
      * Sets the listener to invoke when a search query has been changed.
      *
@@ -2074,6 +2697,104 @@ public class PersistentSearchView extends FrameLayout {
     }
 
 
+    /**
+     * Sets the listener to report the performance metrics of this search view to
+     * (see {@link SearchMetricsListener}). The metrics are measured only while the listener is set.
+     *
+     * @param searchMetricsListener The listener to set
+     */
+    public final void setSearchMetricsListener(SearchMetricsListener searchMetricsListener) {
+        this.searchMetricsListener = searchMetricsListener;
+
+        if(!isMetricsTrackingEnabled()) {
+            cancelMetricsTracking();
+        }
+    }
+
+
+    /**
+     * Sets whether the debug overlay displaying the live performance metrics of this
+     * search view (the latest input to render latency, the amount of rows bound per update,
+     * the adapter size, the view holder pool hits and misses and the frame time of
+     * the expand/collapse animations) should be drawn on top of the card.
+     * Meant for the dogfood builds only.
+     *
+     * @param isEnabled Whether the debug overlay is enabled
+     */
+    public final void setDebugOverlayEnabled(boolean isEnabled) {
+        if(isDebugOverlayEnabled() == isEnabled) {
+            return;
+        }
+
+        if(isEnabled) {
+            debugOverlayDrawable = new DebugOverlayDrawable(getResources());
+            debugOverlayDrawable.setBounds(0, 0, cardView.getWidth(), cardView.getHeight());
+
+            cardView.getOverlay().add(debugOverlayDrawable);
+            cardView.addOnLayoutChangeListener(mCardLayoutChangeListener);
+
+            updateDebugOverlayAdapterStats();
+        } else {
+            cardView.removeOnLayoutChangeListener(mCardLayoutChangeListener);
+            cardView.getOverlay().remove(debugOverlayDrawable);
+
+            debugOverlayDrawable = null;
+
+            if(!isMetricsTrackingEnabled()) {
+                cancelMetricsTracking();
+            }
+        }
+    }
+
+
+    /**
+     * Sets the recorder to record the interactions with this search view to
+     * (keystrokes, dispatched queries, delivered suggestions, bound, picked and removed
+     * suggestions, expansions and collapses). The recorder can be dumped on demand,
+     * e.g. into a bug report, to reconstruct the latency distributions offline.
+     *
+     * @param interactionRecorder The recorder to set or null to stop recording
+     */
+    public final void setInteractionRecorder(@Nullable InteractionRecorder interactionRecorder) {
+        this.interactionRecorder = interactionRecorder;
+        adapter.setInteractionRecorder(interactionRecorder);
+    }
+
+
+    /**
+     * Gets the recorder the interactions with this search view are recorded to.
+     *
+     * @return The recorder or null if not set
+     */
+    @Nullable
+    public final InteractionRecorder getInteractionRecorder() {
+        return interactionRecorder;
+    }
+
+
+    /**
+     * Checks whether the debug overlay is enabled.
+     *
+     * @return true if enabled; false otherwise
+     */
+    public final boolean isDebugOverlayEnabled() {
+        return (debugOverlayDrawable != null);
+    }
+
+
+    private void updateDebugOverlayAdapterStats() {
+        if(debugOverlayDrawable == null) {
+            return;
+        }
+
+        debugOverlayDrawable.setAdapterStats(
+            adapter.getItemCount(),
+            adapter.getCreatedViewHolderCount(),
+            adapter.getBoundItemCount()
+        );
+    }
+
+
     /**
      * Sets the listener to invoke when a left button is clicked.
      *
@@ -2228,7 +2949,7 @@ public class PersistentSearchView extends FrameLayout {
      * @param areSuggestionsDisabled Whether it is possible to show suggestions or not
      */
     public final void setSuggestionsDisabled(boolean areSuggestionsDisabled) {
-        this.areSuggestionsDisabled = areSuggestionsDisabled;
+        searchController.setSuggestionsDisabled(areSuggestionsDisabled);
     }
 
 
@@ -2238,7 +2959,39 @@ public class PersistentSearchView extends FrameLayout {
      * @return true if possible; false otherwise
      */
     public final boolean areSuggestionsDisabled() {
-        return areSuggestionsDisabled;
+        return searchController.areSuggestionsDisabled();
+    }
+
+
+    /**
+     * Sets whether the suggestion rows should be rendered by a single custom-drawn
+     * view each (icon, text and remove button drawn directly) instead of an inflated
+     * layout, which reduces the amount of views that have to be measured and laid out.
+     *
+     * @param areSuggestionRowsFlattened Whether the suggestion rows are flattened
+     */
+    public final void setSuggestionRowsFlattened(boolean areSuggestionRowsFlattened) {
+        if(this.areSuggestionRowsFlattened == areSuggestionRowsFlattened) {
+            return;
+        }
+
+        this.areSuggestionRowsFlattened = areSuggestionRowsFlattened;
+
+        adapter.setResources(getAdapterResources().setRowsFlattened(areSuggestionRowsFlattened));
+
+        // Resetting the adapter to drop the view holders of the previous row kind
+        suggestionsRecyclerView.setAdapter(null);
+        suggestionsRecyclerView.setAdapter(adapter);
+    }
+
+
+    /**
+     * Checks whether the suggestion rows are rendered by a single custom-drawn view each.
+     *
+     * @return true if flattened; false otherwise
+     */
+    public final boolean areSuggestionRowsFlattened() {
+        return areSuggestionRowsFlattened;
     }
 
 
@@ -2263,7 +3016,7 @@ public class PersistentSearchView extends FrameLayout {
      * @return true if expanded; false otherwise
      */
     public final boolean isExpanded() {
-        return State.EXPANDED.equals(state);
+        return searchController.isExpanded();
     }
 
 
@@ -2377,12 +3130,37 @@ public class PersistentSearchView extends FrameLayout {
     };
 
 
+    private final Runnable mSpeculativeSearchIdleAction = () -> {
+        if(!isExpanded()) {
+            return;
+        }
+
+        final List<SuggestionItem> suggestions = adapter.getItems();
+
+        // Speculating on the top suggestion or, if there are none,
+        // on the query the IME's search action would confirm
+        if(!suggestions.isEmpty()) {
+            startSpeculativeSearch(suggestions.get(0).getItemModel().getText());
+        } else if(!isInputQueryEmpty()) {
+            startSpeculativeSearch(getInputQuery());
+        }
+    };
+
+
     private final TextView.OnEditorActionListener mInternalEditorActionListener = new TextView.OnEditorActionListener() {
 
         @Override
         public boolean onEditorAction(TextView view, int actionId, KeyEvent event) {
-            if((actionId == EditorInfo.IME_ACTION_SEARCH) && (onSearchConfirmedListener != null)) {
-                onSearchConfirmedListener.onSearchConfirmed(PersistentSearchView.this, getInputQuery());
+            if(actionId != EditorInfo.IME_ACTION_SEARCH) {
+                return true;
+            }
+
+            final String query = getInputQuery();
+
+            resolveSpeculativeSearch(query);
+
+            if(onSearchConfirmedListener != null) {
+                onSearchConfirmedListener.onSearchConfirmed(PersistentSearchView.this, query);
             }
 
             return true;
@@ -2395,11 +3173,26 @@ public class PersistentSearchView extends FrameLayout {
 
         @Override
         public void onQueryChanged(String oldQuery, String newQuery) {
-            setAdapterQuery(newQuery);
+            if(isMetricsTrackingEnabled()) {
+                queryChangeTimeNanos = System.nanoTime();
+            }
+
+            if(Trace.isEnabled()) {
+                beginQueryTrace();
+            }
+
+            recordInteraction(InteractionRecorder.EVENT_KEYSTROKE, newQuery.length());
+            cancelSuggestionSink();
+            searchController.setQuery(newQuery);
 
             if((onSearchQueryChangeListener != null) && shouldNotifyAboutQueryChange) {
+                recordInteraction(InteractionRecorder.EVENT_QUERY_DISPATCHED, newQuery.length());
                 onSearchQueryChangeListener.onSearchQueryChanged(PersistentSearchView.this, oldQuery, newQuery);
             }
+
+            if((onSpeculativeSearchListener != null) && shouldNotifyAboutQueryChange) {
+                onQueryChangedForSpeculativeSearch(newQuery);
+            }
         }
 
         @Override
@@ -2421,6 +3214,9 @@ public class PersistentSearchView extends FrameLayout {
 
         @Override
         public void onItemClicked(View view, SuggestionItem suggestion, int position) {
+            recordInteraction(InteractionRecorder.EVENT_SUGGESTION_PICKED, position);
+            resolveSpeculativeSearch(suggestion.getItemModel().getText());
+
             if(onSuggestionChangeListener != null) {
                 onSuggestionChangeListener.onSuggestionPicked(suggestion);
             }
@@ -2436,20 +3232,8 @@ public class PersistentSearchView extends FrameLayout {
 
         @Override
         public void onItemClicked(View view, SuggestionItem item, int position) {
-            final int currentHeight = suggestionsContainerLL.getMeasuredHeight();
-
-            adapter.deleteItem(item);
-
-            remeasureSuggestionsContainer();
-            updateSuggestionsContainerHeightWithAnimation(
-                state,
-                currentHeight,
-                suggestionsContainerLL.getMeasuredHeight(),
-                getSuggestionsContainerAnimationDuration(
-                    currentHeight,
-                    suggestionsContainerLL.getMeasuredHeight()
-                )
-            );
+            recordInteraction(InteractionRecorder.EVENT_SUGGESTION_REMOVED, position);
+            searchController.removeSuggestion(item);
 
             if(onSuggestionChangeListener != null) {
                 onSuggestionChangeListener.onSuggestionRemoved(item);
@@ -2459,11 +3243,133 @@ public class PersistentSearchView extends FrameLayout {
     };
 
 
+    private final SearchController.Renderer<SuggestionItem> mSearchRenderer = new SearchController.Renderer<SuggestionItem>() {
+
+        @Override
+        public void renderState(State state, boolean animate) {
+            if(State.EXPANDED.equals(state)) {
+                recordInteraction(InteractionRecorder.EVENT_EXPAND, (animate ? 1 : 0));
+                renderExpandedState(animate);
+            } else {
+                recordInteraction(InteractionRecorder.EVENT_COLLAPSE, (animate ? 1 : 0));
+                renderCollapsedState(animate);
+            }
+        }
+
+        @Override
+        public void renderQuery(String query) {
+            setAdapterQuery(query);
+        }
+
+        @Override
+        public void renderSuggestions(List<SuggestionItem> suggestions) {
+            PersistentSearchView.this.renderSuggestions(suggestions);
+        }
+
+        @Override
+        public void renderSuggestionsInsertion(int position, List<SuggestionItem> suggestions) {
+            PersistentSearchView.this.renderSuggestionsInsertion(position, suggestions);
+        }
+
+        @Override
+        public void renderSuggestionRemoval(SuggestionItem suggestion) {
+            PersistentSearchView.this.renderSuggestionRemoval(suggestion);
+        }
+
+    };
+
+
+    private final SuggestionSubmitter.Consumer<SuggestionItem> mSuggestionSubmissionConsumer = new SuggestionSubmitter.Consumer<SuggestionItem>() {
+
+        @Override
+        public void onSuggestionsSubmitted(List<SuggestionItem> suggestions, boolean expandIfNecessary) {
+            // Already running within the frame and rendering right away
+            setSuggestions(suggestions, expandIfNecessary);
+        }
+
+    };
+
+
+    private final ViewTreeObserver.OnPreDrawListener mSuggestionsRenderPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+
+        @Override
+        public boolean onPreDraw() {
+            getViewTreeObserver().removeOnPreDrawListener(this);
+            isSuggestionsRenderTracked = false;
+
+            if(isMetricsTrackingEnabled() && (suggestionsSetTimeNanos != 0L)) {
+                mSearchMetricsDispatcher.onSuggestionsRendered(
+                    (System.nanoTime() - suggestionsSetTimeNanos),
+                    (int) (adapter.getBoundItemCount() - suggestionsRenderBoundItemCount)
+                );
+            }
+
+            suggestionsSetTimeNanos = 0L;
+
+            return true;
+        }
+
+    };
+
+
+    private final AnimationFrameTracker.Callback mStateAnimationTrackerCallback = (durationNanos, frameCount, droppedFrameCount) -> {
+        if(isMetricsTrackingEnabled()) {
+            mSearchMetricsDispatcher.onStateAnimationMeasured(searchController.getState(), durationNanos, frameCount, droppedFrameCount);
+        }
+    };
+
+
+    private final SearchMetricsListener mSearchMetricsDispatcher = new SearchMetricsListener() {
+
+        @Override
+        public void onQueryToSuggestionsLatency(long latencyNanos) {
+            if(searchMetricsListener != null) {
+                searchMetricsListener.onQueryToSuggestionsLatency(latencyNanos);
+            }
+
+            if(debugOverlayDrawable != null) {
+                debugOverlayDrawable.onQueryToSuggestionsLatency(latencyNanos);
+            }
+        }
+
+        @Override
+        public void onSuggestionsRendered(long latencyNanos, int boundRowCount) {
+            if(searchMetricsListener != null) {
+                searchMetricsListener.onSuggestionsRendered(latencyNanos, boundRowCount);
+            }
+
+            if(debugOverlayDrawable != null) {
+                updateDebugOverlayAdapterStats();
+                debugOverlayDrawable.onSuggestionsRendered(latencyNanos, boundRowCount);
+            }
+        }
+
+        @Override
+        public void onStateAnimationMeasured(State state, long durationNanos, int frameCount, int droppedFrameCount) {
+            if(searchMetricsListener != null) {
+                searchMetricsListener.onStateAnimationMeasured(state, durationNanos, frameCount, droppedFrameCount);
+            }
+
+            if(debugOverlayDrawable != null) {
+                debugOverlayDrawable.onStateAnimationMeasured(state, durationNanos, frameCount, droppedFrameCount);
+            }
+        }
+
+    };
+
+
+    private final OnLayoutChangeListener mCardLayoutChangeListener = (view, left, top, right, bottom, oldLeft, oldTop, oldRight, oldBottom) -> {
+        if(debugOverlayDrawable != null) {
+            debugOverlayDrawable.setBounds(0, 0, (right - left), (bottom - top));
+        }
+    };
+
+
     private final RecyclerView.OnScrollListener mSuggestionsRecyclerViewScrollListener = new RecyclerView.OnScrollListener() {
 
         @Override
         public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
-            if((newState == RecyclerView.SCROLL_STATE_DRAGGING) && !suggestionItems.isEmpty()) {
+            if((newState == RecyclerView.SCROLL_STATE_DRAGGING) && (adapter.getItemCount() > 0)) {
                 hideKeyboard();
             }
         }
@@ -2473,75 +3379,188 @@ public class PersistentSearchView extends FrameLayout {
 
     @Override
     protected void onRestoreInstanceState(Parcelable state) {
-        super.onRestoreInstanceState(StateUtils.fetchParentState(state));
-
-        final SavedState savedState = (SavedState) state;
-
-        setQueryInputHintColor(savedState.queryInputHintColor);
-        setQueryInputTextColor(savedState.queryInputTextColor);
-        setQueryInputCursorColor(savedState.queryInputCursorColor);
-        setQueryInputBarIconColor(savedState.inputBarIconColor);
-        setDividerColor(savedState.dividerColor);
-        setProgressBarColor(savedState.progressBarColor);
-        setSuggestionIconColor(savedState.suggestionIconColor);
-        setRecentSearchIconColor(savedState.recentSearchIconColor);
-        setSearchSuggestionIconColor(savedState.searchSuggestionIconColor);
-        setSuggestionTextColor(savedState.suggestionTextColor);
-        setSuggestionSelectedTextColor(savedState.suggestionSelectedTextColor);
-        setCardBackgroundColor(savedState.cardBackgroundColor);
-        setBackgroundDimColor(savedState.backgroundDimColor);
-        setCardElevation(savedState.cardElevation);
-        setCardCornerRadius(savedState.cardCornerRadius);
-        setBackgroundDimAmount(savedState.dimAmount);
-        setInputQueryInternal(savedState.query, false);
-        setQueryInputHint(savedState.inputHint);
-        setDismissOnTouchOutside(savedState.isDismissibleOnTouchOutside);
-        setProgressBarEnabled(savedState.isProgressBarEnabled);
-        setVoiceInputButtonEnabled(savedState.isVoiceInputButtonEnabled);
-        setClearInputButtonEnabled(savedState.isClearInputButtonEnabled);
-        setSuggestionsDisabled(savedState.areSuggestionsDisabled);
-        setDimBackground(savedState.shouldDimBehind);
-
-        if(State.EXPANDED.equals(savedState.state)) {
-            expand(false);
-        } else {
-            collapse(false);
+        Trace.beginSection(TraceSections.RESTORE_STATE);
+
+        try {
+            super.onRestoreInstanceState(StateUtils.fetchParentState(state));
+
+            final SavedState savedState = (SavedState) state;
+
+            setQueryInputHintColor(savedState.queryInputHintColor);
+            setQueryInputTextColor(savedState.queryInputTextColor);
+            setQueryInputCursorColor(savedState.queryInputCursorColor);
+            setQueryInputBarIconColor(savedState.inputBarIconColor);
+            setDividerColor(savedState.dividerColor);
+            setProgressBarColor(savedState.progressBarColor);
+            setSuggestionIconColor(savedState.suggestionIconColor);
+            setRecentSearchIconColor(savedState.recentSearchIconColor);
+            setSearchSuggestionIconColor(savedState.searchSuggestionIconColor);
+            setSuggestionTextColor(savedState.suggestionTextColor);
+            setSuggestionSelectedTextColor(savedState.suggestionSelectedTextColor);
+            setCardBackgroundColor(savedState.cardBackgroundColor);
+            setBackgroundDimColor(savedState.backgroundDimColor);
+            setCardElevation(savedState.cardElevation);
+            setCardCornerRadius(savedState.cardCornerRadius);
+            setBackgroundDimAmount(savedState.dimAmount);
+            setInputQueryInternal(savedState.query, false);
+            setQueryInputHint(savedState.inputHint);
+            setDismissOnTouchOutside(savedState.isDismissibleOnTouchOutside);
+            setProgressBarEnabled(savedState.isProgressBarEnabled);
+            setVoiceInputButtonEnabled(savedState.isVoiceInputButtonEnabled);
+            setClearInputButtonEnabled(savedState.isClearInputButtonEnabled);
+            setSuggestionsDisabled(savedState.areSuggestionsDisabled);
+            setSuggestionRowsFlattened(savedState.areSuggestionRowsFlattened);
+            setDimBackground(savedState.shouldDimBehind);
+
+            if(State.EXPANDED.equals(savedState.state)) {
+                expand(false);
+            } else {
+                collapse(false);
+            }
+        } finally {
+            Trace.endSection();
         }
     }
 
 
     @Override
     protected Parcelable onSaveInstanceState() {
-        final Parcelable superState = super.onSaveInstanceState();
-        final SavedState savedState = new SavedState(superState);
-
-        savedState.queryInputHintColor = queryInputHintColor;
-        savedState.queryInputTextColor = queryInputTextColor;
-        savedState.queryInputCursorColor = queryInputCursorColor;
-        savedState.inputBarIconColor = inputBarIconColor;
-        savedState.dividerColor = dividerColor;
-        savedState.progressBarColor = progressBarColor;
-        savedState.suggestionIconColor = suggestionIconColor;
-        savedState.recentSearchIconColor = recentSearchIconColor;
-        savedState.searchSuggestionIconColor = searchSuggestionIconColor;
-        savedState.suggestionTextColor = suggestionTextColor;
-        savedState.suggestionSelectedTextColor = suggestionSelectedTextColor;
-        savedState.cardBackgroundColor = cardBackgroundColor;
-        savedState.backgroundDimColor = backgroundDimColor;
-        savedState.cardElevation = cardElevation;
-        savedState.cardCornerRadius = cardCornerRadius;
-        savedState.dimAmount = dimAmount;
-        savedState.query = getInputQuery();
-        savedState.inputHint = inputEt.getHint().toString();
-        savedState.state = state;
-        savedState.isDismissibleOnTouchOutside = isDismissibleOnTouchOutside;
-        savedState.isProgressBarEnabled = isProgressBarEnabled;
-        savedState.isVoiceInputButtonEnabled = isVoiceInputButtonEnabled;
-        savedState.isClearInputButtonEnabled = isClearInputButtonEnabled;
-        savedState.areSuggestionsDisabled = areSuggestionsDisabled;
-        savedState.shouldDimBehind = shouldDimBehind;
-
-        return savedState;
+        Trace.beginSection(TraceSections.SAVE_STATE);
+
+        try {
+            final Parcelable superState = super.onSaveInstanceState();
+            final SavedState savedState = new SavedState(superState);
+
+            savedState.queryInputHintColor = queryInputHintColor;
+            savedState.queryInputTextColor = queryInputTextColor;
+            savedState.queryInputCursorColor = queryInputCursorColor;
+            savedState.inputBarIconColor = inputBarIconColor;
+            savedState.dividerColor = dividerColor;
+            savedState.progressBarColor = progressBarColor;
+            savedState.suggestionIconColor = suggestionIconColor;
+            savedState.recentSearchIconColor = recentSearchIconColor;
+            savedState.searchSuggestionIconColor = searchSuggestionIconColor;
+            savedState.suggestionTextColor = suggestionTextColor;
+            savedState.suggestionSelectedTextColor = suggestionSelectedTextColor;
+            savedState.cardBackgroundColor = cardBackgroundColor;
+            savedState.backgroundDimColor = backgroundDimColor;
+            savedState.cardElevation = cardElevation;
+            savedState.cardCornerRadius = cardCornerRadius;
+            savedState.dimAmount = dimAmount;
+            savedState.query = getInputQuery();
+            savedState.inputHint = inputEt.getHint().toString();
+            savedState.state = searchController.getState();
+            savedState.isDismissibleOnTouchOutside = isDismissibleOnTouchOutside;
+            savedState.isProgressBarEnabled = isProgressBarEnabled;
+            savedState.isVoiceInputButtonEnabled = isVoiceInputButtonEnabled;
+            savedState.isClearInputButtonEnabled = isClearInputButtonEnabled;
+            savedState.areSuggestionsDisabled = areSuggestionsDisabled();
+            savedState.areSuggestionRowsFlattened = areSuggestionRowsFlattened;
+            savedState.shouldDimBehind = shouldDimBehind;
+
+            return savedState;
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+
+    private final class StreamingSuggestionSink implements SuggestionSink, Runnable {
+
+        private final boolean expandIfNecessary;
+
+        private volatile boolean isCancelled;
+
+        // Guarded by this
+        private boolean isCompleted;
+        private boolean isFlushScheduled;
+        private List<SuggestionItem> pendingSuggestions;
+
+        // Confined to the main thread
+        private boolean areSuggestionsSet;
+
+        private StreamingSuggestionSink(boolean expandIfNecessary) {
+            this.expandIfNecessary = expandIfNecessary;
+            this.pendingSuggestions = new ArrayList<>();
+        }
+
+        @Override
+        public void append(@NonNull List<? extends SuggestionItem> suggestions) {
+            Preconditions.nonNull(suggestions);
+
+            if(isCancelled) {
+                return;
+            }
+
+            synchronized(this) {
+                Preconditions.isTrue("The sink has already been completed.", !isCompleted);
+
+                pendingSuggestions.addAll(suggestions);
+                scheduleFlush();
+            }
+        }
+
+        @Override
+        public void complete() {
+            synchronized(this) {
+                if(isCompleted) {
+                    return;
+                }
+
+                isCompleted = true;
+                scheduleFlush();
+            }
+        }
+
+        private void scheduleFlush() {
+            if(!isFlushScheduled) {
+                isFlushScheduled = true;
+                postOnAnimation(this);
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return isCancelled;
+        }
+
+        @Override
+        public void run() {
+            final List<SuggestionItem> suggestions;
+            final boolean isCompleted;
+
+            synchronized(this) {
+                suggestions = pendingSuggestions;
+                isCompleted = this.isCompleted;
+                isFlushScheduled = false;
+                pendingSuggestions = new ArrayList<>();
+            }
+
+            if(isCancelled) {
+                return;
+            }
+
+            if(!areSuggestionsSet) {
+                if(suggestions.isEmpty() && !isCompleted) {
+                    return;
+                }
+
+                areSuggestionsSet = true;
+
+                setSuggestionsInternal(suggestions, expandIfNecessary);
+
+                // Already running within the frame, hence there is
+                // no point in deferring the render to the next one
+                searchController.flushRender();
+            } else if(!suggestions.isEmpty()) {
+                addSuggestions(searchController.getSuggestions().size(), suggestions);
+            }
+
+            if(isCompleted && (suggestionSink == this)) {
+                suggestionSink = null;
+            }
+        }
+
     }
 
 
@@ -2571,6 +3590,7 @@ public class PersistentSearchView extends FrameLayout {
         private static final String KEY_IS_VOICE_INPUT_BUTTON_ENABLED = "is_voice_input_button_enabled";
         private static final String KEY_IS_CLEAR_INPUT_BUTTON_ENABLED = "is_clear_input_button_enabled";
         private static final String KEY_ARE_SUGGESTIONS_DISABLED = "are_suggestions_disabled";
+        private static final String KEY_ARE_SUGGESTION_ROWS_FLATTENED = "are_suggestion_rows_flattened";
         private static final String KEY_SHOULD_DIM_BEHIND = "should_dim_behind";
 
         private int queryInputHintColor;
@@ -2602,6 +3622,7 @@ public class PersistentSearchView extends FrameLayout {
         private boolean isVoiceInputButtonEnabled;
         private boolean isClearInputButtonEnabled;
         private boolean areSuggestionsDisabled;
+        private boolean areSuggestionRowsFlattened;
         private boolean shouldDimBehind;
 
 
@@ -2638,6 +3659,7 @@ public class PersistentSearchView extends FrameLayout {
             this.isVoiceInputButtonEnabled = bundle.getBoolean(KEY_IS_VOICE_INPUT_BUTTON_ENABLED, true);
             this.isClearInputButtonEnabled = bundle.getBoolean(KEY_IS_CLEAR_INPUT_BUTTON_ENABLED, true);
             this.areSuggestionsDisabled = bundle.getBoolean(KEY_ARE_SUGGESTIONS_DISABLED, false);
+            this.areSuggestionRowsFlattened = bundle.getBoolean(KEY_ARE_SUGGESTION_ROWS_FLATTENED, false);
             this.shouldDimBehind = bundle.getBoolean(KEY_SHOULD_DIM_BEHIND, true);
         }
 
@@ -2671,6 +3693,7 @@ public class PersistentSearchView extends FrameLayout {
             bundle.putBoolean(KEY_IS_VOICE_INPUT_BUTTON_ENABLED, this.isVoiceInputButtonEnabled);
             bundle.putBoolean(KEY_IS_CLEAR_INPUT_BUTTON_ENABLED, this.isClearInputButtonEnabled);
             bundle.putBoolean(KEY_ARE_SUGGESTIONS_DISABLED, this.areSuggestionsDisabled);
+            bundle.putBoolean(KEY_ARE_SUGGESTION_ROWS_FLATTENED, this.areSuggestionRowsFlattened);
             bundle.putBoolean(KEY_SHOULD_DIM_BEHIND, this.shouldDimBehind);
 
             parcel.writeBundle(bundle);
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.adapters;
+
+import com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionItem;
+import com.paulrybitskyi.persistentsearchview.model.Suggestion;
+
+import java.util.Arrays;
+import java.util.List;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+/**
+ * A diff callback of the suggestions, identifying them by their track keys
+ * and comparing their contents by their ids, types, texts and highlight ranges.
+ * <br>
+ * As the text of a suggestion is highlighted according to the current query,
+ * the contents of all the suggestions are considered to have changed if
+ * the query has changed since the old suggestions were bound.
+ */
+public final class SuggestionsDiffCallback extends DiffUtil.Callback {
+
+
+    private final boolean isQueryChanged;
+
+    private final List<SuggestionItem> oldSuggestions;
+    private final List<SuggestionItem> newSuggestions;
+
+
+    public SuggestionsDiffCallback(List<SuggestionItem> oldSuggestions, List<SuggestionItem> newSuggestions) {
+        this(oldSuggestions, newSuggestions, false);
+    }
+
+
+    /**
+     * Creates a diff callback.
+     *
+     * @param oldSuggestions The currently bound suggestions
+     * @param newSuggestions The suggestions to replace them with
+     * @param isQueryChanged Whether the query has changed since the old suggestions were bound
+     */
+    public SuggestionsDiffCallback(List<SuggestionItem> oldSuggestions,
+                                   List<SuggestionItem> newSuggestions,
+                                   boolean isQueryChanged) {
+        this.oldSuggestions = oldSuggestions;
+        this.newSuggestions = newSuggestions;
+        this.isQueryChanged = isQueryChanged;
+    }
+
+
+    @Override
+    public int getOldListSize() {
+        return oldSuggestions.size();
+    }
+
+
+    @Override
+    public int getNewListSize() {
+        return newSuggestions.size();
+    }
+
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        return oldSuggestions.get(oldItemPosition).getTrackKey().equals(newSuggestions.get(newItemPosition).getTrackKey());
+    }
+
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        // The rows are highlighted for the previous query
+        if(isQueryChanged) {
+            return false;
+        }
+
+        final Suggestion oldSuggestion = oldSuggestions.get(oldItemPosition).getItemModel();
+        final Suggestion newSuggestion = newSuggestions.get(newItemPosition).getItemModel();
+
+        return ((oldSuggestion.getId() == newSuggestion.getId())
+            && (oldSuggestion.getTypeCode() == newSuggestion.getTypeCode())
+            && oldSuggestion.getText().equals(newSuggestion.getText())
+            && Arrays.equals(oldSuggestion.getHighlightRanges(), newSuggestion.getHighlightRanges()));
+    }
+
+
+}
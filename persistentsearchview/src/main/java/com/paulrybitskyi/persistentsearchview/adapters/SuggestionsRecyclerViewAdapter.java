@@ -17,17 +17,21 @@
 package com.paulrybitskyi.persistentsearchview.adapters;
 
 import android.content.Context;
+import android.view.ViewGroup;
 
 import com.arthurivanets.adapster.listeners.OnItemClickListener;
 import com.arthurivanets.adapster.markers.ItemResources;
 import com.arthurivanets.adapster.recyclerview.TrackableRecyclerViewAdapter;
+import com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionDataset;
 import com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionItem;
 import com.paulrybitskyi.persistentsearchview.adapters.resources.SuggestionItemResources;
+import com.paulrybitskyi.persistentsearchview.engine.InteractionRecorder;
 import com.paulrybitskyi.persistentsearchview.utils.Preconditions;
 
 import java.util.List;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 /**
  * A recycler view adapter implementation for suggestion items.
@@ -39,8 +43,13 @@ public class SuggestionsRecyclerViewAdapter extends TrackableRecyclerViewAdapter
 > {
 
 
+    private long boundItemCount;
+    private long createdViewHolderCount;
+
     private ItemResources resources;
 
+    private InteractionRecorder interactionRecorder;
+
     private OnItemClickListener<SuggestionItem> onItemClickListener;
     private OnItemClickListener<SuggestionItem> onItemRemoveButtonClickListener;
 
@@ -55,6 +64,26 @@ public class SuggestionsRecyclerViewAdapter extends TrackableRecyclerViewAdapter
     }
 
 
+    @Override
+    protected final SuggestionItem.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType, @NonNull SuggestionItem item) {
+        createdViewHolderCount++;
+
+        return super.onCreateViewHolder(parent, viewType, item);
+    }
+
+
+    @Override
+    public final void onBindViewHolder(@NonNull SuggestionItem.ViewHolder holder, int position) {
+        super.onBindViewHolder(holder, position);
+
+        boundItemCount++;
+
+        if(interactionRecorder != null) {
+            interactionRecorder.record(InteractionRecorder.EVENT_SUGGESTION_BOUND, position);
+        }
+    }
+
+
     @Override
     protected final void assignListeners(SuggestionItem.ViewHolder holder, int position, SuggestionItem item) {
         super.assignListeners(holder, position, item);
@@ -64,6 +93,36 @@ public class SuggestionsRecyclerViewAdapter extends TrackableRecyclerViewAdapter
     }
 
 
+    @Override
+    protected final boolean shouldTrackItems(@NonNull List<SuggestionItem> items) {
+        // The columnar dataset looks the items up by itself, tracking
+        // its items would materialize every single one of them
+        return !(items instanceof SuggestionDataset);
+    }
+
+
+    @Override
+    public final boolean contains(@NonNull SuggestionItem item) {
+        if(getItems() instanceof SuggestionDataset) {
+            return (indexOf(item) != -1);
+        }
+
+        return super.contains(item);
+    }
+
+
+    @Override
+    public final int indexOf(@NonNull SuggestionItem item) {
+        Preconditions.nonNull(item);
+
+        if(getItems() instanceof SuggestionDataset) {
+            return ((SuggestionDataset) getItems()).indexOfTrackKey(item.getTrackKey());
+        }
+
+        return super.indexOf(item);
+    }
+
+
     /**
      * Sets the listener to invoke when the item is clicked.
      *
@@ -84,6 +143,16 @@ public class SuggestionsRecyclerViewAdapter extends TrackableRecyclerViewAdapter
     }
 
 
+    /**
+     * Sets the recorder to record the bindings of the items to.
+     *
+     * @param interactionRecorder The recorder to set
+     */
+    public final void setInteractionRecorder(@Nullable InteractionRecorder interactionRecorder) {
+        this.interactionRecorder = interactionRecorder;
+    }
+
+
     /**
      * Sets the resources to be used by the adapter.
      *
@@ -97,6 +166,26 @@ public class SuggestionsRecyclerViewAdapter extends TrackableRecyclerViewAdapter
     }
 
 
+    /**
+     * Gets the total amount of the items bound by this adapter so far.
+     *
+     * @return The amount of the bound items
+     */
+    public final long getBoundItemCount() {
+        return boundItemCount;
+    }
+
+
+    /**
+     * Gets the total amount of the view holders created by this adapter so far.
+     *
+     * @return The amount of the created view holders
+     */
+    public final long getCreatedViewHolderCount() {
+        return createdViewHolderCount;
+    }
+
+
     @Override
     public final ItemResources getResources() {
         return resources;
@@ -0,0 +1,482 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.adapters.model;
+
+import com.paulrybitskyi.persistentsearchview.model.Suggestion;
+import com.paulrybitskyi.persistentsearchview.model.SuggestionTypeRegistry;
+import com.paulrybitskyi.persistentsearchview.utils.Preconditions;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A columnar (struct-of-arrays) list of suggestions that can be used
+ * instead of a regular list of {@link SuggestionItem} objects when
+ * setting large amounts of suggestions.
+ * <br>
+ * The ids, types and texts of the suggestions are stored in the primitive
+ * arrays and the {@link SuggestionItem} objects are materialized lazily,
+ * only for the positions that are actually requested (i.e., bound
+ * by the suggestions' recycler view).
+ * <br>
+ * Use the {@link Builder} class to create instances of this class.
+ */
+public final class SuggestionDataset extends AbstractList<SuggestionItem> implements RandomAccess {
+
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+
+    private int size;
+
+    private long[] ids;
+
+    private byte[] types;
+
+    private String[] texts;
+
+    private SuggestionItem[] items;
+
+    private Map<Long, Integer> positionsByTrackKey;
+
+
+    private SuggestionDataset(long[] ids, byte[] types, String[] texts, int size) {
+        this.ids = ids;
+        this.types = types;
+        this.texts = texts;
+        this.size = size;
+        this.items = new SuggestionItem[ids.length];
+    }
+
+
+    @Override
+    public SuggestionItem get(int index) {
+        checkIndex(index);
+
+        SuggestionItem item = items[index];
+
+        if(item == null) {
+            item = new SuggestionItem(
+                new Suggestion()
+                    .setId(ids[index])
+                    .setTypeCode(types[index])
+                    .setText(texts[index])
+            );
+            items[index] = item;
+        }
+
+        return item;
+    }
+
+
+    @Override
+    public SuggestionItem set(int index, SuggestionItem item) {
+        checkIndex(index);
+        Preconditions.nonNull(item);
+
+        final SuggestionItem oldItem = get(index);
+
+        write(index, item);
+        invalidatePositions();
+
+        return oldItem;
+    }
+
+
+    @Override
+    public void add(int index, SuggestionItem item) {
+        if((index < 0) || (index > size)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        Preconditions.nonNull(item);
+
+        ensureCapacity(size + 1);
+
+        final int shiftedCount = (size - index);
+
+        System.arraycopy(ids, index, ids, (index + 1), shiftedCount);
+        System.arraycopy(types, index, types, (index + 1), shiftedCount);
+        System.arraycopy(texts, index, texts, (index + 1), shiftedCount);
+        System.arraycopy(items, index, items, (index + 1), shiftedCount);
+
+        write(index, item);
+
+        size++;
+        modCount++;
+        invalidatePositions();
+    }
+
+
+    @Override
+    public boolean addAll(int index, Collection<? extends SuggestionItem> suggestions) {
+        if((index < 0) || (index > size)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+
+        Preconditions.nonNull(suggestions);
+
+        for(SuggestionItem suggestion : suggestions) {
+            Preconditions.nonNull(suggestion);
+        }
+
+        final int addedCount = suggestions.size();
+
+        if(addedCount == 0) {
+            return false;
+        }
+
+        ensureCapacity(size + addedCount);
+
+        // Shifting the tail once for the whole range
+        final int shiftedCount = (size - index);
+
+        System.arraycopy(ids, index, ids, (index + addedCount), shiftedCount);
+        System.arraycopy(types, index, types, (index + addedCount), shiftedCount);
+        System.arraycopy(texts, index, texts, (index + addedCount), shiftedCount);
+        System.arraycopy(items, index, items, (index + addedCount), shiftedCount);
+
+        int position = index;
+
+        for(SuggestionItem suggestion : suggestions) {
+            write(position++, suggestion);
+        }
+
+        size += addedCount;
+        modCount++;
+        invalidatePositions();
+
+        return true;
+    }
+
+
+    @Override
+    public SuggestionItem remove(int index) {
+        checkIndex(index);
+
+        final SuggestionItem removedItem = get(index);
+        final int shiftedCount = (size - index - 1);
+
+        System.arraycopy(ids, (index + 1), ids, index, shiftedCount);
+        System.arraycopy(types, (index + 1), types, index, shiftedCount);
+        System.arraycopy(texts, (index + 1), texts, index, shiftedCount);
+        System.arraycopy(items, (index + 1), items, index, shiftedCount);
+
+        size--;
+        texts[size] = null;
+        items[size] = null;
+        modCount++;
+        invalidatePositions();
+
+        return removedItem;
+    }
+
+
+    @Override
+    public void clear() {
+        Arrays.fill(texts, 0, size, null);
+        Arrays.fill(items, 0, size, null);
+
+        size = 0;
+        modCount++;
+        invalidatePositions();
+    }
+
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Gets the id of the suggestion at the specified position
+     * without materializing the suggestion.
+     *
+     * @param index The position of the suggestion
+     *
+     * @return The suggestion's id
+     */
+    public long getId(int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+
+    /**
+     * Gets the type of the suggestion at the specified position
+     * without materializing the suggestion.
+     *
+     * @param index The position of the suggestion
+     *
+     * @return The suggestion's type
+     */
+    public String getType(int index) {
+        checkIndex(index);
+        return SuggestionTypeRegistry.get(types[index]).getName();
+    }
+
+
+    /**
+     * Gets the type code of the suggestion at the specified position
+     * without materializing the suggestion.
+     *
+     * @param index The position of the suggestion
+     *
+     * @return The suggestion's type code
+     */
+    public int getTypeCode(int index) {
+        checkIndex(index);
+        return types[index];
+    }
+
+
+    /**
+     * Gets the text of the suggestion at the specified position
+     * without materializing the suggestion.
+     *
+     * @param index The position of the suggestion
+     *
+     * @return The suggestion's text
+     */
+    public String getText(int index) {
+        checkIndex(index);
+        return texts[index];
+    }
+
+
+    /**
+     * Gets the track key of the suggestion at the specified position
+     * without materializing the suggestion (see {@link SuggestionItem#getTrackKey()}).
+     *
+     * @param index The position of the suggestion
+     *
+     * @return The suggestion's track key
+     */
+    public long getTrackKey(int index) {
+        checkIndex(index);
+        return computeTrackKey(index);
+    }
+
+
+    /**
+     * Finds the position of the suggestion with the specified track key
+     * without materializing any of the suggestions.
+     * <br>
+     * The positions of the track keys are indexed on the first lookup following
+     * a modification of the dataset, so that a batch of lookups (e.g., checking
+     * a range of suggestions for the duplicates) costs a single pass over the
+     * dataset instead of a pass per lookup.
+     *
+     * @param trackKey The track key to look for
+     *
+     * @return The position of the first suggestion with the key or -1 if not found
+     */
+    public int indexOfTrackKey(long trackKey) {
+        if(positionsByTrackKey == null) {
+            positionsByTrackKey = indexPositions();
+        }
+
+        final Integer position = positionsByTrackKey.get(trackKey);
+
+        return ((position != null) ? position : -1);
+    }
+
+
+    private Map<Long, Integer> indexPositions() {
+        final Map<Long, Integer> positions = new HashMap<>((size * 4 / 3) + 1);
+
+        // Iterating backwards, so that the first position of a key wins
+        for(int i = (size - 1); i >= 0; i--) {
+            positions.put(computeTrackKey(i), i);
+        }
+
+        return positions;
+    }
+
+
+    private void invalidatePositions() {
+        positionsByTrackKey = null;
+    }
+
+
+    private long computeTrackKey(int index) {
+        final long id = ids[index];
+        return ((id > 0) ? id : ((long) texts[index].hashCode()));
+    }
+
+
+    private void write(int index, SuggestionItem item) {
+        final Suggestion suggestion = item.getItemModel();
+
+        ids[index] = suggestion.getId();
+        types[index] = (byte) suggestion.getTypeCode();
+        texts[index] = suggestion.getText();
+        items[index] = item;
+    }
+
+
+    private void ensureCapacity(int minCapacity) {
+        if(minCapacity <= ids.length) {
+            return;
+        }
+
+        final int newCapacity = Math.max(minCapacity, (ids.length + (ids.length >> 1)));
+
+        ids = Arrays.copyOf(ids, newCapacity);
+        types = Arrays.copyOf(types, newCapacity);
+        texts = Arrays.copyOf(texts, newCapacity);
+        items = Arrays.copyOf(items, newCapacity);
+    }
+
+
+    private void checkIndex(int index) {
+        if((index < 0) || (index >= size)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+
+    /**
+     * A builder used for creating instances of the {@link SuggestionDataset} class.
+     */
+    public static final class Builder {
+
+        private int size;
+
+        private long[] ids;
+
+        private byte[] types;
+
+        private String[] texts;
+
+        public Builder() {
+            this(DEFAULT_CAPACITY);
+        }
+
+        /**
+         * Creates a builder with the specified initial capacity.
+         *
+         * @param capacity The expected amount of suggestions
+         */
+        public Builder(int capacity) {
+            Preconditions.isTrue("The capacity cannot be negative.", (capacity >= 0));
+
+            ids = new long[capacity];
+            types = new byte[capacity];
+            texts = new String[capacity];
+        }
+
+        /**
+         * Adds a suggestion without an id.
+         *
+         * @param type The suggestion's type (see {@link Suggestion#TYPE_RECENT_SEARCH_SUGGESTION}
+         * and {@link Suggestion#TYPE_REGULAR_SEARCH_SUGGESTION})
+         * @param text The suggestion's text
+         *
+         * @return this
+         */
+        public Builder add(@NonNull String type, @NonNull String text) {
+            return add(-1L, type, text);
+        }
+
+        /**
+         * Adds a suggestion.
+         *
+         * @param id The suggestion's id
+         * @param type The suggestion's type (see {@link Suggestion#TYPE_RECENT_SEARCH_SUGGESTION}
+         * and {@link Suggestion#TYPE_REGULAR_SEARCH_SUGGESTION})
+         * @param text The suggestion's text
+         *
+         * @return this
+         */
+        public Builder add(long id, @NonNull String type, @NonNull String text) {
+            Preconditions.nonEmpty(type);
+
+            return add(id, SuggestionTypeRegistry.get(type).getCode(), text);
+        }
+
+        /**
+         * Adds a suggestion.
+         *
+         * @param id The suggestion's id
+         * @param typeCode The suggestion's type code (see {@link Suggestion#TYPE_CODE_RECENT_SEARCH_SUGGESTION}
+         * and {@link Suggestion#TYPE_CODE_REGULAR_SEARCH_SUGGESTION})
+         * @param text The suggestion's text
+         *
+         * @return this
+         */
+        public Builder add(long id, int typeCode, @NonNull String text) {
+            Preconditions.nonEmpty(text);
+
+            // Making sure the type is registered
+            SuggestionTypeRegistry.get(typeCode);
+
+            if(size == ids.length) {
+                final int newCapacity = Math.max(DEFAULT_CAPACITY, (size + (size >> 1)));
+
+                ids = Arrays.copyOf(ids, newCapacity);
+                types = Arrays.copyOf(types, newCapacity);
+                texts = Arrays.copyOf(texts, newCapacity);
+            }
+
+            ids[size] = id;
+            types[size] = (byte) typeCode;
+            texts[size] = text;
+            size++;
+
+            return this;
+        }
+
+        /**
+         * Adds suggestions of the specified type without ids.
+         *
+         * @param type The suggestions' type
+         * @param texts The suggestions' texts
+         *
+         * @return this
+         */
+        public Builder addAll(@NonNull String type, @NonNull List<String> texts) {
+            Preconditions.nonNull(texts);
+
+            for(String text : texts) {
+                add(type, text);
+            }
+
+            return this;
+        }
+
+        /**
+         * Creates the dataset. The builder should not be used afterwards.
+         *
+         * @return The created dataset
+         */
+        public SuggestionDataset build() {
+            return new SuggestionDataset(ids, types, texts, size);
+        }
+
+    }
+
+
+}
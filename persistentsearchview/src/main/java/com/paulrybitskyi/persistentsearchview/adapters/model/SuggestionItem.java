@@ -16,10 +16,8 @@
 
 package com.paulrybitskyi.persistentsearchview.adapters.model;
 
-import android.text.Spannable;
-import android.text.SpannableString;
-import android.text.TextUtils;
-import android.text.style.ForegroundColorSpan;
+import android.content.Context;
+import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -34,14 +32,19 @@ import com.arthurivanets.adapster.model.markers.Trackable;
 import com.paulrybitskyi.persistentsearchview.R;
 import com.paulrybitskyi.persistentsearchview.adapters.resources.SuggestionItemResources;
 import com.paulrybitskyi.persistentsearchview.model.Suggestion;
+import com.paulrybitskyi.persistentsearchview.model.SuggestionType;
 import com.paulrybitskyi.persistentsearchview.utils.Preconditions;
+import com.paulrybitskyi.persistentsearchview.utils.SuggestionTextHighlighter;
+import com.paulrybitskyi.persistentsearchview.utils.TraceSections;
 import com.paulrybitskyi.persistentsearchview.utils.Utils;
+import com.paulrybitskyi.persistentsearchview.widgets.SuggestionRowView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-
-import static com.paulrybitskyi.persistentsearchview.utils.ViewUtils.makeGone;
-import static com.paulrybitskyi.persistentsearchview.utils.ViewUtils.makeVisible;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.tracing.Trace;
 
 /**
  * A recycler view item for a suggestion.
@@ -54,10 +57,18 @@ public class SuggestionItem extends BaseItem<
 
 
     /**
-     * A constant holding a layout resource ID for the suggestion item.
+     * A constant holding a layout resource ID for the (removable) suggestion item.
      */
     public static final int MAIN_LAYOUT_ID = R.layout.view_persistent_search_suggestion_item;
 
+    /**
+     * A constant holding a layout resource ID for the regular (non-removable) suggestion item.
+     */
+    public static final int REGULAR_LAYOUT_ID = R.layout.view_persistent_search_regular_suggestion_item;
+
+
+    private transient volatile PrecomputedTextHolder precomputedTextHolder;
+
 
     /**
      * Creates a suggestion item with the specified text.
@@ -103,7 +114,17 @@ public class SuggestionItem extends BaseItem<
         LayoutInflater inflater,
         SuggestionItemResources resources
     ) {
-        return new ViewHolder(inflater.inflate(MAIN_LAYOUT_ID, parent, false));
+        if((resources != null) && resources.areRowsFlattened()) {
+            final SuggestionRowView rowView = new SuggestionRowView(parent.getContext());
+            rowView.setLayoutParams(new RecyclerView.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT
+            ));
+
+            return new ViewHolder(rowView);
+        }
+
+        return new ViewHolder(inflater.inflate(getLayout(), parent, false));
     }
 
 
@@ -113,14 +134,58 @@ public class SuggestionItem extends BaseItem<
         @NonNull ViewHolder viewHolder,
         @Nullable SuggestionItemResources resources
     ) {
-        super.bind(adapter, viewHolder, resources);
+        Trace.beginSection(TraceSections.BIND_SUGGESTION);
 
-        final Suggestion suggestion = getItemModel();
-        final boolean isRecentSearchSuggestion = Suggestion.TYPE_RECENT_SEARCH_SUGGESTION.equals(suggestion.getType());
+        try {
+            super.bind(adapter, viewHolder, resources);
+
+            final SuggestionType type = getItemModel().getSuggestionType();
+
+            if(viewHolder.isFlattened()) {
+                bindRow(type, viewHolder, resources);
+                return;
+            }
+
+            bindText(viewHolder, resources);
+            bindIcon(type, viewHolder, resources);
+            bindButton(type, viewHolder, resources);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+
+    private void bindRow(
+        SuggestionType type,
+        ViewHolder viewHolder,
+        SuggestionItemResources resources
+    ) {
+        final SuggestionRowView rowView = viewHolder.rowView;
+
+        rowView.setTextColor(resources.getTextColor());
+        rowView.setTypeface(resources.getTypeface());
+        rowView.setText(getPrecomputedTextOrCreate(resources));
+
+        if(viewHolder.iconCache.update(type.getIconResId(), getIconColor(type, resources))) {
+            rowView.setIconDrawable(viewHolder.iconCache.createDrawable(rowView.getContext()));
+        }
+
+        if(type.isRemovable() && viewHolder.removeButtonIconCache.update(R.drawable.ic_close_black_24dp, resources.getIconColor())) {
+            rowView.setRemoveButtonDrawable(viewHolder.removeButtonIconCache.createDrawable(rowView.getContext()));
+        }
 
-        bindText(viewHolder, resources);
-        bindIcon(isRecentSearchSuggestion, viewHolder, resources);
-        bindButton(isRecentSearchSuggestion, viewHolder, resources);
+        // The view type of a flattened row is bound to its suggestion type as well,
+        // so the flag never actually flips for a recycled row
+        rowView.setRemoveButtonVisible(type.isRemovable());
+    }
+
+
+    private int getIconColor(SuggestionType type, SuggestionItemResources resources) {
+        if(type.getCode() == Suggestion.TYPE_CODE_RECENT_SEARCH_SUGGESTION) {
+            return resources.getRecentSearchIconColor();
+        } else {
+            return resources.getSearchSuggestionIconColor();
+        }
     }
 
 
@@ -129,66 +194,104 @@ public class SuggestionItem extends BaseItem<
         SuggestionItemResources resources
     ) {
         viewHolder.textTv.setTextColor(resources.getTextColor());
+        viewHolder.textTv.setTypeface(resources.getTypeface());
         handleText(viewHolder, resources);
     }
 
 
     private void bindIcon(
-        boolean isRecentSearchSuggestion,
+        SuggestionType type,
         ViewHolder viewHolder,
         SuggestionItemResources resources
     ) {
-        viewHolder.iconIv.setImageDrawable(
-            Utils.getColoredDrawable(
-                viewHolder.iconIv.getContext(),
-                (isRecentSearchSuggestion ? R.drawable.ic_history_black_24dp : R.drawable.ic_magnify_black_24dp),
-                (isRecentSearchSuggestion ? resources.getRecentSearchIconColor() : resources.getSearchSuggestionIconColor())
-            )
-        );
+        if(viewHolder.iconCache.update(type.getIconResId(), getIconColor(type, resources))) {
+            viewHolder.iconIv.setImageDrawable(viewHolder.iconCache.createDrawable(viewHolder.iconIv.getContext()));
+        }
     }
 
 
     private void handleText(ViewHolder viewHolder, SuggestionItemResources resources) {
-        final Suggestion suggestion = getItemModel();
-        final String text = suggestion.getText();
-        final int startIndex = suggestion.getText().toLowerCase().indexOf(resources.getCurrentQuery().toLowerCase());
-        final int endIndex = Math.min(resources.getCurrentQuery().length(), text.length());
-        final boolean isCurrentQueryValid = !TextUtils.isEmpty(resources.getCurrentQuery());
-        final boolean isStartIndexValid = (startIndex != -1);
-        final boolean isEndIndexValid = (startIndex <= endIndex);
-
-        if(isCurrentQueryValid && isStartIndexValid && isEndIndexValid) {
-            final SpannableString spannableString = new SpannableString(text);
-            spannableString.setSpan(
-                new ForegroundColorSpan(resources.getSelectedTextColor()),
-                startIndex,
-                endIndex,
-                Spannable.SPAN_EXCLUSIVE_EXCLUSIVE
-            );
+        final PrecomputedTextCompat precomputedText = getPrecomputedText(resources);
+
+        if(precomputedText != null) {
+            try {
+                TextViewCompat.setPrecomputedText(viewHolder.textTv, precomputedText);
+                return;
+            } catch(IllegalArgumentException exception) {
+                // The text was precomputed with the parameters that differ
+                // from the text view's ones, falling back to the regular text
+                precomputedTextHolder = null;
+            }
+        }
 
-            viewHolder.textTv.setText(spannableString);
-        } else {
-            viewHolder.textTv.setText(text);
+        viewHolder.textTv.setText(createText(resources));
+    }
+
+
+    private CharSequence getPrecomputedTextOrCreate(SuggestionItemResources resources) {
+        final PrecomputedTextCompat precomputedText = getPrecomputedText(resources);
+        return ((precomputedText != null) ? precomputedText : createText(resources));
+    }
+
+
+    @Nullable
+    private PrecomputedTextCompat getPrecomputedText(SuggestionItemResources resources) {
+        final PrecomputedTextHolder holder = precomputedTextHolder;
+
+        if((holder == null) || !holder.isValidFor(resources)) {
+            return null;
         }
+
+        return holder.text;
+    }
+
+
+    private CharSequence createText(SuggestionItemResources resources) {
+        return SuggestionTextHighlighter.highlight(
+            getItemModel(),
+            resources.getCurrentQuery(),
+            resources.getSelectedTextColor()
+        );
+    }
+
+
+    /**
+     * Sets the text of this suggestion measured ahead of time (see
+     * {@link com.paulrybitskyi.persistentsearchview.utils.SuggestionTextPrecomputer}).
+     * The text is used during binding only if the query and the selected text
+     * color it was produced for are still the current ones.
+     *
+     * @param precomputedText The precomputed (highlighted) text
+     * @param query The query the text was highlighted for
+     * @param selectedTextColor The color the text was highlighted with
+     */
+    public void setPrecomputedText(
+        @NonNull PrecomputedTextCompat precomputedText,
+        @NonNull String query,
+        int selectedTextColor
+    ) {
+        Preconditions.nonNull(precomputedText);
+        Preconditions.nonNull(query);
+
+        precomputedTextHolder = new PrecomputedTextHolder(precomputedText, query, selectedTextColor);
     }
 
 
     private void bindButton(
-        boolean isRecentSearchSuggestion,
+        SuggestionType type,
         ViewHolder viewHolder,
         SuggestionItemResources resources
     ) {
-        if(isRecentSearchSuggestion) {
+        // Only the layouts of the removable types contain the button, hence
+        // there is no need to toggle its visibility on recycling
+        if(!type.isRemovable() || (viewHolder.removeBtnIv == null)) {
+            return;
+        }
+
+        if(viewHolder.removeButtonIconCache.update(R.drawable.ic_close_black_24dp, resources.getIconColor())) {
             viewHolder.removeBtnIv.setImageDrawable(
-                Utils.getColoredDrawable(
-                    viewHolder.removeBtnIv.getContext(),
-                    R.drawable.ic_close_black_24dp,
-                    resources.getIconColor()
-                )
+                viewHolder.removeButtonIconCache.createDrawable(viewHolder.removeBtnIv.getContext())
             );
-            makeVisible(viewHolder.removeBtnIv);
-        } else {
-            makeGone(viewHolder.removeBtnIv);
         }
     }
 
@@ -223,19 +326,23 @@ public class SuggestionItem extends BaseItem<
         ViewHolder viewHolder,
         OnItemClickListener<SuggestionItem> onItemRemoveButtonClickListener
     ) {
-        viewHolder.removeBtnIv.setOnClickListener(
-            new ItemClickListener<>(
-                this,
-                viewHolder.getAdapterPosition(),
-                onItemRemoveButtonClickListener
-            )
+        final ItemClickListener<SuggestionItem> itemClickListener = new ItemClickListener<>(
+            this,
+            viewHolder.getAdapterPosition(),
+            onItemRemoveButtonClickListener
         );
+
+        if(viewHolder.isFlattened()) {
+            viewHolder.rowView.setOnRemoveButtonClickListener(itemClickListener);
+        } else if(viewHolder.removeBtnIv != null) {
+            viewHolder.removeBtnIv.setOnClickListener(itemClickListener);
+        }
     }
 
 
     @Override
     public int getLayout() {
-        return MAIN_LAYOUT_ID;
+        return getItemModel().getSuggestionType().getLayoutId();
     }
 
 
@@ -247,8 +354,61 @@ public class SuggestionItem extends BaseItem<
     }
 
 
+    private static final class PrecomputedTextHolder {
+
+        private final PrecomputedTextCompat text;
+
+        private final String query;
+
+        private final int selectedTextColor;
+
+        private PrecomputedTextHolder(PrecomputedTextCompat text, String query, int selectedTextColor) {
+            this.text = text;
+            this.query = query;
+            this.selectedTextColor = selectedTextColor;
+        }
+
+        private boolean isValidFor(SuggestionItemResources resources) {
+            return (query.equals(resources.getCurrentQuery()) && (selectedTextColor == resources.getSelectedTextColor()));
+        }
+
+    }
+
+
     /**
-     * A view holder containing suggestion item related views.
+     * A cache of the colored icon bound to a view, used to avoid recreating
+     * the drawable when a recycled view is bound to the same icon and color.
+     */
+    private static final class IconCache {
+
+        private int iconResId;
+        private int iconColor;
+
+        private boolean isEmpty = true;
+
+        private boolean update(int iconResId, int iconColor) {
+            if(!isEmpty && (this.iconResId == iconResId) && (this.iconColor == iconColor)) {
+                return false;
+            }
+
+            this.iconResId = iconResId;
+            this.iconColor = iconColor;
+            this.isEmpty = false;
+
+            return true;
+        }
+
+        private Drawable createDrawable(Context context) {
+            return Utils.getColoredDrawable(context, iconResId, iconColor);
+        }
+
+    }
+
+
+    /**
+     * A view holder containing suggestion item related views. When the item view
+     * is a {@link SuggestionRowView}, the holder wraps that single flattened view
+     * instead of the individual views of the inflated layout.
      */
     public static class ViewHolder extends BaseItem.ViewHolder<Suggestion> {
 
@@ -257,12 +417,25 @@ public class SuggestionItem extends BaseItem<
         private ImageView iconIv;
         private ImageView removeBtnIv;
 
+        private SuggestionRowView rowView;
+
+        private final IconCache iconCache = new IconCache();
+        private final IconCache removeButtonIconCache = new IconCache();
+
         public ViewHolder(View itemView) {
             super(itemView);
 
-            textTv = itemView.findViewById(R.id.textTv);
-            iconIv = itemView.findViewById(R.id.iconIv);
-            removeBtnIv = itemView.findViewById(R.id.removeBtnIv);
+            if(itemView instanceof SuggestionRowView) {
+                rowView = (SuggestionRowView) itemView;
+            } else {
+                textTv = itemView.findViewById(R.id.textTv);
+                iconIv = itemView.findViewById(R.id.iconIv);
+                removeBtnIv = itemView.findViewById(R.id.removeBtnIv);
+            }
+        }
+
+        private boolean isFlattened() {
+            return (rowView != null);
         }
 
     }
@@ -37,6 +37,8 @@ public class SuggestionItemResources implements ItemResources {
     private int textColor;
     private int selectedTextColor;
 
+    private boolean areRowsFlattened;
+
     private String currentQuery;
 
     private Typeface typeface;
@@ -50,6 +52,7 @@ public class SuggestionItemResources implements ItemResources {
         selectedTextColor = Color.BLACK;
         currentQuery = "";
         typeface = Typeface.DEFAULT;
+        areRowsFlattened = false;
     }
 
 
@@ -220,4 +223,28 @@ public class SuggestionItemResources implements ItemResources {
     }
 
 
+    /**
+     * Sets whether the suggestion rows should be rendered by a single
+     * custom-drawn view instead of an inflated layout.
+     *
+     * @param areRowsFlattened Whether the rows are flattened
+     *
+     * @return this
+     */
+    public SuggestionItemResources setRowsFlattened(boolean areRowsFlattened) {
+        this.areRowsFlattened = areRowsFlattened;
+        return this;
+    }
+
+
+    /**
+     * Checks whether the suggestion rows are flattened.
+     *
+     * @return true if flattened; false otherwise
+     */
+    public boolean areRowsFlattened() {
+        return areRowsFlattened;
+    }
+
+
 }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.listeners;
+
+import com.paulrybitskyi.persistentsearchview.PersistentSearchView;
+
+/**
+ * A listener used for notifying about the speculative searches, i.e. the searches
+ * the user is likely, but not yet known, to perform. Lets the app start loading
+ * the results before the search is actually confirmed.
+ * <br>
+ * Every started search is eventually either confirmed or cancelled. A search
+ * is confirmed right before the {@link OnSearchConfirmedListener} or the
+ * {@link OnSuggestionChangeListener#onSuggestionPicked(com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionItem)}
+ * is invoked with the same query.
+ */
+public interface OnSpeculativeSearchListener {
+
+    /**
+     * Gets called when the user is likely to search for the query, i.e. the input
+     * has become idle or a single suggestion is left to pick.
+     *
+     * @param searchView The search view
+     * @param query The query to start loading the results for
+     */
+    void onSpeculativeSearchStarted(PersistentSearchView searchView, String query);
+
+    /**
+     * Gets called when the user has searched for the query of the started search.
+     *
+     * @param searchView The search view
+     * @param query The query of the search
+     */
+    void onSpeculativeSearchConfirmed(PersistentSearchView searchView, String query);
+
+    /**
+     * Gets called when the started search is no longer likely to be performed,
+     * so its results can be discarded.
+     *
+     * @param searchView The search view
+     * @param query The query of the search
+     */
+    void onSpeculativeSearchCancelled(PersistentSearchView searchView, String query);
+
+}
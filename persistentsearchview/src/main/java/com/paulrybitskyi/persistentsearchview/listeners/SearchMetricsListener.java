@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.listeners;
+
+import com.paulrybitskyi.persistentsearchview.engine.SearchController.State;
+
+/**
+ * A listener used for reporting the performance metrics of the search view,
+ * e.g. to ship them to a telemetry service. All the durations are
+ * measured in nanoseconds and all the callbacks are invoked on the main thread.
+ */
+public interface SearchMetricsListener {
+
+    /**
+     * Gets called when the suggestions are set after the query has been changed
+     * (e.g., by a keystroke).
+     *
+     * @param latencyNanos The time between the query change and the suggestions being set
+     */
+    void onQueryToSuggestionsLatency(long latencyNanos);
+
+    /**
+     * Gets called when the frame displaying the set suggestions is about to be drawn.
+     * If several sets of suggestions are rendered within a single frame, they are
+     * reported once, measured from the earliest of them.
+     *
+     * @param latencyNanos The time between the suggestions being set and the frame displaying them
+     * @param boundRowCount The amount of the suggestion rows bound for the frame
+     */
+    void onSuggestionsRendered(long latencyNanos, int boundRowCount);
+
+    /**
+     * Gets called when the expand or the collapse animation has ended.
+     *
+     * @param state The state the search view has been animated to
+     * @param durationNanos The time between the first and the last frames of the animation
+     * @param frameCount The amount of frames the animation has been drawn in
+     * @param droppedFrameCount The amount of frames that have been dropped during the animation
+     */
+    void onStateAnimationMeasured(State state, long durationNanos, int frameCount, int droppedFrameCount);
+
+}
@@ -16,10 +16,22 @@
 
 package com.paulrybitskyi.persistentsearchview.model;
 
+import com.paulrybitskyi.persistentsearchview.utils.Preconditions;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 
 /**
  * A model class representing a suggestion.
+ * <br>
+ * The serialized form is the one of the earlier versions of this class, which
+ * stored the type as a string (the name of the type), extended with the
+ * highlight ranges, hence the instances serialized by either version
+ * can be deserialized by the other one.
  */
 public class Suggestion implements Serializable {
 
@@ -27,16 +39,37 @@ public class Suggestion implements Serializable {
     public static final String TYPE_RECENT_SEARCH_SUGGESTION = "recent_search_suggestion";
     public static final String TYPE_REGULAR_SEARCH_SUGGESTION = "regular_search_suggestion";
 
+    public static final int TYPE_CODE_REGULAR_SEARCH_SUGGESTION = 0;
+    public static final int TYPE_CODE_RECENT_SEARCH_SUGGESTION = 1;
+
+    // The default serial version UID of the earlier versions of this class
+    private static final long serialVersionUID = -6688587043467964074L;
+
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_TYPE = "type";
+    private static final String FIELD_TEXT = "text";
+    private static final String FIELD_HIGHLIGHT_RANGES = "highlightRanges";
+
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField(FIELD_ID, long.class),
+        new ObjectStreamField(FIELD_TYPE, String.class),
+        new ObjectStreamField(FIELD_TEXT, String.class),
+        new ObjectStreamField(FIELD_HIGHLIGHT_RANGES, int[].class)
+    };
+
 
     private long id;
 
-    private String type;
+    private int typeCode;
+
     private String text;
 
+    private int[] highlightRanges;
+
 
     public Suggestion() {
         this.id = -1L;
-        this.type = TYPE_REGULAR_SEARCH_SUGGESTION;
+        this.typeCode = TYPE_CODE_REGULAR_SEARCH_SUGGESTION;
         this.text = "";
     }
 
@@ -75,15 +108,20 @@ public class Suggestion implements Serializable {
 
 
     /**
-     * Sets the type of the suggestion. Can be either TYPE_REGULAR_SEARCH_SUGGESTION
-     * or TYPE_REGULAR_SEARCH_SUGGESTION.
+     * Sets the type of the suggestion. Can be either TYPE_REGULAR_SEARCH_SUGGESTION,
+     * TYPE_RECENT_SEARCH_SUGGESTION or the name of a type registered
+     * in the {@link SuggestionTypeRegistry}. Any other type gets registered
+     * on demand, the suggestion being displayed as a regular one, so that
+     * {@link #getType()} still returns the type that has been set.
      *
      * @param type The type to set
      *
      * @return this
+     *
+     * @throws IllegalArgumentException if the type is empty or cannot be registered
      */
     public Suggestion setType(String type) {
-        this.type = type;
+        this.typeCode = SuggestionTypeRegistry.obtain(type).getCode();
         return this;
     }
 
@@ -94,7 +132,42 @@ public class Suggestion implements Serializable {
      * @return The suggestion's type
      */
     public String getType() {
-        return this.type;
+        return getSuggestionType().getName();
+    }
+
+
+    /**
+     * Sets the type code of the suggestion. Can be either TYPE_CODE_REGULAR_SEARCH_SUGGESTION,
+     * TYPE_CODE_RECENT_SEARCH_SUGGESTION or the code of a type registered
+     * in the {@link SuggestionTypeRegistry}.
+     *
+     * @param typeCode The type code to set
+     *
+     * @return this
+     */
+    public Suggestion setTypeCode(int typeCode) {
+        this.typeCode = SuggestionTypeRegistry.get(typeCode).getCode();
+        return this;
+    }
+
+
+    /**
+     * Gets the type code of the suggestion.
+     *
+     * @return The suggestion's type code
+     */
+    public int getTypeCode() {
+        return this.typeCode;
+    }
+
+
+    /**
+     * Gets the registered type of the suggestion.
+     *
+     * @return The suggestion's type
+     */
+    public SuggestionType getSuggestionType() {
+        return SuggestionTypeRegistry.get(this.typeCode);
     }
 
 
@@ -121,4 +194,81 @@ public class Suggestion implements Serializable {
     }
 
 
+    /**
+     * Sets the ranges of the text to highlight instead of the parts matching
+     * the current query (e.g., the ones produced by the
+     * {@link com.paulrybitskyi.persistentsearchview.engine.TokenMatcher}).
+     * Allows to highlight several disjoint parts of the text.
+     *
+     * @param highlightRanges The pairs of the start (inclusive) and end (exclusive)
+     * positions of the ranges or null to highlight the parts matching the query
+     *
+     * @return this
+     */
+    public Suggestion setHighlightRanges(int[] highlightRanges) {
+        if(highlightRanges != null) {
+            Preconditions.isTrue("The ranges must consist of the start and end pairs.", ((highlightRanges.length % 2) == 0));
+        }
+
+        this.highlightRanges = highlightRanges;
+        return this;
+    }
+
+
+    /**
+     * Gets the ranges of the text to highlight.
+     *
+     * @return The pairs of the start and end positions of the ranges or null if not set
+     */
+    public int[] getHighlightRanges() {
+        return this.highlightRanges;
+    }
+
+
+    /**
+     * Checks whether this suggestion has its own ranges of the text to highlight.
+     *
+     * @return true if has; false otherwise
+     */
+    public boolean hasHighlightRanges() {
+        return ((this.highlightRanges != null) && (this.highlightRanges.length > 0));
+    }
+
+
+    private void writeObject(ObjectOutputStream outputStream) throws IOException {
+        final ObjectOutputStream.PutField fields = outputStream.putFields();
+        fields.put(FIELD_ID, this.id);
+        fields.put(FIELD_TYPE, getType());
+        fields.put(FIELD_TEXT, this.text);
+        fields.put(FIELD_HIGHLIGHT_RANGES, this.highlightRanges);
+
+        outputStream.writeFields();
+    }
+
+
+    private void readObject(ObjectInputStream inputStream) throws IOException, ClassNotFoundException {
+        final ObjectInputStream.GetField fields = inputStream.readFields();
+
+        final String type = (String) fields.get(FIELD_TYPE, null);
+
+        this.id = fields.get(FIELD_ID, -1L);
+        this.text = (String) fields.get(FIELD_TEXT, "");
+
+        // The earlier versions allowed to set any type (including null and an empty one),
+        // displaying the unknown ones as the regular suggestions
+        if((type == null) || type.isEmpty()) {
+            this.typeCode = TYPE_CODE_REGULAR_SEARCH_SUGGESTION;
+        } else {
+            try {
+                this.typeCode = SuggestionTypeRegistry.obtain(type).getCode();
+            } catch(IllegalArgumentException exception) {
+                throw new InvalidObjectException(exception.getMessage());
+            }
+        }
+
+        // Absent from the instances serialized by the earlier versions
+        this.highlightRanges = (int[]) fields.get(FIELD_HIGHLIGHT_RANGES, null);
+    }
+
+
 }
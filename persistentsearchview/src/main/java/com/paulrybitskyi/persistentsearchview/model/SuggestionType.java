@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.model;
+
+import com.paulrybitskyi.persistentsearchview.utils.Preconditions;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+
+/**
+ * A model class describing a type of suggestions: its integer code,
+ * its name, the layout its rows are inflated from (which also serves as
+ * the view type of the rows, so each type gets its own pool of views),
+ * its icon and whether its suggestions can be removed.
+ * <br>
+ * Custom types can be registered via {@link SuggestionTypeRegistry#register(SuggestionType)}.
+ * A layout of a removable type must contain a view with the removeBtnIv id.
+ */
+public final class SuggestionType {
+
+
+    private final int code;
+
+    private final String name;
+
+    private final int layoutId;
+    private final int iconResId;
+
+    private final boolean isRemovable;
+
+
+    public SuggestionType(
+        int code,
+        @NonNull String name,
+        @LayoutRes int layoutId,
+        @DrawableRes int iconResId,
+        boolean isRemovable
+    ) {
+        Preconditions.isTrue(
+            "The code must lie within [0, " + SuggestionTypeRegistry.MAX_TYPE_CODE + "]",
+            ((code >= 0) && (code <= SuggestionTypeRegistry.MAX_TYPE_CODE))
+        );
+        Preconditions.nonEmpty(name);
+
+        this.code = code;
+        this.name = name;
+        this.layoutId = layoutId;
+        this.iconResId = iconResId;
+        this.isRemovable = isRemovable;
+    }
+
+
+    /**
+     * Gets the code of the type.
+     *
+     * @return The type's code
+     */
+    public int getCode() {
+        return code;
+    }
+
+
+    /**
+     * Gets the name of the type.
+     *
+     * @return The type's name
+     */
+    @NonNull
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     * Gets the layout resource ID of the rows of this type.
+     *
+     * @return The layout resource ID
+     */
+    @LayoutRes
+    public int getLayoutId() {
+        return layoutId;
+    }
+
+
+    /**
+     * Gets the resource ID of the icon of the rows of this type.
+     *
+     * @return The icon resource ID
+     */
+    @DrawableRes
+    public int getIconResId() {
+        return iconResId;
+    }
+
+
+    /**
+     * Checks whether the suggestions of this type can be removed
+     * (i.e., have the remove button).
+     *
+     * @return true if removable; false otherwise
+     */
+    public boolean isRemovable() {
+        return isRemovable;
+    }
+
+
+}
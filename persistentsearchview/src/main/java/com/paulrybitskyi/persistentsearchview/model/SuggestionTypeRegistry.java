@@ -0,0 +1,231 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.model;
+
+import android.text.TextUtils;
+
+import com.paulrybitskyi.persistentsearchview.R;
+import com.paulrybitskyi.persistentsearchview.utils.Preconditions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A registry of the suggestion types. Comes with the regular and the recent
+ * search suggestion types registered and can be extended with custom ones.
+ */
+public final class SuggestionTypeRegistry {
+
+
+    /**
+     * The biggest possible type code. The codes are limited so that
+     * they can be stored in the byte columns (see
+     * {@link com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionDataset}).
+     */
+    public static final int MAX_TYPE_CODE = Byte.MAX_VALUE;
+
+
+    // Copied on write, so that the lookups by code (performed on every bind) do not need a lock
+    private static volatile SuggestionType[] typesByCode = new SuggestionType[MAX_TYPE_CODE + 1];
+
+    private static final Map<String, SuggestionType> TYPES_BY_NAME = new HashMap<>();
+
+
+    static {
+        register(new SuggestionType(
+            Suggestion.TYPE_CODE_REGULAR_SEARCH_SUGGESTION,
+            Suggestion.TYPE_REGULAR_SEARCH_SUGGESTION,
+            R.layout.view_persistent_search_regular_suggestion_item,
+            R.drawable.ic_magnify_black_24dp,
+            false
+        ));
+        register(new SuggestionType(
+            Suggestion.TYPE_CODE_RECENT_SEARCH_SUGGESTION,
+            Suggestion.TYPE_RECENT_SEARCH_SUGGESTION,
+            R.layout.view_persistent_search_suggestion_item,
+            R.drawable.ic_history_black_24dp,
+            true
+        ));
+    }
+
+
+    private SuggestionTypeRegistry() {}
+
+
+    /**
+     * Registers the specified suggestion type.
+     *
+     * @param type The type to register
+     *
+     * @throws IllegalStateException if a type with the same code or name is already registered
+     */
+    public static synchronized void register(@NonNull SuggestionType type) {
+        Preconditions.nonNull(type);
+        Preconditions.isTrue(
+            "A suggestion type with the code " + type.getCode() + " is already registered",
+            (typesByCode[type.getCode()] == null)
+        );
+        Preconditions.isTrue(
+            "A suggestion type with the name " + type.getName() + " is already registered",
+            !TYPES_BY_NAME.containsKey(type.getName())
+        );
+
+        final SuggestionType[] newTypesByCode = typesByCode.clone();
+        newTypesByCode[type.getCode()] = type;
+
+        typesByCode = newTypesByCode;
+        TYPES_BY_NAME.put(type.getName(), type);
+    }
+
+
+    /**
+     * Gets the suggestion type with the specified code.
+     *
+     * @param code The code of the type
+     *
+     * @return The suggestion type
+     *
+     * @throws IllegalArgumentException if no such type is registered
+     */
+    @NonNull
+    public static SuggestionType get(int code) {
+        final SuggestionType type = (((code >= 0) && (code <= MAX_TYPE_CODE)) ? typesByCode[code] : null);
+
+        if(type == null) {
+            throw new IllegalArgumentException("No suggestion type with the code " + code + " is registered.");
+        }
+
+        return type;
+    }
+
+
+    /**
+     * Gets the suggestion type with the specified name.
+     *
+     * @param name The name of the type
+     *
+     * @return The suggestion type
+     *
+     * @throws IllegalArgumentException if no such type is registered
+     */
+    @NonNull
+    public static SuggestionType get(@NonNull String name) {
+        final SuggestionType type = find(name);
+
+        if(type == null) {
+            throw new IllegalArgumentException("No suggestion type with the name " + name + " is registered.");
+        }
+
+        return type;
+    }
+
+
+    /**
+     * Finds the suggestion type with the specified name.
+     *
+     * @param name The name of the type
+     *
+     * @return The suggestion type or null if no such type is registered
+     */
+    @Nullable
+    static synchronized SuggestionType find(@Nullable String name) {
+        return TYPES_BY_NAME.get(name);
+    }
+
+
+    /**
+     * Gets the suggestion type with the specified name, registering it if necessary.
+     * The types registered this way are displayed as the regular ones and get
+     * the smallest free codes, hence the custom types should be registered
+     * (see {@link #register(SuggestionType)}) before their names are used.
+     *
+     * @param name The name of the type
+     *
+     * @return The suggestion type
+     *
+     * @throws IllegalArgumentException if the name is empty or all of the codes are taken
+     */
+    @NonNull
+    static synchronized SuggestionType obtain(@Nullable String name) {
+        final SuggestionType registeredType = TYPES_BY_NAME.get(name);
+
+        if(registeredType != null) {
+            return registeredType;
+        }
+
+        if(TextUtils.isEmpty(name)) {
+            throw new IllegalArgumentException("The name of a suggestion type must be non-empty.");
+        }
+
+        final SuggestionType regularType = typesByCode[Suggestion.TYPE_CODE_REGULAR_SEARCH_SUGGESTION];
+
+        for(int code = 0; code <= MAX_TYPE_CODE; code++) {
+            if(typesByCode[code] == null) {
+                final SuggestionType type = new SuggestionType(
+                    code,
+                    name,
+                    regularType.getLayoutId(),
+                    regularType.getIconResId(),
+                    regularType.isRemovable()
+                );
+
+                register(type);
+
+                return type;
+            }
+        }
+
+        throw new IllegalArgumentException("No free code is left for the suggestion type " + name + ".");
+    }
+
+
+    /**
+     * Gets all of the registered suggestion types, ordered by their codes.
+     *
+     * @return The registered suggestion types
+     */
+    @NonNull
+    public static List<SuggestionType> getAll() {
+        final SuggestionType[] types = typesByCode;
+        final List<SuggestionType> registeredTypes = new ArrayList<>();
+
+        for(SuggestionType type : types) {
+            if(type != null) {
+                registeredTypes.add(type);
+            }
+        }
+
+        return registeredTypes;
+    }
+
+
+    /**
+     * Gets the amount of the registered suggestion types.
+     *
+     * @return The amount of the registered types
+     */
+    public static synchronized int getTypeCount() {
+        return TYPES_BY_NAME.size();
+    }
+
+
+}
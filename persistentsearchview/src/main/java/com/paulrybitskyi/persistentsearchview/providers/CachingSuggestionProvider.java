@@ -0,0 +1,283 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.providers;
+
+import com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionItem;
+import com.paulrybitskyi.persistentsearchview.utils.Preconditions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+/**
+ * A {@link SuggestionProvider} caching the results of another provider.
+ * <br>
+ * When the result of the query is not cached, but the complete result of one
+ * of its prefixes is (e.g., when the user keeps on typing or backspaces and
+ * retypes the query), the result of the longest such prefix is filtered
+ * with the {@link Filter} instead of querying the provider. This requires
+ * the filter to match the suggestions the same way the provider does, or
+ * at least more strictly than the provider does.
+ */
+public final class CachingSuggestionProvider implements SuggestionProvider {
+
+
+    /**
+     * A filter matching the suggestions containing the query, ignoring the case.
+     */
+    public static final Filter CONTAINS_IGNORE_CASE_FILTER = new Filter() {
+
+        @Override
+        public boolean matches(@NonNull SuggestionItem suggestion, @NonNull String query) {
+            final String text = suggestion.getItemModel().getText();
+
+            // Matching the regions in place instead of lower casing
+            // the strings, which would allocate for every suggestion
+            for(int i = 0, lastIndex = (text.length() - query.length()); i <= lastIndex; i++) {
+                if(text.regionMatches(true, i, query, 0, query.length())) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+    };
+
+
+    private final SuggestionProvider provider;
+
+    private final SuggestionCache cache;
+
+    private final Filter filter;
+
+
+    /**
+     * Creates a provider filtering the cached results with
+     * the {@link #CONTAINS_IGNORE_CASE_FILTER}.
+     *
+     * @param provider The provider to cache the results of
+     * @param cache The cache to store the results in
+     */
+    public CachingSuggestionProvider(@NonNull SuggestionProvider provider, @NonNull SuggestionCache cache) {
+        this(provider, cache, CONTAINS_IGNORE_CASE_FILTER);
+    }
+
+
+    /**
+     * Creates a provider.
+     *
+     * @param provider The provider to cache the results of
+     * @param cache The cache to store the results in
+     * @param filter The filter of the cached results of the prefixes of the queries
+     */
+    public CachingSuggestionProvider(@NonNull SuggestionProvider provider,
+                                     @NonNull SuggestionCache cache,
+                                     @NonNull Filter filter) {
+        Preconditions.nonNull(provider);
+        Preconditions.nonNull(cache);
+        Preconditions.nonNull(filter);
+
+        this.provider = provider;
+        this.cache = cache;
+        this.filter = filter;
+    }
+
+
+    @NonNull
+    @WorkerThread
+    @Override
+    public SuggestionResult getSuggestions(@NonNull String query) throws Exception {
+        Preconditions.nonNull(query);
+
+        final SuggestionResult cachedResult = getCachedSuggestions(query);
+
+        if(cachedResult != null) {
+            return cachedResult;
+        }
+
+        return refreshSuggestions(query);
+    }
+
+
+    /**
+     * Queries the provider, bypassing the cache, and caches the result.
+     *
+     * @param query The query
+     *
+     * @return The fresh result of the query
+     *
+     * @throws Exception If the lookup has failed
+     */
+    @NonNull
+    @WorkerThread
+    public SuggestionResult refreshSuggestions(@NonNull String query) throws Exception {
+        Preconditions.nonNull(query);
+
+        final SuggestionResult result = provider.getSuggestions(query);
+
+        cache.put(query, result);
+
+        return result;
+    }
+
+
+    /**
+     * Same as {@link #refreshSuggestions(String)}, but if the provider is
+     * a {@link PrefetchableSuggestionProvider}, queries it in advance, so that
+     * the lookups of the actual queries are not affected.
+     *
+     * @param query The query
+     *
+     * @return The fresh result of the query
+     *
+     * @throws Exception If the lookup has failed
+     */
+    @NonNull
+    @WorkerThread
+    public SuggestionResult prefetchSuggestions(@NonNull String query) throws Exception {
+        Preconditions.nonNull(query);
+
+        final SuggestionResult result = (
+            (provider instanceof PrefetchableSuggestionProvider) ?
+            ((PrefetchableSuggestionProvider) provider).prefetchSuggestions(query) :
+            provider.getSuggestions(query)
+        );
+
+        cache.put(query, result);
+
+        return result;
+    }
+
+
+    /**
+     * Gets the cached result of the query or, if there is none, the filtered complete
+     * result of the longest cached prefix of the query, without querying the provider.
+     * <br>
+     * May block on the cache (e.g., on the disk I/O of a {@link DiskSuggestionCache}),
+     * see {@link #peekCachedSuggestions(String)} for a non-blocking alternative.
+     *
+     * @param query The query
+     *
+     * @return The result or null if none of them is cached
+     */
+    @Nullable
+    @WorkerThread
+    public SuggestionResult getCachedSuggestions(@NonNull String query) {
+        Preconditions.nonNull(query);
+
+        return getCachedSuggestions(query, false);
+    }
+
+
+    /**
+     * Same as {@link #getCachedSuggestions(String)}, but considers only the results
+     * that can be retrieved from the cache without blocking (see {@link SuggestionCache#peek(String)}),
+     * so it's safe to call from the main thread.
+     *
+     * @param query The query
+     *
+     * @return The result or null if none of them can be retrieved without blocking
+     */
+    @Nullable
+    public SuggestionResult peekCachedSuggestions(@NonNull String query) {
+        Preconditions.nonNull(query);
+
+        return getCachedSuggestions(query, true);
+    }
+
+
+    private SuggestionResult getCachedSuggestions(String query, boolean shouldPeek) {
+        final SuggestionResult cachedResult = getCachedResult(query, shouldPeek);
+
+        if(cachedResult != null) {
+            return cachedResult;
+        }
+
+        for(int prefixLength = (query.length() - 1); prefixLength >= 0; prefixLength--) {
+            final SuggestionResult prefixResult = getCachedResult(query.substring(0, prefixLength), shouldPeek);
+
+            if((prefixResult != null) && prefixResult.isComplete()) {
+                final SuggestionResult filteredResult = filter(prefixResult, query);
+
+                cache.put(query, filteredResult);
+
+                return filteredResult;
+            }
+        }
+
+        return null;
+    }
+
+
+    private SuggestionResult getCachedResult(String query, boolean shouldPeek) {
+        return (shouldPeek ? cache.peek(query) : cache.get(query));
+    }
+
+
+    private SuggestionResult filter(SuggestionResult result, String query) {
+        final List<SuggestionItem> suggestions = result.getSuggestions();
+        final List<SuggestionItem> filteredSuggestions = new ArrayList<>();
+
+        for(int i = 0, size = suggestions.size(); i < size; i++) {
+            final SuggestionItem suggestion = suggestions.get(i);
+
+            if(filter.matches(suggestion, query)) {
+                filteredSuggestions.add(suggestion);
+            }
+        }
+
+        // Filtering a complete result of a prefix gives
+        // a complete result of the query itself
+        return SuggestionResult.complete(filteredSuggestions);
+    }
+
+
+    /**
+     * Gets the cache storing the results.
+     *
+     * @return The cache
+     */
+    @NonNull
+    public SuggestionCache getCache() {
+        return cache;
+    }
+
+
+    /**
+     * A filter of the cached results of the prefixes of the queries.
+     */
+    public interface Filter {
+
+        /**
+         * Checks whether the suggestion matches the query.
+         *
+         * @param suggestion The suggestion
+         * @param query The query
+         *
+         * @return true if matches; false otherwise
+         */
+        boolean matches(@NonNull SuggestionItem suggestion, @NonNull String query);
+
+    }
+
+
+}
@@ -0,0 +1,455 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.providers;
+
+import com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionItem;
+import com.paulrybitskyi.persistentsearchview.model.Suggestion;
+import com.paulrybitskyi.persistentsearchview.utils.Preconditions;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+/**
+ * An on-disk {@link SuggestionCache} keeping the results across the sessions,
+ * meant to be used as a tier under an in-memory cache (see {@link TieredSuggestionCache}).
+ * <br>
+ * Every result is stored in its own file in a compact binary format (the ids,
+ * the type codes and the UTF-8 encoded texts of the suggestions) and the files
+ * are memory-mapped when read. The results are written asynchronously, on the
+ * cache's own background thread, the pending ones being served from memory
+ * in the meantime. Once the total size of the files exceeds the specified
+ * limit, the least recently used ones are deleted.
+ * <br>
+ * The reads block on the disk I/O, hence {@link #get(String)} must not be called
+ * from the main thread ({@link #peek(String)} returns only the pending results).
+ */
+public final class DiskSuggestionCache implements SuggestionCache {
+
+
+    private static final int MAGIC = 0x50535643;
+    private static final int VERSION = 1;
+
+    // The id, the type code and the text length of a suggestion
+    private static final int MIN_SUGGESTION_SIZE_BYTES = (8 + 1 + 4);
+
+    private static final String FILE_EXTENSION = ".psc";
+    private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+
+    private boolean isIndexLoaded;
+
+    private final long maxSizeBytes;
+
+    private long sizeBytes;
+
+    private final File directory;
+
+    private final LinkedHashMap<String, Long> fileSizes;
+
+    private final Map<String, SuggestionResult> pendingResults;
+
+    private final ExecutorService writeExecutor;
+
+
+    /**
+     * Creates a cache.
+     *
+     * @param directory The directory to store the results in
+     * @param maxSizeBytes The maximum total size of the stored results in bytes
+     */
+    public DiskSuggestionCache(@NonNull File directory, long maxSizeBytes) {
+        Preconditions.nonNull(directory);
+        Preconditions.isTrue("The max size must be positive.", (maxSizeBytes > 0L));
+
+        this.directory = directory;
+        this.maxSizeBytes = maxSizeBytes;
+        this.fileSizes = new LinkedHashMap<>(16, 0.75f, true);
+        this.pendingResults = new ConcurrentHashMap<>();
+        this.writeExecutor = Executors.newSingleThreadExecutor(new LookupThreadFactory("DiskSuggestionCache"));
+
+        // Listing the directory ahead of the first lookup
+        writeExecutor.execute(() -> {
+            synchronized(DiskSuggestionCache.this) {
+                loadIndexIfNecessary();
+            }
+        });
+    }
+
+
+    @Nullable
+    @WorkerThread
+    @Override
+    public SuggestionResult get(@NonNull String query) {
+        Preconditions.nonNull(query);
+
+        final SuggestionResult pendingResult = pendingResults.get(query);
+
+        if(pendingResult != null) {
+            return pendingResult;
+        }
+
+        final String fileName = getFileName(query);
+
+        synchronized(this) {
+            loadIndexIfNecessary();
+
+            // Touching the entry to mark it as the most recently used one
+            if(fileSizes.get(fileName) == null) {
+                return null;
+            }
+        }
+
+        final File file = new File(directory, fileName);
+        SuggestionResult result;
+
+        try {
+            result = read(file, query);
+        } catch(IOException | RuntimeException exception) {
+            result = readOrRemove(file, query);
+        }
+
+        if(result != null) {
+            // Persisting the order of the use across the sessions
+            writeExecutor.execute(() -> file.setLastModified(System.currentTimeMillis()));
+        }
+
+        return result;
+    }
+
+
+    private synchronized SuggestionResult readOrRemove(File file, String query) {
+        final String fileName = file.getName();
+
+        // The file might have been evicted since it was looked up
+        if(fileSizes.get(fileName) == null) {
+            return null;
+        }
+
+        // Reading again under the lock, as the file might have been
+        // replaced since it was looked up (the files are renamed and
+        // deleted only while holding the lock). The file of another
+        // query (a collision of the hashes) is a valid one, hence
+        // read returns null for it instead of throwing
+        try {
+            return read(file, query);
+        } catch(IOException | RuntimeException exception) {
+            // The file is either corrupted or has been written by another
+            // version of the cache, or its suggestion types are not registered
+            remove(fileName);
+            return null;
+        }
+    }
+
+
+    @Nullable
+    @Override
+    public SuggestionResult peek(@NonNull String query) {
+        Preconditions.nonNull(query);
+
+        return pendingResults.get(query);
+    }
+
+
+    @Override
+    public void put(@NonNull final String query, @NonNull final SuggestionResult result) {
+        Preconditions.nonNull(query);
+        Preconditions.nonNull(result);
+
+        pendingResults.put(query, result);
+
+        writeExecutor.execute(() -> {
+            try {
+                write(query, result);
+            } catch(IOException exception) {
+                // Not worth failing the lookup, as the result
+                // can be looked up again next time
+            } finally {
+                pendingResults.remove(query, result);
+            }
+        });
+    }
+
+
+    @Override
+    public void clear() {
+        pendingResults.clear();
+
+        writeExecutor.execute(() -> {
+            synchronized(DiskSuggestionCache.this) {
+                loadIndexIfNecessary();
+
+                for(String fileName : fileSizes.keySet()) {
+                    deleteFile(fileName);
+                }
+
+                fileSizes.clear();
+                sizeBytes = 0L;
+            }
+        });
+    }
+
+
+    /**
+     * Gets the total size of the stored results in bytes.
+     *
+     * @return The total size
+     */
+    public synchronized long getSizeBytes() {
+        loadIndexIfNecessary();
+
+        return sizeBytes;
+    }
+
+
+    /**
+     * Stops the cache's background thread once the pending results are written.
+     * The cache should not be used afterwards.
+     */
+    public void close() {
+        writeExecutor.shutdown();
+    }
+
+
+    private void loadIndexIfNecessary() {
+        if(isIndexLoaded) {
+            return;
+        }
+
+        isIndexLoaded = true;
+
+        final File[] files = directory.listFiles();
+
+        if(files == null) {
+            return;
+        }
+
+        // Ordering the entries from the least to the most recently used
+        Arrays.sort(files, new Comparator<File>() {
+
+            @Override
+            public int compare(File file1, File file2) {
+                return Long.compare(file1.lastModified(), file2.lastModified());
+            }
+
+        });
+
+        for(File file : files) {
+            final String fileName = file.getName();
+
+            if(fileName.endsWith(FILE_EXTENSION)) {
+                fileSizes.put(fileName, file.length());
+                sizeBytes += file.length();
+            } else if(fileName.endsWith(TEMPORARY_FILE_EXTENSION)) {
+                // Left over by an interrupted write
+                file.delete();
+            }
+        }
+    }
+
+
+    /**
+     * Reads the result stored in the file.
+     *
+     * @return The result or null if the file stores the result of another query
+     */
+    private static SuggestionResult read(File file, String query) throws IOException {
+        final MappedByteBuffer buffer;
+
+        try(RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            final FileChannel channel = randomAccessFile.getChannel();
+
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+        }
+
+        if((buffer.getInt() != MAGIC) || (buffer.get() != VERSION)) {
+            throw new IOException("Unknown format.");
+        }
+
+        // Guarding against the collisions of the hashes of the queries
+        if(!query.equals(readString(buffer))) {
+            return null;
+        }
+
+        final boolean isComplete = (buffer.get() != 0);
+        final int suggestionCount = buffer.getInt();
+
+        // Guarding against the corrupted counts, which could exhaust the memory
+        if((suggestionCount < 0) || (suggestionCount > (buffer.remaining() / MIN_SUGGESTION_SIZE_BYTES))) {
+            throw new IOException("Corrupted suggestion count.");
+        }
+        final List<SuggestionItem> suggestions = new ArrayList<>(suggestionCount);
+
+        for(int i = 0; i < suggestionCount; i++) {
+            final long id = buffer.getLong();
+            final int typeCode = buffer.get();
+            final String text = readString(buffer);
+
+            suggestions.add(new SuggestionItem(
+                new Suggestion()
+                    .setId(id)
+                    .setTypeCode(typeCode)
+                    .setText(text)
+            ));
+        }
+
+        return SuggestionResult.of(suggestions, isComplete);
+    }
+
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        final int length = buffer.getInt();
+
+        // Guarding against the corrupted lengths, which could exhaust the memory
+        if((length < 0) || (length > buffer.remaining())) {
+            throw new IOException("Corrupted string length.");
+        }
+
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        return new String(bytes, UTF_8);
+    }
+
+
+    private void write(String query, SuggestionResult result) throws IOException {
+        final List<SuggestionItem> suggestions = result.getSuggestions();
+        final byte[] queryBytes = query.getBytes(UTF_8);
+        final byte[][] textBytes = new byte[suggestions.size()][];
+        int size = (4 + 1 + 4 + queryBytes.length + 1 + 4);
+
+        for(int i = 0; i < textBytes.length; i++) {
+            textBytes[i] = suggestions.get(i).getItemModel().getText().getBytes(UTF_8);
+            size += (8 + 1 + 4 + textBytes[i].length);
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.putInt(queryBytes.length).put(queryBytes);
+        buffer.put((byte) (result.isComplete() ? 1 : 0));
+        buffer.putInt(textBytes.length);
+
+        for(int i = 0; i < textBytes.length; i++) {
+            final Suggestion suggestion = suggestions.get(i).getItemModel();
+
+            buffer.putLong(suggestion.getId());
+            buffer.put((byte) suggestion.getTypeCode());
+            buffer.putInt(textBytes[i].length).put(textBytes[i]);
+        }
+
+        if(!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create the directory of the cache.");
+        }
+
+        final String fileName = getFileName(query);
+        final File temporaryFile = new File(directory, (fileName + TEMPORARY_FILE_EXTENSION));
+
+        try(FileOutputStream outputStream = new FileOutputStream(temporaryFile)) {
+            outputStream.write(buffer.array());
+        }
+
+        synchronized(this) {
+            loadIndexIfNecessary();
+
+            // Renaming while holding the lock, so that the index
+            // always reflects the files that are actually present
+            if(!temporaryFile.renameTo(new File(directory, fileName))) {
+                temporaryFile.delete();
+                throw new IOException("Cannot rename the temporary file.");
+            }
+
+            final Long oldSize = fileSizes.put(fileName, (long) size);
+
+            if(oldSize != null) {
+                sizeBytes -= oldSize;
+            }
+
+            sizeBytes += size;
+
+            trimToSize();
+        }
+    }
+
+
+    private void trimToSize() {
+        final Iterator<Map.Entry<String, Long>> iterator = fileSizes.entrySet().iterator();
+
+        while((sizeBytes > maxSizeBytes) && iterator.hasNext()) {
+            final Map.Entry<String, Long> eldestEntry = iterator.next();
+
+            deleteFile(eldestEntry.getKey());
+            sizeBytes -= eldestEntry.getValue();
+            iterator.remove();
+        }
+    }
+
+
+    private synchronized void remove(String fileName) {
+        final Long size = fileSizes.remove(fileName);
+
+        if(size != null) {
+            deleteFile(fileName);
+            sizeBytes -= size;
+        }
+    }
+
+
+    private void deleteFile(String fileName) {
+        new File(directory, fileName).delete();
+    }
+
+
+    private static String getFileName(String query) {
+        // A 64-bit FNV-1a hash of the query, the query itself
+        // being stored in the file to rule the collisions out
+        long hash = 0xcbf29ce484222325L;
+
+        for(int i = 0, length = query.length(); i < length; i++) {
+            hash ^= query.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        return (String.format(Locale.US, "%016x", hash) + FILE_EXTENSION);
+    }
+
+
+}
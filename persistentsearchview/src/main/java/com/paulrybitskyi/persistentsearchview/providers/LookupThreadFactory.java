@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.providers;
+
+import android.os.Process;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A factory of the daemon threads performing the lookups of the suggestions.
+ */
+final class LookupThreadFactory implements ThreadFactory {
+
+
+    private final int threadPriority;
+
+    private final String namePrefix;
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+
+    LookupThreadFactory(String namePrefix) {
+        this(namePrefix, Process.THREAD_PRIORITY_DEFAULT);
+    }
+
+
+    LookupThreadFactory(String namePrefix, int threadPriority) {
+        this.namePrefix = namePrefix;
+        this.threadPriority = threadPriority;
+    }
+
+
+    @Override
+    public Thread newThread(@NonNull Runnable runnable) {
+        final Runnable prioritizedRunnable = () -> {
+            // The Linux priority (the one the scheduler actually
+            // respects), as opposed to the Java one
+            Process.setThreadPriority(threadPriority);
+            runnable.run();
+        };
+        final Thread thread = new Thread(prioritizedRunnable, (namePrefix + "-" + threadCount.incrementAndGet()));
+        thread.setDaemon(true);
+
+        return thread;
+    }
+
+
+}
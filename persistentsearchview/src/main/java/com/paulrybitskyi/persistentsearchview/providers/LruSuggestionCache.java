@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.providers;
+
+import com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionItem;
+import com.paulrybitskyi.persistentsearchview.utils.Preconditions;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * An in-memory {@link SuggestionCache} evicting the least recently used results
+ * once either the amount of the cached results or their approximate size
+ * (the texts of the queries and of the suggestions along with the
+ * per-object overhead) exceeds the specified limits.
+ */
+public final class LruSuggestionCache implements SuggestionCache {
+
+
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+    private static final int SUGGESTION_OVERHEAD_BYTES = 96;
+
+
+    private final int maxEntryCount;
+
+    private final long maxSizeBytes;
+
+    private long sizeBytes;
+
+    private final LinkedHashMap<String, SuggestionResult> entries;
+
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxEntryCount The maximum amount of the cached results
+     * @param maxSizeBytes The maximum approximate size of the cached results in bytes
+     */
+    public LruSuggestionCache(int maxEntryCount, long maxSizeBytes) {
+        Preconditions.isTrue("The max entry count must be positive.", (maxEntryCount > 0));
+        Preconditions.isTrue("The max size must be positive.", (maxSizeBytes > 0L));
+
+        this.maxEntryCount = maxEntryCount;
+        this.maxSizeBytes = maxSizeBytes;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+
+    @Nullable
+    @Override
+    public synchronized SuggestionResult get(@NonNull String query) {
+        Preconditions.nonNull(query);
+
+        return entries.get(query);
+    }
+
+
+    @Nullable
+    @Override
+    public SuggestionResult peek(@NonNull String query) {
+        return get(query);
+    }
+
+
+    @Override
+    public synchronized void put(@NonNull String query, @NonNull SuggestionResult result) {
+        Preconditions.nonNull(query);
+        Preconditions.nonNull(result);
+
+        final long entrySizeBytes = estimateSizeBytes(query, result);
+
+        // A result that would evict all of the others is not worth caching
+        if(entrySizeBytes > maxSizeBytes) {
+            return;
+        }
+
+        final SuggestionResult oldResult = entries.put(query, result);
+
+        if(oldResult != null) {
+            sizeBytes -= estimateSizeBytes(query, oldResult);
+        }
+
+        sizeBytes += entrySizeBytes;
+
+        trimToLimits();
+    }
+
+
+    private void trimToLimits() {
+        final Iterator<Map.Entry<String, SuggestionResult>> iterator = entries.entrySet().iterator();
+
+        while(((entries.size() > maxEntryCount) || (sizeBytes > maxSizeBytes)) && iterator.hasNext()) {
+            final Map.Entry<String, SuggestionResult> eldestEntry = iterator.next();
+
+            sizeBytes -= estimateSizeBytes(eldestEntry.getKey(), eldestEntry.getValue());
+            iterator.remove();
+        }
+    }
+
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        sizeBytes = 0L;
+    }
+
+
+    /**
+     * Gets the amount of the cached results.
+     *
+     * @return The amount of the cached results
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+
+    /**
+     * Gets the approximate size of the cached results in bytes.
+     *
+     * @return The approximate size
+     */
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+
+    private static long estimateSizeBytes(String query, SuggestionResult result) {
+        final List<SuggestionItem> suggestions = result.getSuggestions();
+        long sizeBytes = (ENTRY_OVERHEAD_BYTES + (2L * query.length()));
+
+        for(int i = 0, size = suggestions.size(); i < size; i++) {
+            sizeBytes += (SUGGESTION_OVERHEAD_BYTES + (2L * suggestions.get(i).getItemModel().getText().length()));
+        }
+
+        return sizeBytes;
+    }
+
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.providers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+/**
+ * A {@link SuggestionProvider} whose lookups affect each other (e.g., a lookup
+ * cancelling the one of the previous query), which is able to look the suggestions
+ * up in advance without affecting the lookups of the actual queries.
+ */
+public interface PrefetchableSuggestionProvider extends SuggestionProvider {
+
+    /**
+     * Looks the suggestions for the query up in advance (see {@link SuggestionPrefetcher}).
+     * Same as {@link #getSuggestions(String)}, but never affects the other lookups,
+     * so that the lookup of the actual query is not disturbed by the prefetches.
+     *
+     * @param query The query to look the suggestions up for
+     *
+     * @return The result of the lookup
+     *
+     * @throws Exception If the lookup has failed
+     */
+    @NonNull
+    @WorkerThread
+    SuggestionResult prefetchSuggestions(@NonNull String query) throws Exception;
+
+}
@@ -0,0 +1,534 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.providers;
+
+import android.net.http.HttpResponseCache;
+
+import com.paulrybitskyi.persistentsearchview.utils.Preconditions;
+import com.paulrybitskyi.persistentsearchview.utils.SuggestionCreationUtil;
+
+import org.json.JSONArray;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+/**
+ * A {@link SuggestionProvider} looking the suggestions up on a server over HTTP.
+ * <br>
+ * The lookups of the same URL running at the same time share a single request,
+ * and a request is cancelled (its connection being closed) as soon as a lookup
+ * of another query starts, as the result of the superseded query is no longer needed.
+ * The prefetches (see {@link #prefetchSuggestions(String)}) neither supersede the lookups
+ * nor get superseded by them, so a prefetch never cancels the request the user is waiting for.
+ * The responses are cached according to their HTTP caching headers in the on-disk
+ * {@link HttpResponseCache}, if the cache directory is specified. The provider only
+ * installs the platform's cache and allows the connections to use it, the caching
+ * itself (honoring the headers, revalidating the stale responses) being delegated
+ * to the platform.
+ * <br>
+ * Each lookup has a hard timeout. When the lookup runs out of time or fails,
+ * the result of the fallback provider (e.g., a local one) is returned, if specified.
+ * Such results are always partial, so that they are never taken for the complete
+ * results of the server (e.g., by the {@link CachingSuggestionProvider}).
+ * <br>
+ * Use the {@link Builder} class to create instances of this class.
+ */
+public final class RemoteSuggestionProvider implements PrefetchableSuggestionProvider {
+
+
+    /**
+     * The default hard timeout of a lookup.
+     */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 2000L;
+
+    /**
+     * A parser of the responses in the OpenSearch suggestions format, i.e.
+     * <code>["query", ["suggestion 1", "suggestion 2"]]</code>, optionally followed by
+     * the arrays of the descriptions and the URLs of the suggestions, as well as of plain
+     * arrays of the suggestions, i.e. <code>["suggestion 1", "suggestion 2"]</code>.
+     * The suggestions are treated as the regular ones and the results as the partial
+     * ones, as servers usually limit the amount of the returned suggestions.
+     */
+    public static final ResponseParser JSON_RESPONSE_PARSER = new ResponseParser() {
+
+        @NonNull
+        @Override
+        public SuggestionResult parse(@NonNull InputStream inputStream, @NonNull String charset) throws Exception {
+            final JSONArray responseArray = new JSONArray(readFully(inputStream, charset));
+            final boolean isOpenSearchResponse = (
+                (responseArray.length() >= 2) &&
+                (responseArray.opt(0) instanceof String) &&
+                (responseArray.optJSONArray(1) != null)
+            );
+            final JSONArray suggestionsArray = (isOpenSearchResponse ? responseArray.getJSONArray(1) : responseArray);
+            final List<String> suggestions = new ArrayList<>(suggestionsArray.length());
+
+            for(int i = 0; i < suggestionsArray.length(); i++) {
+                final String suggestion = suggestionsArray.optString(i, "");
+
+                if(!suggestion.isEmpty()) {
+                    suggestions.add(suggestion);
+                }
+            }
+
+            return SuggestionResult.partial(SuggestionCreationUtil.asRegularSearchSuggestions(suggestions));
+        }
+
+    };
+
+    private static final String DEFAULT_CHARSET = "UTF-8";
+    private static final String CHARSET_PARAMETER = "charset=";
+    private static final String QUERY_PLACEHOLDER = "{query}";
+
+
+    private final long timeoutMillis;
+
+    private final UrlFactory urlFactory;
+
+    private final ResponseParser responseParser;
+
+    private final SuggestionProvider fallbackProvider;
+
+    private final Map<String, String> headers;
+
+    private final Map<String, Request> inFlightRequests;
+
+    private final AtomicReference<Request> latestRequest;
+
+    private final ExecutorService requestExecutor;
+
+
+    private RemoteSuggestionProvider(Builder builder) {
+        this.timeoutMillis = builder.timeoutMillis;
+        this.urlFactory = builder.urlFactory;
+        this.responseParser = builder.responseParser;
+        this.fallbackProvider = builder.fallbackProvider;
+        this.headers = new LinkedHashMap<>(builder.headers);
+        this.inFlightRequests = new ConcurrentHashMap<>();
+        this.latestRequest = new AtomicReference<>();
+        this.requestExecutor = Executors.newCachedThreadPool(new LookupThreadFactory("RemoteSuggestionProvider"));
+    }
+
+
+    @NonNull
+    @WorkerThread
+    @Override
+    public SuggestionResult getSuggestions(@NonNull String query) throws Exception {
+        Preconditions.nonNull(query);
+
+        final Request request = obtainRequest(urlFactory.createUrl(query));
+        final Request previousRequest = latestRequest.getAndSet(request);
+
+        // The result of the previous query is no longer needed
+        if((previousRequest != null) && (previousRequest != request)) {
+            previousRequest.cancel();
+        }
+
+        return awaitResult(request, query);
+    }
+
+
+    /**
+     * Looks the suggestions for the query up without cancelling the request
+     * of the latest lookup. The lookup of the same query started in the meantime
+     * joins the prefetch's request, which stays in flight even if the prefetching
+     * thread gets interrupted.
+     *
+     * @param query The query to look the suggestions up for
+     *
+     * @return The result of the lookup
+     *
+     * @throws Exception If the lookup has failed
+     */
+    @NonNull
+    @WorkerThread
+    @Override
+    public SuggestionResult prefetchSuggestions(@NonNull String query) throws Exception {
+        Preconditions.nonNull(query);
+
+        return awaitResult(obtainRequest(urlFactory.createUrl(query)), query);
+    }
+
+
+    private SuggestionResult awaitResult(Request request, String query) throws Exception {
+        try {
+            return request.task.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch(TimeoutException | ExecutionException | CancellationException exception) {
+            if(fallbackProvider == null) {
+                throw exception;
+            }
+
+            return SuggestionResult.partial(fallbackProvider.getSuggestions(query).getSuggestions());
+        }
+    }
+
+
+    private Request obtainRequest(URL url) {
+        final String key = url.toString();
+
+        while(true) {
+            final Request inFlightRequest = inFlightRequests.get(key);
+
+            // Joining the identical request, unless it is being cancelled
+            if((inFlightRequest != null) && !inFlightRequest.task.isCancelled()) {
+                return inFlightRequest;
+            }
+
+            final Request request = new Request(key, url);
+            final boolean isRegistered = (
+                (inFlightRequest == null) ?
+                (inFlightRequests.putIfAbsent(key, request) == null) :
+                inFlightRequests.replace(key, inFlightRequest, request)
+            );
+
+            if(isRegistered) {
+                requestExecutor.execute(request.task);
+                return request;
+            }
+        }
+    }
+
+
+    private SuggestionResult performRequest(Request request) throws Exception {
+        final HttpURLConnection connection = (HttpURLConnection) request.url.openConnection();
+
+        request.connection = connection;
+
+        try {
+            // Checking after publishing the connection, so that either
+            // the canceller disconnects it or the cancellation is seen here
+            if(request.task.isCancelled()) {
+                throw new CancellationException();
+            }
+
+            connection.setConnectTimeout((int) timeoutMillis);
+            connection.setReadTimeout((int) timeoutMillis);
+            connection.setUseCaches(true);
+
+            for(Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+
+            final int responseCode = connection.getResponseCode();
+
+            if((responseCode < HttpURLConnection.HTTP_OK) || (responseCode >= HttpURLConnection.HTTP_MULT_CHOICE)) {
+                throw new IOException(String.format(Locale.US, "The server has responded with %d.", responseCode));
+            }
+
+            try(InputStream inputStream = connection.getInputStream()) {
+                return responseParser.parse(inputStream, getCharset(connection));
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+
+    private static String getCharset(HttpURLConnection connection) {
+        final String contentType = connection.getContentType();
+
+        if(contentType == null) {
+            return DEFAULT_CHARSET;
+        }
+
+        for(String parameter : contentType.split(";")) {
+            final String trimmedParameter = parameter.trim();
+
+            if(trimmedParameter.regionMatches(true, 0, CHARSET_PARAMETER, 0, CHARSET_PARAMETER.length())) {
+                return trimmedParameter.substring(CHARSET_PARAMETER.length()).replace("\"", "");
+            }
+        }
+
+        return DEFAULT_CHARSET;
+    }
+
+
+    private static String readFully(InputStream inputStream, String charset) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int readByteCount;
+
+        while((readByteCount = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, readByteCount);
+        }
+
+        return outputStream.toString(charset);
+    }
+
+
+    /**
+     * Cancels all of the running requests and shuts down the threads performing them.
+     * The provider should not be used afterwards.
+     */
+    public void release() {
+        for(Request request : inFlightRequests.values()) {
+            request.cancel();
+        }
+
+        requestExecutor.shutdownNow();
+    }
+
+
+    private final class Request {
+
+        private final String key;
+
+        private final URL url;
+
+        private volatile HttpURLConnection connection;
+
+        private final FutureTask<SuggestionResult> task = new FutureTask<SuggestionResult>(() -> performRequest(this)) {
+
+            @Override
+            protected void done() {
+                inFlightRequests.remove(key, Request.this);
+            }
+
+        };
+
+        private Request(String key, URL url) {
+            this.key = key;
+            this.url = url;
+        }
+
+        private void cancel() {
+            task.cancel(true);
+
+            // The blocking I/O does not respond to the interruption
+            final HttpURLConnection connection = this.connection;
+
+            if(connection != null) {
+                connection.disconnect();
+            }
+        }
+
+    }
+
+
+    /**
+     * A factory of the URLs of the requests.
+     */
+    public interface UrlFactory {
+
+        /**
+         * Creates the URL of the request looking the suggestions for the query up.
+         *
+         * @param query The query
+         *
+         * @return The URL of the request
+         *
+         * @throws IOException If the URL cannot be created
+         */
+        @NonNull
+        URL createUrl(@NonNull String query) throws IOException;
+
+    }
+
+
+    /**
+     * A parser of the responses of the server.
+     */
+    public interface ResponseParser {
+
+        /**
+         * Parses the body of the response.
+         *
+         * @param inputStream The body of the response
+         * @param charset The charset of the body
+         *
+         * @return The parsed result
+         *
+         * @throws Exception If the body cannot be parsed
+         */
+        @NonNull
+        SuggestionResult parse(@NonNull InputStream inputStream, @NonNull String charset) throws Exception;
+
+    }
+
+
+    /**
+     * A builder used for creating instances of the {@link RemoteSuggestionProvider} class.
+     */
+    public static final class Builder {
+
+        private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+
+        private long cacheMaxSizeBytes;
+
+        private File cacheDirectory;
+
+        private UrlFactory urlFactory;
+
+        private ResponseParser responseParser = JSON_RESPONSE_PARSER;
+
+        private SuggestionProvider fallbackProvider;
+
+        private final Map<String, String> headers = new LinkedHashMap<>();
+
+        /**
+         * Sets the template of the URLs of the requests, in which the {@code {query}}
+         * placeholder is replaced with the URL encoded query
+         * (e.g., {@code https://example.com/suggest?q={query}}).
+         *
+         * @param urlTemplate The template of the URLs
+         *
+         * @return this
+         */
+        public Builder setUrlTemplate(@NonNull final String urlTemplate) {
+            Preconditions.nonEmpty(urlTemplate);
+            Preconditions.isTrue("The URL template must contain the " + QUERY_PLACEHOLDER + " placeholder.", urlTemplate.contains(QUERY_PLACEHOLDER));
+
+            return setUrlFactory(query -> new URL(urlTemplate.replace(QUERY_PLACEHOLDER, URLEncoder.encode(query, DEFAULT_CHARSET))));
+        }
+
+        /**
+         * Sets the factory of the URLs of the requests.
+         *
+         * @param urlFactory The factory to set
+         *
+         * @return this
+         */
+        public Builder setUrlFactory(@NonNull UrlFactory urlFactory) {
+            Preconditions.nonNull(urlFactory);
+
+            this.urlFactory = urlFactory;
+            return this;
+        }
+
+        /**
+         * Sets the parser of the responses. Defaults to the {@link #JSON_RESPONSE_PARSER}.
+         *
+         * @param responseParser The parser to set
+         *
+         * @return this
+         */
+        public Builder setResponseParser(@NonNull ResponseParser responseParser) {
+            Preconditions.nonNull(responseParser);
+
+            this.responseParser = responseParser;
+            return this;
+        }
+
+        /**
+         * Adds a header to send with every request.
+         *
+         * @param name The name of the header
+         * @param value The value of the header
+         *
+         * @return this
+         */
+        public Builder addHeader(@NonNull String name, @NonNull String value) {
+            Preconditions.nonEmpty(name);
+            Preconditions.nonNull(value);
+
+            headers.put(name, value);
+            return this;
+        }
+
+        /**
+         * Sets the hard timeout of a lookup. Defaults to the {@link #DEFAULT_TIMEOUT_MILLIS}.
+         *
+         * @param timeoutMillis The timeout to set
+         *
+         * @return this
+         */
+        public Builder setTimeoutMillis(long timeoutMillis) {
+            Preconditions.isTrue("The timeout must be positive.", (timeoutMillis > 0L));
+
+            this.timeoutMillis = timeoutMillis;
+            return this;
+        }
+
+        /**
+         * Sets the provider to fall back to when a lookup runs out of time or fails.
+         *
+         * @param fallbackProvider The provider to set
+         *
+         * @return this
+         */
+        public Builder setFallbackProvider(@Nullable SuggestionProvider fallbackProvider) {
+            this.fallbackProvider = fallbackProvider;
+            return this;
+        }
+
+        /**
+         * Sets the directory of the on-disk HTTP response cache. As the cache gets installed
+         * process-wide (see {@link HttpResponseCache#install(File, long)}), an already
+         * installed cache is used instead, if any.
+         *
+         * @param cacheDirectory The directory of the cache
+         * @param cacheMaxSizeBytes The maximum size of the cache in bytes
+         *
+         * @return this
+         */
+        public Builder setCacheDirectory(@NonNull File cacheDirectory, long cacheMaxSizeBytes) {
+            Preconditions.nonNull(cacheDirectory);
+            Preconditions.isTrue("The cache size must be positive.", (cacheMaxSizeBytes > 0L));
+
+            this.cacheDirectory = cacheDirectory;
+            this.cacheMaxSizeBytes = cacheMaxSizeBytes;
+            return this;
+        }
+
+        /**
+         * Creates the provider, installing the HTTP response cache if necessary.
+         *
+         * @return The created provider
+         */
+        public RemoteSuggestionProvider build() {
+            Preconditions.isTrue("The URL template or factory must be set.", (urlFactory != null));
+
+            if((cacheDirectory != null) && (HttpResponseCache.getInstalled() == null)) {
+                try {
+                    HttpResponseCache.install(cacheDirectory, cacheMaxSizeBytes);
+                } catch(IOException exception) {
+                    // Working without the cache then, as the responses
+                    // can still be fetched from the server
+                }
+            }
+
+            return new RemoteSuggestionProvider(this);
+        }
+
+    }
+
+
+}
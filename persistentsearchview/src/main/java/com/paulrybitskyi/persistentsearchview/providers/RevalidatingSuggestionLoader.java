@@ -0,0 +1,299 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.providers;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.paulrybitskyi.persistentsearchview.PersistentSearchView;
+import com.paulrybitskyi.persistentsearchview.utils.Preconditions;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A loader of the suggestions following the stale-while-revalidate approach.
+ * <br>
+ * When a query is loaded, the cached result of the query or, if there is none,
+ * the filtered result of its longest cached prefix (see
+ * {@link CachingSuggestionProvider#getCachedSuggestions(String)}) is shown right
+ * away, while the fresh result is being looked up in the background. Only the
+ * results that can be retrieved without blocking are shown synchronously (see
+ * {@link CachingSuggestionProvider#peekCachedSuggestions(String)}), the ones
+ * in the slow tiers of the cache (e.g., on disk) are looked up in the background
+ * and shown as soon as they are retrieved. Once the fresh
+ * result arrives, it is swapped in (see {@link PersistentSearchView#swapSuggestions(java.util.List, boolean)}),
+ * so only the rows that have changed get rebound. While the fresh result is being
+ * looked up, the progress bar of the search view is shown in place of its left button.
+ * <br>
+ * Optionally, a {@link SuggestionPrefetcher} can be set to warm the cache up for the
+ * likely next queries after each fresh result arrives (see {@link #setPrefetcher(SuggestionPrefetcher)}).
+ * <br>
+ * Must be used from the main thread.
+ */
+public final class RevalidatingSuggestionLoader {
+
+
+    private final boolean expandIfNecessary;
+    private final boolean isRefreshExecutorOwned;
+
+    private boolean isRefreshing;
+    private boolean wasLeftButtonVisible;
+
+    private long loadGeneration;
+
+    private Future<?> refreshFuture;
+
+    private final CachingSuggestionProvider provider;
+
+    private SuggestionPrefetcher prefetcher;
+
+    private final PersistentSearchView searchView;
+
+    private final ExecutorService refreshExecutor;
+
+    private final Handler mainHandler;
+
+
+    /**
+     * Creates a loader expanding the search view if necessary and performing
+     * the lookups on its own background thread.
+     *
+     * @param provider The provider to load the suggestions with
+     * @param searchView The search view to show the suggestions on
+     */
+    public RevalidatingSuggestionLoader(@NonNull CachingSuggestionProvider provider,
+                                        @NonNull PersistentSearchView searchView) {
+        this(provider, searchView, true, null);
+    }
+
+
+    /**
+     * Creates a loader.
+     *
+     * @param provider The provider to load the suggestions with
+     * @param searchView The search view to show the suggestions on
+     * @param expandIfNecessary Whether to expand the search view if it's in a collapsed state
+     * @param refreshExecutor The executor to look the fresh results up on or null to use
+     * the loader's own background thread
+     */
+    public RevalidatingSuggestionLoader(@NonNull CachingSuggestionProvider provider,
+                                        @NonNull PersistentSearchView searchView,
+                                        boolean expandIfNecessary,
+                                        @Nullable ExecutorService refreshExecutor) {
+        Preconditions.nonNull(provider);
+        Preconditions.nonNull(searchView);
+
+        this.provider = provider;
+        this.searchView = searchView;
+        this.expandIfNecessary = expandIfNecessary;
+        this.isRefreshExecutorOwned = (refreshExecutor == null);
+        this.refreshExecutor = (isRefreshExecutorOwned ? Executors.newSingleThreadExecutor(new LookupThreadFactory("RevalidatingSuggestionLoader")) : refreshExecutor);
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+
+    /**
+     * Loads the suggestions for the query, cancelling the previous load (if any).
+     *
+     * @param query The query to load the suggestions for
+     */
+    @MainThread
+    public void load(@NonNull String query) {
+        Preconditions.nonNull(query);
+
+        cancelRefresh();
+
+        final SuggestionResult staleResult = provider.peekCachedSuggestions(query);
+
+        if(staleResult != null) {
+            showStaleResult(staleResult);
+        }
+
+        showRefreshingState();
+
+        final long generation = loadGeneration;
+        final boolean shouldLookUpStaleResult = (staleResult == null);
+
+        refreshFuture = refreshExecutor.submit(() -> refresh(query, generation, shouldLookUpStaleResult));
+    }
+
+
+    private void showStaleResult(SuggestionResult staleResult) {
+        // Copying the suggestions, as the search view modifies
+        // them (e.g., when the user removes one of them)
+        searchView.setSuggestions(new ArrayList<>(staleResult.getSuggestions()), expandIfNecessary);
+    }
+
+
+    private void refresh(String query, long generation, boolean shouldLookUpStaleResult) {
+        if(shouldLookUpStaleResult) {
+            final SuggestionResult staleResult = provider.getCachedSuggestions(query);
+
+            if(staleResult != null) {
+                mainHandler.post(() -> onStaleResultRetrieved(generation, staleResult));
+            }
+        }
+
+        SuggestionResult result;
+
+        try {
+            result = provider.refreshSuggestions(query);
+        } catch(Exception exception) {
+            result = null;
+        }
+
+        final SuggestionResult freshResult = result;
+
+        mainHandler.post(() -> onRefreshed(query, generation, freshResult));
+    }
+
+
+    private void onStaleResultRetrieved(long generation, SuggestionResult staleResult) {
+        // The result of a superseded or a cancelled load
+        if(generation == loadGeneration) {
+            showStaleResult(staleResult);
+        }
+    }
+
+
+    private void onRefreshed(String query, long generation, SuggestionResult freshResult) {
+        // The result of a superseded or a cancelled load
+        if(generation != loadGeneration) {
+            return;
+        }
+
+        refreshFuture = null;
+
+        hideRefreshingState();
+
+        // Keeping the stale suggestions if the lookup has failed
+        if(freshResult == null) {
+            return;
+        }
+
+        searchView.swapSuggestions(new ArrayList<>(freshResult.getSuggestions()), expandIfNecessary);
+
+        if(prefetcher != null) {
+            prefetcher.prefetch(query, freshResult);
+        }
+    }
+
+
+    /**
+     * Sets the prefetcher to warm the cache up for the likely next queries
+     * after each fresh result arrives. The prefetcher should use the same
+     * provider as the loader does.
+     *
+     * @param prefetcher The prefetcher or null to disable the prefetching
+     */
+    @MainThread
+    public void setPrefetcher(@Nullable SuggestionPrefetcher prefetcher) {
+        if(this.prefetcher != null) {
+            this.prefetcher.cancel();
+        }
+
+        this.prefetcher = prefetcher;
+    }
+
+
+    /**
+     * Cancels the current load (if any).
+     */
+    @MainThread
+    public void cancel() {
+        cancelRefresh();
+        hideRefreshingState();
+    }
+
+
+    private void cancelRefresh() {
+        loadGeneration++;
+
+        // The actual query has arrived
+        if(prefetcher != null) {
+            prefetcher.cancel();
+        }
+
+        if(refreshFuture != null) {
+            refreshFuture.cancel(true);
+            refreshFuture = null;
+        }
+    }
+
+
+    /**
+     * Cancels the current load and shuts down the loader's own background thread (if used).
+     * The loader should not be used afterwards.
+     */
+    @MainThread
+    public void release() {
+        cancel();
+
+        if(isRefreshExecutorOwned) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Checks whether the fresh result is being looked up.
+     *
+     * @return true if it is; false otherwise
+     */
+    @MainThread
+    public boolean isRefreshing() {
+        return isRefreshing;
+    }
+
+
+    private void showRefreshingState() {
+        if(isRefreshing) {
+            return;
+        }
+
+        isRefreshing = true;
+        wasLeftButtonVisible = searchView.isLeftButtonVisible();
+
+        searchView.showProgressBarWithLeftButton();
+    }
+
+
+    private void hideRefreshingState() {
+        if(!isRefreshing) {
+            return;
+        }
+
+        isRefreshing = false;
+
+        // Not showing the left button if it has been hidden by the app
+        if(wasLeftButtonVisible) {
+            searchView.hideProgressBarWithLeftButton();
+        } else {
+            searchView.hideProgressBar();
+        }
+    }
+
+
+}
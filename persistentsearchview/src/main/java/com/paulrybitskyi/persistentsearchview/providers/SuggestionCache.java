@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.providers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A cache of the results of the lookups performed by the {@link SuggestionProvider}s,
+ * keyed by the queries. The implementations must be thread-safe.
+ */
+public interface SuggestionCache {
+
+    /**
+     * Gets the cached result of the query.
+     *
+     * @param query The query
+     *
+     * @return The cached result or null if there is none
+     */
+    @Nullable
+    SuggestionResult get(@NonNull String query);
+
+    /**
+     * Gets the cached result of the query only if it can be retrieved without
+     * blocking (e.g., on a disk I/O), so it's safe to call from the main thread.
+     *
+     * @param query The query
+     *
+     * @return The cached result or null if there is none or if it cannot
+     * be retrieved without blocking
+     */
+    @Nullable
+    SuggestionResult peek(@NonNull String query);
+
+    /**
+     * Caches the result of the query.
+     *
+     * @param query The query
+     * @param result The result of the query
+     */
+    void put(@NonNull String query, @NonNull SuggestionResult result);
+
+    /**
+     * Removes all of the cached results.
+     */
+    void clear();
+
+}
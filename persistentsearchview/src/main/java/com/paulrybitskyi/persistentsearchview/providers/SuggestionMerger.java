@@ -0,0 +1,501 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.providers;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.paulrybitskyi.persistentsearchview.PersistentSearchView;
+import com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionItem;
+import com.paulrybitskyi.persistentsearchview.utils.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+/**
+ * A merger of the suggestions coming from several {@link SuggestionProvider}s
+ * (e.g., the recent searches, a local catalog and a server).
+ * <br>
+ * The providers are queried in parallel and their results are rendered as soon
+ * as they arrive: the first (non-empty) result replaces the current suggestions
+ * and the following ones are inserted into them, so the fast providers are shown
+ * right away and the slow ones are added without rebinding the already shown rows.
+ * The rows are grouped by the providers and the groups are ordered by the providers'
+ * priorities (the higher the priority, the closer to the top the group is),
+ * regardless of the order the results arrive in. The positions of the groups are
+ * found within the currently shown suggestions, so the rows the user has removed
+ * in the meantime do not shift the groups. The suggestions are de-duplicated
+ * by their track keys, the first arrived one winning.
+ * <br>
+ * Each provider has a deadline, after which its lookup gets interrupted and
+ * its result, even if arrives later, is ignored.
+ * <br>
+ * Use the {@link Builder} class to create instances of this class. The merger
+ * must be used from the main thread, which the listeners are invoked on as well.
+ */
+public final class SuggestionMerger {
+
+
+    /**
+     * The default deadline of a provider.
+     */
+    public static final long DEFAULT_DEADLINE_MILLIS = 1000L;
+
+    private static final int SOURCE_STATE_PENDING = 0;
+    private static final int SOURCE_STATE_FINISHED = 1;
+    private static final int SOURCE_STATE_FAILED = 2;
+    private static final int SOURCE_STATE_TIMED_OUT = 3;
+
+
+    private final boolean isLookupExecutorOwned;
+
+    private Lookup currentLookup;
+
+    private final List<Source> sources;
+
+    private final ExecutorService lookupExecutor;
+
+    private final Handler mainHandler;
+
+
+    private SuggestionMerger(Builder builder) {
+        this.sources = Collections.unmodifiableList(new ArrayList<>(builder.sources));
+        this.isLookupExecutorOwned = (builder.lookupExecutor == null);
+        this.lookupExecutor = (isLookupExecutorOwned ? Executors.newCachedThreadPool(new LookupThreadFactory("SuggestionMerger")) : builder.lookupExecutor);
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+
+    /**
+     * Looks the suggestions for the query up, cancelling the previous lookup (if any).
+     *
+     * @param query The query to look the suggestions up for
+     * @param listener The listener to deliver the suggestions to
+     */
+    @MainThread
+    public void merge(@NonNull String query, @NonNull Listener listener) {
+        Preconditions.nonNull(query);
+        Preconditions.nonNull(listener);
+
+        cancel();
+
+        currentLookup = new Lookup(query, listener);
+        currentLookup.start();
+    }
+
+
+    /**
+     * Cancels the current lookup (if any). The listener of the cancelled lookup
+     * does not get invoked anymore.
+     */
+    @MainThread
+    public void cancel() {
+        if(currentLookup != null) {
+            currentLookup.cancel();
+            currentLookup = null;
+        }
+    }
+
+
+    /**
+     * Cancels the current lookup and shuts down the default lookup executor (if used).
+     * The merger should not be used afterwards.
+     */
+    @MainThread
+    public void release() {
+        cancel();
+
+        if(isLookupExecutorOwned) {
+            lookupExecutor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Checks whether there is a lookup in progress.
+     *
+     * @return true if there is; false otherwise
+     */
+    @MainThread
+    public boolean isMerging() {
+        return (currentLookup != null);
+    }
+
+
+    /**
+     * Creates a listener rendering the merged suggestions on the specified search view.
+     *
+     * @param searchView The search view to render the suggestions on
+     * @param expandIfNecessary Whether to expand the search view if it's in a collapsed state
+     *
+     * @return The created listener
+     */
+    @NonNull
+    public static Listener searchViewListener(@NonNull final PersistentSearchView searchView, final boolean expandIfNecessary) {
+        Preconditions.nonNull(searchView);
+
+        return new Listener() {
+
+            @Override
+            public void onSuggestionsSet(@NonNull List<SuggestionItem> suggestions) {
+                searchView.setSuggestions(suggestions, expandIfNecessary);
+            }
+
+            @Override
+            public void onSuggestionsInserted(int position, @NonNull List<SuggestionItem> suggestions) {
+                searchView.addSuggestions(position, suggestions);
+            }
+
+            @NonNull
+            @Override
+            public List<SuggestionItem> getSuggestions() {
+                return searchView.getSearchController().getSuggestions();
+            }
+
+            @Override
+            public void onLookupCompleted(@NonNull String query, boolean isComplete) {
+                // Nothing to render
+            }
+
+        };
+    }
+
+
+    private final class Lookup {
+
+        private boolean isCancelled;
+        private boolean areSuggestionsSet;
+        private boolean isComplete;
+
+        private int pendingSourceCount;
+
+        private final int[] sourceStates;
+
+        private final String query;
+
+        private final Listener listener;
+
+        private final Future<?>[] sourceFutures;
+
+        private final Map<Long, Integer> sourceIndices;
+
+        private Lookup(String query, Listener listener) {
+            this.query = query;
+            this.listener = listener;
+            this.isComplete = true;
+            this.pendingSourceCount = sources.size();
+            this.sourceStates = new int[sources.size()];
+            this.sourceFutures = new Future<?>[sources.size()];
+            this.sourceIndices = new HashMap<>();
+        }
+
+        private void start() {
+            final long startTimeMillis = SystemClock.uptimeMillis();
+
+            for(int i = 0; i < sources.size(); i++) {
+                final int sourceIndex = i;
+                final Source source = sources.get(i);
+
+                sourceFutures[i] = lookupExecutor.submit(() -> lookUp(sourceIndex, source));
+
+                // Using the lookup as a token to be able to remove
+                // all of its callbacks at once when it gets cancelled
+                mainHandler.postAtTime(
+                    () -> onSourceDeadlineReached(sourceIndex),
+                    this,
+                    (startTimeMillis + source.deadlineMillis)
+                );
+            }
+        }
+
+        private void lookUp(int sourceIndex, Source source) {
+            SuggestionResult result;
+
+            try {
+                result = source.provider.getSuggestions(query);
+            } catch(Exception exception) {
+                result = null;
+            }
+
+            final SuggestionResult sourceResult = result;
+
+            mainHandler.postAtTime(
+                () -> onSourceFinished(sourceIndex, sourceResult),
+                this,
+                SystemClock.uptimeMillis()
+            );
+        }
+
+        private void onSourceFinished(int sourceIndex, SuggestionResult result) {
+            if(isCancelled || (sourceStates[sourceIndex] != SOURCE_STATE_PENDING)) {
+                return;
+            }
+
+            if(result != null) {
+                sourceStates[sourceIndex] = SOURCE_STATE_FINISHED;
+                isComplete &= result.isComplete();
+
+                render(sourceIndex, result.getSuggestions());
+            } else {
+                sourceStates[sourceIndex] = SOURCE_STATE_FAILED;
+                isComplete = false;
+            }
+
+            onSourceSettled();
+        }
+
+        private void onSourceDeadlineReached(int sourceIndex) {
+            if(isCancelled || (sourceStates[sourceIndex] != SOURCE_STATE_PENDING)) {
+                return;
+            }
+
+            sourceStates[sourceIndex] = SOURCE_STATE_TIMED_OUT;
+            sourceFutures[sourceIndex].cancel(true);
+            isComplete = false;
+
+            onSourceSettled();
+        }
+
+        private void render(int sourceIndex, List<SuggestionItem> suggestions) {
+            final List<SuggestionItem> newSuggestions = new ArrayList<>(suggestions.size());
+
+            for(SuggestionItem suggestion : suggestions) {
+                if(!sourceIndices.containsKey(suggestion.getTrackKey())) {
+                    sourceIndices.put(suggestion.getTrackKey(), sourceIndex);
+                    newSuggestions.add(suggestion);
+                }
+            }
+
+            if(newSuggestions.isEmpty()) {
+                return;
+            }
+
+            if(!areSuggestionsSet) {
+                areSuggestionsSet = true;
+                listener.onSuggestionsSet(newSuggestions);
+                return;
+            }
+
+            listener.onSuggestionsInserted(findInsertionPosition(sourceIndex), newSuggestions);
+        }
+
+        private int findInsertionPosition(int sourceIndex) {
+            // The rows of the providers with the higher priorities come first. Looking
+            // them up within the shown suggestions rather than counting the delivered
+            // ones, since the user might have removed some of them in the meantime
+            final List<SuggestionItem> suggestions = listener.getSuggestions();
+            int position = 0;
+
+            for(int i = 0; i < suggestions.size(); i++) {
+                final Integer rowSourceIndex = sourceIndices.get(suggestions.get(i).getTrackKey());
+
+                if((rowSourceIndex != null) && (rowSourceIndex < sourceIndex)) {
+                    position = (i + 1);
+                }
+            }
+
+            return position;
+        }
+
+        private void onSourceSettled() {
+            pendingSourceCount--;
+
+            if(pendingSourceCount > 0) {
+                return;
+            }
+
+            mainHandler.removeCallbacksAndMessages(this);
+
+            if(currentLookup == this) {
+                currentLookup = null;
+            }
+
+            // None of the providers has found anything, hence
+            // clearing the suggestions of the previous query
+            if(!areSuggestionsSet) {
+                areSuggestionsSet = true;
+                listener.onSuggestionsSet(new ArrayList<>());
+            }
+
+            listener.onLookupCompleted(query, isComplete);
+        }
+
+        private void cancel() {
+            isCancelled = true;
+
+            mainHandler.removeCallbacksAndMessages(this);
+
+            for(int i = 0; i < sourceFutures.length; i++) {
+                if(sourceStates[i] == SOURCE_STATE_PENDING) {
+                    sourceFutures[i].cancel(true);
+                }
+            }
+        }
+
+    }
+
+
+    private static final class Source {
+
+        private final int priority;
+
+        private final long deadlineMillis;
+
+        private final SuggestionProvider provider;
+
+        private Source(SuggestionProvider provider, int priority, long deadlineMillis) {
+            this.provider = provider;
+            this.priority = priority;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+    }
+
+
+    /**
+     * A listener of the merged suggestions.
+     */
+    public interface Listener {
+
+        /**
+         * Gets called when the first of the providers has found the suggestions
+         * (or when none of them has found any), the suggestions replacing
+         * the ones of the previous query.
+         *
+         * @param suggestions The suggestions
+         */
+        void onSuggestionsSet(@NonNull List<SuggestionItem> suggestions);
+
+        /**
+         * Gets called when one of the following providers has found the suggestions,
+         * which should be inserted into the already set ones.
+         *
+         * @param position The position to insert the suggestions at
+         * @param suggestions The suggestions
+         */
+        void onSuggestionsInserted(int position, @NonNull List<SuggestionItem> suggestions);
+
+        /**
+         * Gets the currently shown suggestions, which the positions of
+         * the inserted suggestions are found within.
+         *
+         * @return The currently shown suggestions
+         */
+        @NonNull
+        List<SuggestionItem> getSuggestions();
+
+        /**
+         * Gets called when all of the providers have either delivered their
+         * results, failed or run out of time.
+         *
+         * @param query The query of the lookup
+         * @param isComplete Whether all of the providers have delivered complete results in time
+         */
+        void onLookupCompleted(@NonNull String query, boolean isComplete);
+
+    }
+
+
+    /**
+     * A builder used for creating instances of the {@link SuggestionMerger} class.
+     */
+    public static final class Builder {
+
+        private ExecutorService lookupExecutor;
+
+        private final List<Source> sources = new ArrayList<>();
+
+        /**
+         * Adds a provider with the {@link #DEFAULT_DEADLINE_MILLIS}.
+         *
+         * @param provider The provider to add
+         * @param priority The priority of the provider (the higher, the closer to the top its suggestions are)
+         *
+         * @return this
+         */
+        public Builder addProvider(@NonNull SuggestionProvider provider, int priority) {
+            return addProvider(provider, priority, DEFAULT_DEADLINE_MILLIS);
+        }
+
+        /**
+         * Adds a provider.
+         *
+         * @param provider The provider to add
+         * @param priority The priority of the provider (the higher, the closer to the top its suggestions are)
+         * @param deadlineMillis The time the provider has to deliver its result in
+         *
+         * @return this
+         */
+        public Builder addProvider(@NonNull SuggestionProvider provider, int priority, long deadlineMillis) {
+            Preconditions.nonNull(provider);
+            Preconditions.isTrue("The deadline must be positive.", (deadlineMillis > 0L));
+
+            final Source source = new Source(provider, priority, deadlineMillis);
+            int position = sources.size();
+
+            // Keeping the sources ordered by the priorities (descending),
+            // the ones of the same priority in the order of their addition
+            while((position > 0) && (sources.get(position - 1).priority < priority)) {
+                position--;
+            }
+
+            sources.add(position, source);
+
+            return this;
+        }
+
+        /**
+         * Sets the executor to perform the lookups on. The executor should be able to
+         * run all of the lookups in parallel. If not set, an unbounded thread pool is used.
+         *
+         * @param lookupExecutor The executor to set
+         *
+         * @return this
+         */
+        public Builder setLookupExecutor(@NonNull ExecutorService lookupExecutor) {
+            Preconditions.nonNull(lookupExecutor);
+
+            this.lookupExecutor = lookupExecutor;
+            return this;
+        }
+
+        /**
+         * Creates the merger.
+         *
+         * @return The created merger
+         */
+        public SuggestionMerger build() {
+            Preconditions.isTrue("At least a single provider must be added.", !sources.isEmpty());
+
+            return new SuggestionMerger(this);
+        }
+
+    }
+
+
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.providers;
+
+import android.os.Process;
+
+import com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionItem;
+import com.paulrybitskyi.persistentsearchview.utils.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+/**
+ * A prefetcher warming the cache of a {@link CachingSuggestionProvider} up
+ * for the most likely next queries while the user is typing.
+ * <br>
+ * After a lookup is completed, the characters following the query in the texts
+ * of the found suggestions are counted and the results of the query extended
+ * with the most frequent of them are looked up in the background, at a low
+ * priority. The prefetch should be cancelled as soon as the next query arrives
+ * (see {@link #cancel()}), so it never competes with the actual lookup.
+ * The results are looked up through {@link CachingSuggestionProvider#prefetchSuggestions(String)},
+ * so the prefetches never cancel the actual lookups of a {@link PrefetchableSuggestionProvider}.
+ * <br>
+ * The complete results are never prefetched for, as the results of their
+ * extensions are already derived from them by the provider.
+ */
+public final class SuggestionPrefetcher {
+
+
+    /**
+     * The default maximum amount of the next queries prefetched after a lookup.
+     */
+    public static final int DEFAULT_MAX_PREFETCH_COUNT = 3;
+
+
+    private final boolean isPrefetchExecutorOwned;
+
+    private final int maxPrefetchCount;
+
+    private Future<?> prefetchFuture;
+
+    private final CachingSuggestionProvider provider;
+
+    private final ExecutorService prefetchExecutor;
+
+
+    /**
+     * Creates a prefetcher prefetching for up to {@link #DEFAULT_MAX_PREFETCH_COUNT}
+     * next queries on its own low priority background thread.
+     *
+     * @param provider The provider to warm the cache of
+     */
+    public SuggestionPrefetcher(@NonNull CachingSuggestionProvider provider) {
+        this(provider, DEFAULT_MAX_PREFETCH_COUNT, null);
+    }
+
+
+    /**
+     * Creates a prefetcher.
+     *
+     * @param provider The provider to warm the cache of
+     * @param maxPrefetchCount The maximum amount of the next queries prefetched after a lookup
+     * @param prefetchExecutor The executor to prefetch on or null to use the prefetcher's
+     * own low priority background thread
+     */
+    public SuggestionPrefetcher(@NonNull CachingSuggestionProvider provider,
+                                int maxPrefetchCount,
+                                @Nullable ExecutorService prefetchExecutor) {
+        Preconditions.nonNull(provider);
+        Preconditions.isTrue("The max prefetch count must be positive.", (maxPrefetchCount > 0));
+
+        this.provider = provider;
+        this.maxPrefetchCount = maxPrefetchCount;
+        this.isPrefetchExecutorOwned = (prefetchExecutor == null);
+        this.prefetchExecutor = (isPrefetchExecutorOwned ? Executors.newSingleThreadExecutor(new LookupThreadFactory("SuggestionPrefetcher", Process.THREAD_PRIORITY_LOWEST)) : prefetchExecutor);
+    }
+
+
+    /**
+     * Prefetches the results of the most likely next queries, cancelling
+     * the previous prefetch (if any). Should be called once the lookup
+     * of the query is completed.
+     *
+     * @param query The query that has been looked up
+     * @param result The result of the query
+     */
+    public synchronized void prefetch(@NonNull String query, @NonNull SuggestionResult result) {
+        Preconditions.nonNull(query);
+        Preconditions.nonNull(result);
+
+        cancel();
+
+        if(result.isComplete() || (result.size() == 0)) {
+            return;
+        }
+
+        prefetchFuture = prefetchExecutor.submit(() -> prefetchNextQueries(query, result));
+    }
+
+
+    @WorkerThread
+    private void prefetchNextQueries(String query, SuggestionResult result) {
+        final List<String> nextQueries = getLikelyNextQueries(query, result.getSuggestions());
+
+        for(String nextQuery : nextQueries) {
+            if(Thread.currentThread().isInterrupted()) {
+                return;
+            }
+
+            if(provider.getCachedSuggestions(nextQuery) != null) {
+                continue;
+            }
+
+            // The cache lookup might have blocked on the disk I/O for
+            // long enough for the prefetch to have been cancelled
+            if(Thread.currentThread().isInterrupted()) {
+                return;
+            }
+
+            try {
+                provider.prefetchSuggestions(nextQuery);
+            } catch(InterruptedException exception) {
+                return;
+            } catch(Exception exception) {
+                // Moving on to the next query, as the failed one
+                // will be looked up if the user actually types it
+            }
+        }
+    }
+
+
+    private List<String> getLikelyNextQueries(String query, List<SuggestionItem> suggestions) {
+        final Map<Character, Counter> nextCharCounters = new HashMap<>();
+        final int queryLength = query.length();
+
+        for(int i = 0, size = suggestions.size(); i < size; i++) {
+            final String text = suggestions.get(i).getItemModel().getText();
+            final int matchIndex = indexOfIgnoreCase(text, query);
+            final int nextCharIndex = (matchIndex + queryLength);
+
+            if((matchIndex == -1) || (nextCharIndex >= text.length())) {
+                continue;
+            }
+
+            final Character nextChar = Character.toLowerCase(text.charAt(nextCharIndex));
+            Counter counter = nextCharCounters.get(nextChar);
+
+            if(counter == null) {
+                counter = new Counter(nextChar);
+                nextCharCounters.put(nextChar, counter);
+            }
+
+            counter.count++;
+        }
+
+        final List<Counter> counters = new ArrayList<>(nextCharCounters.values());
+
+        // Ordering the next characters from the most to the least frequent one
+        Collections.sort(counters, (counter1, counter2) -> Integer.compare(counter2.count, counter1.count));
+
+        final int nextQueryCount = Math.min(maxPrefetchCount, counters.size());
+        final List<String> nextQueries = new ArrayList<>(nextQueryCount);
+
+        for(int i = 0; i < nextQueryCount; i++) {
+            nextQueries.add(query + counters.get(i).character);
+        }
+
+        return nextQueries;
+    }
+
+
+    private static int indexOfIgnoreCase(String text, String query) {
+        for(int i = 0, lastIndex = (text.length() - query.length()); i <= lastIndex; i++) {
+            if(text.regionMatches(true, i, query, 0, query.length())) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Cancels the current prefetch (if any). Should be called as soon as
+     * the next query arrives.
+     * <br>
+     * The prefetching thread is interrupted, but the providers performing
+     * the lookups on their own threads (e.g., {@link RemoteSuggestionProvider})
+     * keep the request that is in flight, so the actual lookup of the same
+     * query can still join it.
+     */
+    public synchronized void cancel() {
+        if(prefetchFuture != null) {
+            prefetchFuture.cancel(true);
+            prefetchFuture = null;
+        }
+    }
+
+
+    /**
+     * Cancels the current prefetch and shuts down the prefetcher's own background
+     * thread (if used). The prefetcher should not be used afterwards.
+     */
+    public synchronized void release() {
+        cancel();
+
+        if(isPrefetchExecutorOwned) {
+            prefetchExecutor.shutdownNow();
+        }
+    }
+
+
+    private static final class Counter {
+
+        private final char character;
+
+        private int count;
+
+        private Counter(char character) {
+            this.character = character;
+        }
+
+    }
+
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.providers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+/**
+ * A source of the suggestions for a query (e.g., the recent searches,
+ * a local catalog or a server).
+ */
+public interface SuggestionProvider {
+
+    /**
+     * Looks the suggestions for the query up. Gets called on a background
+     * thread and is allowed to block, but should stop as soon as possible
+     * once the calling thread gets interrupted (i.e., when the lookup
+     * has been cancelled or has run out of time).
+     *
+     * @param query The query to look the suggestions up for
+     *
+     * @return The result of the lookup
+     *
+     * @throws Exception If the lookup has failed
+     */
+    @NonNull
+    @WorkerThread
+    SuggestionResult getSuggestions(@NonNull String query) throws Exception;
+
+}
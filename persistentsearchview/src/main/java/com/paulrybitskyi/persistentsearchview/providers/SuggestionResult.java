@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.providers;
+
+import com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionItem;
+import com.paulrybitskyi.persistentsearchview.utils.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+/**
+ * An immutable result of a lookup performed by a {@link SuggestionProvider}.
+ * <br>
+ * A result is complete if it contains all of the suggestions matching the query
+ * and partial if it has been truncated (e.g., limited to the first N matches).
+ */
+public final class SuggestionResult {
+
+
+    private static final SuggestionResult EMPTY = new SuggestionResult(Collections.emptyList(), true);
+
+
+    private final boolean isComplete;
+
+    private final List<SuggestionItem> suggestions;
+
+
+    private SuggestionResult(List<SuggestionItem> suggestions, boolean isComplete) {
+        this.suggestions = suggestions;
+        this.isComplete = isComplete;
+    }
+
+
+    /**
+     * Creates a complete result, i.e. the one containing all of the suggestions
+     * matching the query.
+     *
+     * @param suggestions The suggestions
+     *
+     * @return The result
+     */
+    @NonNull
+    public static SuggestionResult complete(@NonNull List<? extends SuggestionItem> suggestions) {
+        return of(suggestions, true);
+    }
+
+
+    /**
+     * Creates a partial result, i.e. the one containing only some of the suggestions
+     * matching the query.
+     *
+     * @param suggestions The suggestions
+     *
+     * @return The result
+     */
+    @NonNull
+    public static SuggestionResult partial(@NonNull List<? extends SuggestionItem> suggestions) {
+        return of(suggestions, false);
+    }
+
+
+    /**
+     * Creates a result.
+     *
+     * @param suggestions The suggestions
+     * @param isComplete Whether the suggestions are all of the suggestions matching the query
+     *
+     * @return The result
+     */
+    @NonNull
+    public static SuggestionResult of(@NonNull List<? extends SuggestionItem> suggestions, boolean isComplete) {
+        Preconditions.nonNull(suggestions);
+
+        if(suggestions.isEmpty() && isComplete) {
+            return EMPTY;
+        }
+
+        return new SuggestionResult(Collections.unmodifiableList(new ArrayList<>(suggestions)), isComplete);
+    }
+
+
+    /**
+     * Gets the empty complete result.
+     *
+     * @return The empty result
+     */
+    @NonNull
+    public static SuggestionResult empty() {
+        return EMPTY;
+    }
+
+
+    /**
+     * Gets the suggestions of this result.
+     *
+     * @return The unmodifiable list of the suggestions
+     */
+    @NonNull
+    public List<SuggestionItem> getSuggestions() {
+        return suggestions;
+    }
+
+
+    /**
+     * Gets the amount of the suggestions of this result.
+     *
+     * @return The amount of the suggestions
+     */
+    public int size() {
+        return suggestions.size();
+    }
+
+
+    /**
+     * Checks whether this result contains all of the suggestions matching the query.
+     *
+     * @return true if complete; false if partial
+     */
+    public boolean isComplete() {
+        return isComplete;
+    }
+
+
+}
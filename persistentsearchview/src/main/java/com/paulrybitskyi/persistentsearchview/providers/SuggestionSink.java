@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.providers;
+
+import com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionItem;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A sink of the suggestions produced progressively, batch by batch,
+ * for a single query (see {@code PersistentSearchView#openSuggestionSink(boolean)}).
+ * <br>
+ * The first batch replaces the current suggestions of the search view and the following
+ * ones are appended to them without rebinding the already shown rows. The batches
+ * appended within a single frame are rendered at once. The methods can be called
+ * from any thread.
+ */
+public interface SuggestionSink {
+
+    /**
+     * Appends the batch of the suggestions to the result. Gets ignored
+     * if the sink has been cancelled.
+     *
+     * @param suggestions The suggestions to append
+     *
+     * @throws IllegalStateException If the sink has already been completed
+     */
+    void append(@NonNull List<? extends SuggestionItem> suggestions);
+
+    /**
+     * Completes the result. If nothing has been appended, the current
+     * suggestions of the search view are cleared.
+     */
+    void complete();
+
+    /**
+     * Checks whether the sink has been cancelled, i.e. superseded by a newer sink,
+     * in which case the producer of the suggestions should stop producing them.
+     *
+     * @return true if cancelled; false otherwise
+     */
+    boolean isCancelled();
+
+}
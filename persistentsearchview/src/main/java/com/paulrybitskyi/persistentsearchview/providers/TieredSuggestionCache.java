@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.providers;
+
+import com.paulrybitskyi.persistentsearchview.utils.Preconditions;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A two-tier {@link SuggestionCache}, consisting of a fast (e.g., in-memory) tier
+ * and a slow (e.g., on-disk) one. The results found only in the slow tier
+ * are promoted to the fast one.
+ */
+public final class TieredSuggestionCache implements SuggestionCache {
+
+
+    private final SuggestionCache fastCache;
+
+    private final SuggestionCache slowCache;
+
+
+    /**
+     * Creates a cache.
+     *
+     * @param fastCache The fast tier (e.g., a {@link LruSuggestionCache})
+     * @param slowCache The slow tier (e.g., a {@link DiskSuggestionCache})
+     */
+    public TieredSuggestionCache(@NonNull SuggestionCache fastCache, @NonNull SuggestionCache slowCache) {
+        Preconditions.nonNull(fastCache);
+        Preconditions.nonNull(slowCache);
+
+        this.fastCache = fastCache;
+        this.slowCache = slowCache;
+    }
+
+
+    @Nullable
+    @Override
+    public SuggestionResult get(@NonNull String query) {
+        final SuggestionResult fastResult = fastCache.get(query);
+
+        if(fastResult != null) {
+            return fastResult;
+        }
+
+        final SuggestionResult slowResult = slowCache.get(query);
+
+        if(slowResult != null) {
+            fastCache.put(query, slowResult);
+        }
+
+        return slowResult;
+    }
+
+
+    @Nullable
+    @Override
+    public SuggestionResult peek(@NonNull String query) {
+        final SuggestionResult fastResult = fastCache.peek(query);
+
+        return ((fastResult != null) ? fastResult : slowCache.peek(query));
+    }
+
+
+    @Override
+    public void put(@NonNull String query, @NonNull SuggestionResult result) {
+        fastCache.put(query, result);
+        slowCache.put(query, result);
+    }
+
+
+    @Override
+    public void clear() {
+        fastCache.clear();
+        slowCache.clear();
+    }
+
+
+    /**
+     * Gets the fast tier of this cache.
+     *
+     * @return The fast tier
+     */
+    @NonNull
+    public SuggestionCache getFastCache() {
+        return fastCache;
+    }
+
+
+    /**
+     * Gets the slow tier of this cache.
+     *
+     * @return The slow tier
+     */
+    @NonNull
+    public SuggestionCache getSlowCache() {
+        return slowCache;
+    }
+
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.utils;
+
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A class responsible for tracking the frames of an animation of a known duration
+ * by means of the {@link Choreographer} frame callbacks. The frames, which have
+ * been skipped between two consecutive callbacks (based on the refresh interval
+ * of the display), are counted as dropped.
+ * <br>
+ * Must be used on the main thread.
+ */
+public final class AnimationFrameTracker implements Choreographer.FrameCallback {
+
+
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = 16_666_667L;
+
+
+    private boolean isTracking;
+
+    private int frameCount;
+    private int droppedFrameCount;
+
+    private long frameIntervalNanos;
+    private long durationNanos;
+    private long firstFrameTimeNanos;
+    private long lastFrameTimeNanos;
+
+    private final Callback callback;
+
+
+    public AnimationFrameTracker(@NonNull Callback callback) {
+        Preconditions.nonNull(callback);
+
+        this.callback = callback;
+        this.frameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+    }
+
+
+    /**
+     * Starts tracking the frames of an animation, canceling the previous tracking (if any).
+     *
+     * @param durationMillis The duration of the animation
+     * @param refreshRate The refresh rate of the display the animation is drawn on
+     * or a non-positive value if unknown
+     */
+    public void start(long durationMillis, float refreshRate) {
+        cancel();
+
+        isTracking = true;
+        frameCount = 0;
+        droppedFrameCount = 0;
+        frameIntervalNanos = ((refreshRate > 0f) ? ((long) (1_000_000_000L / refreshRate)) : DEFAULT_FRAME_INTERVAL_NANOS);
+        durationNanos = (durationMillis * 1_000_000L);
+        firstFrameTimeNanos = 0L;
+        lastFrameTimeNanos = 0L;
+
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+
+    /**
+     * Cancels the current tracking (if any) without reporting it.
+     */
+    public void cancel() {
+        if(!isTracking) {
+            return;
+        }
+
+        isTracking = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if(!isTracking) {
+            return;
+        }
+
+        if(frameCount == 0) {
+            firstFrameTimeNanos = frameTimeNanos;
+        } else {
+            final long skippedFrameCount = (((frameTimeNanos - lastFrameTimeNanos) + (frameIntervalNanos / 2)) / frameIntervalNanos) - 1;
+            droppedFrameCount += (int) Math.max(0L, skippedFrameCount);
+        }
+
+        frameCount++;
+        lastFrameTimeNanos = frameTimeNanos;
+
+        if((frameTimeNanos - firstFrameTimeNanos) >= durationNanos) {
+            isTracking = false;
+            callback.onAnimationTracked((lastFrameTimeNanos - firstFrameTimeNanos), frameCount, droppedFrameCount);
+        } else {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+
+    /**
+     * Checks whether an animation is currently being tracked.
+     *
+     * @return true if tracking; false otherwise
+     */
+    public boolean isTracking() {
+        return isTracking;
+    }
+
+
+    /**
+     * A callback used for reporting the tracked animations.
+     */
+    public interface Callback {
+
+        /**
+         * Gets called when the animation has been tracked.
+         *
+         * @param durationNanos The time between the first and the last frames of the animation
+         * @param frameCount The amount of the frames of the animation
+         * @param droppedFrameCount The amount of the dropped frames
+         */
+        void onAnimationTracked(long durationNanos, int frameCount, int droppedFrameCount);
+
+    }
+
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.utils;
+
+import android.text.Spannable;
+import android.text.SpannableString;
+import android.text.TextUtils;
+import android.text.style.ForegroundColorSpan;
+
+import com.paulrybitskyi.persistentsearchview.model.Suggestion;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+
+/**
+ * A utility class responsible for highlighting the parts of the suggestion's
+ * text that match the current query. Safe to be used from any thread.
+ */
+public final class SuggestionTextHighlighter {
+
+
+    private SuggestionTextHighlighter() {}
+
+
+    /**
+     * Highlights the parts of the suggestion's text that match the query. If the
+     * suggestion has its own highlight ranges (see {@link Suggestion#setHighlightRanges(int[])}),
+     * they are used instead of looking for the query within the text.
+     *
+     * @param suggestion The suggestion
+     * @param query The current query
+     * @param selectedTextColor The color of the highlighted parts
+     *
+     * @return The highlighted text or the text itself if there is nothing to highlight
+     */
+    @NonNull
+    public static CharSequence highlight(@NonNull Suggestion suggestion, @NonNull String query, @ColorInt int selectedTextColor) {
+        if(suggestion.hasHighlightRanges()) {
+            return highlight(suggestion.getText(), suggestion.getHighlightRanges(), selectedTextColor);
+        } else {
+            return highlight(suggestion.getText(), query, selectedTextColor);
+        }
+    }
+
+
+    /**
+     * Highlights the parts of the text that match the query. If the text contains
+     * the whole query, its first occurrence is highlighted, otherwise the first
+     * occurrences of every word of the query are (e.g., "red shoes" within
+     * "Shoes, red"). The matching is case insensitive.
+     *
+     * @param text The suggestion's text
+     * @param query The current query
+     * @param selectedTextColor The color of the highlighted parts
+     *
+     * @return The highlighted text or the text itself if it does not match the query
+     */
+    @NonNull
+    public static CharSequence highlight(@NonNull String text, @NonNull String query, @ColorInt int selectedTextColor) {
+        if(TextUtils.isEmpty(query)) {
+            return text;
+        }
+
+        final int startIndex = indexOfIgnoreCase(text, query, 0, query.length());
+
+        if(startIndex != -1) {
+            return highlight(text, new int[] {startIndex, (startIndex + query.length())}, selectedTextColor);
+        }
+
+        final boolean[] highlightedChars = new boolean[text.length()];
+        boolean hasHighlightedChars = false;
+        int wordStart = 0;
+
+        while(wordStart < query.length()) {
+            if(Character.isWhitespace(query.charAt(wordStart))) {
+                wordStart++;
+                continue;
+            }
+
+            int wordEnd = (wordStart + 1);
+
+            while((wordEnd < query.length()) && !Character.isWhitespace(query.charAt(wordEnd))) {
+                wordEnd++;
+            }
+
+            final int wordIndex = indexOfIgnoreCase(text, query, wordStart, (wordEnd - wordStart));
+
+            if(wordIndex != -1) {
+                for(int i = wordIndex, end = (wordIndex + wordEnd - wordStart); i < end; i++) {
+                    highlightedChars[i] = true;
+                }
+
+                hasHighlightedChars = true;
+            }
+
+            wordStart = wordEnd;
+        }
+
+        if(!hasHighlightedChars) {
+            return text;
+        }
+
+        final SpannableString spannableString = new SpannableString(text);
+        int rangeStart = -1;
+
+        for(int i = 0; i <= highlightedChars.length; i++) {
+            final boolean isHighlighted = ((i < highlightedChars.length) && highlightedChars[i]);
+
+            if(isHighlighted && (rangeStart == -1)) {
+                rangeStart = i;
+            } else if(!isHighlighted && (rangeStart != -1)) {
+                setHighlightSpan(spannableString, rangeStart, i, selectedTextColor);
+                rangeStart = -1;
+            }
+        }
+
+        return spannableString;
+    }
+
+
+    /**
+     * Highlights the specified ranges of the text (e.g., the ones
+     * produced by the matchers of the search engine).
+     *
+     * @param text The suggestion's text
+     * @param highlightRanges The pairs of the start (inclusive) and end (exclusive)
+     * positions of the ranges to highlight. The ranges exceeding the text are ignored.
+     * @param selectedTextColor The color of the highlighted parts
+     *
+     * @return The highlighted text or the text itself if there is nothing to highlight
+     */
+    @NonNull
+    public static CharSequence highlight(@NonNull String text, @NonNull int[] highlightRanges, @ColorInt int selectedTextColor) {
+        SpannableString spannableString = null;
+
+        for(int i = 0; (i + 1) < highlightRanges.length; i += 2) {
+            final int start = highlightRanges[i];
+            final int end = highlightRanges[i + 1];
+
+            if((start < 0) || (start >= end) || (end > text.length())) {
+                continue;
+            }
+
+            if(spannableString == null) {
+                spannableString = new SpannableString(text);
+            }
+
+            setHighlightSpan(spannableString, start, end, selectedTextColor);
+        }
+
+        return ((spannableString != null) ? spannableString : text);
+    }
+
+
+    private static int indexOfIgnoreCase(String text, String query, int queryOffset, int length) {
+        for(int i = 0, lastStart = (text.length() - length); i <= lastStart; i++) {
+            if(text.regionMatches(true, i, query, queryOffset, length)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+
+    private static void setHighlightSpan(SpannableString spannableString, int start, int end, int selectedTextColor) {
+        spannableString.setSpan(
+            new ForegroundColorSpan(selectedTextColor),
+            start,
+            end,
+            Spannable.SPAN_EXCLUSIVE_EXCLUSIVE
+        );
+    }
+
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.utils;
+
+import android.graphics.Color;
+
+import com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionItem;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.tracing.Trace;
+
+/**
+ * A class responsible for measuring the (highlighted) texts of the suggestions
+ * ahead of time, ideally on the same background thread that produced them,
+ * so that binding a suggestion only has to set the already-measured text.
+ * <br>
+ * The precomputation is performed with the text metrics parameters of the
+ * text view of the suggestion's layout (see {@link com.paulrybitskyi.persistentsearchview.model.SuggestionType#getLayoutId()})
+ * and the selected text color of the search view it belongs to. Whenever either
+ * of them changes (e.g., a new typeface is set), the previously precomputed texts
+ * are simply discarded during binding. The texts of the suggestions whose layouts
+ * have no text metrics parameters set are not precomputed.
+ */
+public final class SuggestionTextPrecomputer {
+
+
+    private volatile int selectedTextColor;
+
+    private final Map<Integer, PrecomputedTextCompat.Params> textMetricsParams;
+
+
+    public SuggestionTextPrecomputer() {
+        selectedTextColor = Color.BLACK;
+        textMetricsParams = new ConcurrentHashMap<>();
+    }
+
+
+    /**
+     * Precomputes the texts of the specified suggestion items for the specified query.
+     * Should be called before handing the items to the search view.
+     *
+     * @param suggestionItems The items to precompute the texts of
+     * @param query The query the suggestions were produced for
+     */
+    @WorkerThread
+    public void precompute(@NonNull List<SuggestionItem> suggestionItems, @NonNull String query) {
+        Trace.beginSection(TraceSections.PRECOMPUTE_SUGGESTIONS);
+
+        try {
+            Preconditions.nonNull(suggestionItems);
+            Preconditions.nonNull(query);
+
+            for(SuggestionItem suggestionItem : suggestionItems) {
+                precompute(suggestionItem, query);
+            }
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+
+    /**
+     * Precomputes the text of the specified suggestion item for the specified query.
+     *
+     * @param suggestionItem The item to precompute the text of
+     * @param query The query the suggestion was produced for
+     */
+    @WorkerThread
+    public void precompute(@NonNull SuggestionItem suggestionItem, @NonNull String query) {
+        Preconditions.nonNull(suggestionItem);
+        Preconditions.nonNull(query);
+
+        final int layoutId = suggestionItem.getItemModel().getSuggestionType().getLayoutId();
+        final PrecomputedTextCompat.Params params = textMetricsParams.get(layoutId);
+
+        // A text precomputed with the parameters of another layout
+        // would be rejected by the text view during binding anyway
+        if(params == null) {
+            return;
+        }
+
+        final int color = selectedTextColor;
+        final CharSequence highlightedText = SuggestionTextHighlighter.highlight(
+            suggestionItem.getItemModel(),
+            query,
+            color
+        );
+
+        suggestionItem.setPrecomputedText(PrecomputedTextCompat.create(highlightedText, params), query, color);
+    }
+
+
+    /**
+     * Sets the text metrics parameters to precompute the texts of the suggestions
+     * with the specified layout with.
+     *
+     * @param layoutId The id of the layout of the suggestions
+     * @param textMetricsParams The parameters of the layout's text view or null to
+     * stop precomputing the texts of such suggestions
+     */
+    public void setTextMetricsParams(int layoutId, @Nullable PrecomputedTextCompat.Params textMetricsParams) {
+        if(textMetricsParams != null) {
+            this.textMetricsParams.put(layoutId, textMetricsParams);
+        } else {
+            this.textMetricsParams.remove(layoutId);
+        }
+    }
+
+
+    /**
+     * Gets the text metrics parameters the texts of the suggestions with
+     * the specified layout are precomputed with.
+     *
+     * @param layoutId The id of the layout of the suggestions
+     *
+     * @return The text metrics parameters or null if not available yet
+     */
+    @Nullable
+    public PrecomputedTextCompat.Params getTextMetricsParams(int layoutId) {
+        return textMetricsParams.get(layoutId);
+    }
+
+
+    /**
+     * Sets the color of the highlighted part of the texts.
+     *
+     * @param selectedTextColor The color to set
+     */
+    public void setSelectedTextColor(@ColorInt int selectedTextColor) {
+        this.selectedTextColor = selectedTextColor;
+    }
+
+
+    /**
+     * Gets the color of the highlighted part of the texts.
+     *
+     * @return The color of the highlighted part
+     */
+    public int getSelectedTextColor() {
+        return selectedTextColor;
+    }
+
+
+}
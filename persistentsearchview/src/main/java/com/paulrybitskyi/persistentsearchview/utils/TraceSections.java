@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.utils;
+
+/**
+ * The names of the trace sections (see {@link androidx.tracing.Trace}) wrapping
+ * the hot paths of the search view, so that the system traces attribute the
+ * frame time to the particular stages of the library.
+ */
+public final class TraceSections {
+
+
+    private static final String PREFIX = "PersistentSearchView:";
+
+    public static final String SET_SUGGESTIONS = (PREFIX + "setSuggestions");
+    public static final String RENDER_SUGGESTIONS = (PREFIX + "renderSuggestions");
+    public static final String SET_ADAPTER_QUERY = (PREFIX + "setAdapterQuery");
+    public static final String BIND_SUGGESTION = (PREFIX + "bindSuggestion");
+    public static final String PRECOMPUTE_SUGGESTIONS = (PREFIX + "precomputeSuggestions");
+    public static final String EXPAND = (PREFIX + "expand");
+    public static final String COLLAPSE = (PREFIX + "collapse");
+    public static final String MEASURE = (PREFIX + "onMeasure");
+    public static final String SAVE_STATE = (PREFIX + "onSaveInstanceState");
+    public static final String RESTORE_STATE = (PREFIX + "onRestoreInstanceState");
+
+    /**
+     * The name of the asynchronous section spanning from a query change
+     * to the rendering of the suggestions set for it.
+     */
+    public static final String QUERY_TO_SUGGESTIONS = (PREFIX + "queryToSuggestions");
+
+
+    private TraceSections() {}
+
+
+}
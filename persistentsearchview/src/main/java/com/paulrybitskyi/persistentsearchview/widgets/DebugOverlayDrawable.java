@@ -0,0 +1,214 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.widgets;
+
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.text.TextPaint;
+
+import com.paulrybitskyi.persistentsearchview.R;
+import com.paulrybitskyi.persistentsearchview.engine.SearchController.State;
+import com.paulrybitskyi.persistentsearchview.listeners.SearchMetricsListener;
+
+import java.util.Locale;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A drawable displaying the live performance metrics of the search view
+ * (see {@link SearchMetricsListener}) in the top end corner of its bounds.
+ * Meant to be added to the overlay of the search view's card in the
+ * dogfood builds to spot the regressions without attaching a profiler.
+ */
+public final class DebugOverlayDrawable extends Drawable implements SearchMetricsListener {
+
+
+    private static final int BACKGROUND_COLOR = 0xB0000000;
+    private static final int TEXT_COLOR = Color.WHITE;
+
+    private static final long NO_LATENCY = -1L;
+
+    private static final int LINE_COUNT = 5;
+
+
+    private final int padding;
+
+    private long queryToSuggestionsLatencyNanos;
+    private long keystrokeToRenderLatencyNanos;
+    private int boundRowCount;
+    private int adapterItemCount;
+    private long viewHolderPoolHitCount;
+    private long viewHolderPoolMissCount;
+    private long animationFrameTimeNanos;
+    private int animationDroppedFrameCount;
+
+    private final String[] lines;
+
+    private final TextPaint textPaint;
+
+    private final Paint backgroundPaint;
+
+    private final Rect textBounds;
+
+
+    public DebugOverlayDrawable(@NonNull Resources resources) {
+        padding = resources.getDimensionPixelSize(R.dimen.persistent_search_view_debug_overlay_padding);
+        queryToSuggestionsLatencyNanos = NO_LATENCY;
+        keystrokeToRenderLatencyNanos = NO_LATENCY;
+        animationFrameTimeNanos = NO_LATENCY;
+        lines = new String[LINE_COUNT];
+        textBounds = new Rect();
+
+        textPaint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+        textPaint.setTextSize(resources.getDimension(R.dimen.persistent_search_view_debug_overlay_text_size));
+        textPaint.setTypeface(Typeface.MONOSPACE);
+        textPaint.setColor(TEXT_COLOR);
+
+        backgroundPaint = new Paint();
+        backgroundPaint.setColor(BACKGROUND_COLOR);
+
+        updateLines();
+    }
+
+
+    @Override
+    public void onQueryToSuggestionsLatency(long latencyNanos) {
+        queryToSuggestionsLatencyNanos = latencyNanos;
+    }
+
+
+    @Override
+    public void onSuggestionsRendered(long latencyNanos, int boundRowCount) {
+        if(queryToSuggestionsLatencyNanos != NO_LATENCY) {
+            keystrokeToRenderLatencyNanos = (queryToSuggestionsLatencyNanos + latencyNanos);
+            queryToSuggestionsLatencyNanos = NO_LATENCY;
+        }
+
+        this.boundRowCount = boundRowCount;
+
+        updateLines();
+    }
+
+
+    @Override
+    public void onStateAnimationMeasured(State state, long durationNanos, int frameCount, int droppedFrameCount) {
+        animationFrameTimeNanos = ((frameCount > 1) ? (durationNanos / (frameCount - 1)) : durationNanos);
+        animationDroppedFrameCount = droppedFrameCount;
+
+        updateLines();
+    }
+
+
+    /**
+     * Sets the statistics of the suggestions adapter. The pool hits are
+     * approximated as the binds of the view holders that have not been
+     * created for them, i.e. the reused ones.
+     *
+     * @param itemCount The current amount of the adapter's items
+     * @param createdViewHolderCount The total amount of the view holders created by the adapter
+     * @param boundItemCount The total amount of the items bound by the adapter
+     */
+    public void setAdapterStats(int itemCount, long createdViewHolderCount, long boundItemCount) {
+        adapterItemCount = itemCount;
+        viewHolderPoolMissCount = createdViewHolderCount;
+        viewHolderPoolHitCount = Math.max(0L, (boundItemCount - createdViewHolderCount));
+
+        updateLines();
+    }
+
+
+    private void updateLines() {
+        lines[0] = ("input to render " + formatLatency(keystrokeToRenderLatencyNanos));
+        lines[1] = ("binds/update " + boundRowCount);
+        lines[2] = ("adapter size " + adapterItemCount);
+        lines[3] = ("pool hit/miss " + viewHolderPoolHitCount + "/" + viewHolderPoolMissCount);
+        lines[4] = ("anim frame " + formatLatency(animationFrameTimeNanos) + " (" + animationDroppedFrameCount + " dropped)");
+
+        invalidateSelf();
+    }
+
+
+    private static String formatLatency(long latencyNanos) {
+        if(latencyNanos == NO_LATENCY) {
+            return "-";
+        }
+
+        return String.format(Locale.US, "%.1fms", (latencyNanos / 1_000_000f));
+    }
+
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        final Rect bounds = getBounds();
+        final Paint.FontMetrics fontMetrics = textPaint.getFontMetrics();
+        final float lineHeight = (fontMetrics.descent - fontMetrics.ascent);
+
+        float maxLineWidth = 0f;
+
+        for(String line : lines) {
+            maxLineWidth = Math.max(maxLineWidth, textPaint.measureText(line));
+        }
+
+        textBounds.set(
+            (int) (bounds.right - maxLineWidth - (padding * 2)),
+            bounds.top,
+            bounds.right,
+            (int) (bounds.top + (lineHeight * lines.length) + (padding * 2))
+        );
+
+        canvas.drawRect(textBounds, backgroundPaint);
+
+        float baseline = (textBounds.top + padding - fontMetrics.ascent);
+
+        for(String line : lines) {
+            canvas.drawText(line, (textBounds.left + padding), baseline, textPaint);
+            baseline += lineHeight;
+        }
+    }
+
+
+    @Override
+    public void setAlpha(int alpha) {
+        textPaint.setAlpha(alpha);
+        backgroundPaint.setAlpha(Color.alpha(BACKGROUND_COLOR) * alpha / 255);
+        invalidateSelf();
+    }
+
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        textPaint.setColorFilter(colorFilter);
+        backgroundPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.widgets;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.paulrybitskyi.persistentsearchview.R;
+
+/**
+ * A layout tailored to the fixed arrangement of the query input bar:
+ * a left slot (the left button and the progress bar), the input field,
+ * an input buttons slot (the clear input and voice input buttons) and
+ * a right slot (the right button).
+ * <br>
+ * Every slot is a square with the side equal to the height of the layout
+ * and its width is accounted for based solely on the slot's visibility
+ * (see {@link #setLeftSlotVisible(boolean)}, {@link #setInputButtonsSlotVisible(boolean)}
+ * and {@link #setRightSlotVisible(boolean)}), not on the visibility of the
+ * children it hosts. This way showing or hiding a button inside of a slot
+ * never changes the measure spec of the input field, which, in turn, lets
+ * the framework skip remeasuring it altogether.
+ */
+public class QueryInputBarLayout extends ViewGroup {
+
+
+    /**
+     * A constant representing the left slot.
+     */
+    public static final int SLOT_LEFT = 0;
+
+    /**
+     * A constant representing the input field slot.
+     */
+    public static final int SLOT_INPUT = 1;
+
+    /**
+     * A constant representing the input buttons slot.
+     */
+    public static final int SLOT_INPUT_BUTTONS = 2;
+
+    /**
+     * A constant representing the right slot.
+     */
+    public static final int SLOT_RIGHT = 3;
+
+
+    private boolean isLeftSlotVisible;
+    private boolean isInputButtonsSlotVisible;
+    private boolean isRightSlotVisible;
+
+    private int leftSlotStart;
+    private int inputSlotStart;
+    private int inputSlotEnd;
+    private int inputButtonsSlotStart;
+    private int rightSlotStart;
+
+
+    public QueryInputBarLayout(Context context) {
+        super(context);
+        init();
+    }
+
+
+    public QueryInputBarLayout(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init();
+    }
+
+
+    public QueryInputBarLayout(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init();
+    }
+
+
+    private void init() {
+        isLeftSlotVisible = true;
+        isInputButtonsSlotVisible = true;
+        isRightSlotVisible = false;
+    }
+
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int width = MeasureSpec.getSize(widthMeasureSpec);
+        final int height = MeasureSpec.getSize(heightMeasureSpec);
+        final int slotSize = height;
+
+        computeSlotPositions(width, slotSize);
+
+        final int inputSlotWidth = Math.max(0, (inputSlotEnd - inputSlotStart));
+        final int slotChildSpec = MeasureSpec.makeMeasureSpec(slotSize, MeasureSpec.AT_MOST);
+
+        for(int i = 0, childCount = getChildCount(); i < childCount; i++) {
+            final View child = getChildAt(i);
+
+            if(child.getVisibility() == View.GONE) {
+                continue;
+            }
+
+            final LayoutParams params = (LayoutParams) child.getLayoutParams();
+
+            if(params.slot == SLOT_INPUT) {
+                child.measure(
+                    MeasureSpec.makeMeasureSpec(
+                        Math.max(0, (inputSlotWidth - params.getMarginStart() - params.getMarginEnd())),
+                        MeasureSpec.EXACTLY
+                    ),
+                    MeasureSpec.makeMeasureSpec(
+                        Math.max(0, (height - params.topMargin - params.bottomMargin)),
+                        MeasureSpec.EXACTLY
+                    )
+                );
+            } else {
+                child.measure(
+                    getChildMeasureSpec(slotChildSpec, 0, params.width),
+                    getChildMeasureSpec(slotChildSpec, 0, params.height)
+                );
+            }
+        }
+
+        setMeasuredDimension(width, height);
+    }
+
+
+    private void computeSlotPositions(int width, int slotSize) {
+        leftSlotStart = 0;
+        inputSlotStart = (isLeftSlotVisible ? slotSize : 0);
+        rightSlotStart = (isRightSlotVisible ? (width - slotSize) : width);
+        inputButtonsSlotStart = (isInputButtonsSlotVisible ? (rightSlotStart - slotSize) : rightSlotStart);
+        inputSlotEnd = inputButtonsSlotStart;
+    }
+
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        final int width = (right - left);
+        final int height = (bottom - top);
+        final boolean isRtl = (getLayoutDirection() == View.LAYOUT_DIRECTION_RTL);
+
+        for(int i = 0, childCount = getChildCount(); i < childCount; i++) {
+            final View child = getChildAt(i);
+
+            if(child.getVisibility() == View.GONE) {
+                continue;
+            }
+
+            final LayoutParams params = (LayoutParams) child.getLayoutParams();
+            final int childWidth = child.getMeasuredWidth();
+            final int childHeight = child.getMeasuredHeight();
+            final int childStart;
+            final int childTop;
+
+            if(params.slot == SLOT_INPUT) {
+                childStart = (inputSlotStart + params.getMarginStart());
+                childTop = params.topMargin;
+            } else {
+                childStart = (getSlotStart(params.slot) + ((height - childWidth) / 2));
+                childTop = ((height - childHeight) / 2);
+            }
+
+            final int childLeft = (isRtl ? (width - childStart - childWidth) : childStart);
+
+            child.layout(childLeft, childTop, (childLeft + childWidth), (childTop + childHeight));
+        }
+    }
+
+
+    private int getSlotStart(int slot) {
+        switch(slot) {
+            case SLOT_LEFT: return leftSlotStart;
+            case SLOT_INPUT_BUTTONS: return inputButtonsSlotStart;
+            case SLOT_RIGHT: return rightSlotStart;
+            default: return inputSlotStart;
+        }
+    }
+
+
+    @Override
+    public boolean shouldDelayChildPressedState() {
+        return false;
+    }
+
+
+    /**
+     * Sets whether the left slot (the one hosting the left button and
+     * the progress bar) should take up space.
+     *
+     * @param isLeftSlotVisible Whether the slot is visible
+     */
+    public final void setLeftSlotVisible(boolean isLeftSlotVisible) {
+        if(this.isLeftSlotVisible == isLeftSlotVisible) {
+            return;
+        }
+
+        this.isLeftSlotVisible = isLeftSlotVisible;
+        requestLayout();
+    }
+
+
+    /**
+     * Checks whether the left slot takes up space.
+     *
+     * @return true if visible; false otherwise
+     */
+    public final boolean isLeftSlotVisible() {
+        return isLeftSlotVisible;
+    }
+
+
+    /**
+     * Sets whether the input buttons slot (the one hosting the clear input
+     * and voice input buttons) should take up space.
+     *
+     * @param isInputButtonsSlotVisible Whether the slot is visible
+     */
+    public final void setInputButtonsSlotVisible(boolean isInputButtonsSlotVisible) {
+        if(this.isInputButtonsSlotVisible == isInputButtonsSlotVisible) {
+            return;
+        }
+
+        this.isInputButtonsSlotVisible = isInputButtonsSlotVisible;
+        requestLayout();
+    }
+
+
+    /**
+     * Checks whether the input buttons slot takes up space.
+     *
+     * @return true if visible; false otherwise
+     */
+    public final boolean isInputButtonsSlotVisible() {
+        return isInputButtonsSlotVisible;
+    }
+
+
+    /**
+     * Sets whether the right slot (the one hosting the right button)
+     * should take up space.
+     *
+     * @param isRightSlotVisible Whether the slot is visible
+     */
+    public final void setRightSlotVisible(boolean isRightSlotVisible) {
+        if(this.isRightSlotVisible == isRightSlotVisible) {
+            return;
+        }
+
+        this.isRightSlotVisible = isRightSlotVisible;
+        requestLayout();
+    }
+
+
+    /**
+     * Checks whether the right slot takes up space.
+     *
+     * @return true if visible; false otherwise
+     */
+    public final boolean isRightSlotVisible() {
+        return isRightSlotVisible;
+    }
+
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams params) {
+        return (params instanceof LayoutParams);
+    }
+
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+    }
+
+
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new LayoutParams(getContext(), attrs);
+    }
+
+
+    @Override
+    protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams params) {
+        if(params instanceof MarginLayoutParams) {
+            return new LayoutParams((MarginLayoutParams) params);
+        }
+
+        return new LayoutParams(params);
+    }
+
+
+    /**
+     * Layout parameters specifying the slot a child belongs to.
+     */
+    public static class LayoutParams extends MarginLayoutParams {
+
+        public int slot = SLOT_INPUT;
+
+        public LayoutParams(Context context, AttributeSet attrs) {
+            super(context, attrs);
+
+            final TypedArray attributes = context.obtainStyledAttributes(attrs, R.styleable.QueryInputBarLayout_Layout);
+            slot = attributes.getInt(R.styleable.QueryInputBarLayout_Layout_layout_inputBarSlot, slot);
+            attributes.recycle();
+        }
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        public LayoutParams(MarginLayoutParams source) {
+            super(source);
+        }
+
+        public LayoutParams(ViewGroup.LayoutParams source) {
+            super(source);
+        }
+
+    }
+
+
+}
@@ -0,0 +1,537 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview.widgets;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.View;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import com.paulrybitskyi.persistentsearchview.R;
+import com.paulrybitskyi.persistentsearchview.utils.Utils;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.accessibility.AccessibilityViewCommand;
+
+/**
+ * A flattened suggestion row that draws its icon, text and remove button
+ * directly instead of relying on a hierarchy of child views. The text is
+ * drawn from a cached {@link StaticLayout} that is rebuilt only when either
+ * the text or the available width changes, and touches on the remove button
+ * are hit-tested by the view itself.
+ * <br>
+ * Since the remove button is not a view of its own, it is exposed to the
+ * accessibility services as a custom action of the row instead.
+ */
+public class SuggestionRowView extends View {
+
+
+    private static final int[] STATE_PRESSED = { android.R.attr.state_enabled, android.R.attr.state_pressed };
+    private static final int[] STATE_IDLE = { android.R.attr.state_enabled };
+
+
+    private boolean isRemoveButtonVisible;
+    private boolean isRemoveButtonPressed;
+
+    private final int rowHeight;
+    private final int iconAreaSize;
+    private final int removeButtonAreaSize;
+    private final int textHorizontalMargin;
+
+    private int textLayoutWidth;
+    private int removeButtonAccessibilityActionId;
+
+    private CharSequence text;
+
+    private final TextPaint textPaint;
+
+    private StaticLayout textLayout;
+
+    private Drawable iconDrawable;
+    private Drawable removeButtonDrawable;
+    private Drawable removeButtonBackground;
+
+    private final Rect removeButtonArea;
+
+    private OnClickListener onRemoveButtonClickListener;
+
+
+    public SuggestionRowView(Context context) {
+        super(context);
+
+        final Resources resources = getResources();
+
+        rowHeight = resources.getDimensionPixelSize(R.dimen.persistent_search_view_item_height);
+        iconAreaSize = rowHeight;
+        removeButtonAreaSize = resources.getDimensionPixelSize(R.dimen.persistent_search_view_input_bar_height);
+        textHorizontalMargin = resources.getDimensionPixelSize(R.dimen.persistent_search_view_input_et_horizontal_margin);
+        text = "";
+        removeButtonArea = new Rect();
+        removeButtonAccessibilityActionId = View.NO_ID;
+
+        textPaint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+        textPaint.setTextSize(resources.getDimension(R.dimen.persistent_search_view_item_title_text_size));
+        textPaint.setColor(Color.BLACK);
+
+        setBackground(getThemeDrawable(android.R.attr.selectableItemBackground));
+        setClickable(true);
+
+        removeButtonBackground = getThemeDrawable(android.R.attr.selectableItemBackgroundBorderless);
+
+        if(removeButtonBackground != null) {
+            removeButtonBackground.setCallback(this);
+        }
+    }
+
+
+    @Nullable
+    private Drawable getThemeDrawable(int attr) {
+        final TypedArray attributes = getContext().obtainStyledAttributes(new int[] { attr });
+        final Drawable drawable = attributes.getDrawable(0);
+
+        attributes.recycle();
+
+        return drawable;
+    }
+
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        setMeasuredDimension(
+            getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+            resolveSize(rowHeight, heightMeasureSpec)
+        );
+    }
+
+
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+
+        updateRemoveButtonArea();
+    }
+
+
+    private void updateRemoveButtonArea() {
+        final int top = ((getHeight() - removeButtonAreaSize) / 2);
+        final int left = (isRtl() ? 0 : (getWidth() - removeButtonAreaSize));
+
+        removeButtonArea.set(left, top, (left + removeButtonAreaSize), (top + removeButtonAreaSize));
+
+        if(removeButtonBackground != null) {
+            removeButtonBackground.setBounds(removeButtonArea);
+        }
+    }
+
+
+    private void ensureTextLayout() {
+        final int availableWidth = getTextAreaWidth();
+
+        if((textLayout != null) && (textLayoutWidth == availableWidth)) {
+            return;
+        }
+
+        textLayoutWidth = availableWidth;
+        textLayout = ((availableWidth > 0) ? createTextLayout(availableWidth) : null);
+    }
+
+
+    @SuppressWarnings({"NewApi", "deprecation"})
+    private StaticLayout createTextLayout(int width) {
+        final CharSequence ellipsizedText = TextUtils.ellipsize(text, textPaint, width, TextUtils.TruncateAt.END);
+
+        if(Utils.IS_AT_LEAST_MARSHMALLOW) {
+            return StaticLayout.Builder.obtain(ellipsizedText, 0, ellipsizedText.length(), textPaint, width)
+                .setMaxLines(1)
+                .setIncludePad(false)
+                .build();
+        } else {
+            return new StaticLayout(
+                ellipsizedText,
+                textPaint,
+                width,
+                Layout.Alignment.ALIGN_NORMAL,
+                1f,
+                0f,
+                false
+            );
+        }
+    }
+
+
+    private void invalidateTextLayout() {
+        textLayout = null;
+        invalidate();
+    }
+
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        drawIcon(canvas);
+        drawText(canvas);
+        drawRemoveButton(canvas);
+    }
+
+
+    private void drawIcon(Canvas canvas) {
+        if(iconDrawable == null) {
+            return;
+        }
+
+        final int areaLeft = (isRtl() ? (getWidth() - iconAreaSize) : 0);
+        final int areaTop = ((getHeight() - iconAreaSize) / 2);
+
+        drawCentered(canvas, iconDrawable, areaLeft, areaTop, iconAreaSize);
+    }
+
+
+    private void drawText(Canvas canvas) {
+        ensureTextLayout();
+
+        if(textLayout == null) {
+            return;
+        }
+
+        final int left = (isRtl() ? (removeButtonAreaSize + textHorizontalMargin) : (iconAreaSize + textHorizontalMargin));
+        final int top = ((getHeight() - textLayout.getHeight()) / 2);
+
+        canvas.save();
+        canvas.translate(left, top);
+        textLayout.draw(canvas);
+        canvas.restore();
+    }
+
+
+    private void drawRemoveButton(Canvas canvas) {
+        if(!isRemoveButtonVisible || (removeButtonDrawable == null)) {
+            return;
+        }
+
+        if(removeButtonBackground != null) {
+            removeButtonBackground.draw(canvas);
+        }
+
+        drawCentered(canvas, removeButtonDrawable, removeButtonArea.left, removeButtonArea.top, removeButtonAreaSize);
+    }
+
+
+    private void drawCentered(Canvas canvas, Drawable drawable, int areaLeft, int areaTop, int areaSize) {
+        final int width = Math.min(drawable.getIntrinsicWidth(), areaSize);
+        final int height = Math.min(drawable.getIntrinsicHeight(), areaSize);
+        final int left = (areaLeft + ((areaSize - width) / 2));
+        final int top = (areaTop + ((areaSize - height) / 2));
+
+        drawable.setBounds(left, top, (left + width), (top + height));
+        drawable.draw(canvas);
+    }
+
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if(!isRemoveButtonVisible || !isEnabled()) {
+            return super.onTouchEvent(event);
+        }
+
+        final int x = (int) event.getX();
+        final int y = (int) event.getY();
+
+        switch(event.getActionMasked()) {
+
+            case MotionEvent.ACTION_DOWN:
+                if(removeButtonArea.contains(x, y)) {
+                    setRemoveButtonPressed(true, x, y);
+                    return true;
+                }
+
+                break;
+
+            case MotionEvent.ACTION_MOVE:
+                if(isRemoveButtonPressed) {
+                    if(!removeButtonArea.contains(x, y)) {
+                        setRemoveButtonPressed(false, x, y);
+                    }
+
+                    return true;
+                }
+
+                break;
+
+            case MotionEvent.ACTION_UP:
+                if(isRemoveButtonPressed) {
+                    setRemoveButtonPressed(false, x, y);
+                    performRemoveButtonClick();
+                    return true;
+                }
+
+                break;
+
+            case MotionEvent.ACTION_CANCEL:
+                if(isRemoveButtonPressed) {
+                    setRemoveButtonPressed(false, x, y);
+                    return true;
+                }
+
+                break;
+
+        }
+
+        return super.onTouchEvent(event);
+    }
+
+
+    private void setRemoveButtonPressed(boolean isPressed, int x, int y) {
+        isRemoveButtonPressed = isPressed;
+
+        if(removeButtonBackground != null) {
+            removeButtonBackground.setHotspot(x, y);
+            removeButtonBackground.setState(isPressed ? STATE_PRESSED : STATE_IDLE);
+        }
+
+        invalidate();
+    }
+
+
+    private void performRemoveButtonClick() {
+        if(onRemoveButtonClickListener != null) {
+            playSoundEffect(SoundEffectConstants.CLICK);
+            onRemoveButtonClickListener.onClick(this);
+        }
+    }
+
+
+    private void updateRemoveButtonAccessibilityAction() {
+        final boolean isActionAvailable = (isRemoveButtonVisible && (onRemoveButtonClickListener != null));
+        final boolean isActionAdded = (removeButtonAccessibilityActionId != View.NO_ID);
+
+        if(isActionAvailable == isActionAdded) {
+            return;
+        }
+
+        if(isActionAvailable) {
+            removeButtonAccessibilityActionId = ViewCompat.addAccessibilityAction(
+                this,
+                getResources().getString(R.string.persistent_search_view_remove_suggestion_action),
+                mRemoveButtonAccessibilityCommand
+            );
+        } else {
+            ViewCompat.removeAccessibilityAction(this, removeButtonAccessibilityActionId);
+            removeButtonAccessibilityActionId = View.NO_ID;
+        }
+    }
+
+
+    @Override
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        super.onInitializeAccessibilityNodeInfo(info);
+
+        if(getContentDescription() == null) {
+            info.setText(text);
+        }
+    }
+
+
+    @Override
+    protected boolean verifyDrawable(@NonNull Drawable drawable) {
+        return ((drawable == removeButtonBackground) || super.verifyDrawable(drawable));
+    }
+
+
+    @Override
+    public void jumpDrawablesToCurrentState() {
+        super.jumpDrawablesToCurrentState();
+
+        if(removeButtonBackground != null) {
+            removeButtonBackground.jumpToCurrentState();
+        }
+    }
+
+
+    @Override
+    public void onRtlPropertiesChanged(int layoutDirection) {
+        super.onRtlPropertiesChanged(layoutDirection);
+
+        updateRemoveButtonArea();
+        invalidate();
+    }
+
+
+    /**
+     * Sets the text of the row.
+     *
+     * @param text The text to set
+     */
+    public final void setText(@NonNull CharSequence text) {
+        if(this.text == text) {
+            return;
+        }
+
+        this.text = text;
+        invalidateTextLayout();
+    }
+
+
+    /**
+     * Gets the text of the row.
+     *
+     * @return The row's text
+     */
+    public final CharSequence getText() {
+        return text;
+    }
+
+
+    /**
+     * Sets the color of the text.
+     *
+     * @param color The color to set
+     */
+    public final void setTextColor(@ColorInt int color) {
+        if(textPaint.getColor() == color) {
+            return;
+        }
+
+        textPaint.setColor(color);
+        invalidate();
+    }
+
+
+    /**
+     * Sets the typeface of the text.
+     *
+     * @param typeface The typeface to set
+     */
+    public final void setTypeface(@NonNull Typeface typeface) {
+        if(textPaint.getTypeface() == typeface) {
+            return;
+        }
+
+        textPaint.setTypeface(typeface);
+        invalidateTextLayout();
+    }
+
+
+    /**
+     * Gets the paint used for drawing the text.
+     *
+     * @return The text's paint
+     */
+    public final TextPaint getTextPaint() {
+        return textPaint;
+    }
+
+
+    /**
+     * Sets the drawable of the icon.
+     *
+     * @param drawable The drawable to set
+     */
+    public final void setIconDrawable(@Nullable Drawable drawable) {
+        iconDrawable = drawable;
+        invalidate();
+    }
+
+
+    /**
+     * Sets the drawable of the remove button.
+     *
+     * @param drawable The drawable to set
+     */
+    public final void setRemoveButtonDrawable(@Nullable Drawable drawable) {
+        removeButtonDrawable = drawable;
+        invalidate();
+    }
+
+
+    /**
+     * Sets whether the remove button should be drawn and be able to receive touches.
+     * Unlike toggling the visibility of a child view, this does not request a new layout pass.
+     *
+     * @param isVisible Whether the remove button is visible
+     */
+    public final void setRemoveButtonVisible(boolean isVisible) {
+        if(isRemoveButtonVisible == isVisible) {
+            return;
+        }
+
+        isRemoveButtonVisible = isVisible;
+        isRemoveButtonPressed = false;
+        updateRemoveButtonAccessibilityAction();
+        invalidate();
+    }
+
+
+    /**
+     * Checks whether the remove button is visible.
+     *
+     * @return true if visible; false otherwise
+     */
+    public final boolean isRemoveButtonVisible() {
+        return isRemoveButtonVisible;
+    }
+
+
+    /**
+     * Sets a listener to invoke when the remove button is clicked,
+     * either by a touch or through the row's accessibility action.
+     *
+     * @param listener The listener to set
+     */
+    public final void setOnRemoveButtonClickListener(@Nullable OnClickListener listener) {
+        onRemoveButtonClickListener = listener;
+        updateRemoveButtonAccessibilityAction();
+    }
+
+
+    private int getTextAreaWidth() {
+        return (getWidth() - iconAreaSize - removeButtonAreaSize - (2 * textHorizontalMargin));
+    }
+
+
+    private boolean isRtl() {
+        return (getLayoutDirection() == View.LAYOUT_DIRECTION_RTL);
+    }
+
+
+    private final AccessibilityViewCommand mRemoveButtonAccessibilityCommand = (view, arguments) -> {
+        if(!isRemoveButtonVisible || !isEnabled()) {
+            return false;
+        }
+
+        performRemoveButtonClick();
+
+        return true;
+    };
+
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The counters of the work performed by the search view during a flow
+ * (between the {@link #start()} and {@link #stop()} calls).
+ */
+final class FlowMetrics {
+
+
+    static final String METRIC_BINDS = "binds";
+    static final String METRIC_DATASET_CHANGES = "datasetChanges";
+    static final String METRIC_LAYOUT_REQUESTS = "layoutRequests";
+    static final String METRIC_ALLOCATED_BYTES = "allocatedBytes";
+
+
+    private boolean isRunning;
+
+    private long bindCount;
+    private long datasetChangeCount;
+    private long layoutRequestCount;
+    private long allocatedBytes;
+
+
+    void start() {
+        bindCount = 0;
+        datasetChangeCount = 0;
+        layoutRequestCount = 0;
+        allocatedBytes = getCurrentThreadAllocatedBytes();
+        isRunning = true;
+    }
+
+
+    void stop() {
+        isRunning = false;
+        allocatedBytes = Math.max(0L, (getCurrentThreadAllocatedBytes() - allocatedBytes));
+    }
+
+
+    void onBind() {
+        if(isRunning) {
+            bindCount++;
+        }
+    }
+
+
+    void onDatasetChanged() {
+        if(isRunning) {
+            datasetChangeCount++;
+        }
+    }
+
+
+    void onLayoutRequested() {
+        if(isRunning) {
+            layoutRequestCount++;
+        }
+    }
+
+
+    /**
+     * Gets the values of the metrics keyed by their names.
+     *
+     * @return The values of the metrics
+     */
+    Map<String, Long> getValues() {
+        final Map<String, Long> values = new LinkedHashMap<>();
+        values.put(METRIC_BINDS, bindCount);
+        values.put(METRIC_DATASET_CHANGES, datasetChangeCount);
+        values.put(METRIC_LAYOUT_REQUESTS, layoutRequestCount);
+        values.put(METRIC_ALLOCATED_BYTES, allocatedBytes);
+
+        return values;
+    }
+
+
+    /**
+     * Gets the amount of bytes allocated by the current thread so far. The JVM's
+     * ThreadMXBean is accessed reflectively, as the java.lang.management package
+     * is not a part of the Android API the tests are compiled against.
+     *
+     * @return The amount of the allocated bytes or 0 if the JVM does not support measuring it
+     */
+    private static long getCurrentThreadAllocatedBytes() {
+        try {
+            final Object threadMXBean = Class.forName("java.lang.management.ManagementFactory")
+                .getMethod("getThreadMXBean")
+                .invoke(null);
+            final Method method = Class.forName("com.sun.management.ThreadMXBean")
+                .getMethod("getThreadAllocatedBytes", long.class);
+
+            return (Long) method.invoke(threadMXBean, Thread.currentThread().getId());
+        } catch(ReflectiveOperationException | ClassCastException exception) {
+            return 0L;
+        }
+    }
+
+
+}
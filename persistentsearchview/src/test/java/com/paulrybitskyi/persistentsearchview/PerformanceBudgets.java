@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.fail;
+
+/**
+ * The budgets of the search view's flows committed in the performance-budgets.properties
+ * resource, each of them being the maximum allowed value of a metric of a flow
+ * (the "flow.metric" key).
+ * <br>
+ * When the "budgets.record" system property is set to true, the measured values
+ * are recorded into the build/reports/performance-budgets/measured.properties
+ * file instead of being checked, so that the budgets can be updated deliberately.
+ * Alongside them, the budgets derived from the measured values with a headroom of
+ * {@value #HEADROOM_PERCENT}% (and at least 1) are written into the
+ * build/reports/performance-budgets/performance-budgets.properties file, ready
+ * to replace the committed resource.
+ * <br>
+ * A flow without any committed budgets fails just like a flow over its budget,
+ * so that a flow can never slip through the check unnoticed.
+ */
+final class PerformanceBudgets {
+
+
+    private static final String BUDGETS_RESOURCE_NAME = "/performance-budgets.properties";
+    private static final String RECORD_PROPERTY_KEY = "budgets.record";
+
+    private static final int HEADROOM_PERCENT = 10;
+
+    private static final File RECORDED_VALUES_FILE = new File("build/reports/performance-budgets/measured.properties");
+    private static final File RECORDED_BUDGETS_FILE = new File("build/reports/performance-budgets/performance-budgets.properties");
+
+
+    private PerformanceBudgets() {}
+
+
+    /**
+     * Checks whether the metrics of the flow are within its budget. If not, fails the test.
+     *
+     * @param flow The name of the flow
+     * @param metrics The metrics of the flow
+     */
+    static void check(String flow, FlowMetrics metrics) {
+        if(Boolean.getBoolean(RECORD_PROPERTY_KEY)) {
+            record(flow, metrics);
+            return;
+        }
+
+        final Properties budgets = loadBudgets();
+
+        if(!hasBudgets(budgets, flow)) {
+            fail("The \"" + flow + "\" flow has no budgets committed (record them by running with -Pbudgets.record=true).");
+        }
+
+        final List<String> violations = new ArrayList<>();
+
+        for(Map.Entry<String, Long> metric : metrics.getValues().entrySet()) {
+            final String key = (flow + "." + metric.getKey());
+            final String budget = budgets.getProperty(key);
+
+            if(budget == null) {
+                violations.add(String.format(Locale.US, "%s = %d has no budget", key, metric.getValue()));
+            } else if(metric.getValue() > Long.parseLong(budget.trim())) {
+                violations.add(String.format(Locale.US, "%s = %d exceeds the budget of %s", key, metric.getValue(), budget.trim()));
+            }
+        }
+
+        if(!violations.isEmpty()) {
+            fail("The \"" + flow + "\" flow is over the budget:\n" + String.join("\n", violations));
+        }
+    }
+
+
+    private static boolean hasBudgets(Properties budgets, String flow) {
+        final String keyPrefix = (flow + ".");
+
+        for(String key : budgets.stringPropertyNames()) {
+            if(key.startsWith(keyPrefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    private static Properties loadBudgets() {
+        final Properties budgets = new Properties();
+
+        try(InputStream inputStream = PerformanceBudgets.class.getResourceAsStream(BUDGETS_RESOURCE_NAME)) {
+            if(inputStream == null) {
+                throw new IllegalStateException("The " + BUDGETS_RESOURCE_NAME + " resource is missing.");
+            }
+
+            budgets.load(inputStream);
+        } catch(IOException exception) {
+            throw new IllegalStateException("Could not read the budgets.", exception);
+        }
+
+        return budgets;
+    }
+
+
+    private static synchronized void record(String flow, FlowMetrics metrics) {
+        try {
+            final Properties recordedValues = loadRecordedProperties(RECORDED_VALUES_FILE);
+            final Properties recordedBudgets = loadRecordedProperties(RECORDED_BUDGETS_FILE);
+
+            for(Map.Entry<String, Long> metric : metrics.getValues().entrySet()) {
+                final String key = (flow + "." + metric.getKey());
+                final long value = metric.getValue();
+
+                recordedValues.setProperty(key, String.valueOf(value));
+                recordedBudgets.setProperty(key, String.valueOf(value + getHeadroom(value)));
+            }
+
+            storeRecordedProperties(RECORDED_VALUES_FILE, recordedValues, "The measured values of the flows' metrics");
+            storeRecordedProperties(
+                RECORDED_BUDGETS_FILE,
+                recordedBudgets,
+                "The budgets of the flows' metrics: the measured values plus " + HEADROOM_PERCENT + "% (at least 1)"
+            );
+        } catch(IOException exception) {
+            throw new IllegalStateException("Could not record the measured values.", exception);
+        }
+    }
+
+
+    private static long getHeadroom(long value) {
+        // Rounding up, so that the small counts get a headroom too
+        return Math.max(1L, ((value * HEADROOM_PERCENT) + 99L) / 100L);
+    }
+
+
+    private static Properties loadRecordedProperties(File file) throws IOException {
+        final Properties properties = new Properties();
+
+        if(file.exists()) {
+            try(InputStream inputStream = new FileInputStream(file)) {
+                properties.load(inputStream);
+            }
+        } else {
+            file.getParentFile().mkdirs();
+        }
+
+        return properties;
+    }
+
+
+    private static void storeRecordedProperties(File file, Properties properties, String comments) throws IOException {
+        try(OutputStream outputStream = new FileOutputStream(file)) {
+            properties.store(outputStream, comments);
+        }
+    }
+
+
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.paulrybitskyi.persistentsearchview;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Looper;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.EditText;
+
+import com.arthurivanets.adapster.Adapter;
+import com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionItem;
+import com.paulrybitskyi.persistentsearchview.adapters.resources.SuggestionItemResources;
+import com.paulrybitskyi.persistentsearchview.model.Suggestion;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import static org.junit.Assert.assertNotNull;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * A regression suite guarding the amount of work the search view performs
+ * during its core flows: the amount of the suggestions' rebinds, full dataset
+ * changes (notifyDataSetChanged calls), layout requests reaching the search view
+ * and the bytes allocated on the main thread. The measured values are compared
+ * against the budgets committed in the performance-budgets.properties resource
+ * (see {@link PerformanceBudgets}).
+ * <br>
+ * Run with -Pbudgets.record=true to record the measured values instead.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class PersistentSearchViewBudgetTest {
+
+
+    private static final String TYPED_QUERY = "persistent";
+
+    private static final int SUGGESTION_COUNT = 5;
+    private static final int EXPAND_COLLAPSE_CYCLE_COUNT = 3;
+    private static final int SUGGESTION_UPDATE_COUNT = 6;
+    private static final int SUGGESTION_REMOVAL_COUNT = 3;
+
+    private static final long FRAME_DURATION_MILLIS = 17L;
+    private static final long ANIMATION_DURATION_MILLIS = 500L;
+
+
+    private FlowMetrics metrics;
+
+    private CountingPersistentSearchView searchView;
+
+    private EditText inputEt;
+
+    private RecyclerView suggestionsRecyclerView;
+
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        final Context context = new ContextThemeWrapper(activity, R.style.AppTheme);
+
+        metrics = new FlowMetrics();
+        searchView = new CountingPersistentSearchView(context, metrics);
+
+        activity.setContentView(searchView, new ViewGroup.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT,
+            ViewGroup.LayoutParams.WRAP_CONTENT
+        ));
+
+        inputEt = searchView.findViewById(R.id.inputEt);
+        suggestionsRecyclerView = searchView.findViewById(R.id.suggestionsRecyclerView);
+        suggestionsRecyclerView.getAdapter().registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+
+            @Override
+            public void onChanged() {
+                metrics.onDatasetChanged();
+            }
+
+        });
+
+        runFor(ANIMATION_DURATION_MILLIS);
+    }
+
+
+    @Test
+    public void typing() {
+        searchView.expand(false);
+        runFor(ANIMATION_DURATION_MILLIS);
+
+        metrics.start();
+
+        for(int i = 0; i < TYPED_QUERY.length(); i++) {
+            inputEt.getText().append(TYPED_QUERY.charAt(i));
+            searchView.setSuggestions(
+                createSuggestions(TYPED_QUERY.substring(0, (i + 1)), SUGGESTION_COUNT, Suggestion.TYPE_REGULAR_SEARCH_SUGGESTION),
+                false
+            );
+            runFor(FRAME_DURATION_MILLIS);
+        }
+
+        runFor(ANIMATION_DURATION_MILLIS);
+        metrics.stop();
+
+        PerformanceBudgets.check("typing", metrics);
+    }
+
+
+    @Test
+    public void settingSuggestions() {
+        searchView.expand(false);
+        runFor(ANIMATION_DURATION_MILLIS);
+
+        metrics.start();
+
+        for(int i = 0; i < SUGGESTION_UPDATE_COUNT; i++) {
+            // alternating the amount of suggestions to make the container's height animate
+            searchView.setSuggestions(
+                createSuggestions(("update " + i), (SUGGESTION_COUNT - ((i % 2) * 2)), Suggestion.TYPE_REGULAR_SEARCH_SUGGESTION),
+                false
+            );
+            runFor(ANIMATION_DURATION_MILLIS);
+        }
+
+        metrics.stop();
+
+        PerformanceBudgets.check("settingSuggestions", metrics);
+    }
+
+
+    @Test
+    public void expandingAndCollapsing() {
+        searchView.setSuggestions(
+            createSuggestions("recent", SUGGESTION_COUNT, Suggestion.TYPE_RECENT_SEARCH_SUGGESTION),
+            false
+        );
+        runFor(ANIMATION_DURATION_MILLIS);
+
+        metrics.start();
+
+        for(int i = 0; i < EXPAND_COLLAPSE_CYCLE_COUNT; i++) {
+            searchView.expand();
+            runFor(ANIMATION_DURATION_MILLIS);
+
+            searchView.collapse();
+            runFor(ANIMATION_DURATION_MILLIS);
+        }
+
+        metrics.stop();
+
+        PerformanceBudgets.check("expandingAndCollapsing", metrics);
+    }
+
+
+    @Test
+    public void removingSuggestions() {
+        searchView.setSuggestions(
+            createSuggestions("recent", (SUGGESTION_COUNT + SUGGESTION_REMOVAL_COUNT), Suggestion.TYPE_RECENT_SEARCH_SUGGESTION),
+            true
+        );
+        runFor(ANIMATION_DURATION_MILLIS);
+
+        metrics.start();
+
+        for(int i = 0; i < SUGGESTION_REMOVAL_COUNT; i++) {
+            final RecyclerView.ViewHolder viewHolder = suggestionsRecyclerView.findViewHolderForAdapterPosition(0);
+            assertNotNull(viewHolder);
+
+            final View removeBtnIv = viewHolder.itemView.findViewById(R.id.removeBtnIv);
+            assertNotNull(removeBtnIv);
+
+            removeBtnIv.performClick();
+            runFor(ANIMATION_DURATION_MILLIS);
+        }
+
+        metrics.stop();
+
+        PerformanceBudgets.check("removingSuggestions", metrics);
+    }
+
+
+    private List<SuggestionItem> createSuggestions(String prefix, int count, String type) {
+        final List<SuggestionItem> suggestions = new ArrayList<>(count);
+
+        for(int i = 0; i < count; i++) {
+            suggestions.add(new CountingSuggestionItem(
+                new Suggestion()
+                    .setId(i + 1)
+                    .setType(type)
+                    .setText(prefix + " suggestion " + i),
+                metrics
+            ));
+        }
+
+        return suggestions;
+    }
+
+
+    private static void runFor(long durationMillis) {
+        shadowOf(Looper.getMainLooper()).idleFor(durationMillis, TimeUnit.MILLISECONDS);
+    }
+
+
+    private static final class CountingPersistentSearchView extends PersistentSearchView {
+
+        private final FlowMetrics metrics;
+
+        CountingPersistentSearchView(Context context, FlowMetrics metrics) {
+            super(context);
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void requestLayout() {
+            // invoked by the super constructor as well, before the metrics are assigned
+            if(metrics != null) {
+                metrics.onLayoutRequested();
+            }
+
+            super.requestLayout();
+        }
+
+    }
+
+
+    private static final class CountingSuggestionItem extends SuggestionItem {
+
+        private final FlowMetrics metrics;
+
+        CountingSuggestionItem(Suggestion suggestion, FlowMetrics metrics) {
+            super(suggestion);
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void bind(
+            @Nullable Adapter adapter,
+            @NonNull ViewHolder viewHolder,
+            @Nullable SuggestionItemResources resources
+        ) {
+            metrics.onBind();
+            super.bind(adapter, viewHolder, resources);
+        }
+
+    }
+
+
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.providers;
+
+import android.net.http.HttpResponseCache;
+
+import com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionItem;
+import com.paulrybitskyi.persistentsearchview.utils.SuggestionCreationUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the {@link RemoteSuggestionProvider} against a local mock server.
+ * Runs on Robolectric for the sake of the org.json classes.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class RemoteSuggestionProviderTest {
+
+
+    private static final long SLOW_RESPONSE_DELAY_SECONDS = 10L;
+    private static final long CACHE_MAX_SIZE_BYTES = (1024L * 1024L);
+
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+    private MockWebServer server;
+
+    private ExecutorService lookupExecutor;
+
+    private RemoteSuggestionProvider provider;
+
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+
+        lookupExecutor = Executors.newCachedThreadPool();
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        if(provider != null) {
+            provider.release();
+        }
+
+        final HttpResponseCache installedCache = HttpResponseCache.getInstalled();
+
+        // Uninstalls the cache as well
+        if(installedCache != null) {
+            installedCache.delete();
+        }
+
+        lookupExecutor.shutdownNow();
+        server.shutdown();
+    }
+
+
+    @Test
+    public void parsesOpenSearchResponse() throws Exception {
+        provider = newProviderBuilder().build();
+        server.enqueue(jsonResponse("[\"jav\", [\"java\", \"javascript\"]]"));
+
+        assertEquals(asList("java", "javascript"), getTexts(provider.getSuggestions("jav")));
+    }
+
+
+    @Test
+    public void parsesOpenSearchResponseWithDescriptionsAndUrls() throws Exception {
+        provider = newProviderBuilder().build();
+        server.enqueue(jsonResponse(
+            "[\"jav\", [\"java\", \"javascript\"], [\"\", \"\"], " +
+            "[\"https://example.com/java\", \"https://example.com/javascript\"]]"
+        ));
+
+        assertEquals(asList("java", "javascript"), getTexts(provider.getSuggestions("jav")));
+    }
+
+
+    @Test
+    public void parsesPlainArrayResponse() throws Exception {
+        provider = newProviderBuilder().build();
+        server.enqueue(jsonResponse("[\"java\", \"javascript\", \"\"]"));
+
+        final SuggestionResult result = provider.getSuggestions("jav");
+
+        assertEquals(asList("java", "javascript"), getTexts(result));
+        assertFalse(result.isComplete());
+    }
+
+
+    @Test
+    public void encodesQueryIntoUrl() throws Exception {
+        provider = newProviderBuilder().build();
+        server.enqueue(jsonResponse("[]"));
+
+        provider.getSuggestions("c++ & java");
+
+        assertEquals("/suggest?q=c%2B%2B+%26+java", server.takeRequest().getPath());
+    }
+
+
+    @Test
+    public void sendsHeaders() throws Exception {
+        provider = newProviderBuilder()
+            .addHeader("Accept", "application/x-suggestions+json")
+            .addHeader("X-Api-Key", "key")
+            .build();
+        server.enqueue(jsonResponse("[]"));
+
+        provider.getSuggestions("java");
+
+        final RecordedRequest request = server.takeRequest();
+
+        assertEquals("application/x-suggestions+json", request.getHeader("Accept"));
+        assertEquals("key", request.getHeader("X-Api-Key"));
+    }
+
+
+    @Test
+    public void sharesSingleRequestBetweenConcurrentLookupsOfSameQuery() throws Exception {
+        provider = newProviderBuilder().setTimeoutMillis(5000L).build();
+        server.enqueue(jsonResponse("[\"java\"]").setBodyDelay(500L, TimeUnit.MILLISECONDS));
+
+        final Future<SuggestionResult> firstLookup = lookupExecutor.submit(() -> provider.getSuggestions("java"));
+
+        // Making sure the first request is in flight before the second lookup starts
+        assertNotNull(server.takeRequest(5L, TimeUnit.SECONDS));
+
+        final SuggestionResult secondResult = provider.getSuggestions("java");
+        final SuggestionResult firstResult = firstLookup.get(5L, TimeUnit.SECONDS);
+
+        assertEquals(asList("java"), getTexts(firstResult));
+        assertEquals(asList("java"), getTexts(secondResult));
+        assertEquals(1, server.getRequestCount());
+    }
+
+
+    @Test
+    public void cancelsRequestOfSupersededQuery() throws Exception {
+        provider = newProviderBuilder().setTimeoutMillis(5000L).build();
+        server.enqueue(jsonResponse("[\"java\"]").setBodyDelay(SLOW_RESPONSE_DELAY_SECONDS, TimeUnit.SECONDS));
+        server.enqueue(jsonResponse("[\"javascript\"]"));
+
+        final Future<SuggestionResult> supersededLookup = lookupExecutor.submit(() -> provider.getSuggestions("jav"));
+
+        assertNotNull(server.takeRequest(5L, TimeUnit.SECONDS));
+
+        final long startTimeMillis = System.currentTimeMillis();
+        final SuggestionResult result = provider.getSuggestions("java");
+
+        assertEquals(asList("javascript"), getTexts(result));
+
+        try {
+            supersededLookup.get(5L, TimeUnit.SECONDS);
+            fail("The superseded lookup has not been cancelled.");
+        } catch(ExecutionException exception) {
+            assertTrue(exception.getCause() instanceof CancellationException);
+        }
+
+        // Not waiting for the slow response of the superseded query
+        assertTrue((System.currentTimeMillis() - startTimeMillis) < TimeUnit.SECONDS.toMillis(SLOW_RESPONSE_DELAY_SECONDS));
+    }
+
+
+    @Test
+    public void doesNotCancelRequestOfLatestLookupWhenPrefetching() throws Exception {
+        provider = newProviderBuilder().setTimeoutMillis(5000L).build();
+        server.enqueue(jsonResponse("[\"java\"]").setBodyDelay(500L, TimeUnit.MILLISECONDS));
+        server.enqueue(jsonResponse("[\"javascript\"]"));
+
+        final Future<SuggestionResult> lookup = lookupExecutor.submit(() -> provider.getSuggestions("jav"));
+
+        assertNotNull(server.takeRequest(5L, TimeUnit.SECONDS));
+
+        assertEquals(asList("javascript"), getTexts(provider.prefetchSuggestions("java")));
+        assertEquals(asList("java"), getTexts(lookup.get(5L, TimeUnit.SECONDS)));
+        assertEquals(2, server.getRequestCount());
+    }
+
+
+    @Test
+    public void fallsBackWhenLookupTimesOut() throws Exception {
+        provider = newProviderBuilder()
+            .setTimeoutMillis(200L)
+            .setFallbackProvider(query -> SuggestionResult.complete(SuggestionCreationUtil.asRegularSearchSuggestions(asList("local java"))))
+            .build();
+        server.enqueue(jsonResponse("[\"java\"]").setBodyDelay(SLOW_RESPONSE_DELAY_SECONDS, TimeUnit.SECONDS));
+
+        final SuggestionResult result = provider.getSuggestions("java");
+
+        assertEquals(asList("local java"), getTexts(result));
+
+        // Never taken for a complete result of the server
+        assertFalse(result.isComplete());
+    }
+
+
+    @Test
+    public void fallsBackWhenServerFails() throws Exception {
+        provider = newProviderBuilder()
+            .setFallbackProvider(query -> SuggestionResult.complete(SuggestionCreationUtil.asRegularSearchSuggestions(asList("local java"))))
+            .build();
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        final SuggestionResult result = provider.getSuggestions("java");
+
+        assertEquals(asList("local java"), getTexts(result));
+        assertFalse(result.isComplete());
+    }
+
+
+    @Test
+    public void installsPlatformResponseCacheWhenCacheDirectoryIsSet() throws Exception {
+        provider = newProviderBuilder()
+            .setCacheDirectory(temporaryFolder.newFolder(), CACHE_MAX_SIZE_BYTES)
+            .build();
+
+        assertNotNull(HttpResponseCache.getInstalled());
+    }
+
+
+    @Test
+    public void keepsAlreadyInstalledResponseCache() throws Exception {
+        final HttpResponseCache installedCache = HttpResponseCache.install(temporaryFolder.newFolder(), CACHE_MAX_SIZE_BYTES);
+
+        provider = newProviderBuilder()
+            .setCacheDirectory(temporaryFolder.newFolder(), CACHE_MAX_SIZE_BYTES)
+            .build();
+
+        assertSame(installedCache, HttpResponseCache.getInstalled());
+    }
+
+
+    @Test
+    public void doesNotInstallResponseCacheWithoutCacheDirectory() throws Exception {
+        provider = newProviderBuilder().build();
+
+        assertNull(HttpResponseCache.getInstalled());
+    }
+
+
+    private RemoteSuggestionProvider.Builder newProviderBuilder() {
+        return new RemoteSuggestionProvider.Builder()
+            .setUrlTemplate(server.url("/suggest").toString() + "?q={query}");
+    }
+
+
+    private static MockResponse jsonResponse(String body) {
+        return new MockResponse()
+            .setHeader("Content-Type", "application/json; charset=utf-8")
+            .setBody(body);
+    }
+
+
+    private static List<String> getTexts(SuggestionResult result) {
+        final List<String> texts = new ArrayList<>();
+
+        for(SuggestionItem suggestion : result.getSuggestions()) {
+            texts.add(suggestion.getItemModel().getText());
+        }
+
+        return texts;
+    }
+
+
+    private static List<String> asList(String... texts) {
+        final List<String> list = new ArrayList<>();
+        Collections.addAll(list, texts);
+
+        return list;
+    }
+
+
+}
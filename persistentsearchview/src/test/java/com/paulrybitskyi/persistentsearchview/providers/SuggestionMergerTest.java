@@ -0,0 +1,429 @@
+/*
+ * Copyright 2017 Paul Rybitskyi, oss@paulrybitskyi.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.paulrybitskyi.persistentsearchview.providers;
+
+import android.os.Looper;
+
+import com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionItem;
+import com.paulrybitskyi.persistentsearchview.utils.SuggestionCreationUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Tests of the {@link SuggestionMerger} driven by the providers delivering
+ * their results on demand, the main looper being advanced manually.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class SuggestionMergerTest {
+
+
+    private static final String QUERY = "java";
+
+    private static final long AWAIT_TIMEOUT_MILLIS = 5000L;
+    private static final long DEADLINE_MILLIS = 300L;
+
+
+    private ThreadPoolExecutor lookupExecutor;
+
+    private SuggestionMerger merger;
+
+    private RecordingListener listener;
+
+
+    @Before
+    public void setUp() {
+        lookupExecutor = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+        listener = new RecordingListener();
+    }
+
+
+    @After
+    public void tearDown() {
+        if(merger != null) {
+            merger.release();
+        }
+
+        lookupExecutor.shutdownNow();
+    }
+
+
+    @Test
+    public void ordersTheGroupsByPrioritiesRegardlessOfArrivalOrder() throws Exception {
+        final ControlledProvider lowProvider = new ControlledProvider(SuggestionResult.complete(asSuggestions("low1", "low2")));
+        final ControlledProvider middleProvider = new ControlledProvider(SuggestionResult.complete(asSuggestions("middle")));
+        final ControlledProvider highProvider = new ControlledProvider(SuggestionResult.complete(asSuggestions("high1", "high2")));
+
+        merger = newMergerBuilder()
+            .addProvider(lowProvider, 1)
+            .addProvider(highProvider, 3)
+            .addProvider(middleProvider, 2)
+            .build();
+        merger.merge(QUERY, listener);
+
+        deliver(lowProvider);
+        deliver(highProvider);
+        deliver(middleProvider);
+
+        assertEquals(asList("high1", "high2", "middle", "low1", "low2"), listener.getTexts());
+        assertEquals(1, listener.setCount);
+        assertEquals(2, listener.insertionCount);
+        assertTrue(listener.isComplete);
+        assertFalse(merger.isMerging());
+    }
+
+
+    @Test
+    public void insertsTheGroupsNextToTheShownRowsAfterRemovals() throws Exception {
+        final ControlledProvider highProvider = new ControlledProvider(SuggestionResult.complete(asSuggestions("high1", "high2")));
+        final ControlledProvider middleProvider = new ControlledProvider(SuggestionResult.complete(asSuggestions("middle")));
+        final ControlledProvider lowProvider = new ControlledProvider(SuggestionResult.complete(asSuggestions("low")));
+
+        merger = newMergerBuilder()
+            .addProvider(highProvider, 3)
+            .addProvider(middleProvider, 2)
+            .addProvider(lowProvider, 1)
+            .build();
+        merger.merge(QUERY, listener);
+
+        deliver(highProvider);
+        deliver(lowProvider);
+
+        // The user removes one of the shown rows before the slow provider delivers
+        listener.suggestions.remove(0);
+
+        deliver(middleProvider);
+
+        assertEquals(asList("high2", "middle", "low"), listener.getTexts());
+    }
+
+
+    @Test
+    public void deduplicatesTheSuggestionsTheFirstArrivedOneWinning() throws Exception {
+        final ControlledProvider highProvider = new ControlledProvider(SuggestionResult.complete(asSuggestions("java", "kotlin")));
+        final ControlledProvider lowProvider = new ControlledProvider(SuggestionResult.complete(asSuggestions("javascript", "java")));
+
+        merger = newMergerBuilder()
+            .addProvider(highProvider, 2)
+            .addProvider(lowProvider, 1)
+            .build();
+        merger.merge(QUERY, listener);
+
+        deliver(lowProvider);
+        deliver(highProvider);
+
+        assertEquals(asList("kotlin", "javascript", "java"), listener.getTexts());
+    }
+
+
+    @Test
+    public void interruptsAndIgnoresTheProvidersMissingTheirDeadlines() throws Exception {
+        final ControlledProvider fastProvider = new ControlledProvider(SuggestionResult.complete(asSuggestions("fast")));
+        final ControlledProvider slowProvider = new ControlledProvider(SuggestionResult.complete(asSuggestions("slow")));
+
+        merger = newMergerBuilder()
+            .addProvider(fastProvider, 1)
+            .addProvider(slowProvider, 2, DEADLINE_MILLIS)
+            .build();
+        merger.merge(QUERY, listener);
+
+        deliver(fastProvider);
+        runFor(DEADLINE_MILLIS);
+
+        assertTrue(slowProvider.awaitInterruption());
+        assertEquals(asList("fast"), listener.getTexts());
+        assertEquals(QUERY, listener.completedQuery);
+        assertFalse(listener.isComplete);
+        assertFalse(merger.isMerging());
+
+        // The result arriving after the deadline is ignored
+        slowProvider.deliver();
+        runFor(DEADLINE_MILLIS);
+
+        assertEquals(asList("fast"), listener.getTexts());
+        assertEquals(0, listener.insertionCount);
+    }
+
+
+    @Test
+    public void completesIncompletelyWhenProviderFails() throws Exception {
+        final ControlledProvider failingProvider = new ControlledProvider(null);
+        final ControlledProvider partialProvider = new ControlledProvider(SuggestionResult.partial(asSuggestions("java")));
+
+        merger = newMergerBuilder()
+            .addProvider(failingProvider, 2)
+            .addProvider(partialProvider, 1)
+            .build();
+        merger.merge(QUERY, listener);
+
+        deliver(failingProvider);
+        deliver(partialProvider);
+
+        assertEquals(asList("java"), listener.getTexts());
+        assertEquals(QUERY, listener.completedQuery);
+        assertFalse(listener.isComplete);
+    }
+
+
+    @Test
+    public void clearsTheSuggestionsWhenNoProviderFindsAny() throws Exception {
+        final ControlledProvider provider = new ControlledProvider(SuggestionResult.empty());
+
+        listener.suggestions.addAll(asSuggestions("previous"));
+
+        merger = newMergerBuilder()
+            .addProvider(provider, 1)
+            .build();
+        merger.merge(QUERY, listener);
+
+        deliver(provider);
+
+        assertEquals(0, listener.suggestions.size());
+        assertEquals(1, listener.setCount);
+        assertTrue(listener.isComplete);
+    }
+
+
+    @Test
+    public void cancelsThePreviousLookupWhenMergingAgain() throws Exception {
+        final ControlledProvider provider = new ControlledProvider(SuggestionResult.complete(asSuggestions("java")));
+        final RecordingListener cancelledListener = new RecordingListener();
+
+        merger = newMergerBuilder()
+            .addProvider(provider, 1)
+            .build();
+        merger.merge(QUERY, cancelledListener);
+
+        assertTrue(provider.awaitLookup());
+
+        merger.merge(QUERY, listener);
+
+        assertTrue(provider.awaitInterruption());
+        awaitCompletedLookups(1L);
+
+        deliver(provider);
+
+        assertEquals(asList("java"), listener.getTexts());
+        assertEquals(0, cancelledListener.eventCount);
+    }
+
+
+    @Test
+    public void doesNotInvokeTheListenerOfCancelledLookup() throws Exception {
+        final ControlledProvider provider = new ControlledProvider(SuggestionResult.complete(asSuggestions("java")));
+
+        merger = newMergerBuilder()
+            .addProvider(provider, 1, DEADLINE_MILLIS)
+            .build();
+        merger.merge(QUERY, listener);
+
+        assertTrue(provider.awaitLookup());
+
+        merger.cancel();
+
+        assertTrue(provider.awaitInterruption());
+        assertFalse(merger.isMerging());
+
+        provider.deliver();
+        runFor(DEADLINE_MILLIS);
+
+        assertEquals(0, listener.eventCount);
+    }
+
+
+    private SuggestionMerger.Builder newMergerBuilder() {
+        return new SuggestionMerger.Builder().setLookupExecutor(lookupExecutor);
+    }
+
+
+    /**
+     * Lets the provider deliver its result and runs the main looper
+     * until the merger handles it.
+     */
+    private void deliver(ControlledProvider provider) throws InterruptedException {
+        final long completedLookupCount = (lookupExecutor.getCompletedTaskCount() + 1L);
+
+        provider.deliver();
+        awaitCompletedLookups(completedLookupCount);
+
+        // The lookup posts its result to the main thread before completing
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+
+    private void awaitCompletedLookups(long completedLookupCount) throws InterruptedException {
+        final long timeoutTimeMillis = (System.currentTimeMillis() + AWAIT_TIMEOUT_MILLIS);
+
+        while(lookupExecutor.getCompletedTaskCount() < completedLookupCount) {
+            if(System.currentTimeMillis() > timeoutTimeMillis) {
+                fail("The lookups have not completed in time.");
+            }
+
+            Thread.sleep(1L);
+        }
+    }
+
+
+    private static void runFor(long durationMillis) {
+        shadowOf(Looper.getMainLooper()).idleFor(durationMillis, TimeUnit.MILLISECONDS);
+    }
+
+
+    private static List<SuggestionItem> asSuggestions(String... texts) {
+        return SuggestionCreationUtil.asRegularSearchSuggestions(asList(texts));
+    }
+
+
+    private static List<String> asList(String... texts) {
+        final List<String> list = new ArrayList<>();
+        Collections.addAll(list, texts);
+
+        return list;
+    }
+
+
+    /**
+     * A provider blocking until it is told to deliver its result (or to fail,
+     * if the result is null), recording the starts and the interruptions of its lookups.
+     */
+    private static final class ControlledProvider implements SuggestionProvider {
+
+        private final SuggestionResult result;
+
+        private final CountDownLatch lookupLatch = new CountDownLatch(1);
+        private final CountDownLatch resultLatch = new CountDownLatch(1);
+        private final CountDownLatch interruptionLatch = new CountDownLatch(1);
+
+        private ControlledProvider(SuggestionResult result) {
+            this.result = result;
+        }
+
+        @NonNull
+        @Override
+        public SuggestionResult getSuggestions(@NonNull String query) throws Exception {
+            lookupLatch.countDown();
+
+            try {
+                resultLatch.await();
+            } catch(InterruptedException exception) {
+                interruptionLatch.countDown();
+                throw exception;
+            }
+
+            if(result == null) {
+                throw new IllegalStateException("The lookup has failed.");
+            }
+
+            return result;
+        }
+
+        private void deliver() {
+            resultLatch.countDown();
+        }
+
+        private boolean awaitLookup() throws InterruptedException {
+            return lookupLatch.await(AWAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        private boolean awaitInterruption() throws InterruptedException {
+            return interruptionLatch.await(AWAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+    }
+
+
+    /**
+     * A listener applying the merged suggestions to a list, the way the search view does.
+     */
+    private static final class RecordingListener implements SuggestionMerger.Listener {
+
+        private int eventCount;
+        private int setCount;
+        private int insertionCount;
+
+        private boolean isComplete;
+
+        private String completedQuery;
+
+        private final List<SuggestionItem> suggestions = new ArrayList<>();
+
+        @Override
+        public void onSuggestionsSet(@NonNull List<SuggestionItem> suggestions) {
+            this.eventCount++;
+            this.setCount++;
+            this.suggestions.clear();
+            this.suggestions.addAll(suggestions);
+        }
+
+        @Override
+        public void onSuggestionsInserted(int position, @NonNull List<SuggestionItem> suggestions) {
+            this.eventCount++;
+            this.insertionCount++;
+            this.suggestions.addAll(position, suggestions);
+        }
+
+        @NonNull
+        @Override
+        public List<SuggestionItem> getSuggestions() {
+            return suggestions;
+        }
+
+        @Override
+        public void onLookupCompleted(@NonNull String query, boolean isComplete) {
+            this.eventCount++;
+            this.completedQuery = query;
+            this.isComplete = isComplete;
+        }
+
+        private List<String> getTexts() {
+            final List<String> texts = new ArrayList<>();
+
+            for(SuggestionItem suggestion : suggestions) {
+                texts.add(suggestion.getItemModel().getText());
+            }
+
+            return texts;
+        }
+
+    }
+
+
+}
@@ -20,12 +20,15 @@ apply(plugin = PLUGIN_SIGNING)
 project.group = publishingConfig.artifactGroupId
 project.version = publishingConfig.artifactVersion
 
+// The modules publishing additional artifacts override the name via the extra properties
+val artifactName = property(publishingConfig.artifactNameProperty, publishingConfig.artifactName)
+
 afterEvaluate {
     configure<PublishingExtension> {
         publications {
             create<MavenPublication>(publishingConfig.mavenPublicationName) {
                 groupId = publishingConfig.artifactGroupId
-                artifactId = publishingConfig.artifactName
+                artifactId = artifactName
                 version = publishingConfig.artifactVersion
 
                 if(project.plugins.hasPlugin(PLUGIN_ANDROID_LIBRARY)) {
@@ -35,7 +38,7 @@ afterEvaluate {
                 }
 
                 pom {
-                    name.set(publishingConfig.artifactName)
+                    name.set(artifactName)
                     description.set(publishingConfig.artifactDescription)
                     url.set(publishingConfig.artifactWebsite)
 
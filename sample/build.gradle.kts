@@ -54,12 +54,14 @@ android {
 
 dependencies {
     implementation(project(deps.local.persistentSearchView))
+    implementation(project(deps.local.persistentSearchViewKtx))
 
     implementation(deps.appCompat)
     implementation(deps.cardView)
     implementation(deps.browser)
     implementation(deps.recyclerView)
     implementation(deps.coreKtx)
+    implementation(deps.lifecycleRuntimeKtx)
     implementation(deps.commonsKtx)
 
     testImplementation(deps.jUnit)
@@ -21,20 +21,23 @@ import android.content.Intent
 import android.os.Bundle
 import android.os.Handler
 import android.os.Looper
+import android.os.SystemClock
 import android.view.Gravity
 import android.view.View
 import android.view.WindowManager.LayoutParams.*
 import android.view.animation.LinearInterpolator
 import androidx.appcompat.app.AppCompatActivity
 import androidx.core.view.isVisible
+import androidx.lifecycle.lifecycleScope
 import androidx.recyclerview.widget.LinearLayoutManager
 import com.arthurivanets.adapster.listeners.OnItemClickListener
 import com.paulrybitskyi.commons.ktx.*
 import com.paulrybitskyi.persistentsearchview.PersistentSearchView
 import com.paulrybitskyi.persistentsearchview.R
 import com.paulrybitskyi.persistentsearchview.adapters.model.SuggestionItem
+import com.paulrybitskyi.persistentsearchview.ktx.bindSuggestions
 import com.paulrybitskyi.persistentsearchview.listeners.OnSearchConfirmedListener
-import com.paulrybitskyi.persistentsearchview.listeners.OnSearchQueryChangeListener
+import com.paulrybitskyi.persistentsearchview.listeners.OnSpeculativeSearchListener
 import com.paulrybitskyi.persistentsearchview.listeners.OnSuggestionChangeListener
 import com.paulrybitskyi.persistentsearchview.utils.SuggestionCreationUtil
 import com.paulrybitskyi.persistentsearchview.utils.VoiceRecognitionDelegate
@@ -59,6 +62,8 @@ internal class DemoActivity : AppCompatActivity(), View.OnClickListener {
         private const val SAVED_STATE_DATA_PROVIDER = "data_provider"
         private const val SAVED_STATE_ITEMS = "items"
 
+        private const val SEARCH_DURATION = 1000L
+
 
         fun newInstance(context: Context, mode: DemoMode): Intent {
             return context.intentFor<DemoActivity>()
@@ -74,6 +79,9 @@ internal class DemoActivity : AppCompatActivity(), View.OnClickListener {
 
     private var items: MutableList<UserItem> = mutableListOf()
 
+    private var speculativeSearchQuery: String? = null
+    private var speculativeSearchStartTime = 0L
+
     private lateinit var viewBinding: ActivityDemoBinding
     private lateinit var persistentSearchView: PersistentSearchView
 
@@ -111,8 +119,8 @@ internal class DemoActivity : AppCompatActivity(), View.OnClickListener {
         showRightButton()
         setVoiceRecognitionDelegate(VoiceRecognitionDelegate(this@DemoActivity))
         setOnSearchConfirmedListener(mOnSearchConfirmedListener)
-        setOnSearchQueryChangeListener(mOnSearchQueryChangeListener)
         setOnSuggestionChangeListener(mOnSuggestionChangeListener)
+        setOnSpeculativeSearchListener(mOnSpeculativeSearchListener)
         setDismissOnTouchOutside(true)
         setDimBackground(true)
         isProgressBarEnabled = true
@@ -120,6 +128,18 @@ internal class DemoActivity : AppCompatActivity(), View.OnClickListener {
         isClearInputButtonEnabled = true
         setSuggestionsDisabled(mode == DemoMode.WITHOUT_SUGGESTIONS)
         setQueryInputGravity(Gravity.START or Gravity.CENTER)
+
+        if(mode != DemoMode.WITHOUT_SUGGESTIONS) {
+            bindSuggestions(lifecycleScope) { query ->
+                createSuggestions(
+                    if(query.isBlank()) {
+                        dataProvider.getInitialSearchQueries()
+                    } else {
+                        dataProvider.getSuggestionsForQuery(query)
+                    }
+                )
+            }
+        }
     }
 
 
@@ -198,6 +218,15 @@ internal class DemoActivity : AppCompatActivity(), View.OnClickListener {
 
 
     private fun performSearch(query: String) = with(viewBinding) {
+        // The results of a confirmed speculative search have been loading for a while already
+        val elapsedTime = if(query == speculativeSearchQuery) {
+            (SystemClock.uptimeMillis() - speculativeSearchStartTime)
+        } else {
+            0L
+        }
+
+        speculativeSearchQuery = null
+
         emptyViewLl.makeGone()
         recyclerView.alpha = 0f
         progressBar.makeVisible()
@@ -220,7 +249,7 @@ internal class DemoActivity : AppCompatActivity(), View.OnClickListener {
                 .start()
         }
 
-        Handler(Looper.getMainLooper()).postDelayed(runnable, 1000L)
+        Handler(Looper.getMainLooper()).postDelayed(runnable, (SEARCH_DURATION - elapsedTime).coerceAtLeast(0L))
 
         persistentSearchView.hideLeftButton(false)
         persistentSearchView.showProgressBar()
@@ -239,14 +268,17 @@ internal class DemoActivity : AppCompatActivity(), View.OnClickListener {
             return
         }
 
-        val suggestions: List<SuggestionItem> = when(mode) {
+        persistentSearchView.setSuggestions(createSuggestions(queries), expandIfNecessary)
+    }
+
+
+    private fun createSuggestions(queries: List<String>): List<SuggestionItem> {
+        return when(mode) {
             DemoMode.RECENT_SUGGESTIONS -> SuggestionCreationUtil.asRecentSearchSuggestions(queries)
             DemoMode.REGULAR_SUGGESTIONS -> SuggestionCreationUtil.asRegularSearchSuggestions(queries)
 
             else -> throw IllegalStateException()
         }
-
-        persistentSearchView.setSuggestions(suggestions, expandIfNecessary)
     }
 
 
@@ -323,18 +355,6 @@ internal class DemoActivity : AppCompatActivity(), View.OnClickListener {
     }
 
 
-    private val mOnSearchQueryChangeListener = OnSearchQueryChangeListener { _, _, newQuery ->
-        setSuggestions(
-            if(newQuery.isBlank()) {
-                dataProvider.getInitialSearchQueries()
-            } else {
-                dataProvider.getSuggestionsForQuery(newQuery)
-            },
-            true
-        )
-    }
-
-
     private val mOnSuggestionChangeListener = object : OnSuggestionChangeListener {
 
         override fun onSuggestionPicked(suggestion: SuggestionItem) {
@@ -352,6 +372,25 @@ internal class DemoActivity : AppCompatActivity(), View.OnClickListener {
     }
 
 
+    private val mOnSpeculativeSearchListener = object : OnSpeculativeSearchListener {
+
+        override fun onSpeculativeSearchStarted(searchView: PersistentSearchView, query: String) {
+            // Pretending to start loading the results of the query
+            speculativeSearchQuery = query
+            speculativeSearchStartTime = SystemClock.uptimeMillis()
+        }
+
+        override fun onSpeculativeSearchConfirmed(searchView: PersistentSearchView, query: String) {
+            // The results are picked up by performSearch(), which gets called right after
+        }
+
+        override fun onSpeculativeSearchCancelled(searchView: PersistentSearchView, query: String) {
+            speculativeSearchQuery = null
+        }
+
+    }
+
+
     override fun onActivityResult(requestCode: Int, resultCode: Int, data: Intent?) {
         super.onActivityResult(requestCode, resultCode, data)
         VoiceRecognitionDelegate.handleResult(persistentSearchView, requestCode, resultCode, data)
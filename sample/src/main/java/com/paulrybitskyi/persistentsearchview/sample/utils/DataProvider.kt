@@ -16,6 +16,11 @@
 
 package com.paulrybitskyi.persistentsearchview.sample.utils
 
+import com.paulrybitskyi.persistentsearchview.engine.FuzzyMatcher
+import com.paulrybitskyi.persistentsearchview.engine.MatchResults
+import com.paulrybitskyi.persistentsearchview.engine.SuggestionIndex
+import com.paulrybitskyi.persistentsearchview.engine.TokenIndex
+import com.paulrybitskyi.persistentsearchview.engine.TokenMatcher
 import com.paulrybitskyi.persistentsearchview.sample.R
 import com.paulrybitskyi.persistentsearchview.sample.model.User
 import com.paulrybitskyi.persistentsearchview.sample.utils.extensions.random
@@ -25,6 +30,13 @@ import java.util.*
 internal class DataProvider : Serializable {
 
 
+    companion object {
+
+        private const val MAX_SUGGESTION_COUNT = 10
+
+    }
+
+
     private val PROFILE_IMAGE_RESOURCE_IDS = listOf(
         R.drawable.ic_astronaut,    R.drawable.ic_businessman,
         R.drawable.ic_captain,      R.drawable.ic_cashier,
@@ -58,6 +70,22 @@ internal class DataProvider : Serializable {
     )
 
 
+    @Transient
+    private var suggestionIndex: SuggestionIndex? = null
+
+    @Transient
+    private var tokenIndex: TokenIndex? = null
+
+    @Transient
+    private var fuzzyMatcher: FuzzyMatcher? = null
+
+    @Transient
+    private var tokenMatcher: TokenMatcher? = null
+
+    @Transient
+    private var matchResults: MatchResults? = null
+
+
     fun generateUsers(query: String, count: Int): List<User> {
         val random = Random()
         val firstName = query.replaceFirstChar { char -> char.titlecase() }
@@ -76,38 +104,57 @@ internal class DataProvider : Serializable {
     }
 
 
+    // The suggestions are loaded on a background thread,
+    // while the queries are saved and removed on the main one
+
+    @Synchronized
     fun getInitialSearchQueries(): List<String> {
-        return initialSearchQueries
+        return initialSearchQueries.toList()
     }
 
 
+    @Synchronized
     fun getSuggestionsForQuery(query: String): List<String> {
-        val pickedSuggestions = mutableListOf<String>()
-
         if(query.isEmpty()) {
-            pickedSuggestions.addAll(initialSearchQueries)
+            return initialSearchQueries.toList()
+        }
+
+        val index = (suggestionIndex ?: SuggestionIndex.of(initialSearchQueries).also { suggestionIndex = it })
+        val results = (matchResults ?: MatchResults(MAX_SUGGESTION_COUNT).also { matchResults = it })
+
+        if(query.trim().contains(' ')) {
+            // Multi word queries match the words in any order
+            val wordIndex = (tokenIndex ?: TokenIndex.of(index).also { tokenIndex = it })
+            val matcher = (tokenMatcher ?: TokenMatcher().also { tokenMatcher = it })
+
+            matcher.match(query, wordIndex, results)
         } else {
-            initialSearchQueries.forEach {
-                if(it.lowercase().startsWith(query.lowercase())) {
-                    pickedSuggestions.add(it)
-                }
-            }
+            val matcher = (fuzzyMatcher ?: FuzzyMatcher().also { fuzzyMatcher = it })
+
+            matcher.match(query, index, results)
         }
 
-        return pickedSuggestions
+        return List(results.size()) { index.getText(results.getIndex(it)) }
     }
 
 
+    @Synchronized
     fun saveSearchQuery(searchQuery: String) {
         with(initialSearchQueries) {
             remove(searchQuery)
             add(0, searchQuery)
         }
+
+        suggestionIndex = null
+        tokenIndex = null
     }
 
 
+    @Synchronized
     fun removeSearchQuery(searchQuery: String) {
         initialSearchQueries.remove(searchQuery)
+        suggestionIndex = null
+        tokenIndex = null
     }
 
 
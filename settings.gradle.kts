@@ -2,4 +2,6 @@ rootProject.name = "PersistentSearchView"
 
 include(":adapster")
 include(":persistentsearchview")
+include(":persistentsearchview-engine")
+include(":persistentsearchview-ktx")
 include(":sample")